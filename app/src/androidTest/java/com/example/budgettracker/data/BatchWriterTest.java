@@ -0,0 +1,60 @@
+package com.example.budgettracker.data;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.example.budgettracker.models.Transaction;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs against the local Firestore emulator, see {@link EmulatorFirestore}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BatchWriterTest {
+
+    private FirebaseFirestore db;
+    private String userId;
+
+    @Before
+    public void setUp() {
+        db = EmulatorFirestore.get();
+        userId = "batch-test-" + UUID.randomUUID();
+    }
+
+    @Test
+    public void groups_neverStraddleChunks() {
+        BatchWriter writer = new BatchWriter(db);
+        for (int i = 0; i < 499; i++) {
+            writer.batchFor(1);
+        }
+        assertEquals(1, writer.getChunkCount());
+
+        writer.batchFor(2);
+        assertEquals(2, writer.getChunkCount());
+        assertEquals(501, writer.getOperationCount());
+    }
+
+    @Test
+    public void commit_writesEveryChunk() throws Exception {
+        BatchWriter writer = new BatchWriter(db);
+        for (int i = 0; i < 1200; i++) {
+            writer.batchFor(1).set(db.collection("transactions").document(),
+                    new Transaction(userId, "expense", 100, "Food", "Food", new Date()));
+        }
+        assertEquals(3, writer.getChunkCount());
+
+        Tasks.await(writer.commit());
+
+        assertTrue(writer.isEmpty());
+        assertEquals(1200L, (long) Tasks.await(new StatisticsRepository(db).countTransactions(userId)));
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.budgettracker.data;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.budgettracker.models.Transaction;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+@RunWith(AndroidJUnit4.class)
+public class DashboardSnapshotTest {
+
+    private DashboardSnapshot snapshot;
+
+    @Before
+    public void setUp() {
+        snapshot = new DashboardSnapshot(InstrumentationRegistry.getInstrumentation().getTargetContext(),
+                "dashboard-test-" + UUID.randomUUID());
+    }
+
+    @Test
+    public void summary_isOnlyReturnedForTheSavedMonth() {
+        assertNull(snapshot.loadSummary("2024-03"));
+
+        snapshot.saveSummary("2024-03", 250000, 73150);
+
+        assertArrayEquals(new long[]{250000, 73150}, snapshot.loadSummary("2024-03"));
+        assertNull(snapshot.loadSummary("2024-04"));
+    }
+
+    @Test
+    public void recent_roundTrips() {
+        assertNull(snapshot.loadRecent());
+
+        Transaction lunch = new Transaction("u", "expense", 1250, "Food", "Lunch", new Date(1700000000000L));
+        lunch.setId("lunch");
+        Transaction salary = new Transaction("u", "income", 300000, "Salary", null, new Date(1700000100000L));
+        salary.setId("salary");
+        snapshot.saveRecent(Arrays.asList(salary, lunch));
+
+        List<Transaction> recent = snapshot.loadRecent();
+        assertEquals(2, recent.size());
+        assertEquals("salary", recent.get(0).getId());
+        assertEquals("", recent.get(0).getDescription());
+        assertEquals("Lunch", recent.get(1).getDescription());
+        assertEquals(1250, recent.get(1).getAmountCents());
+        assertEquals(1700000000000L, recent.get(1).getTimestamp());
+        assertEquals("expense", recent.get(1).getType());
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.budgettracker.data;
+
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreSettings;
+
+/**
+ * Firestore instance pointed at the local emulator started with
+ * {@code firebase emulators:start} (10.0.2.2 is the host loopback seen from the Android emulator).
+ */
+final class EmulatorFirestore {
+
+    private static FirebaseFirestore instance;
+
+    private EmulatorFirestore() {
+    }
+
+    static synchronized FirebaseFirestore get() {
+        if (instance == null) {
+            instance = FirebaseFirestore.getInstance();
+            instance.useEmulator("10.0.2.2", 8080);
+            instance.setFirestoreSettings(new FirebaseFirestoreSettings.Builder()
+                    .setPersistenceEnabled(false)
+                    .build());
+        }
+        return instance;
+    }
+}
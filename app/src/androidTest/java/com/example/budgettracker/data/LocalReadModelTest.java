@@ -0,0 +1,228 @@
+package com.example.budgettracker.data;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.gms.tasks.Tasks;
+import com.example.budgettracker.aggregation.DailyTotals;
+import com.example.budgettracker.aggregation.TransactionStore;
+import com.example.budgettracker.models.MonthlyRollup;
+import com.example.budgettracker.models.Transaction;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs against the app's SQLite read model on the device, without Firestore.
+ */
+@RunWith(AndroidJUnit4.class)
+public class LocalReadModelTest {
+
+    private LocalReadModel readModel;
+    private String userId;
+    private long monthStart;
+    private long nextMonthStart;
+
+    @Before
+    public void setUp() {
+        readModel = LocalReadModel.getInstance(InstrumentationRegistry.getInstrumentation().getTargetContext());
+        userId = "read-model-test-" + UUID.randomUUID();
+
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(2024, Calendar.MARCH, 1, 0, 0, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        monthStart = calendar.getTimeInMillis();
+        calendar.add(Calendar.MONTH, 1);
+        nextMonthStart = calendar.getTimeInMillis();
+    }
+
+    /** Ids are the primary key across users, keep them unique per test. */
+    private String id(String name) {
+        return userId + "-" + name;
+    }
+
+    private void put(String name, String type, long amountCents, String category, long timestamp) {
+        readModel.put(id(name), new Transaction(userId, type, amountCents, category, category, new Date(timestamp)));
+    }
+
+    private void markSynced() throws Exception {
+        Tasks.await(Tasks.call(readModel.executor(), () -> {
+            readModel.finishFullSync(userId, readModel.generation(userId), System.currentTimeMillis());
+            return null;
+        }));
+    }
+
+    @Test
+    public void queries_returnNullUntilSynced() throws Exception {
+        put("a", "expense", 500, "Food", monthStart + 1);
+
+        assertNull(Tasks.await(readModel.recent(userId, 10)));
+
+        markSynced();
+        assertEquals(1, Tasks.await(readModel.recent(userId, 10)).size());
+    }
+
+    @Test
+    public void recent_isNewestFirstAndLimited() throws Exception {
+        put("old", "expense", 100, "Food", monthStart + 1);
+        put("new", "income", 200, "Salary", monthStart + 3);
+        put("mid", "expense", 300, "Bills", monthStart + 2);
+        markSynced();
+
+        TransactionStore transactions = Tasks.await(readModel.recent(userId, 2));
+        assertEquals(2, transactions.size());
+        assertEquals(id("new"), transactions.getId(0));
+        assertEquals(id("mid"), transactions.getId(1));
+        assertTrue(transactions.isIncome(0));
+    }
+
+    @Test
+    public void page_continuesAfterTheLastRowOfThePreviousPage() throws Exception {
+        // "b" and "c" share a timestamp, the page boundary falls between them
+        put("a", "expense", 100, "Food", monthStart + 3);
+        put("b", "expense", 200, "Food", monthStart + 2);
+        put("c", "expense", 300, "Food", monthStart + 2);
+        put("d", "income", 400, "Salary", monthStart + 1);
+        markSynced();
+
+        TransactionStore first = Tasks.await(readModel.page(userId, Long.MAX_VALUE, null, 2));
+        assertEquals(2, first.size());
+        assertEquals(id("a"), first.getId(0));
+        assertEquals(id("c"), first.getId(1));
+
+        TransactionStore second = Tasks.await(readModel.page(userId, first.getTimestamp(1), first.getId(1), 2));
+        assertEquals(2, second.size());
+        assertEquals(id("b"), second.getId(0));
+        assertEquals(id("d"), second.getId(1));
+
+        assertEquals(0, Tasks.await(readModel.page(userId, second.getTimestamp(1), second.getId(1), 2)).size());
+    }
+
+    @Test
+    public void page_ofTypeIsFullPastRowsOfTheOtherType() throws Exception {
+        put("salary", "income", 100000, "Salary", monthStart + 10);
+        for (int i = 0; i < 5; i++) {
+            put("lunch" + i, "expense", 1200, "Food", monthStart + 9 - i);
+        }
+        put("refund", "income", 500, "Food", monthStart + 1);
+        markSynced();
+
+        TransactionStore first = Tasks.await(readModel.page(userId, "income", Long.MAX_VALUE, null, 1));
+        assertEquals(1, first.size());
+        assertEquals(id("salary"), first.getId(0));
+
+        TransactionStore second = Tasks.await(readModel.page(userId, "income",
+                first.getTimestamp(0), first.getId(0), 1));
+        assertEquals(1, second.size());
+        assertEquals(id("refund"), second.getId(0));
+        assertTrue(second.isIncome(0));
+    }
+
+    @Test
+    public void transactions_returnsTheRowsThatExist() throws Exception {
+        put("a", "expense", 100, "Food", monthStart + 1);
+        markSynced();
+
+        Map<String, Transaction> rows = Tasks.await(readModel.transactions(userId,
+                Arrays.asList(id("a"), id("missing"))));
+
+        assertEquals(1, rows.size());
+        assertEquals(100, rows.get(id("a")).getAmountCents());
+        assertEquals(id("a"), rows.get(id("a")).getId());
+    }
+
+    @Test
+    public void loadMonths_groupsByTypeAndCategory() throws Exception {
+        put("salary", "income", 100000, "Salary", monthStart + 1);
+        put("lunch", "expense", 1200, "Food", monthStart + 2);
+        put("dinner", "expense", 2800, "Food", monthStart + 3);
+        put("rent", "expense", 50000, "Bills", monthStart + 4);
+        put("april", "expense", 999, "Food", nextMonthStart);
+        markSynced();
+
+        List<MonthlyRollup> rollups = Tasks.await(readModel.loadMonths(userId, new long[]{monthStart, nextMonthStart}));
+        MonthlyRollup march = rollups.get(0);
+        assertEquals(1, rollups.size());
+        assertEquals(100000, march.getTotalIncomeCents());
+        assertEquals(54000, march.getTotalExpenseCents());
+        assertEquals(4, march.getTransactionCount());
+        assertEquals(4000, march.getExpenseCentsFor("Food"));
+        assertTrue(MonthlyRollup.isUsable(march));
+    }
+
+    @Test
+    public void fullSync_dropsRowsItDidNotSee() throws Exception {
+        put("stale", "expense", 100, "Food", monthStart + 1);
+        markSynced();
+
+        // A new pass that does not see "stale", which was deleted in Firestore meanwhile
+        Tasks.await(Tasks.call(readModel.executor(), () -> readModel.nextGeneration(userId)));
+        put("fresh", "expense", 200, "Food", monthStart + 2);
+        markSynced();
+
+        TransactionStore transactions = Tasks.await(readModel.recent(userId, 10));
+        assertEquals(1, transactions.size());
+        assertEquals(id("fresh"), transactions.getId(0));
+    }
+
+    @Test
+    public void search_followsWritesAfterTheIndexIsBuilt() throws Exception {
+        readModel.put(id("coffee"), new Transaction(userId, "expense", 350, "Food", "Coffee beans",
+                new Date(monthStart + 1)));
+        readModel.put(id("train"), new Transaction(userId, "expense", 900, "Transportation", "Train",
+                new Date(monthStart + 2)));
+        markSynced();
+
+        TransactionStore results = Tasks.await(readModel.search(userId, "coff", 10));
+        assertEquals(1, results.size());
+        assertEquals(id("coffee"), results.getId(0));
+        assertEquals(350, results.getAmountCents(0));
+
+        // Written after the first search built the index
+        readModel.put(id("espresso"), new Transaction(userId, "expense", 250, "Food", "Espresso and coffee",
+                new Date(monthStart + 3)));
+        readModel.remove(id("coffee"));
+
+        results = Tasks.await(readModel.search(userId, "coffee", 10));
+        assertEquals(1, results.size());
+        assertEquals(id("espresso"), results.getId(0));
+        assertEquals(1, Tasks.await(readModel.search(userId, "food", 10)).size());
+    }
+
+    @Test
+    public void summarize_followsReplacesAndDeletesAfterTheTotalsAreBuilt() throws Exception {
+        long day = 24L * 60 * 60 * 1000;
+        put("salary", "income", 100000, "Salary", monthStart + 1);
+        put("lunch", "expense", 1200, "Food", monthStart + 2);
+        put("rent", "expense", 50000, "Bills", monthStart + 10 * day);
+        markSynced();
+
+        long[] boundaries = {monthStart, monthStart + day, nextMonthStart};
+        List<DailyTotals.Summary> summaries = Tasks.await(readModel.summarize(userId, boundaries));
+        assertEquals(2, summaries.size());
+        assertEquals(100000, summaries.get(0).getIncomeCents());
+        assertEquals(1200, summaries.get(0).getExpenseCents());
+        assertEquals(50000, summaries.get(1).getExpenseCents());
+
+        // Written after the first summary built the totals: an edit moving rent, and a delete
+        put("rent", "expense", 45000, "Bills", monthStart + 3);
+        readModel.remove(id("salary"));
+
+        summaries = Tasks.await(readModel.summarize(userId, boundaries));
+        assertEquals(0, summaries.get(0).getIncomeCents());
+        assertEquals(46200, summaries.get(0).getExpenseCents());
+        assertEquals(0, summaries.get(1).getExpenseCents());
+        MonthlyRollup range = Tasks.await(readModel.loadRange(userId, monthStart, monthStart + day));
+        assertEquals(45000, range.getExpenseCentsFor("Bills"));
+    }
+}
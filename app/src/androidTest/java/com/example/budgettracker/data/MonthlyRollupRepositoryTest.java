@@ -0,0 +1,156 @@
+package com.example.budgettracker.data;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+import com.example.budgettracker.aggregation.TransactionAggregator;
+import com.example.budgettracker.models.MonthlyRollup;
+import com.example.budgettracker.models.Transaction;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs against the local Firestore emulator, see {@link EmulatorFirestore}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MonthlyRollupRepositoryTest {
+
+    private FirebaseFirestore db;
+    private MonthlyRollupRepository repository;
+    private String userId;
+    private long monthStart;
+
+    @Before
+    public void setUp() {
+        db = EmulatorFirestore.get();
+        repository = new MonthlyRollupRepository(db);
+        userId = "rollup-test-" + UUID.randomUUID();
+
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(2024, Calendar.MARCH, 1, 0, 0, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        monthStart = calendar.getTimeInMillis();
+    }
+
+    private Transaction transaction(String type, long amountCents, String category) {
+        return new Transaction(userId, type, amountCents, category, category, new Date(monthStart + 60_000));
+    }
+
+    private DocumentReference add(Transaction transaction) throws Exception {
+        DocumentReference ref = db.collection("transactions").document();
+        WriteBatch batch = db.batch();
+        batch.set(ref, transaction);
+        repository.recordAdd(batch, transaction);
+        Tasks.await(batch.commit());
+        return ref;
+    }
+
+    private MonthlyRollup read() throws Exception {
+        return Tasks.await(repository.document(userId, "2024-03").get()).toObject(MonthlyRollup.class);
+    }
+
+    @Test
+    public void writes_updateRollupAtomically() throws Exception {
+        add(transaction("income", 100000, "Salary"));
+        Transaction food = transaction("expense", 4000, "Food");
+        DocumentReference foodRef = add(food);
+        add(transaction("expense", 1500, "Bills"));
+
+        MonthlyRollup rollup = read();
+        assertEquals(100000, rollup.getTotalIncomeCents());
+        assertEquals(5500, rollup.getTotalExpenseCents());
+        assertEquals(3, rollup.getTransactionCount());
+        assertEquals(4000, rollup.getExpenseCentsFor("Food"));
+
+        WriteBatch batch = db.batch();
+        batch.delete(foodRef);
+        repository.recordRemove(batch, food);
+        Tasks.await(batch.commit());
+
+        rollup = read();
+        assertEquals(1500, rollup.getTotalExpenseCents());
+        assertEquals(2, rollup.getTransactionCount());
+        assertEquals(0, rollup.getExpenseCentsFor("Food"));
+    }
+
+    @Test
+    public void rebuild_backfillsMonthWrittenWithoutRollups() throws Exception {
+        Tasks.await(db.collection("transactions").add(transaction("expense", 2000, "Food")));
+        Tasks.await(db.collection("transactions").add(transaction("expense", 500, "Food")));
+
+        MonthlyRollup rebuilt = Tasks.await(repository.rebuild(userId, monthStart));
+
+        assertTrue(rebuilt.isComplete());
+        assertEquals(2500, rebuilt.getExpenseCentsFor("Food"));
+        assertEquals(2500, read().getTotalExpenseCents());
+    }
+
+    @Test
+    public void rebuild_keepsWritesThatLandWhileItRuns() throws Exception {
+        // Written without rollups, so the month is incomplete and needs a rebuild
+        Tasks.await(db.collection("transactions").add(transaction("expense", 1000, "Food")));
+
+        Task<MonthlyRollup> rebuild = repository.rebuild(userId, monthStart);
+        List<Task<Void>> adds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            WriteBatch batch = db.batch();
+            Transaction transaction = transaction("expense", 100, "Food");
+            batch.set(db.collection("transactions").document(), transaction);
+            repository.recordAdd(batch, transaction);
+            adds.add(batch.commit());
+        }
+        Tasks.await(Tasks.whenAll(adds));
+        Tasks.await(rebuild);
+
+        MonthlyRollup rollup = read();
+        assertTrue(MonthlyRollup.isUsable(rollup));
+        assertEquals(3000, rollup.getTotalExpenseCents());
+        assertEquals(21, rollup.getTransactionCount());
+        // Bumped by the rebuild and by every add
+        assertTrue(rollup.getRevision() >= 21);
+    }
+
+    @Test
+    public void loadMonths_rebuildsDoubleRollupFromLegacyDocuments() throws Exception {
+        // A transaction and a complete rollup as written before amounts moved to cents
+        Map<String, Object> legacyTransaction = new HashMap<>();
+        legacyTransaction.put("userId", userId);
+        legacyTransaction.put("type", "expense");
+        legacyTransaction.put("amount", 19.99);
+        legacyTransaction.put("category", "Food");
+        legacyTransaction.put("timestamp", monthStart + 60_000);
+        Tasks.await(db.collection("transactions").add(legacyTransaction));
+
+        Map<String, Object> legacyRollup = new HashMap<>();
+        legacyRollup.put("userId", userId);
+        legacyRollup.put("month", "2024-03");
+        legacyRollup.put("totalExpense", 19.99);
+        legacyRollup.put("complete", true);
+        Tasks.await(repository.document(userId, "2024-03").set(legacyRollup));
+
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(monthStart);
+        long[] monthStarts = {monthStart, TransactionAggregator.monthStart(calendar, 1)};
+        List<MonthlyRollup> rollups = Tasks.await(repository.loadMonths(userId, monthStarts));
+
+        assertEquals(1999, rollups.get(0).getTotalExpenseCents());
+        assertTrue(MonthlyRollup.isUsable(read()));
+        assertEquals(1999, read().getExpenseCentsFor("Food"));
+    }
+}
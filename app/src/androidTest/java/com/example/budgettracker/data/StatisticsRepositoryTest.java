@@ -0,0 +1,54 @@
+package com.example.budgettracker.data;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+import com.example.budgettracker.models.Budget;
+import com.example.budgettracker.models.Transaction;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs against the local Firestore emulator, see {@link EmulatorFirestore}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StatisticsRepositoryTest {
+
+    private FirebaseFirestore db;
+    private StatisticsRepository statistics;
+    private String userId;
+
+    @Before
+    public void setUp() {
+        db = EmulatorFirestore.get();
+        statistics = new StatisticsRepository(db);
+        userId = "statistics-test-" + UUID.randomUUID();
+    }
+
+    @Test
+    public void counts_onlyTheUsersDocuments() throws Exception {
+        WriteBatch batch = db.batch();
+        for (int i = 0; i < 3; i++) {
+            batch.set(db.collection("transactions").document(),
+                    new Transaction(userId, "expense", 100, "Food", "Food", new Date()));
+        }
+        batch.set(db.collection("transactions").document(),
+                new Transaction("someone-else", "expense", 100, "Food", "Food", new Date()));
+        batch.set(db.collection("budgets").document(), new Budget(userId, "Food", 5000, "2024-03"));
+        batch.set(db.collection("budgets").document(), new Budget(userId, "Bills", 5000, "2024-04"));
+        Tasks.await(batch.commit());
+
+        assertEquals(3L, (long) Tasks.await(statistics.countTransactions(userId)));
+        assertEquals(1L, (long) Tasks.await(statistics.countBudgets(userId, "2024-03")));
+        assertEquals(0L, (long) Tasks.await(statistics.countTransactions("nobody-" + userId)));
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.budgettracker.data;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.example.budgettracker.models.Transaction;
+import com.example.budgettracker.transfer.TransactionWriter;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs against the local Firestore emulator, see {@link EmulatorFirestore}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TransactionExporterTest {
+
+    private static final String TAG = "TransactionExporterTest";
+
+    private FirebaseFirestore db;
+    private String userId;
+
+    @Before
+    public void setUp() {
+        db = EmulatorFirestore.get();
+        userId = "export-test-" + UUID.randomUUID();
+    }
+
+    /** {@code count} expenses; every three share a timestamp so pages end inside a run of equal timestamps. */
+    private void seed(int count) throws Exception {
+        BatchWriter writer = new BatchWriter(db);
+        for (int i = 0; i < count; i++) {
+            writer.batchFor(1).set(db.collection("transactions").document(),
+                    new Transaction(userId, "expense", 100 + i, "Food", "Row " + i, new Date(1_000_000L * (i / 3))));
+            if (writer.getOperationCount() == 10 * BatchWriter.MAX_OPERATIONS) {
+                Tasks.await(writer.commit());
+            }
+        }
+        Tasks.await(writer.commit());
+    }
+
+    /** Records what is written instead of encoding it. */
+    private static class RecordingWriter implements TransactionWriter {
+        long lastTimestamp = Long.MIN_VALUE;
+        long amountSum = 0;
+        int written = 0;
+        boolean ordered = true;
+
+        @Override
+        public void write(String id, long timestamp, String type, long amountCents, String category,
+                          String description) {
+            ordered &= timestamp >= lastTimestamp;
+            lastTimestamp = timestamp;
+            amountSum += amountCents;
+            written++;
+        }
+
+        @Override
+        public int getWrittenCount() {
+            return written;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    public void run_writesEveryTransactionOnceInTimestampOrder() throws Exception {
+        int count = 3 * TransactionExporter.PAGE_SIZE + 7;
+        seed(count);
+
+        RecordingWriter writer = new RecordingWriter();
+        int written = new TransactionExporter(db).run(userId, writer, null);
+
+        assertEquals(count, written);
+        assertTrue(writer.ordered);
+        // 100 + 101 + ... + (99 + count), so no row was written twice or skipped
+        assertEquals((long) count * 100 + (long) count * (count - 1) / 2, writer.amountSum);
+    }
+
+    @Test
+    public void run_emptyHistoryWritesNothing() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (TransactionWriter writer = TransactionWriter.open(out, TransactionWriter.Format.JSON, false)) {
+            assertEquals(0, new TransactionExporter(db).run(userId, writer, null));
+        }
+        assertEquals("[\n]\n", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void run_exportsOneHundredThousandTransactions() throws Exception {
+        seed(100_000);
+
+        for (TransactionWriter.Format format : TransactionWriter.Format.values()) {
+            for (boolean gzip : new boolean[]{false, true}) {
+                CountingOutputStream out = new CountingOutputStream();
+                long start = System.nanoTime();
+                int written;
+                try (TransactionWriter writer = TransactionWriter.open(out, format, gzip)) {
+                    written = new TransactionExporter(db).run(userId, writer, null);
+                }
+                long millis = (System.nanoTime() - start) / 1_000_000;
+
+                assertEquals(100_000, written);
+                Log.i(TAG, format + (gzip ? " gzip" : "") + ": " + millis + " ms, " + out.bytes + " bytes");
+            }
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.budgettracker.data;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.example.budgettracker.models.CategoryDictionary;
+import com.example.budgettracker.models.MonthlyRollup;
+import com.example.budgettracker.transfer.CategoryMapper;
+import com.example.budgettracker.transfer.CsvTransactionReader;
+import com.example.budgettracker.transfer.TransactionReader;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs against the local Firestore emulator, see {@link EmulatorFirestore}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TransactionImporterTest {
+
+    private FirebaseFirestore db;
+    private TransactionImporter importer;
+    private String userId;
+
+    @Before
+    public void setUp() {
+        db = EmulatorFirestore.get();
+        importer = new TransactionImporter(db, null);
+        userId = "import-test-" + UUID.randomUUID();
+    }
+
+    /** A CSV of {@code rows} expenses of 1.00, 28 a month from January 2020, generated while it is read. */
+    private static class GeneratedCsv extends Reader {
+        private final int rows;
+        private final int failAfter;
+        private int row = -1;
+        private String pending = "date,amount,description\n";
+        private int position = 0;
+
+        GeneratedCsv(int rows, int failAfter) {
+            this.rows = rows;
+            this.failAfter = failAfter;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            if (position == pending.length()) {
+                row++;
+                if (row == failAfter) throw new IOException("Interrupted");
+                if (row >= rows) return -1;
+                int day = row % 28 + 1;
+                int month = row / 28 % 12 + 1;
+                int year = 2020 + row / 336 % 4;
+                pending = String.format("%d-%02d-%02d,-1.00,Coffee %d\n", year, month, day, row);
+                position = 0;
+            }
+            int count = Math.min(length, pending.length() - position);
+            pending.getChars(position, position + count, buffer, offset);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private TransactionReader reader(int rows, int failAfter) throws IOException {
+        return new CsvTransactionReader(new GeneratedCsv(rows, failAfter),
+                new CategoryMapper(CategoryDictionary.getInstance()));
+    }
+
+    @Test
+    public void run_writesTransactionsAndRollups() throws Exception {
+        TransactionImporter.Result result = importer.run(userId, "test-" + userId, reader(1000, -1), null);
+
+        assertEquals(1000, result.getImported());
+        assertEquals(0, result.getSkipped());
+        assertEquals(1000L, (long) Tasks.await(new StatisticsRepository(db).countTransactions(userId)));
+
+        // Rows 0..27 are January 2020, all "Food" via the "coffee" keyword
+        MonthlyRollup january = Tasks.await(new MonthlyRollupRepository(db).document(userId, "2020-01").get())
+                .toObject(MonthlyRollup.class);
+        assertEquals(28, january.getTransactionCount());
+        assertEquals(2800, january.getTotalExpenseCents());
+        assertEquals(2800, january.getExpenseCentsFor("Food"));
+    }
+
+    @Test
+    public void run_resumesAnInterruptedImport() throws Exception {
+        String importId = "test-" + userId;
+        try {
+            importer.run(userId, importId, reader(2000, 1500), null);
+            fail("The reader fails after 1500 rows");
+        } catch (IOException expected) {
+            // Chunks before the failure are committed
+        }
+
+        TransactionImporter.Result result = importer.run(userId, importId, reader(2000, -1), null);
+
+        assertTrue(result.getAlreadyImported() >= TransactionImporter.CHUNK_ROWS);
+        assertEquals(2000, result.getImported() + result.getAlreadyImported());
+        assertEquals(2000L, (long) Tasks.await(new StatisticsRepository(db).countTransactions(userId)));
+    }
+
+    @Test
+    public void run_importsOneHundredThousandRowsWithinAMinute() throws Exception {
+        long start = System.nanoTime();
+        TransactionImporter.Result result = importer.run(userId, "test-" + userId, reader(100_000, -1), null);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(100_000, result.getImported());
+        assertTrue("Took " + millis + " ms", millis < 60_000);
+    }
+}
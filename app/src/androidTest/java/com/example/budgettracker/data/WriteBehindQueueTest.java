@@ -0,0 +1,154 @@
+package com.example.budgettracker.data;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
+import com.example.budgettracker.models.MonthlyRollup;
+import com.example.budgettracker.models.Transaction;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs against the local Firestore emulator, see {@link EmulatorFirestore}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class WriteBehindQueueTest {
+
+    private FirebaseFirestore db;
+    private WriteBehindQueue queue;
+    private String userId;
+    private Date date;
+
+    @Before
+    public void setUp() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = EmulatorFirestore.get();
+        queue = new WriteBehindQueue(context, db, LocalReadModel.getInstance(context));
+        userId = "write-behind-test-" + UUID.randomUUID();
+        // Rows another test left behind must not end up in the batches checked here
+        Tasks.await(queue.flush());
+
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(2024, Calendar.MAY, 10, 12, 0, 0);
+        date = calendar.getTime();
+    }
+
+    private MonthlyRollup may() throws Exception {
+        return Tasks.await(new MonthlyRollupRepository(db).document(userId, "2024-05").get())
+                .toObject(MonthlyRollup.class);
+    }
+
+    @Test
+    public void flush_writesQueuedTransactionsAndRollups() throws Exception {
+        for (int i = 0; i < 150; i++) {
+            queue.add(new Transaction(userId, "expense", 100, "Food", "Lunch " + i, date));
+        }
+        queue.add(new Transaction(userId, "income", 5000, "Salary", "Pay", date));
+
+        Tasks.await(queue.flush());
+
+        // More rows than one check of MAX_BATCH settles
+        assertEquals(151L, (long) Tasks.await(new StatisticsRepository(db).countTransactions(userId)));
+        MonthlyRollup may = may();
+        assertEquals(151, may.getTransactionCount());
+        assertEquals(15000, may.getTotalExpenseCents());
+        assertEquals(5000, may.getTotalIncomeCents());
+    }
+
+    @Test
+    public void flush_writesDocumentsThatMapBackToTransactions() throws Exception {
+        String id = queue.add(new Transaction(userId, "expense", 1250, "Food", "Dinner", date));
+
+        Tasks.await(queue.flush());
+
+        Transaction flushed = Tasks.await(db.collection("transactions").document(id).get())
+                .toObject(Transaction.class);
+        assertNotNull(flushed);
+        assertEquals(date, flushed.getDate());
+        assertEquals(date.getTime(), flushed.getTimestamp());
+        assertEquals(1250, flushed.getAmountCents());
+        assertEquals("Dinner", flushed.getDescription());
+    }
+
+    @Test
+    public void add_showsInTheDashboardSourcesBeforeTheServerHasIt() throws Exception {
+        // Offline, so nothing can have reached the server
+        Tasks.await(db.disableNetwork());
+        String id;
+        try {
+            id = queue.add(new Transaction(userId, "expense", 1250, "Food", "Dinner", date));
+
+            // What the dashboard listens to: the month's rollup and the newest transactions
+            MonthlyRollup may = Tasks.await(new MonthlyRollupRepository(db).document(userId, "2024-05")
+                    .get(Source.CACHE)).toObject(MonthlyRollup.class);
+            assertNotNull(may);
+            assertEquals(1, may.getTransactionCount());
+            assertEquals(1250, may.getTotalExpenseCents());
+
+            QuerySnapshot recent = Tasks.await(db.collection("transactions")
+                    .whereEqualTo("userId", userId)
+                    .orderBy("timestamp", Query.Direction.DESCENDING)
+                    .limit(5)
+                    .get(Source.CACHE));
+            assertEquals(1, recent.size());
+            assertEquals(id, recent.getDocuments().get(0).getId());
+        } finally {
+            Tasks.await(db.enableNetwork());
+        }
+
+        Tasks.await(queue.flush());
+
+        assertEquals(1L, (long) Tasks.await(new StatisticsRepository(db).countTransactions(userId)));
+        assertEquals(1250, may().getTotalExpenseCents());
+    }
+
+    @Test
+    public void flush_skipsATransactionThatWasAlreadyCommitted() throws Exception {
+        Transaction lunch = new Transaction(userId, "expense", 100, "Food", "Lunch", date);
+        String id = db.collection("transactions").document().getId();
+        // As if the commit had reached the server and only the acknowledgement was lost,
+        // leaving the row queued
+        WriteBatch batch = db.batch();
+        batch.set(db.collection("transactions").document(id), lunch);
+        new MonthlyRollupRepository(db).recordAdds(batch, userId, Collections.singletonList(lunch));
+        Tasks.await(batch.commit());
+        queue.enqueue(id, lunch);
+
+        Tasks.await(queue.flush());
+
+        assertEquals(1L, (long) Tasks.await(new StatisticsRepository(db).countTransactions(userId)));
+        MonthlyRollup may = may();
+        assertEquals(1, may.getTransactionCount());
+        assertEquals(100, may.getTotalExpenseCents());
+    }
+
+    @Test
+    public void flush_commitsATransactionThatNeverReachedFirestore() throws Exception {
+        Transaction lunch = new Transaction(userId, "expense", 100, "Food", "Lunch", date);
+        String id = db.collection("transactions").document().getId();
+        // Queued, but the process ended before the batch was handed to Firestore
+        queue.enqueue(id, lunch);
+
+        Tasks.await(queue.flush());
+
+        assertTrue(Tasks.await(db.collection("transactions").document(id).get()).exists());
+        assertEquals(1, may().getTransactionCount());
+    }
+}
@@ -3,10 +3,8 @@ package com.example.budgettracker;
 import android.app.DatePickerDialog;
 import android.os.Bundle;
 import android.text.TextUtils;
-import android.view.View;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
-import android.widget.ProgressBar;
 import android.widget.RadioButton;
 import android.widget.RadioGroup;
 import android.widget.Spinner;
@@ -19,6 +17,10 @@ import androidx.appcompat.widget.Toolbar;
 import com.google.android.material.textfield.TextInputEditText;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.example.budgettracker.data.CategoryRepository;
+import com.example.budgettracker.data.WriteBehindQueue;
+import com.example.budgettracker.models.CategoryDictionary;
+import com.example.budgettracker.models.Money;
 import com.example.budgettracker.models.Transaction;
 
 import java.text.SimpleDateFormat;
@@ -34,16 +36,13 @@ public class AddTransactionActivity extends AppCompatActivity {
     private Spinner categorySpinner;
     private Button selectDateButton, saveButton;
     private TextView selectedDateTextView;
-    private ProgressBar progressBar;
 
     private FirebaseAuth mAuth;
     private FirebaseFirestore db;
     private String userId;
 
     private Date selectedDate;
-    private String[] incomeCategories = {"Salary", "Business", "Investments", "Gifts", "Other Income"};
-    private String[] expenseCategories = {"Food", "Transportation", "Shopping", "Entertainment",
-            "Bills", "Healthcare", "Education", "Travel", "Other Expense"};
+    private final CategoryDictionary categories = CategoryDictionary.getInstance();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -66,7 +65,11 @@ public class AddTransactionActivity extends AppCompatActivity {
         selectedDate = new Date();
         updateDateDisplay();
 
-        setupCategorySpinner(expenseCategories);
+        setupCategorySpinner("expense");
+
+        new CategoryRepository(db).load(userId)
+                .addOnSuccessListener(this, unused ->
+                        setupCategorySpinner(incomeRadioButton.isChecked() ? "income" : "expense"));
 
         setupListeners();
     }
@@ -81,15 +84,14 @@ public class AddTransactionActivity extends AppCompatActivity {
         selectDateButton = findViewById(R.id.selectDateButton);
         selectedDateTextView = findViewById(R.id.selectedDateTextView);
         saveButton = findViewById(R.id.saveButton);
-        progressBar = findViewById(R.id.progressBar);
     }
 
     private void setupListeners() {
         typeRadioGroup.setOnCheckedChangeListener((group, checkedId) -> {
             if (checkedId == R.id.incomeRadioButton) {
-                setupCategorySpinner(incomeCategories);
+                setupCategorySpinner("income");
             } else {
-                setupCategorySpinner(expenseCategories);
+                setupCategorySpinner("expense");
             }
         });
 
@@ -98,11 +100,18 @@ public class AddTransactionActivity extends AppCompatActivity {
         saveButton.setOnClickListener(v -> saveTransaction());
     }
 
-    private void setupCategorySpinner(String[] categories) {
+    private void setupCategorySpinner(String type) {
+        Object selected = categorySpinner.getSelectedItem();
         ArrayAdapter<String> adapter = new ArrayAdapter<>(this,
-                android.R.layout.simple_spinner_item, categories);
+                android.R.layout.simple_spinner_item, categories.namesFor(type));
         adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         categorySpinner.setAdapter(adapter);
+
+        // Keep the choice when the list is refreshed with the user's own categories
+        int position = selected != null ? categories.positionIn(type, selected.toString()) : -1;
+        if (position >= 0) {
+            categorySpinner.setSelection(position);
+        }
     }
 
     private void showDatePicker() {
@@ -142,9 +151,9 @@ public class AddTransactionActivity extends AppCompatActivity {
             return;
         }
 
-        double amount;
+        long amount;
         try {
-            amount = Double.parseDouble(amountStr);
+            amount = Money.parseCents(amountStr);
             if (amount <= 0) {
                 amountEditText.setError("Amount must be greater than 0");
                 amountEditText.requestFocus();
@@ -160,25 +169,12 @@ public class AddTransactionActivity extends AppCompatActivity {
             description = category; // Use category as default description
         }
 
-        progressBar.setVisibility(View.VISIBLE);
-        saveButton.setEnabled(false);
-
         Transaction transaction = new Transaction(userId, type, amount, category, description, selectedDate);
 
-        db.collection("transactions")
-                .add(transaction)
-                .addOnSuccessListener(documentReference -> {
-                    progressBar.setVisibility(View.GONE);
-                    saveButton.setEnabled(true);
-                    Toast.makeText(AddTransactionActivity.this,
-                            "Transaction saved successfully!", Toast.LENGTH_SHORT).show();
-                    finish();
-                })
-                .addOnFailureListener(e -> {
-                    progressBar.setVisibility(View.GONE);
-                    saveButton.setEnabled(true);
-                    Toast.makeText(AddTransactionActivity.this,
-                            "Error saving transaction: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                });
+        // Shows up in the local views right away; the write itself happens in the background
+        WriteBehindQueue.getInstance(this).add(transaction);
+
+        Toast.makeText(this, "Transaction saved successfully!", Toast.LENGTH_SHORT).show();
+        finish();
     }
 }
\ No newline at end of file
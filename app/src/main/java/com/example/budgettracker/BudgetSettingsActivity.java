@@ -18,17 +18,32 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.textfield.TextInputEditText;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.example.budgettracker.adapters.BudgetAdapter;
+import com.example.budgettracker.aggregation.BudgetSpentIndex;
+import com.example.budgettracker.aggregation.TransactionAggregator;
+import com.example.budgettracker.data.ListenerRegistry;
+import com.example.budgettracker.data.CategoryRepository;
+import com.example.budgettracker.data.LocalReadModel;
+import com.example.budgettracker.data.MonthlyRollupRepository;
+import com.example.budgettracker.models.CategoryDictionary;
 import com.example.budgettracker.models.Budget;
-import com.example.budgettracker.models.Transaction;
+import com.example.budgettracker.models.Money;
+import com.example.budgettracker.models.MonthlyRollup;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 public class BudgetSettingsActivity extends AppCompatActivity {
 
@@ -43,11 +58,17 @@ public class BudgetSettingsActivity extends AppCompatActivity {
 
     private FirebaseAuth mAuth;
     private FirebaseFirestore db;
+    private MonthlyRollupRepository rollupRepository;
+    private ListenerRegistry listeners;
+    private LocalReadModel readModel;
     private String userId;
     private String currentMonth;
+    private boolean rollupRebuildRequested = false;
+    private boolean budgetsLive = false;
+    private boolean spentLive = false;
+    private final BudgetSpentIndex budgetIndex = new BudgetSpentIndex();
 
-    private String[] expenseCategories = {"Food", "Transportation", "Shopping", "Entertainment",
-            "Bills", "Healthcare", "Education", "Travel", "Other Expense"};
+    private final CategoryDictionary categories = CategoryDictionary.getInstance();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -57,6 +78,9 @@ public class BudgetSettingsActivity extends AppCompatActivity {
         // Initialize Firebase
         mAuth = FirebaseAuth.getInstance();
         db = FirebaseFirestore.getInstance();
+        rollupRepository = new MonthlyRollupRepository(db);
+        listeners = ListenerRegistry.getInstance();
+        readModel = LocalReadModel.getInstance(this);
         userId = mAuth.getCurrentUser().getUid();
 
         // Get current month
@@ -81,11 +105,10 @@ public class BudgetSettingsActivity extends AppCompatActivity {
         budgetsRecyclerView = findViewById(R.id.budgetsRecyclerView);
         noBudgetsTextView = findViewById(R.id.noBudgetsTextView);
 
-        // Setup category spinner
-        ArrayAdapter<String> spinnerAdapter = new ArrayAdapter<>(this,
-                android.R.layout.simple_spinner_item, expenseCategories);
-        spinnerAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
-        categorySpinner.setAdapter(spinnerAdapter);
+        // Setup category spinner, again once the user's own categories are loaded
+        setupCategorySpinner();
+        new CategoryRepository(db).load(userId)
+                .addOnSuccessListener(this, unused -> setupCategorySpinner());
 
         // Setup RecyclerView
         budgetsRecyclerView.setLayoutManager(new LinearLayoutManager(this));
@@ -95,10 +118,24 @@ public class BudgetSettingsActivity extends AppCompatActivity {
         // Setup listeners
         addBudgetButton.setOnClickListener(v -> addBudget());
 
-        // Load budgets
+        // Show the local copy right away, then the live listeners take over
+        loadLocalBudgets();
         loadBudgets();
     }
 
+    private void setupCategorySpinner() {
+        Object selected = categorySpinner.getSelectedItem();
+        ArrayAdapter<String> spinnerAdapter = new ArrayAdapter<>(this,
+                android.R.layout.simple_spinner_item, categories.namesFor("expense"));
+        spinnerAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        categorySpinner.setAdapter(spinnerAdapter);
+
+        int position = selected != null ? categories.positionIn("expense", selected.toString()) : -1;
+        if (position >= 0) {
+            categorySpinner.setSelection(position);
+        }
+    }
+
     private void addBudget() {
         String category = categorySpinner.getSelectedItem().toString();
         String limitStr = budgetLimitEditText.getText().toString().trim();
@@ -109,9 +146,9 @@ public class BudgetSettingsActivity extends AppCompatActivity {
             return;
         }
 
-        double limit;
+        long limit;
         try {
-            limit = Double.parseDouble(limitStr);
+            limit = Money.parseCents(limitStr);
             if (limit <= 0) {
                 budgetLimitEditText.setError("Limit must be greater than 0");
                 budgetLimitEditText.requestFocus();
@@ -123,7 +160,7 @@ public class BudgetSettingsActivity extends AppCompatActivity {
             return;
         }
 
-        Log.d(TAG, "Adding budget for category: " + category + ", limit: " + limit);
+        Log.d(TAG, "Adding budget for category: " + category + ", limit: " + Money.toPlainString(limit));
 
         // Check if budget already exists for this category
         db.collection("budgets")
@@ -138,11 +175,11 @@ public class BudgetSettingsActivity extends AppCompatActivity {
                         Log.d(TAG, "Updating existing budget: " + docId);
 
                         db.collection("budgets").document(docId)
-                                .update("limit", limit)
+                                // The double field is kept in step for older app versions
+                                .update("limitCents", limit, "limit", Money.toAmount(limit))
                                 .addOnSuccessListener(aVoid -> {
                                     Toast.makeText(this, "Budget updated!", Toast.LENGTH_SHORT).show();
                                     budgetLimitEditText.setText("");
-                                    loadBudgets();
                                 })
                                 .addOnFailureListener(e -> {
                                     Log.e(TAG, "Error updating budget", e);
@@ -159,7 +196,6 @@ public class BudgetSettingsActivity extends AppCompatActivity {
                                     Log.d(TAG, "Budget added successfully: " + documentReference.getId());
                                     Toast.makeText(this, "Budget added!", Toast.LENGTH_SHORT).show();
                                     budgetLimitEditText.setText("");
-                                    loadBudgets();
                                 })
                                 .addOnFailureListener(e -> {
                                     Log.e(TAG, "Error adding budget", e);
@@ -173,90 +209,123 @@ public class BudgetSettingsActivity extends AppCompatActivity {
                 });
     }
 
+    private void loadLocalBudgets() {
+        Calendar now = Calendar.getInstance();
+        long[] month = {TransactionAggregator.monthStart(now, 0), TransactionAggregator.monthStart(now, 1)};
+
+        readModel.budgets(userId, currentMonth).addOnSuccessListener(this, budgets -> {
+            // Null until the read model has synced; a live snapshot that came first wins
+            if (budgets == null || budgetsLive) return;
+
+            for (Budget budget : budgets) {
+                budgetIndex.putBudget(budget);
+            }
+            showBudgets();
+        });
+        readModel.loadMonths(userId, month).addOnSuccessListener(this, rollups -> {
+            if (rollups == null || spentLive) return;
+
+            if (budgetIndex.applySpent(rollups.get(0).getExpenseCentsByCategory())) {
+                showBudgets();
+            }
+        });
+    }
+
     private void loadBudgets() {
         Log.d(TAG, "Loading budgets for user: " + userId + ", month: " + currentMonth);
 
-        db.collection("budgets")
+        Query query = db.collection("budgets")
                 .whereEqualTo("userId", userId)
-                .whereEqualTo("month", currentMonth)
-                .addSnapshotListener((value, error) -> {
-                    if (error != null) {
-                        Log.e(TAG, "Error loading budgets", error);
-                        return;
-                    }
+                .whereEqualTo("month", currentMonth);
 
-                    if (value != null && !value.isEmpty()) {
-                        Log.d(TAG, "Found " + value.size() + " budgets");
-                        List<Budget> budgets = new ArrayList<>();
+        // The live listener already picks up added and updated budgets
+        listeners.listen(this, query, (value, error) -> {
+            if (error != null) {
+                Log.e(TAG, "Error loading budgets", error);
+                return;
+            }
 
-                        for (QueryDocumentSnapshot document : value) {
-                            Budget budget = document.toObject(Budget.class);
-                            budget.setId(document.getId());
-                            budgets.add(budget);
-                            Log.d(TAG, "Budget: " + budget.getCategory() + " - $" + budget.getLimit());
-                        }
+            if (value == null) return;
 
-                        // Calculate spent amounts
-                        calculateSpentAmounts(budgets);
-                    } else {
-                        Log.d(TAG, "No budgets found");
-                        noBudgetsTextView.setVisibility(View.VISIBLE);
-                        budgetsRecyclerView.setVisibility(View.GONE);
-                    }
-                });
+            if (!budgetsLive) {
+                budgetsLive = true;
+                dropBudgetsMissingFrom(value.getDocuments());
+            }
+
+            // Only changed budgets are deserialized, their spent amount comes from the index
+            for (DocumentChange change : value.getDocumentChanges()) {
+                QueryDocumentSnapshot document = change.getDocument();
+                if (change.getType() == DocumentChange.Type.REMOVED) {
+                    budgetIndex.removeBudget(document.getId());
+                } else {
+                    Budget budget = document.toObject(Budget.class);
+                    budget.setId(document.getId());
+                    budgetIndex.putBudget(budget);
+                }
+            }
+            Log.d(TAG, "Found " + budgetIndex.size() + " budgets");
+
+            calculateSpentAmounts();
+            showBudgets();
+        });
+    }
+
+    /** Local budgets deleted since the last sync are not in the first live snapshot's changes. */
+    private void dropBudgetsMissingFrom(List<DocumentSnapshot> documents) {
+        Set<String> ids = new HashSet<>();
+        for (DocumentSnapshot document : documents) {
+            ids.add(document.getId());
+        }
+        for (Budget budget : budgetIndex.getBudgets()) {
+            if (!ids.contains(budget.getId())) {
+                budgetIndex.removeBudget(budget.getId());
+            }
+        }
     }
 
-    private void calculateSpentAmounts(List<Budget> budgets) {
+    private void calculateSpentAmounts() {
         // Get current month start timestamp
-        Calendar calendar = Calendar.getInstance();
-        calendar.set(Calendar.DAY_OF_MONTH, 1);
-        calendar.set(Calendar.HOUR_OF_DAY, 0);
-        calendar.set(Calendar.MINUTE, 0);
-        calendar.set(Calendar.SECOND, 0);
-        calendar.set(Calendar.MILLISECOND, 0);
-        long monthStart = calendar.getTimeInMillis();
-
-        Log.d(TAG, "Calculating spent amounts from timestamp: " + monthStart);
-
-        // Use addSnapshotListener for real-time updates
-        db.collection("transactions")
-                .whereEqualTo("userId", userId)
-                .whereEqualTo("type", "expense")
-                .whereGreaterThanOrEqualTo("timestamp", monthStart)
-                .addSnapshotListener((queryDocumentSnapshots, error) -> {
-                    if (error != null) {
-                        Log.e(TAG, "Error calculating spent amounts", error);
-                        // Still show budgets even if spent calculation fails
-                        noBudgetsTextView.setVisibility(View.GONE);
-                        budgetsRecyclerView.setVisibility(View.VISIBLE);
-                        adapter.updateBudgets(budgets);
-                        return;
-                    }
+        long monthStart = TransactionAggregator.monthStart(Calendar.getInstance(), 0);
 
-                    if (queryDocumentSnapshots != null) {
-                        Log.d(TAG, "Found " + queryDocumentSnapshots.size() + " expense transactions");
-
-                        // Calculate spent per category
-                        for (Budget budget : budgets) {
-                            double spent = 0.0;
-                            for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                                Transaction transaction = document.toObject(Transaction.class);
-                                if (transaction.getCategory().equals(budget.getCategory())) {
-                                    spent += transaction.getAmount();
-                                }
-                            }
-                            budget.setSpent(spent);
-                            Log.d(TAG, "Category: " + budget.getCategory() +
-                                    ", Limit: $" + budget.getLimit() +
-                                    ", Spent: $" + spent);
-                        }
-
-                        // Update UI
-                        noBudgetsTextView.setVisibility(View.GONE);
-                        budgetsRecyclerView.setVisibility(View.VISIBLE);
-                        adapter.updateBudgets(budgets);
-                    }
-                });
+        Log.d(TAG, "Calculating spent amounts from rollup of month starting: " + monthStart);
+
+        // Registered once per activity, later budget snapshots reuse the live listener
+        listeners.listen(this, rollupRepository.document(userId, MonthlyRollup.monthKey(monthStart)),
+                (snapshot, error) -> {
+            if (error != null) {
+                // Budgets are still shown, with the spent amounts known so far
+                Log.e(TAG, "Error calculating spent amounts", error);
+                return;
+            }
+            spentLive = true;
+
+            MonthlyRollup rollup = snapshot != null && snapshot.exists()
+                    ? snapshot.toObject(MonthlyRollup.class) : null;
+
+            if (!MonthlyRollup.isUsable(rollup) && !rollupRebuildRequested) {
+                rollupRebuildRequested = true;
+                rollupRepository.rebuild(userId, monthStart)
+                        .addOnFailureListener(e -> Log.e(TAG, "Error rebuilding monthly rollup", e));
+            }
+
+            Map<String, Long> spent = rollup != null
+                    ? rollup.getExpenseCentsByCategory() : Collections.emptyMap();
+            if (budgetIndex.applySpent(spent)) {
+                showBudgets();
+            }
+        });
+    }
+
+    private void showBudgets() {
+        if (budgetIndex.isEmpty()) {
+            Log.d(TAG, "No budgets found");
+            noBudgetsTextView.setVisibility(View.VISIBLE);
+            budgetsRecyclerView.setVisibility(View.GONE);
+        } else {
+            noBudgetsTextView.setVisibility(View.GONE);
+            budgetsRecyclerView.setVisibility(View.VISIBLE);
+            adapter.updateBudgets(budgetIndex.getBudgets());
+        }
     }
 
     private void deleteBudget(Budget budget) {
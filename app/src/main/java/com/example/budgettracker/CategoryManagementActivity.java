@@ -1,22 +1,129 @@
 package com.example.budgettracker;
 
 import android.os.Bundle;
+import android.text.TextUtils;
+import android.util.Log;
+import android.widget.Button;
+import android.widget.LinearLayout;
+import android.widget.RadioGroup;
+import android.widget.TextView;
+import android.widget.Toast;
 
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 
+import com.google.android.gms.tasks.Task;
+import com.google.android.material.textfield.TextInputEditText;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.example.budgettracker.data.CategoryRepository;
+import com.example.budgettracker.models.CategoryDictionary;
+
 public class CategoryManagementActivity extends AppCompatActivity {
 
+    private static final String TAG = "CategoryManagement";
+
+    private RadioGroup typeRadioGroup;
+    private TextInputEditText categoryNameEditText;
+    private Button addCategoryButton;
+    private LinearLayout incomeCategoriesLayout, expenseCategoriesLayout;
+
+    private FirebaseAuth mAuth;
+    private FirebaseFirestore db;
+    private CategoryRepository categoryRepository;
+    private final CategoryDictionary categories = CategoryDictionary.getInstance();
+    private String userId;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_category_management);
 
+        mAuth = FirebaseAuth.getInstance();
+        db = FirebaseFirestore.getInstance();
+        categoryRepository = new CategoryRepository(db);
+        userId = mAuth.getCurrentUser().getUid();
+
         Toolbar toolbar = findViewById(R.id.toolbar);
         setSupportActionBar(toolbar);
         if (getSupportActionBar() != null) {
             getSupportActionBar().setDisplayHomeAsUpEnabled(true);
         }
         toolbar.setNavigationOnClickListener(v -> finish());
+
+        typeRadioGroup = findViewById(R.id.typeRadioGroup);
+        categoryNameEditText = findViewById(R.id.categoryNameEditText);
+        addCategoryButton = findViewById(R.id.addCategoryButton);
+        incomeCategoriesLayout = findViewById(R.id.incomeCategoriesLayout);
+        expenseCategoriesLayout = findViewById(R.id.expenseCategoriesLayout);
+
+        addCategoryButton.setOnClickListener(v -> addCategory());
+
+        showCategories();
+        categoryRepository.load(userId)
+                .addOnSuccessListener(this, unused -> showCategories())
+                .addOnFailureListener(this, e -> Log.e(TAG, "Error loading categories", e));
+    }
+
+    private void addCategory() {
+        String name = categoryNameEditText.getText().toString().trim();
+        if (TextUtils.isEmpty(name)) {
+            categoryNameEditText.setError("Please enter a category name");
+            return;
+        }
+
+        String type = typeRadioGroup.getCheckedRadioButtonId() == R.id.incomeRadioButton ? "income" : "expense";
+        Task<Void> task = categoryRepository.add(userId, name, type);
+        if (task == null) {
+            categoryNameEditText.setError("This category already exists");
+            return;
+        }
+
+        categoryNameEditText.setText("");
+        showCategories();
+        task.addOnFailureListener(this, e -> {
+            Log.e(TAG, "Error adding category", e);
+            Toast.makeText(this, "Error: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            showCategories();
+        });
+    }
+
+    private void confirmDelete(String name) {
+        new AlertDialog.Builder(this)
+                .setTitle("Delete Category")
+                .setMessage("Delete \"" + name + "\"? Existing transactions keep it.")
+                .setPositiveButton("Delete", (dialog, which) -> {
+                    categoryRepository.delete(userId, name)
+                            .addOnFailureListener(this, e -> {
+                                Log.e(TAG, "Error deleting category", e);
+                                Toast.makeText(this, "Error: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                            });
+                    showCategories();
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void showCategories() {
+        showCategories(incomeCategoriesLayout, categories.namesFor("income"));
+        showCategories(expenseCategoriesLayout, categories.namesFor("expense"));
+    }
+
+    private void showCategories(LinearLayout layout, String[] names) {
+        layout.removeAllViews();
+        for (String name : names) {
+            TextView row = new TextView(this);
+            row.setTextSize(14);
+            row.setTextColor(getColor(R.color.black));
+            row.setPadding(0, 8, 0, 8);
+            if (categories.isCustom(name)) {
+                row.setText("• " + name + " (yours)");
+                row.setOnClickListener(v -> confirmDelete(name));
+            } else {
+                row.setText("• " + name);
+            }
+            layout.addView(row);
+        }
     }
-}
\ No newline at end of file
+}
@@ -2,9 +2,14 @@ package com.example.budgettracker;
 
 import android.graphics.Color;
 import android.os.Bundle;
+import android.util.Log;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
+import androidx.core.util.Pair;
 
 import com.github.mikephil.charting.charts.LineChart;
 import com.github.mikephil.charting.charts.PieChart;
@@ -16,16 +21,24 @@ import com.github.mikephil.charting.data.PieData;
 import com.github.mikephil.charting.data.PieDataSet;
 import com.github.mikephil.charting.data.PieEntry;
 import com.github.mikephil.charting.formatter.ValueFormatter;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.android.material.datepicker.MaterialDatePicker;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
-import com.example.budgettracker.models.Transaction;
+import com.example.budgettracker.aggregation.DailyTotals;
+import com.example.budgettracker.aggregation.TransactionAggregator;
+import com.example.budgettracker.data.LocalReadModel;
+import com.example.budgettracker.data.MonthlyRollupRepository;
+import com.example.budgettracker.format.DisplayFormatter;
+import com.example.budgettracker.models.Money;
+import com.example.budgettracker.models.MonthlyRollup;
 
 import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.HashMap;
+import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -34,13 +47,22 @@ import androidx.appcompat.widget.SwitchCompat;
 
 public class ChartsActivity extends AppCompatActivity {
 
+    private static final String TAG = "ChartsActivity";
+    private static final int TREND_MONTHS = 6;
+
     private PieChart expensePieChart, incomePieChart;
     private LineChart monthlyTrendChart;
+    private TextView chartRangeTextView;
+    private Button chartRangeButton;
 
     private FirebaseAuth mAuth;
     private FirebaseFirestore db;
+    private MonthlyRollupRepository rollupRepository;
+    private LocalReadModel readModel;
     private String userId;
     private boolean showPercentages = true;
+    // {from, to} of the picked period; null while the charts show the last six months
+    private long[] chartRange;
 
 
     @Override
@@ -50,6 +72,8 @@ public class ChartsActivity extends AppCompatActivity {
 
         mAuth = FirebaseAuth.getInstance();
         db = FirebaseFirestore.getInstance();
+        rollupRepository = new MonthlyRollupRepository(db);
+        readModel = LocalReadModel.getInstance(this);
         userId = mAuth.getCurrentUser().getUid();
 
         Toolbar toolbar = findViewById(R.id.toolbar);
@@ -62,144 +86,148 @@ public class ChartsActivity extends AppCompatActivity {
         expensePieChart = findViewById(R.id.expensePieChart);
         incomePieChart = findViewById(R.id.incomePieChart);
         monthlyTrendChart = findViewById(R.id.monthlyTrendChart);
+        chartRangeTextView = findViewById(R.id.chartRangeTextView);
+        chartRangeButton = findViewById(R.id.chartRangeButton);
+        chartRangeButton.setOnClickListener(v -> {
+            if (chartRange != null) {
+                chartRange = null;
+                chartRangeTextView.setText("Last " + TREND_MONTHS + " months");
+                chartRangeButton.setText("Pick dates");
+                loadChartData();
+            } else {
+                pickRange();
+            }
+        });
 
         SwitchCompat valueModeSwitch = findViewById(R.id.valueModeSwitch);
         valueModeSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> {
             showPercentages = isChecked;
             buttonView.setText(isChecked ? "Percent" : "Amount");
-            loadExpenseData();
-            loadIncomeData();
+            // Only the labels change, the chart data is already computed
+            applyValueFormatter(expensePieChart);
+            applyValueFormatter(incomePieChart);
         });
 
-        loadExpenseData();
-        loadIncomeData();
-        loadMonthlyTrendData();
+        loadChartData();
     }
 
     // ------------------- SAFE CHART DATA LOADING -------------------
 
-    private void loadExpenseData() {
-        Calendar calendar = Calendar.getInstance();
-        calendar.set(Calendar.DAY_OF_MONTH, 1);
-        long monthStart = calendar.getTimeInMillis();
-
-        db.collection("transactions")
-                .whereEqualTo("userId", userId)
-                .get()
-                .addOnSuccessListener(query -> {
-                    Map<String, Float> totals = new HashMap<>();
-                    for (QueryDocumentSnapshot d : query) {
-                        Transaction t = d.toObject(Transaction.class);
-                        if (!"expense".equals(t.getType())) continue;
-                        if (t.getTimestamp() < monthStart) continue;
-
-                        totals.put(t.getCategory(),
-                                totals.getOrDefault(t.getCategory(), 0f) + (float) t.getAmount());
+    private void loadChartData() {
+        long[] monthStarts = TransactionAggregator.monthStarts(Calendar.getInstance(), TREND_MONTHS);
+
+        // Grouped sums over the local read model, which also work offline
+        readModel.loadMonths(userId, monthStarts)
+                .addOnSuccessListener(this, rollups -> {
+                    if (rollups != null) {
+                        displayCharts(monthStarts, rollups);
+                    } else {
+                        // Not synced yet, one range query over the rollups feeds all three charts
+                        rollupRepository.loadMonths(userId, monthStarts)
+                                .addOnSuccessListener(this, remote -> displayCharts(monthStarts, remote))
+                                .addOnFailureListener(e -> Log.e(TAG, "Error loading chart data", e));
                     }
-                    displayPieChart(expensePieChart, totals, "No expense data", showPercentages);
-                });
+                })
+                .addOnFailureListener(e -> Log.e(TAG, "Error loading chart data", e));
     }
 
-    private void loadIncomeData() {
-        Calendar calendar = Calendar.getInstance();
-        calendar.set(Calendar.DAY_OF_MONTH, 1);
-        long monthStart = calendar.getTimeInMillis();
-
-        db.collection("transactions")
-                .whereEqualTo("userId", userId)
-                .get()
-                .addOnSuccessListener(query -> {
-                    Map<String, Float> totals = new HashMap<>();
-                    for (QueryDocumentSnapshot d : query) {
-                        Transaction t = d.toObject(Transaction.class);
-                        if (!"income".equals(t.getType())) continue;
-                        if (t.getTimestamp() < monthStart) continue;
-
-                        totals.put(t.getCategory(),
-                                totals.getOrDefault(t.getCategory(), 0f) + (float) t.getAmount());
-                    }
-                    displayPieChart(incomePieChart, totals, "No income data", showPercentages);
-                });
+    private void pickRange() {
+        MaterialDatePicker<Pair<Long, Long>> picker = MaterialDatePicker.Builder.dateRangePicker()
+                .setTitleText("Chart period")
+                .build();
+        picker.addOnPositiveButtonClickListener(selection -> {
+            Calendar calendar = Calendar.getInstance();
+            long from = TransactionAggregator.localDayStart(selection.first, calendar);
+            calendar.setTimeInMillis(TransactionAggregator.localDayStart(selection.second, calendar));
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+            loadRangeData(from, calendar.getTimeInMillis());
+        });
+        picker.show(getSupportFragmentManager(), "chartRange");
     }
 
-    private void loadMonthlyTrendData() {
-        Calendar calendar = Calendar.getInstance();
-        calendar.add(Calendar.MONTH, -5);
-        calendar.set(Calendar.DAY_OF_MONTH, 1);
-        long sixMonthsAgo = calendar.getTimeInMillis();
-
-        db.collection("transactions")
-                .whereEqualTo("userId", userId)
-                .get()
-                .addOnSuccessListener(query -> {
-                    Map<String, Float> income = new HashMap<>();
-                    Map<String, Float> expenses = new HashMap<>();
-                    SimpleDateFormat fmt = new SimpleDateFormat("MMM", Locale.getDefault());
-
-                    for (QueryDocumentSnapshot d : query) {
-                        Transaction t = d.toObject(Transaction.class);
-                        if (t.getTimestamp() < sixMonthsAgo) continue;
-
-                        String month = fmt.format(t.getDate());
-                        float amount = (float) t.getAmount();
-
-                        if ("income".equals(t.getType())) {
-                            income.put(month, income.getOrDefault(month, 0f) + amount);
-                        } else {
-                            expenses.put(month, expenses.getOrDefault(month, 0f) + amount);
-                        }
+    /**
+     * Charts {@code [from, to)} from the local read model: the trend from prefix sums over
+     * the daily totals, bucketed by day, week or month to suit the length, and the pies
+     * from one grouped sum over the range.
+     */
+    private void loadRangeData(long from, long to) {
+        int field = TransactionAggregator.trendField(from, to);
+        Calendar start = Calendar.getInstance();
+        start.setTimeInMillis(from);
+        long[] bucketStarts = TransactionAggregator.rangeStarts(start, to, field);
+
+        Task<List<DailyTotals.Summary>> trend = readModel.summarize(userId, bucketStarts);
+        Task<MonthlyRollup> categories = readModel.loadRange(userId, from, to);
+        Tasks.whenAll(trend, categories)
+                .addOnSuccessListener(this, done -> {
+                    if (trend.getResult() == null || categories.getResult() == null) {
+                        Toast.makeText(this, "Custom periods are available once your history has synced",
+                                Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    chartRange = new long[]{from, to};
+                    chartRangeTextView.setText(DisplayFormatter.forCurrentThread().formatRange(from, to));
+                    chartRangeButton.setText("Last " + TREND_MONTHS + " months");
+
+                    List<DailyTotals.Summary> summaries = trend.getResult();
+                    long[] income = new long[summaries.size()];
+                    long[] expenses = new long[summaries.size()];
+                    for (int i = 0; i < summaries.size(); i++) {
+                        income[i] = summaries.get(i).getIncomeCents();
+                        expenses[i] = summaries.get(i).getExpenseCents();
                     }
+                    displayPieCharts(categories.getResult());
+                    displayLineChart(bucketStarts, income, expenses, field == Calendar.MONTH ? "MMM" : "d MMM");
+                })
+                .addOnFailureListener(e -> Log.e(TAG, "Error loading chart data", e));
+    }
+
+    private void displayCharts(long[] monthStarts, List<MonthlyRollup> rollups) {
+        long[] income = new long[rollups.size()];
+        long[] expenses = new long[rollups.size()];
+        for (int i = 0; i < rollups.size(); i++) {
+            income[i] = rollups.get(i).getTotalIncomeCents();
+            expenses[i] = rollups.get(i).getTotalExpenseCents();
+        }
+
+        displayPieCharts(rollups.get(rollups.size() - 1));
+        displayLineChart(monthStarts, income, expenses, "MMM");
+    }
 
-                    displayLineChart(income, expenses);
-                });
+    private void displayPieCharts(MonthlyRollup period) {
+        displayPieChart(expensePieChart, period.getExpenseCentsByCategory(), "No expense data");
+        displayPieChart(incomePieChart, period.getIncomeCentsByCategory(), "No income data");
     }
 
     // ------------------- PIE CHART DISPLAY -------------------
 
     private void displayPieChart(PieChart chart,
-                                 Map<String, Float> data,
-                                 String emptyText,
-                                 boolean showPercentages) {
-        if (data.isEmpty()) {
+                                 Map<String, Long> centsByCategory,
+                                 String emptyText) {
+        List<PieEntry> entries = new ArrayList<>();
+        long totalCents = 0;
+        for (Map.Entry<String, Long> entry : centsByCategory.entrySet()) {
+            long cents = entry.getValue();
+            // Rollups keep categories whose transactions were all deleted at zero
+            if (cents <= 0) continue;
+            totalCents += cents;
+            entries.add(new PieEntry((float) Money.toAmount(cents), entry.getKey()));
+        }
+
+        if (entries.isEmpty()) {
             chart.setNoDataText(emptyText);
             chart.clear();
             chart.invalidate();
             return;
         }
 
-        List<PieEntry> entries = new ArrayList<>();
-        float total = 0f;
-        for (Map.Entry<String, Float> entry : data.entrySet()) {
-            float value = entry.getValue();
-            total += value;
-            entries.add(new PieEntry(value, entry.getKey()));
-        }
-
         PieDataSet dataSet = new PieDataSet(entries, "");
         dataSet.setColors(getChartColors());
         dataSet.setValueTextSize(12f);
         dataSet.setValueTextColor(Color.WHITE);
 
-        if (showPercentages) {
-            final float finalTotal = total;
-            dataSet.setValueFormatter(new ValueFormatter() {
-                @Override
-                public String getFormattedValue(float value) {
-                    if (finalTotal == 0f) return "";
-                    float percent = (value / finalTotal) * 100f;
-                    return String.format(Locale.getDefault(), "%.1f%%", percent);
-                }
-            });
-        } else {
-            dataSet.setValueFormatter(new ValueFormatter() {
-                @Override
-                public String getFormattedValue(float value) {
-                    return NumberFormat.getCurrencyInstance(Locale.US).format(value);
-                }
-            });
-        }
-
         PieData pieData = new PieData(dataSet);
+        pieData.setValueFormatter(createValueFormatter((float) Money.toAmount(totalCents)));
         chart.setData(pieData);
 
         chart.getDescription().setEnabled(false);
@@ -222,26 +250,48 @@ public class ChartsActivity extends AppCompatActivity {
         chart.invalidate();
     }
 
-    // ------------------- LINE CHART DISPLAY -------------------
+    private void applyValueFormatter(PieChart chart) {
+        PieData pieData = chart.getData();
+        if (pieData == null) return;
 
-    private void displayLineChart(Map<String, Float> incomeData, Map<String, Float> expenseData) {
-        List<String> months = new ArrayList<>();
-        Calendar calendar = Calendar.getInstance();
-        SimpleDateFormat monthFormat = new SimpleDateFormat("MMM", Locale.getDefault());
+        pieData.setValueFormatter(createValueFormatter(pieData.getYValueSum()));
+        chart.invalidate();
+    }
 
-        for (int i = 5; i >= 0; i--) {
-            calendar.add(Calendar.MONTH, -i);
-            months.add(monthFormat.format(calendar.getTime()));
-            calendar.add(Calendar.MONTH, i);
+    private ValueFormatter createValueFormatter(float total) {
+        if (showPercentages) {
+            return new ValueFormatter() {
+                @Override
+                public String getFormattedValue(float value) {
+                    if (total == 0f) return "";
+                    float percent = (value / total) * 100f;
+                    return String.format(Locale.getDefault(), "%.1f%%", percent);
+                }
+            };
         }
 
+        NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(Locale.US);
+        return new ValueFormatter() {
+            @Override
+            public String getFormattedValue(float value) {
+                return currencyFormat.format(value);
+            }
+        };
+    }
+
+    // ------------------- LINE CHART DISPLAY -------------------
+
+    private void displayLineChart(long[] bucketStarts, long[] incomeCents, long[] expenseCents, String labelPattern) {
+        List<String> labels = new ArrayList<>();
+        SimpleDateFormat labelFormat = new SimpleDateFormat(labelPattern, Locale.getDefault());
+
         List<Entry> incomeEntries = new ArrayList<>();
         List<Entry> expenseEntries = new ArrayList<>();
 
-        for (int i = 0; i < months.size(); i++) {
-            String month = months.get(i);
-            incomeEntries.add(new Entry(i, incomeData.getOrDefault(month, 0f)));
-            expenseEntries.add(new Entry(i, expenseData.getOrDefault(month, 0f)));
+        for (int i = 0; i < incomeCents.length; i++) {
+            labels.add(labelFormat.format(new Date(bucketStarts[i])));
+            incomeEntries.add(new Entry(i, (float) Money.toAmount(incomeCents[i])));
+            expenseEntries.add(new Entry(i, (float) Money.toAmount(expenseCents[i])));
         }
 
         LineDataSet incomeSet = new LineDataSet(incomeEntries, "Income");
@@ -265,12 +315,13 @@ public class ChartsActivity extends AppCompatActivity {
             @Override
             public String getFormattedValue(float value) {
                 int index = (int) value;
-                if (index >= 0 && index < months.size()) return months.get(index);
+                if (index >= 0 && index < labels.size()) return labels.get(index);
                 return "";
             }
         });
         monthlyTrendChart.getXAxis().setGranularity(1f);
-        monthlyTrendChart.getXAxis().setLabelCount(months.size());
+        // A month of daily buckets would crowd the axis
+        monthlyTrendChart.getXAxis().setLabelCount(Math.min(labels.size(), 8));
         monthlyTrendChart.animateX(1000);
         monthlyTrendChart.invalidate();
     }
@@ -3,6 +3,7 @@ package com.example.budgettracker;
 import android.app.DatePickerDialog;
 import android.os.Bundle;
 import android.text.TextUtils;
+import android.util.Log;
 import android.view.View;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
@@ -19,8 +20,18 @@ import androidx.appcompat.widget.Toolbar;
 
 import com.google.android.material.textfield.TextInputEditText;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.example.budgettracker.data.CategoryRepository;
+import com.example.budgettracker.data.LocalReadModel;
+import com.example.budgettracker.data.MonthlyRollupRepository;
+import com.example.budgettracker.data.TransactionCache;
+import com.example.budgettracker.models.CategoryDictionary;
+import com.example.budgettracker.models.Money;
 import com.example.budgettracker.models.Transaction;
+import com.example.budgettracker.models.TransactionDiff;
 
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
@@ -29,6 +40,8 @@ import java.util.Locale;
 
 public class EditTransactionActivity extends AppCompatActivity {
 
+    private static final String TAG = "EditTransactionActivity";
+
     private RadioGroup typeRadioGroup;
     private RadioButton incomeRadioButton, expenseRadioButton;
     private TextInputEditText amountEditText, descriptionEditText;
@@ -39,14 +52,15 @@ public class EditTransactionActivity extends AppCompatActivity {
 
     private FirebaseAuth mAuth;
     private FirebaseFirestore db;
+    private MonthlyRollupRepository rollupRepository;
+    private LocalReadModel readModel;
     private String userId;
     private String transactionId;
     private Transaction currentTransaction;
+    private final TransactionCache cache = TransactionCache.getInstance();
 
     private Date selectedDate;
-    private String[] incomeCategories = {"Salary", "Business", "Investments", "Gifts", "Other Income"};
-    private String[] expenseCategories = {"Food", "Transportation", "Shopping", "Entertainment",
-            "Bills", "Healthcare", "Education", "Travel", "Other Expense"};
+    private final CategoryDictionary categories = CategoryDictionary.getInstance();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -55,6 +69,8 @@ public class EditTransactionActivity extends AppCompatActivity {
 
         mAuth = FirebaseAuth.getInstance();
         db = FirebaseFirestore.getInstance();
+        rollupRepository = new MonthlyRollupRepository(db);
+        readModel = LocalReadModel.getInstance(this);
         userId = mAuth.getCurrentUser().getUid();
 
         transactionId = getIntent().getStringExtra("transactionId");
@@ -76,6 +92,10 @@ public class EditTransactionActivity extends AppCompatActivity {
         loadTransactionData();
 
         setupListeners();
+
+        new CategoryRepository(db).load(userId)
+                .addOnSuccessListener(this, unused ->
+                        setupCategorySpinner(incomeRadioButton.isChecked() ? "income" : "expense"));
     }
 
     private void initializeViews() {
@@ -93,26 +113,47 @@ public class EditTransactionActivity extends AppCompatActivity {
     }
 
     private void loadTransactionData() {
-        progressBar.setVisibility(View.VISIBLE);
+        // Rows the user tapped are normally cached, show them at once and revalidate below
+        Transaction cached = cache.get(transactionId);
+        if (cached != null) {
+            currentTransaction = cached;
+            populateFields();
+        } else {
+            progressBar.setVisibility(View.VISIBLE);
+        }
 
         db.collection("transactions").document(transactionId)
                 .get()
-                .addOnSuccessListener(documentSnapshot -> {
+                .addOnSuccessListener(this, documentSnapshot -> {
                     progressBar.setVisibility(View.GONE);
 
                     if (documentSnapshot.exists()) {
-                        currentTransaction = documentSnapshot.toObject(Transaction.class);
-                        if (currentTransaction != null) {
-                            currentTransaction.setId(documentSnapshot.getId());
-                            populateFields();
+                        Transaction loaded = documentSnapshot.toObject(Transaction.class);
+                        if (loaded != null) {
+                            loaded.setId(documentSnapshot.getId());
+                            cache.put(loaded);
+                            Transaction shown = currentTransaction;
+                            currentTransaction = loaded;
+                            if (shown == null) {
+                                populateFields();
+                            } else if (!TransactionDiff.between(shown, loaded).isEmpty()) {
+                                // The cached copy was stale; the user may have started typing meanwhile
+                                refreshUntouchedFields(shown);
+                            }
                         }
                     } else {
+                        cache.remove(transactionId);
                         Toast.makeText(this, "Transaction not found", Toast.LENGTH_SHORT).show();
                         finish();
                     }
                 })
-                .addOnFailureListener(e -> {
+                .addOnFailureListener(this, e -> {
                     progressBar.setVisibility(View.GONE);
+                    if (currentTransaction != null) {
+                        // The cached copy is still editable, updates apply the edits to the current document
+                        Log.w(TAG, "Error revalidating transaction", e);
+                        return;
+                    }
                     Toast.makeText(this, "Error loading transaction", Toast.LENGTH_SHORT).show();
                     finish();
                 });
@@ -121,34 +162,90 @@ public class EditTransactionActivity extends AppCompatActivity {
     private void populateFields() {
         if (currentTransaction.getType().equals("income")) {
             incomeRadioButton.setChecked(true);
-            setupCategorySpinner(incomeCategories);
+            setupCategorySpinner("income");
         } else {
             expenseRadioButton.setChecked(true);
-            setupCategorySpinner(expenseCategories);
+            setupCategorySpinner("expense");
         }
 
-        amountEditText.setText(String.valueOf(currentTransaction.getAmount()));
+        amountEditText.setText(Money.toPlainString(currentTransaction.getAmountCents()));
 
         descriptionEditText.setText(currentTransaction.getDescription());
 
-        String[] categories = currentTransaction.getType().equals("income") ? incomeCategories : expenseCategories;
-        for (int i = 0; i < categories.length; i++) {
-            if (categories[i].equals(currentTransaction.getCategory())) {
-                categorySpinner.setSelection(i);
-                break;
-            }
+        // The dictionary knows each category's spinner position, no need to search for it
+        int position = categories.positionIn(currentTransaction.getType(), currentTransaction.getCategory());
+        if (position >= 0) {
+            categorySpinner.setSelection(position);
         }
 
         selectedDate = currentTransaction.getDate();
         updateDateDisplay();
     }
 
+    /**
+     * Brings the fields that still show {@code shown}, the stale copy, up to date with
+     * {@link #currentTransaction}. Fields the user already changed keep their input.
+     */
+    private void refreshUntouchedFields(Transaction shown) {
+        boolean kept = false;
+
+        String shownCategory = shown.getCategory();
+        Object selectedCategory = categorySpinner.getSelectedItem();
+        boolean categoryUntouched = selectedCategory != null && selectedCategory.toString().equals(shownCategory);
+
+        boolean typeUntouched = incomeRadioButton.isChecked() == "income".equals(shown.getType());
+        if (typeUntouched) {
+            // The radio listener sets up the matching category list
+            if (currentTransaction.getType().equals("income")) {
+                incomeRadioButton.setChecked(true);
+            } else {
+                expenseRadioButton.setChecked(true);
+            }
+        } else {
+            kept |= !currentTransaction.getType().equals(shown.getType());
+        }
+
+        if (categoryUntouched) {
+            int position = categories.positionIn(currentTransaction.getType(), currentTransaction.getCategory());
+            if (position >= 0) {
+                categorySpinner.setSelection(position);
+            }
+        } else {
+            kept |= !TextUtils.equals(currentTransaction.getCategory(), shownCategory);
+        }
+
+        if (amountEditText.getText().toString().trim().equals(Money.toPlainString(shown.getAmountCents()))) {
+            amountEditText.setText(Money.toPlainString(currentTransaction.getAmountCents()));
+        } else {
+            kept |= currentTransaction.getAmountCents() != shown.getAmountCents();
+        }
+
+        String shownDescription = shown.getDescription() != null ? shown.getDescription() : "";
+        if (descriptionEditText.getText().toString().trim().equals(shownDescription.trim())) {
+            descriptionEditText.setText(currentTransaction.getDescription());
+        } else {
+            kept |= !TextUtils.equals(currentTransaction.getDescription(), shown.getDescription());
+        }
+
+        if (selectedDate != null && selectedDate.getTime() == shown.getTimestamp()) {
+            selectedDate = currentTransaction.getDate();
+            updateDateDisplay();
+        } else {
+            kept |= currentTransaction.getTimestamp() != shown.getTimestamp();
+        }
+
+        if (kept) {
+            Toast.makeText(this, "This transaction was changed elsewhere, your edits were kept",
+                    Toast.LENGTH_LONG).show();
+        }
+    }
+
     private void setupListeners() {
         typeRadioGroup.setOnCheckedChangeListener((group, checkedId) -> {
             if (checkedId == R.id.incomeRadioButton) {
-                setupCategorySpinner(incomeCategories);
+                setupCategorySpinner("income");
             } else {
-                setupCategorySpinner(expenseCategories);
+                setupCategorySpinner("expense");
             }
         });
 
@@ -159,11 +256,18 @@ public class EditTransactionActivity extends AppCompatActivity {
         deleteButton.setOnClickListener(v -> confirmDelete());
     }
 
-    private void setupCategorySpinner(String[] categories) {
+    private void setupCategorySpinner(String type) {
+        Object selected = categorySpinner.getSelectedItem();
         ArrayAdapter<String> adapter = new ArrayAdapter<>(this,
-                android.R.layout.simple_spinner_item, categories);
+                android.R.layout.simple_spinner_item, categories.namesFor(type));
         adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         categorySpinner.setAdapter(adapter);
+
+        // Keep the choice when the list is refreshed with the user's own categories
+        int position = selected != null ? categories.positionIn(type, selected.toString()) : -1;
+        if (position >= 0) {
+            categorySpinner.setSelection(position);
+        }
     }
 
     private void showDatePicker() {
@@ -173,7 +277,9 @@ public class EditTransactionActivity extends AppCompatActivity {
         DatePickerDialog datePickerDialog = new DatePickerDialog(
                 this,
                 (view, year, month, dayOfMonth) -> {
+                    // Keep the time of day, so picking the same date again is not an edit
                     Calendar newDate = Calendar.getInstance();
+                    newDate.setTime(selectedDate);
                     newDate.set(year, month, dayOfMonth);
                     selectedDate = newDate.getTime();
                     updateDateDisplay();
@@ -192,6 +298,8 @@ public class EditTransactionActivity extends AppCompatActivity {
     }
 
     private void updateTransaction() {
+        if (currentTransaction == null) return;
+
         String amountStr = amountEditText.getText().toString().trim();
         String description = descriptionEditText.getText().toString().trim();
         String category = categorySpinner.getSelectedItem().toString();
@@ -203,9 +311,9 @@ public class EditTransactionActivity extends AppCompatActivity {
             return;
         }
 
-        double amount;
+        long amount;
         try {
-            amount = Double.parseDouble(amountStr);
+            amount = Money.parseCents(amountStr);
             if (amount <= 0) {
                 amountEditText.setError("Amount must be greater than 0");
                 amountEditText.requestFocus();
@@ -221,15 +329,42 @@ public class EditTransactionActivity extends AppCompatActivity {
             description = category;
         }
 
+        Transaction updatedTransaction = new Transaction(userId, type, amount, category, description, selectedDate);
+        updatedTransaction.setId(transactionId);
+
+        // The fields the user changed, relative to the copy the form was filled from
+        TransactionDiff edits = TransactionDiff.between(currentTransaction, updatedTransaction);
+        if (edits.isEmpty()) {
+            finish();
+            return;
+        }
+
         progressBar.setVisibility(View.VISIBLE);
         updateButton.setEnabled(false);
         deleteButton.setEnabled(false);
 
-        Transaction updatedTransaction = new Transaction(userId, type, amount, category, description, selectedDate);
-
-        db.collection("transactions").document(transactionId)
-                .set(updatedTransaction)
-                .addOnSuccessListener(aVoid -> {
+        // The copy shown may be stale, e.g. the cached one while revalidation failed. The edits
+        // are applied to the document as it is now, and the written diff and rollup deltas are
+        // taken from that version, so the rollups move exactly what the document held.
+        DocumentReference ref = db.collection("transactions").document(transactionId);
+        db.runTransaction(transaction -> {
+                    Transaction stored = storedTransaction(transaction.get(ref));
+                    Transaction merged = edits.applyTo(stored);
+                    TransactionDiff diff = TransactionDiff.between(stored, merged);
+                    if (!diff.isEmpty()) {
+                        transaction.update(ref, diff.getChanges());
+                        if (diff.affectsRollups()) {
+                            // Move the old amount out of its rollup and the new one in, in the same commit
+                            rollupRepository.recordRemove(transaction, stored);
+                            rollupRepository.recordAdd(transaction, merged);
+                        }
+                    }
+                    return merged;
+                })
+                .addOnSuccessListener(this, merged -> {
+                    // The read model only listens to recent months, older dates are written through
+                    readModel.put(transactionId, merged);
+                    cache.put(merged);
                     progressBar.setVisibility(View.GONE);
                     updateButton.setEnabled(true);
                     deleteButton.setEnabled(true);
@@ -237,7 +372,8 @@ public class EditTransactionActivity extends AppCompatActivity {
                             "Transaction updated successfully!", Toast.LENGTH_SHORT).show();
                     finish();
                 })
-                .addOnFailureListener(e -> {
+                .addOnFailureListener(this, e -> {
+                    Log.e(TAG, "Error updating transaction", e);
                     progressBar.setVisibility(View.GONE);
                     updateButton.setEnabled(true);
                     deleteButton.setEnabled(true);
@@ -246,6 +382,16 @@ public class EditTransactionActivity extends AppCompatActivity {
                 });
     }
 
+    /** The transaction in {@code snapshot}, read inside a Firestore transaction. */
+    private Transaction storedTransaction(DocumentSnapshot snapshot) throws FirebaseFirestoreException {
+        Transaction stored = snapshot.exists() ? snapshot.toObject(Transaction.class) : null;
+        if (stored == null) {
+            throw new FirebaseFirestoreException("Transaction not found", FirebaseFirestoreException.Code.NOT_FOUND);
+        }
+        stored.setId(snapshot.getId());
+        return stored;
+    }
+
     private void confirmDelete() {
         new AlertDialog.Builder(this)
                 .setTitle("Delete Transaction")
@@ -256,19 +402,30 @@ public class EditTransactionActivity extends AppCompatActivity {
     }
 
     private void deleteTransaction() {
+        if (currentTransaction == null) return;
+
         progressBar.setVisibility(View.VISIBLE);
         updateButton.setEnabled(false);
         deleteButton.setEnabled(false);
 
-        db.collection("transactions").document(transactionId)
-                .delete()
-                .addOnSuccessListener(aVoid -> {
+        // Take back what the document holds now, not what the possibly stale copy shown says
+        DocumentReference ref = db.collection("transactions").document(transactionId);
+        db.runTransaction(transaction -> {
+                    Transaction stored = storedTransaction(transaction.get(ref));
+                    transaction.delete(ref);
+                    rollupRepository.recordRemove(transaction, stored);
+                    return null;
+                })
+                .addOnSuccessListener(this, unused -> {
+                    readModel.remove(transactionId);
+                    cache.remove(transactionId);
                     progressBar.setVisibility(View.GONE);
                     Toast.makeText(EditTransactionActivity.this,
                             "Transaction deleted successfully!", Toast.LENGTH_SHORT).show();
                     finish();
                 })
-                .addOnFailureListener(e -> {
+                .addOnFailureListener(this, e -> {
+                    Log.e(TAG, "Error deleting transaction", e);
                     progressBar.setVisibility(View.GONE);
                     updateButton.setEnabled(true);
                     deleteButton.setEnabled(true);
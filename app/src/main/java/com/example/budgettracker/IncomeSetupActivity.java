@@ -16,12 +16,15 @@ import androidx.appcompat.widget.Toolbar;
 import com.google.android.material.textfield.TextInputEditText;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+import com.example.budgettracker.data.BatchWriter;
+import com.example.budgettracker.data.MonthlyRollupRepository;
+import com.example.budgettracker.format.DisplayFormatter;
+import com.example.budgettracker.models.Money;
 import com.example.budgettracker.models.Transaction;
 
-import java.text.NumberFormat;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.Locale;
 
 public class IncomeSetupActivity extends AppCompatActivity {
 
@@ -33,6 +36,7 @@ public class IncomeSetupActivity extends AppCompatActivity {
 
     private FirebaseAuth mAuth;
     private FirebaseFirestore db;
+    private MonthlyRollupRepository rollupRepository;
     private String userId;
 
     @Override
@@ -42,6 +46,7 @@ public class IncomeSetupActivity extends AppCompatActivity {
 
         mAuth = FirebaseAuth.getInstance();
         db = FirebaseFirestore.getInstance();
+        rollupRepository = new MonthlyRollupRepository(db);
         userId = mAuth.getCurrentUser().getUid();
 
         Toolbar toolbar = findViewById(R.id.toolbar);
@@ -96,7 +101,7 @@ public class IncomeSetupActivity extends AppCompatActivity {
     }
 
     private void updateTotalIncome() {
-        double total = 0.0;
+        long total = 0;
 
         total += getAmount(salaryEditText);
         total += getAmount(freelanceEditText);
@@ -104,27 +109,27 @@ public class IncomeSetupActivity extends AppCompatActivity {
         total += getAmount(investmentEditText);
         total += getAmount(otherIncomeEditText);
 
-        NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(Locale.US);
-        totalIncomeTextView.setText(currencyFormat.format(total));
+        totalIncomeTextView.setText(DisplayFormatter.forCurrentThread().formatCents(total));
     }
 
-    private double getAmount(TextInputEditText editText) {
+    /** Amount of the field in cents, 0 if it is empty or not a number. */
+    private long getAmount(TextInputEditText editText) {
         String text = editText.getText().toString().trim();
-        if (text.isEmpty()) return 0.0;
+        if (text.isEmpty()) return 0;
 
         try {
-            return Double.parseDouble(text);
+            return Money.parseCents(text);
         } catch (NumberFormatException e) {
-            return 0.0;
+            return 0;
         }
     }
 
     private void saveIncomeData() {
-        double salary = getAmount(salaryEditText);
-        double freelance = getAmount(freelanceEditText);
-        double business = getAmount(businessEditText);
-        double investment = getAmount(investmentEditText);
-        double otherIncome = getAmount(otherIncomeEditText);
+        long salary = getAmount(salaryEditText);
+        long freelance = getAmount(freelanceEditText);
+        long business = getAmount(businessEditText);
+        long investment = getAmount(investmentEditText);
+        long otherIncome = getAmount(otherIncomeEditText);
 
         if (salary == 0 && freelance == 0 && business == 0 && investment == 0 && otherIncome == 0) {
             Toast.makeText(this, "Please enter at least one income source", Toast.LENGTH_SHORT).show();
@@ -139,44 +144,30 @@ public class IncomeSetupActivity extends AppCompatActivity {
         calendar.set(Calendar.DAY_OF_MONTH, 1);
         Date date = calendar.getTime();
 
-        final int[] completedSaves = {0};
-        final int totalSaves = (salary > 0 ? 1 : 0) + (freelance > 0 ? 1 : 0) +
-                (business > 0 ? 1 : 0) + (investment > 0 ? 1 : 0) +
-                (otherIncome > 0 ? 1 : 0);
-
+        // All income sources and their rollup deltas go out in one atomic commit
+        BatchWriter writer = new BatchWriter(db);
         if (salary > 0) {
-            saveIncomeTransaction("Salary", salary, date, completedSaves, totalSaves);
+            addIncomeTransaction(writer, "Salary", salary, date);
         }
         if (freelance > 0) {
-            saveIncomeTransaction("Business", freelance, date, completedSaves, totalSaves);
+            addIncomeTransaction(writer, "Business", freelance, date);
         }
         if (business > 0) {
-            saveIncomeTransaction("Business", business, date, completedSaves, totalSaves);
+            addIncomeTransaction(writer, "Business", business, date);
         }
         if (investment > 0) {
-            saveIncomeTransaction("Investments", investment, date, completedSaves, totalSaves);
+            addIncomeTransaction(writer, "Investments", investment, date);
         }
         if (otherIncome > 0) {
-            saveIncomeTransaction("Other Income", otherIncome, date, completedSaves, totalSaves);
+            addIncomeTransaction(writer, "Other Income", otherIncome, date);
         }
-    }
 
-    private void saveIncomeTransaction(String category, double amount, Date date,
-                                       int[] completedSaves, int totalSaves) {
-        Transaction transaction = new Transaction(userId, "income", amount, category,
-                "Monthly " + category, date);
-
-        db.collection("transactions")
-                .add(transaction)
-                .addOnSuccessListener(documentReference -> {
-                    completedSaves[0]++;
-                    if (completedSaves[0] == totalSaves) {
-                        // All saves completed
-                        progressBar.setVisibility(View.GONE);
-                        Toast.makeText(IncomeSetupActivity.this,
-                                "Income information saved successfully!", Toast.LENGTH_SHORT).show();
-                        navigateToMainActivity();
-                    }
+        writer.commit()
+                .addOnSuccessListener(aVoid -> {
+                    progressBar.setVisibility(View.GONE);
+                    Toast.makeText(IncomeSetupActivity.this,
+                            "Income information saved successfully!", Toast.LENGTH_SHORT).show();
+                    navigateToMainActivity();
                 })
                 .addOnFailureListener(e -> {
                     progressBar.setVisibility(View.GONE);
@@ -187,6 +178,15 @@ public class IncomeSetupActivity extends AppCompatActivity {
                 });
     }
 
+    private void addIncomeTransaction(BatchWriter writer, String category, long amountCents, Date date) {
+        Transaction transaction = new Transaction(userId, "income", amountCents, category,
+                "Monthly " + category, date);
+
+        WriteBatch batch = writer.batchFor(2);
+        batch.set(db.collection("transactions").document(), transaction);
+        rollupRepository.recordAdd(batch, transaction);
+    }
+
     private void navigateToMainActivity() {
         Intent intent = new Intent(IncomeSetupActivity.this, MainActivity.class);
         intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
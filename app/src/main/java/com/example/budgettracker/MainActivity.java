@@ -1,6 +1,9 @@
 package com.example.budgettracker;
 
+import android.Manifest;
 import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.os.Build;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.Menu;
@@ -9,22 +12,37 @@ import android.view.View;
 import android.widget.Button;
 import android.widget.ImageButton;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
+import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
+import androidx.core.util.Pair;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.google.android.material.datepicker.MaterialDatePicker;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.example.budgettracker.adapters.TransactionAdapter;
+import com.example.budgettracker.aggregation.TransactionAggregator;
+import com.example.budgettracker.data.DashboardSnapshot;
+import com.example.budgettracker.data.ListenerRegistry;
+import com.example.budgettracker.data.LocalReadModel;
+import com.example.budgettracker.data.MonthlyRollupRepository;
+import com.example.budgettracker.data.ReadModelSync;
+import com.example.budgettracker.data.TransactionCache;
+import com.example.budgettracker.data.TransactionChanges;
+import com.example.budgettracker.data.WriteBehindQueue;
+import com.example.budgettracker.format.DisplayFormatter;
+import com.example.budgettracker.models.Money;
+import com.example.budgettracker.models.MonthlyRollup;
 import com.example.budgettracker.models.Transaction;
 
-import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -37,19 +55,30 @@ public class MainActivity extends AppCompatActivity {
     private TextView welcomeTextView, currentMonthTextView;
     private TextView totalIncomeTextView, totalExpenseTextView, balanceTextView;
     private TextView noTransactionsTextView;
-    private Button addTransactionButton, viewTransactionsButton, budgetsButton, chartsButton;
+    private Button addTransactionButton, viewTransactionsButton, budgetsButton, chartsButton, summaryRangeButton;
     private FloatingActionButton fab;
     private RecyclerView recentTransactionsRecyclerView;
     private TransactionAdapter adapter;
 
     private FirebaseAuth mAuth;
     private FirebaseFirestore db;
+    private MonthlyRollupRepository rollupRepository;
+    private ListenerRegistry listeners;
+    private DashboardSnapshot dashboardSnapshot;
+    private LocalReadModel readModel;
     private ImageButton refreshRecentButton;
 
     private String userId;
 
-    private double totalIncome = 0.0;
-    private double totalExpense = 0.0;
+    private long totalIncomeCents = 0;
+    private long totalExpenseCents = 0;
+    private boolean rollupRebuildRequested = false;
+    private boolean summaryShown = false;
+    private boolean recentShown = false;
+    // {from, to} of the period picked for the summary; null while it shows this month
+    private long[] summaryRange;
+
+    private final List<Transaction> recentTransactions = new ArrayList<>();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -58,6 +87,9 @@ public class MainActivity extends AppCompatActivity {
 
         mAuth = FirebaseAuth.getInstance();
         db = FirebaseFirestore.getInstance();
+        rollupRepository = new MonthlyRollupRepository(db);
+        listeners = ListenerRegistry.getInstance();
+        readModel = LocalReadModel.getInstance(this);
 
         FirebaseUser currentUser = mAuth.getCurrentUser();
         if (currentUser == null) {
@@ -66,6 +98,12 @@ public class MainActivity extends AppCompatActivity {
         }
         userId = currentUser.getUid();
 
+        // Keeps the local read model behind the other screens current for this user
+        ReadModelSync.getInstance().start(this, db, userId);
+        // Resumes flushing transactions saved while offline or before the app was closed
+        WriteBehindQueue.getInstance(this);
+        requestNotificationPermission();
+
         Toolbar toolbar = findViewById(R.id.toolbar);
         refreshRecentButton = findViewById(R.id.refreshRecentButton);
 
@@ -78,15 +116,22 @@ public class MainActivity extends AppCompatActivity {
             welcomeTextView.setText("Welcome back, " + displayName + "!");
         }
 
-        SimpleDateFormat monthFormat = new SimpleDateFormat("MMMM yyyy", Locale.getDefault());
-        currentMonthTextView.setText(monthFormat.format(Calendar.getInstance().getTime()));
+        showMonthLabel();
 
         setupRecyclerView();
 
         setupButtonListeners();
 
+        // Draw the dashboard as it was last shown, the listeners below then bring it up to date
+        dashboardSnapshot = new DashboardSnapshot(this, userId);
+        showSavedDashboard();
+
         loadMonthlyData();
         loadRecentTransactions();
+        // A picked period is summed locally, so it follows the read model rather than a listener
+        readModel.observe(this, () -> {
+            if (summaryRange != null) showRange(summaryRange[0], summaryRange[1]);
+        });
 
         refreshRecentButton.setOnClickListener(v -> {
             loadRecentTransactions();
@@ -104,6 +149,7 @@ public class MainActivity extends AppCompatActivity {
         viewTransactionsButton = findViewById(R.id.viewTransactionsButton);
         budgetsButton = findViewById(R.id.budgetsButton);
         chartsButton = findViewById(R.id.chartsButton);
+        summaryRangeButton = findViewById(R.id.summaryRangeButton);
         fab = findViewById(R.id.fab);
         recentTransactionsRecyclerView = findViewById(R.id.recentTransactionsRecyclerView);
     }
@@ -111,7 +157,8 @@ public class MainActivity extends AppCompatActivity {
     private void setupRecyclerView() {
         recentTransactionsRecyclerView.setLayoutManager(new LinearLayoutManager(this));
         adapter = new TransactionAdapter(new ArrayList<>(), transaction -> {
-            // Open edit transaction activity
+            // Open edit transaction activity; the row may come from the saved snapshot, so cache it here too
+            TransactionCache.getInstance().put(transaction);
             Intent intent = new Intent(MainActivity.this, EditTransactionActivity.class);
             intent.putExtra("transactionId", transaction.getId());
             startActivity(intent);
@@ -137,6 +184,14 @@ public class MainActivity extends AppCompatActivity {
             Intent intent = new Intent(MainActivity.this, ChartsActivity.class);
             startActivity(intent);
         });
+
+        summaryRangeButton.setOnClickListener(v -> {
+            if (summaryRange != null) {
+                showThisMonth();
+            } else {
+                pickRange();
+            }
+        });
     }
 
     private void openAddTransaction() {
@@ -144,89 +199,184 @@ public class MainActivity extends AppCompatActivity {
         startActivity(intent);
     }
 
+    private void showSavedDashboard() {
+        String month = MonthlyRollup.monthKey(TransactionAggregator.monthStart(Calendar.getInstance(), 0));
+        long[] summary = dashboardSnapshot.loadSummary(month);
+        if (summary != null) {
+            totalIncomeCents = summary[0];
+            totalExpenseCents = summary[1];
+            summaryShown = true;
+            updateSummaryViews();
+        }
+
+        List<Transaction> recent = dashboardSnapshot.loadRecent();
+        if (recent != null) {
+            recentShown = true;
+            showRecentTransactions(recent);
+        }
+    }
+
     private void loadMonthlyData() {
-        Calendar calendar = Calendar.getInstance();
-        calendar.set(Calendar.DAY_OF_MONTH, 1);
-        calendar.set(Calendar.HOUR_OF_DAY, 0);
-        calendar.set(Calendar.MINUTE, 0);
-        calendar.set(Calendar.SECOND, 0);
-        calendar.set(Calendar.MILLISECOND, 0);
-        long monthStart = calendar.getTimeInMillis();
-
-        Log.d(TAG, "Loading monthly data for user: " + userId);
-        Log.d(TAG, "Month start timestamp: " + monthStart);
-
-        db.collection("transactions")
-                .whereEqualTo("userId", userId)
-                .whereGreaterThanOrEqualTo("timestamp", monthStart)
-                .addSnapshotListener((value, error) -> {
-                    if (error != null) {
-                        Log.e(TAG, "Error loading monthly data", error);
+        long monthStart = TransactionAggregator.monthStart(Calendar.getInstance(), 0);
+        String month = MonthlyRollup.monthKey(monthStart);
+
+        Log.d(TAG, "Loading monthly rollup " + month + " for user: " + userId);
+
+        listeners.listen(this, rollupRepository.document(userId, month), (snapshot, error) -> {
+            if (error != null) {
+                Log.e(TAG, "Error loading monthly data", error);
+                return;
+            }
+
+            if (summaryShown && snapshot != null && !snapshot.exists() && snapshot.getMetadata().isFromCache()) {
+                // Firestore's cache has no copy yet, keep the saved summary until the server answers
+                return;
+            }
+
+            MonthlyRollup rollup = snapshot != null && snapshot.exists()
+                    ? snapshot.toObject(MonthlyRollup.class) : null;
+
+            if (!MonthlyRollup.isUsable(rollup) && !rollupRebuildRequested) {
+                // Month predates rollups, rebuild it once; the listener picks up the result
+                rollupRebuildRequested = true;
+                rollupRepository.rebuild(userId, monthStart)
+                        .addOnFailureListener(e -> Log.e(TAG, "Error rebuilding monthly rollup", e));
+            }
+
+            long income = rollup != null ? rollup.getTotalIncomeCents() : 0;
+            long expense = rollup != null ? rollup.getTotalExpenseCents() : 0;
+            if (summaryRange != null) {
+                // A picked period is on screen, this month's totals wait in the snapshot
+                dashboardSnapshot.saveSummary(month, income, expense);
+                return;
+            }
+            if (summaryShown && income == totalIncomeCents && expense == totalExpenseCents) {
+                // Server acknowledgement of a write already applied locally, nothing to redraw
+                return;
+            }
+
+            totalIncomeCents = income;
+            totalExpenseCents = expense;
+            summaryShown = true;
+
+            Log.d(TAG, "Total Income: " + Money.toPlainString(totalIncomeCents));
+            Log.d(TAG, "Total Expense: " + Money.toPlainString(totalExpenseCents));
+            updateSummaryViews();
+            dashboardSnapshot.saveSummary(month, income, expense);
+        });
+    }
+
+    private void pickRange() {
+        MaterialDatePicker<Pair<Long, Long>> picker = MaterialDatePicker.Builder.dateRangePicker()
+                .setTitleText("Summary period")
+                .build();
+        picker.addOnPositiveButtonClickListener(selection -> {
+            Calendar calendar = Calendar.getInstance();
+            long from = TransactionAggregator.localDayStart(selection.first, calendar);
+            calendar.setTimeInMillis(TransactionAggregator.localDayStart(selection.second, calendar));
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+            showRange(from, calendar.getTimeInMillis());
+        });
+        picker.show(getSupportFragmentManager(), "summaryRange");
+    }
+
+    /** Summarizes {@code [from, to)} from the local daily totals, without querying Firestore. */
+    private void showRange(long from, long to) {
+        readModel.summarize(userId, new long[]{from, to})
+                .addOnSuccessListener(this, summaries -> {
+                    if (summaries == null) {
+                        Toast.makeText(this, "Custom periods are available once your history has synced",
+                                Toast.LENGTH_SHORT).show();
                         return;
                     }
+                    summaryRange = new long[]{from, to};
+                    totalIncomeCents = summaries.get(0).getIncomeCents();
+                    totalExpenseCents = summaries.get(0).getExpenseCents();
+                    currentMonthTextView.setText(DisplayFormatter.forCurrentThread().formatRange(from, to));
+                    summaryRangeButton.setText("This month");
+                    updateSummaryViews();
+                })
+                .addOnFailureListener(e -> Log.e(TAG, "Error summarizing period", e));
+    }
 
-                    totalIncome = 0.0;
-                    totalExpense = 0.0;
-
-                    if (value != null) {
-                        Log.d(TAG, "Found " + value.size() + " transactions");
-                        for (QueryDocumentSnapshot document : value) {
-                            Transaction transaction = document.toObject(Transaction.class);
-                            Log.d(TAG, "Transaction: " + transaction.getType() + " - $" + transaction.getAmount());
-
-                            if (transaction.getType().equals("income")) {
-                                totalIncome += transaction.getAmount();
-                            } else {
-                                totalExpense += transaction.getAmount();
-                            }
-                        }
-                    }
+    private void showThisMonth() {
+        summaryRange = null;
+        showMonthLabel();
+        summaryRangeButton.setText("Pick dates");
+
+        // The rollup listener kept saving this month's totals while the period was shown
+        String month = MonthlyRollup.monthKey(TransactionAggregator.monthStart(Calendar.getInstance(), 0));
+        long[] summary = dashboardSnapshot.loadSummary(month);
+        totalIncomeCents = summary != null ? summary[0] : 0;
+        totalExpenseCents = summary != null ? summary[1] : 0;
+        updateSummaryViews();
+    }
 
-                    Log.d(TAG, "Total Income: $" + totalIncome);
-                    Log.d(TAG, "Total Expense: $" + totalExpense);
-                    updateSummaryViews();
-                });
+    private void showMonthLabel() {
+        SimpleDateFormat monthFormat = new SimpleDateFormat("MMMM yyyy", Locale.getDefault());
+        currentMonthTextView.setText(monthFormat.format(Calendar.getInstance().getTime()));
     }
 
     private void updateSummaryViews() {
-        NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(Locale.US);
-        totalIncomeTextView.setText(currencyFormat.format(totalIncome));
-        totalExpenseTextView.setText(currencyFormat.format(totalExpense));
-        balanceTextView.setText(currencyFormat.format(totalIncome - totalExpense));
+        DisplayFormatter formatter = DisplayFormatter.forCurrentThread();
+        totalIncomeTextView.setText(formatter.formatCents(totalIncomeCents));
+        totalExpenseTextView.setText(formatter.formatCents(totalExpenseCents));
+        balanceTextView.setText(formatter.formatCents(totalIncomeCents - totalExpenseCents));
     }
 
     private void loadRecentTransactions() {
-        db.collection("transactions")
+        Query query = db.collection("transactions")
                 .whereEqualTo("userId", userId)
                 .orderBy("timestamp", Query.Direction.DESCENDING)
-                .limit(5)
-                .addSnapshotListener((value, error) -> {
-                    if (error != null) {
-                        Log.e(TAG, "Error loading recent transactions", error);
-                        return;
-                    }
+                .limit(5);
+        if (listeners.isActive(this, query)) {
+            // Already live, the listener keeps the list current
+            return;
+        }
+        // A new registration replays its documents as ADDED changes, start from an empty mirror
+        recentTransactions.clear();
+
+        listeners.listen(this, query, (value, error) -> {
+            if (error != null) {
+                Log.e(TAG, "Error loading recent transactions", error);
+                return;
+            }
+
+            if (value == null) return;
+
+            // Only changed documents are deserialized; metadata-only events change nothing
+            boolean changed = TransactionChanges.applyTo(recentTransactions, value.getDocumentChanges());
+            if (!changed && !value.isEmpty()) return;
+            if (!changed && recentShown && value.getMetadata().isFromCache()) {
+                // An empty cache answering first, keep the saved list until the server does
+                return;
+            }
+
+            recentShown = true;
+            List<Transaction> recent = new ArrayList<>(recentTransactions);
+            showRecentTransactions(recent);
+            dashboardSnapshot.saveRecent(recent);
+        });
+    }
 
-                    if (value != null && !value.isEmpty()) {
-                        List<Transaction> transactions = new ArrayList<>();
-                        for (QueryDocumentSnapshot document : value) {
-                            Transaction transaction = document.toObject(Transaction.class);
-                            transaction.setId(document.getId());
-                            transactions.add(transaction);
-                        }
-                        adapter.updateTransactions(transactions);
-                        noTransactionsTextView.setVisibility(View.GONE);
-                        recentTransactionsRecyclerView.setVisibility(View.VISIBLE);
-                    } else {
-                        noTransactionsTextView.setVisibility(View.VISIBLE);
-                        recentTransactionsRecyclerView.setVisibility(View.GONE);
-                    }
-                });
+    private void showRecentTransactions(List<Transaction> recent) {
+        if (!recent.isEmpty()) {
+            adapter.updateTransactions(recent);
+            noTransactionsTextView.setVisibility(View.GONE);
+            recentTransactionsRecyclerView.setVisibility(View.VISIBLE);
+        } else {
+            noTransactionsTextView.setVisibility(View.VISIBLE);
+            recentTransactionsRecyclerView.setVisibility(View.GONE);
+        }
     }
 
-    @Override
-    protected void onResume() {
-        super.onResume();
-        loadMonthlyData();
+    /** The write-behind queue notifies when saved transactions cannot be synced. */
+    private void requestNotificationPermission() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && ContextCompat.checkSelfPermission(this, Manifest.permission.POST_NOTIFICATIONS)
+                != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.POST_NOTIFICATIONS}, 0);
+        }
     }
 
     @Override
@@ -244,6 +394,7 @@ public class MainActivity extends AppCompatActivity {
             startActivity(intent);
             return true;
         } else if (id == R.id.action_logout) {
+            ReadModelSync.getInstance().stop();
             mAuth.signOut();
             navigateToLogin();
             return true;
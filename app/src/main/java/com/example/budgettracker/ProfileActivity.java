@@ -1,37 +1,90 @@
 package com.example.budgettracker;
 
 import android.content.Intent;
+import android.net.Uri;
 import android.os.Bundle;
+import android.provider.DocumentsContract;
+import android.util.Log;
+import android.view.View;
 import android.widget.Button;
 import android.widget.TextView;
+import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.example.budgettracker.data.LocalReadModel;
+import com.example.budgettracker.data.ReadModelSync;
+import com.example.budgettracker.data.StatisticsRepository;
+import com.example.budgettracker.data.TransactionExporter;
+import com.example.budgettracker.data.TransactionImporter;
+import com.example.budgettracker.models.CategoryDictionary;
+import com.example.budgettracker.transfer.CategoryMapper;
+import com.example.budgettracker.transfer.TransactionReader;
+import com.example.budgettracker.transfer.TransactionWriter;
 
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class ProfileActivity extends AppCompatActivity {
 
+    private static final String TAG = "ProfileActivity";
+    private static final String STATE_EXPORT_FORMAT = "exportFormat";
+    private static final String STATE_EXPORT_GZIP = "exportGzip";
+
     private TextView nameTextView, emailTextView;
     private TextView totalTransactionsTextView, activeBudgetsTextView, memberSinceTextView;
-    private Button manageCategoriesButton, logoutButton;
+    private TextView transferStatusTextView;
+    private Button manageCategoriesButton, importButton, exportButton, logoutButton;
 
     private FirebaseAuth mAuth;
     private FirebaseFirestore db;
     private String userId;
 
+    // Imports and exports run here, one at a time; an import outlives the activity and
+    // resumes if the process dies
+    private final ExecutorService transferExecutor = Executors.newSingleThreadExecutor();
+    private final ActivityResultLauncher<String[]> openImportFile = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(), uri -> {
+                if (uri != null) {
+                    importTransactions(uri);
+                }
+            });
+    // Chosen before the document picker opens, saved in case the activity is recreated meanwhile
+    private TransactionWriter.Format exportFormat = TransactionWriter.Format.CSV;
+    private boolean exportGzip = false;
+    private final ActivityResultLauncher<String> createExportFile = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument("*/*"), uri -> {
+                if (uri != null) {
+                    exportTransactions(uri, exportFormat, exportGzip);
+                }
+            });
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_profile);
 
+        if (savedInstanceState != null) {
+            exportFormat = TransactionWriter.Format.valueOf(
+                    savedInstanceState.getString(STATE_EXPORT_FORMAT, exportFormat.name()));
+            exportGzip = savedInstanceState.getBoolean(STATE_EXPORT_GZIP, exportGzip);
+        }
+
         mAuth = FirebaseAuth.getInstance();
         db = FirebaseFirestore.getInstance();
         FirebaseUser currentUser = mAuth.getCurrentUser();
@@ -55,6 +108,9 @@ public class ProfileActivity extends AppCompatActivity {
         activeBudgetsTextView = findViewById(R.id.activeBudgetsTextView);
         memberSinceTextView = findViewById(R.id.memberSinceTextView);
         manageCategoriesButton = findViewById(R.id.manageCategoriesButton);
+        importButton = findViewById(R.id.importButton);
+        exportButton = findViewById(R.id.exportButton);
+        transferStatusTextView = findViewById(R.id.transferStatusTextView);
         logoutButton = findViewById(R.id.logoutButton);
 
         loadUserInfo(currentUser);
@@ -65,9 +121,28 @@ public class ProfileActivity extends AppCompatActivity {
             startActivity(intent);
         });
 
+        importButton.setOnClickListener(v -> openImportFile.launch(new String[]{
+                "text/csv", "text/comma-separated-values", "text/plain",
+                "application/x-ofx", "application/vnd.intu.qfx", "application/octet-stream"}));
+        exportButton.setOnClickListener(v -> chooseExportFormat());
+
         logoutButton.setOnClickListener(v -> logout());
     }
 
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putString(STATE_EXPORT_FORMAT, exportFormat.name());
+        outState.putBoolean(STATE_EXPORT_GZIP, exportGzip);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // Lets a running import or export finish
+        transferExecutor.shutdown();
+    }
+
     private void loadUserInfo(FirebaseUser user) {
         nameTextView.setText(user.getDisplayName() != null ? user.getDisplayName() : "User");
         emailTextView.setText(user.getEmail());
@@ -86,26 +161,133 @@ public class ProfileActivity extends AppCompatActivity {
     }
 
     private void loadStatistics() {
-        db.collection("transactions")
-                .whereEqualTo("userId", userId)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    totalTransactionsTextView.setText(String.valueOf(queryDocumentSnapshots.size()));
-                });
+        // Counted on the server, without downloading the documents
+        StatisticsRepository statistics = new StatisticsRepository(db);
+        statistics.countTransactions(userId)
+                .addOnSuccessListener(this, count -> totalTransactionsTextView.setText(String.valueOf(count)))
+                .addOnFailureListener(this, e -> Log.e(TAG, "Error counting transactions", e));
 
         SimpleDateFormat monthFormat = new SimpleDateFormat("yyyy-MM", Locale.getDefault());
         String currentMonth = monthFormat.format(Calendar.getInstance().getTime());
 
-        db.collection("budgets")
-                .whereEqualTo("userId", userId)
-                .whereEqualTo("month", currentMonth)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    activeBudgetsTextView.setText(String.valueOf(queryDocumentSnapshots.size()));
+        statistics.countBudgets(userId, currentMonth)
+                .addOnSuccessListener(this, count -> activeBudgetsTextView.setText(String.valueOf(count)))
+                .addOnFailureListener(this, e -> Log.e(TAG, "Error counting budgets", e));
+    }
+
+    /** Streams a CSV or OFX file into Firestore, see {@link TransactionImporter}. */
+    private void importTransactions(Uri uri) {
+        setTransferRunning(true);
+        transferStatusTextView.setVisibility(View.VISIBLE);
+        transferStatusTextView.setText("Preparing import...");
+
+        TransactionImporter importer = new TransactionImporter(db, LocalReadModel.getInstance(this));
+        CategoryMapper categoryMapper = new CategoryMapper(CategoryDictionary.getInstance());
+
+        transferExecutor.execute(() -> {
+            try {
+                // The id hashes the file, so importing it again resumes instead of duplicating
+                String importId;
+                try (InputStream content = getContentResolver().openInputStream(uri)) {
+                    importId = TransactionImporter.importId(userId, content);
+                }
+
+                TransactionImporter.Result result;
+                try (TransactionReader reader = TransactionReader.open(new InputStreamReader(
+                        getContentResolver().openInputStream(uri), StandardCharsets.UTF_8), categoryMapper)) {
+                    result = importer.run(userId, importId, reader, rows -> runOnUiThread(() ->
+                            transferStatusTextView.setText("Imported " + rows + " transactions...")));
+                }
+
+                runOnUiThread(() -> {
+                    String status = "Imported " + result.getImported() + " transactions";
+                    if (result.getAlreadyImported() > 0) {
+                        status += ", " + result.getAlreadyImported() + " were already imported";
+                    }
+                    if (result.getSkipped() > 0) {
+                        status += ", skipped " + result.getSkipped() + " unreadable rows";
+                    }
+                    transferStatusTextView.setText(status);
+                    setTransferRunning(false);
+                    loadStatistics();
+                });
+            } catch (Exception e) {
+                Log.e(TAG, "Error importing transactions", e);
+                runOnUiThread(() -> {
+                    transferStatusTextView.setText("Import stopped, pick the same file again to resume");
+                    setTransferRunning(false);
+                    Toast.makeText(ProfileActivity.this, "Error importing: " + e.getMessage(),
+                            Toast.LENGTH_SHORT).show();
                 });
+            }
+        });
+    }
+
+    private void chooseExportFormat() {
+        String[] formats = {"CSV", "CSV, gzip-compressed", "JSON", "JSON, gzip-compressed"};
+        new AlertDialog.Builder(this)
+                .setTitle("Export Transactions")
+                .setItems(formats, (dialog, which) -> {
+                    exportFormat = which < 2 ? TransactionWriter.Format.CSV : TransactionWriter.Format.JSON;
+                    exportGzip = which % 2 == 1;
+                    String date = new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date());
+                    createExportFile.launch("transactions-" + date + "." + exportFormat.getExtension()
+                            + (exportGzip ? ".gz" : ""));
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    /** Streams the whole history to {@code uri} page by page, see {@link TransactionExporter}. */
+    private void exportTransactions(Uri uri, TransactionWriter.Format format, boolean gzip) {
+        setTransferRunning(true);
+        transferStatusTextView.setVisibility(View.VISIBLE);
+        transferStatusTextView.setText("Preparing export...");
+
+        TransactionExporter exporter = new TransactionExporter(db);
+
+        transferExecutor.execute(() -> {
+            try {
+                int written;
+                try (TransactionWriter writer = TransactionWriter.open(
+                        getContentResolver().openOutputStream(uri), format, gzip)) {
+                    written = exporter.run(userId, writer, count -> runOnUiThread(() ->
+                            transferStatusTextView.setText("Exported " + count + " transactions...")));
+                }
+
+                runOnUiThread(() -> {
+                    transferStatusTextView.setText("Exported " + written + " transactions");
+                    setTransferRunning(false);
+                });
+            } catch (Exception e) {
+                Log.e(TAG, "Error exporting transactions", e);
+                // The writer was closed on the way out, leaving a file that looks complete but is not
+                discardExport(uri);
+                runOnUiThread(() -> {
+                    transferStatusTextView.setText("Export failed");
+                    setTransferRunning(false);
+                    Toast.makeText(ProfileActivity.this, "Error exporting: " + e.getMessage(),
+                            Toast.LENGTH_SHORT).show();
+                });
+            }
+        });
+    }
+
+    private void discardExport(Uri uri) {
+        try {
+            DocumentsContract.deleteDocument(getContentResolver(), uri);
+        } catch (Exception e) {
+            Log.e(TAG, "Error deleting incomplete export", e);
+        }
+    }
+
+    private void setTransferRunning(boolean running) {
+        importButton.setEnabled(!running);
+        exportButton.setEnabled(!running);
     }
 
     private void logout() {
+        ReadModelSync.getInstance().stop();
         mAuth.signOut();
         Intent intent = new Intent(ProfileActivity.this, LoginActivity.class);
         intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
@@ -1,9 +1,13 @@
 package com.example.budgettracker;
 
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.Log;
 import android.view.View;
 import android.widget.TextView;
 
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 import androidx.recyclerview.widget.LinearLayoutManager;
@@ -11,29 +15,38 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.chip.Chip;
 import com.google.android.material.chip.ChipGroup;
+import com.google.android.material.textfield.TextInputEditText;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
-import com.example.budgettracker.adapters.TransactionAdapter;
-import com.example.budgettracker.models.Transaction;
-
-import java.util.ArrayList;
-import java.util.List;
+import com.example.budgettracker.adapters.TransactionHistoryAdapter;
+import com.example.budgettracker.aggregation.TransactionStore;
+import com.example.budgettracker.data.LocalReadModel;
+import com.example.budgettracker.data.LocalTransactionPager;
+import com.example.budgettracker.data.TransactionPager;
 
 public class TransactionListActivity extends AppCompatActivity {
 
+    private static final String TAG = "TransactionListActivity";
+    private static final int SEARCH_LIMIT = 200;
+
     private RecyclerView transactionsRecyclerView;
     private TextView emptyTextView;
     private ChipGroup filterChipGroup;
     private Chip chipAll, chipIncome, chipExpense;
-    private TransactionAdapter adapter;
+    private TextInputEditText searchEditText;
+    private TransactionHistoryAdapter adapter;
 
     private FirebaseAuth mAuth;
     private FirebaseFirestore db;
     private String userId;
-    private List<Transaction> allTransactions;
+    private TransactionStore allTransactions = TransactionStore.empty();
     private String currentFilter = "all";
+    private LinearLayoutManager layoutManager;
+    private LocalTransactionPager pager;
+    private LocalReadModel readModel;
+    private String searchQuery = "";
+    private TransactionStore searchResults; // null while not searching
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -57,14 +70,23 @@ public class TransactionListActivity extends AppCompatActivity {
         chipAll = findViewById(R.id.chipAll);
         chipIncome = findViewById(R.id.chipIncome);
         chipExpense = findViewById(R.id.chipExpense);
+        searchEditText = findViewById(R.id.searchEditText);
+        readModel = LocalReadModel.getInstance(this);
 
-        transactionsRecyclerView.setLayoutManager(new LinearLayoutManager(this));
-        allTransactions = new ArrayList<>();
-        adapter = new TransactionAdapter(allTransactions, transaction -> {
+        layoutManager = new LinearLayoutManager(this);
+        transactionsRecyclerView.setLayoutManager(layoutManager);
+        adapter = new TransactionHistoryAdapter((transactions, position) -> {
         });
         transactionsRecyclerView.setAdapter(adapter);
+        transactionsRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                prefetchIfNeeded();
+            }
+        });
 
         setupFilterListeners();
+        setupSearch();
 
         loadTransactions();
     }
@@ -81,49 +103,109 @@ public class TransactionListActivity extends AppCompatActivity {
             } else if (checkedId == R.id.chipExpense) {
                 currentFilter = "expense";
             }
-            filterTransactions();
+            // The loaded rows of the type show at once, the pager then queries that type alone
+            showFiltered(true);
+            pager.setType(currentFilter.equals("all") ? null : currentFilter);
         });
     }
 
+    private void setupSearch() {
+        searchEditText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+                searchQuery = s.toString().trim();
+                search();
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {}
+        });
+    }
+
+    /** Searches the whole local history, not only the loaded pages, for {@link #searchQuery}. */
+    private void search() {
+        String query = searchQuery;
+        if (query.isEmpty()) {
+            searchResults = null;
+            emptyTextView.setText("No transactions found");
+            showFiltered(true);
+            return;
+        }
+
+        readModel.search(userId, query, SEARCH_LIMIT)
+                .addOnSuccessListener(this, results -> {
+                    // Typed on meanwhile, a newer search is on its way
+                    if (!query.equals(searchQuery)) return;
+                    emptyTextView.setText(results != null
+                            ? "No transactions found" : "Search is available once your transactions have synced");
+                    searchResults = results != null ? results : TransactionStore.empty();
+                    showFiltered(true);
+                })
+                .addOnFailureListener(this, e -> Log.e(TAG, "Error searching transactions", e));
+    }
+
     private void loadTransactions() {
-        db.collection("transactions")
+        Query query = db.collection("transactions")
                 .whereEqualTo("userId", userId)
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .addSnapshotListener((value, error) -> {
-                    if (error != null) {
-                        return;
+                .orderBy("timestamp", Query.Direction.DESCENDING);
+
+        // Pages come from the local read model, or from Firestore until it has synced.
+        // Only the first page is loaded on open, older pages follow as the list is scrolled
+        pager = new LocalTransactionPager(this, LocalReadModel.getInstance(this), userId, query,
+                new TransactionPager.Callback() {
+                    @Override
+                    public void onTransactionsChanged(TransactionStore transactions) {
+                        allTransactions = transactions;
+                        if (searchResults != null) {
+                            // The read model changed, results may have too
+                            search();
+                            return;
+                        }
+                        showFiltered(false);
+                        // A list shorter than the screen cannot be scrolled, load the next page
+                        transactionsRecyclerView.post(() -> prefetchIfNeeded());
                     }
 
-                    if (value != null) {
-                        allTransactions.clear();
-                        for (QueryDocumentSnapshot document : value) {
-                            Transaction transaction = document.toObject(Transaction.class);
-                            transaction.setId(document.getId());
-                            allTransactions.add(transaction);
-                        }
-                        filterTransactions();
+                    @Override
+                    public void onError(Exception e) {
+                        Log.e(TAG, "Error loading transactions", e);
                     }
                 });
+        pager.start();
     }
 
-    private void filterTransactions() {
-        List<Transaction> filteredList = new ArrayList<>();
-
-        for (Transaction transaction : allTransactions) {
-            if (currentFilter.equals("all")) {
-                filteredList.add(transaction);
-            } else if (transaction.getType().equals(currentFilter)) {
-                filteredList.add(transaction);
-            }
-        }
+    private void prefetchIfNeeded() {
+        if (pager == null || pager.isEndReached() || searchResults != null) return;
+        pager.onScrolled(layoutManager.findLastVisibleItemPosition(), adapter.getItemCount());
+    }
 
-        if (filteredList.isEmpty()) {
+    /**
+     * Shows the view of the loaded transactions, or of the search results, that the
+     * checked chip selects. The pager already loads only the selected type; the per-type
+     * views, which the store keeps up to date without looking at the rows, cover the
+     * search results and the rows loaded before the filter changed. {@code filterChanged}
+     * swaps the list instead of diffing it.
+     */
+    private void showFiltered(boolean filterChanged) {
+        TransactionStore source = searchResults != null ? searchResults : allTransactions;
+        TransactionStore shown = currentFilter.equals("all")
+                ? source
+                : source.ofType(TransactionStore.typeOf(currentFilter));
+
+        if (shown.isEmpty()) {
             emptyTextView.setVisibility(View.VISIBLE);
             transactionsRecyclerView.setVisibility(View.GONE);
         } else {
             emptyTextView.setVisibility(View.GONE);
             transactionsRecyclerView.setVisibility(View.VISIBLE);
-            adapter.updateTransactions(filteredList);
+        }
+        if (filterChanged) {
+            adapter.replace(shown);
+        } else {
+            adapter.submit(shown, null);
         }
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,5 @@
 package com.example.budgettracker.adapters;
 
-import android.graphics.Color;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -9,18 +8,42 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.budgettracker.R;
+import com.example.budgettracker.format.DisplayFormatter;
 import com.example.budgettracker.models.Budget;
 
-import java.text.NumberFormat;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
+import java.util.Objects;
 
 public class BudgetAdapter extends RecyclerView.Adapter<BudgetAdapter.BudgetViewHolder> {
 
-    private List<Budget> budgets;
+    private static final int COLOR_OVER = 0xFFC62828; // Red
+    private static final int COLOR_WARNING = 0xFFF57C00; // Orange
+    private static final int COLOR_OK = 0xFF2E7D32; // Green
+
+    static final DiffUtil.ItemCallback<Budget> DIFF_CALLBACK = new DiffUtil.ItemCallback<Budget>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Budget oldItem, @NonNull Budget newItem) {
+            return Objects.equals(oldItem.getId(), newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Budget oldItem, @NonNull Budget newItem) {
+            return oldItem.getLimitCents() == newItem.getLimitCents()
+                    && oldItem.getSpentCents() == newItem.getSpentCents()
+                    && Objects.equals(oldItem.getCategory(), newItem.getCategory());
+        }
+    };
+
+    // Diffs run on a background thread, only rows that changed are rebound
+    private final AsyncListDiffer<Budget> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+    private final StableIds stableIds = new StableIds();
+    private final DisplayFormatter formatter = DisplayFormatter.forCurrentThread();
     private OnBudgetActionListener listener;
 
     public interface OnBudgetActionListener {
@@ -28,8 +51,9 @@ public class BudgetAdapter extends RecyclerView.Adapter<BudgetAdapter.BudgetView
     }
 
     public BudgetAdapter(List<Budget> budgets, OnBudgetActionListener listener) {
-        this.budgets = budgets;
         this.listener = listener;
+        setHasStableIds(true);
+        updateBudgets(budgets);
     }
 
     @NonNull
@@ -42,18 +66,27 @@ public class BudgetAdapter extends RecyclerView.Adapter<BudgetAdapter.BudgetView
 
     @Override
     public void onBindViewHolder(@NonNull BudgetViewHolder holder, int position) {
-        Budget budget = budgets.get(position);
+        Budget budget = differ.getCurrentList().get(position);
         holder.bind(budget);
     }
 
     @Override
     public int getItemCount() {
-        return budgets.size();
+        return differ.getCurrentList().size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableIds.get(differ.getCurrentList().get(position).getId());
     }
 
     public void updateBudgets(List<Budget> newBudgets) {
-        this.budgets = newBudgets;
-        notifyDataSetChanged();
+        // Budgets are updated in place as spending changes, diff against copies
+        List<Budget> copies = new ArrayList<>(newBudgets.size());
+        for (Budget budget : newBudgets) {
+            copies.add(new Budget(budget));
+        }
+        differ.submitList(copies);
     }
 
     class BudgetViewHolder extends RecyclerView.ViewHolder {
@@ -68,33 +101,33 @@ public class BudgetAdapter extends RecyclerView.Adapter<BudgetAdapter.BudgetView
             percentageTextView = itemView.findViewById(R.id.percentageTextView);
             budgetProgressBar = itemView.findViewById(R.id.budgetProgressBar);
             deleteButton = itemView.findViewById(R.id.deleteButton);
+
+            deleteButton.setOnClickListener(v -> {
+                int position = getAdapterPosition();
+                if (position != RecyclerView.NO_POSITION && listener != null) {
+                    listener.onDeleteBudget(differ.getCurrentList().get(position));
+                }
+            });
         }
 
         public void bind(Budget budget) {
             categoryTextView.setText(budget.getCategory());
 
-            NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(Locale.US);
-            String info = "Spent " + currencyFormat.format(budget.getSpent()) +
-                    " of " + currencyFormat.format(budget.getLimit());
-            budgetInfoTextView.setText(info);
+            // Rebuilt only when the spent amount or limit changed
+            DisplayFormatter.BudgetText text = formatter.budgetText(budget);
+            budgetInfoTextView.setText(text.getInfo());
 
-            int percentage = budget.getPercentageUsed();
+            int percentage = text.getPercentage();
             budgetProgressBar.setProgress(percentage);
-            percentageTextView.setText(percentage + "% used");
+            percentageTextView.setText(text.getPercentageText());
 
             if (percentage >= 100) {
-                percentageTextView.setTextColor(Color.parseColor("#C62828")); // Red
+                percentageTextView.setTextColor(COLOR_OVER);
             } else if (percentage >= 80) {
-                percentageTextView.setTextColor(Color.parseColor("#F57C00")); // Orange
+                percentageTextView.setTextColor(COLOR_WARNING);
             } else {
-                percentageTextView.setTextColor(Color.parseColor("#2E7D32")); // Green
+                percentageTextView.setTextColor(COLOR_OK);
             }
-
-            deleteButton.setOnClickListener(v -> {
-                if (listener != null) {
-                    listener.onDeleteBudget(budget);
-                }
-            });
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.example.budgettracker.adapters;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hands out one long per Firestore document id, for adapters with stable ids.
+ * Unlike {@code String.hashCode()} two ids can never collide.
+ */
+final class StableIds {
+
+    private final Map<String, Long> ids = new HashMap<>();
+
+    long get(String documentId) {
+        if (documentId == null) return RecyclerView.NO_ID;
+
+        Long id = ids.get(documentId);
+        if (id == null) {
+            id = (long) ids.size();
+            ids.put(documentId, id);
+        }
+        return id;
+    }
+}
@@ -1,25 +1,44 @@
 package com.example.budgettracker.adapters;
 
-import android.graphics.Color;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.budgettracker.R;
+import com.example.budgettracker.format.DisplayFormatter;
 import com.example.budgettracker.models.Transaction;
 
-import java.text.NumberFormat;
-import java.text.SimpleDateFormat;
 import java.util.List;
-import java.util.Locale;
+import java.util.Objects;
 
-public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.TransactionViewHolder> {
+public class TransactionAdapter extends RecyclerView.Adapter<TransactionViewHolder> {
 
-    private List<Transaction> transactions;
+    static final DiffUtil.ItemCallback<Transaction> DIFF_CALLBACK = new DiffUtil.ItemCallback<Transaction>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Transaction oldItem, @NonNull Transaction newItem) {
+            return Objects.equals(oldItem.getId(), newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Transaction oldItem, @NonNull Transaction newItem) {
+            return oldItem.getAmountCents() == newItem.getAmountCents()
+                    && oldItem.getTimestamp() == newItem.getTimestamp()
+                    && Objects.equals(oldItem.getType(), newItem.getType())
+                    && Objects.equals(oldItem.getCategory(), newItem.getCategory())
+                    && Objects.equals(oldItem.getDescription(), newItem.getDescription())
+                    && Objects.equals(oldItem.getDate(), newItem.getDate());
+        }
+    };
+
+    // Diffs run on a background thread, only rows that changed are rebound
+    private final AsyncListDiffer<Transaction> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+    private final StableIds stableIds = new StableIds();
+    private final DisplayFormatter formatter = DisplayFormatter.forCurrentThread();
     private OnTransactionClickListener listener;
 
     public interface OnTransactionClickListener {
@@ -27,8 +46,9 @@ public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.
     }
 
     public TransactionAdapter(List<Transaction> transactions, OnTransactionClickListener listener) {
-        this.transactions = transactions;
         this.listener = listener;
+        setHasStableIds(true);
+        differ.submitList(transactions);
     }
 
     @NonNull
@@ -36,60 +56,34 @@ public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.
     public TransactionViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_transaction, parent, false);
-        return new TransactionViewHolder(view);
+        TransactionViewHolder holder = new TransactionViewHolder(view);
+        view.setOnClickListener(v -> {
+            int position = holder.getAdapterPosition();
+            if (position != RecyclerView.NO_POSITION && listener != null) {
+                listener.onTransactionClick(differ.getCurrentList().get(position));
+            }
+        });
+        return holder;
     }
 
     @Override
     public void onBindViewHolder(@NonNull TransactionViewHolder holder, int position) {
-        Transaction transaction = transactions.get(position);
-        holder.bind(transaction);
+        Transaction transaction = differ.getCurrentList().get(position);
+        holder.bind(transaction.getCategory(), formatter.transactionText(transaction));
     }
 
     @Override
     public int getItemCount() {
-        return transactions.size();
+        return differ.getCurrentList().size();
     }
 
-    public void updateTransactions(List<Transaction> newTransactions) {
-        this.transactions = newTransactions;
-        notifyDataSetChanged();
+    @Override
+    public long getItemId(int position) {
+        return stableIds.get(differ.getCurrentList().get(position).getId());
     }
 
-    class TransactionViewHolder extends RecyclerView.ViewHolder {
-        TextView categoryTextView, descriptionTextView, dateTextView, amountTextView;
-
-        public TransactionViewHolder(@NonNull View itemView) {
-            super(itemView);
-            categoryTextView = itemView.findViewById(R.id.categoryTextView);
-            descriptionTextView = itemView.findViewById(R.id.descriptionTextView);
-            dateTextView = itemView.findViewById(R.id.dateTextView);
-            amountTextView = itemView.findViewById(R.id.amountTextView);
-
-            itemView.setOnClickListener(v -> {
-                int position = getAdapterPosition();
-                if (position != RecyclerView.NO_POSITION && listener != null) {
-                    listener.onTransactionClick(transactions.get(position));
-                }
-            });
-        }
-
-        public void bind(Transaction transaction) {
-            categoryTextView.setText(transaction.getCategory());
-            descriptionTextView.setText(transaction.getDescription());
-
-            SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
-            dateTextView.setText(dateFormat.format(transaction.getDate()));
-
-            NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(Locale.US);
-            String formattedAmount = currencyFormat.format(transaction.getAmount());
-
-            if (transaction.getType().equals("income")) {
-                amountTextView.setText("+" + formattedAmount);
-                amountTextView.setTextColor(Color.parseColor("#2E7D32")); // Green
-            } else {
-                amountTextView.setText("-" + formattedAmount);
-                amountTextView.setTextColor(Color.parseColor("#C62828")); // Red
-            }
-        }
+    /** The list must not be modified after it is submitted. */
+    public void updateTransactions(List<Transaction> newTransactions) {
+        differ.submitList(newTransactions);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,173 @@
+package com.example.budgettracker.adapters;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.budgettracker.R;
+import com.example.budgettracker.aggregation.TransactionStore;
+import com.example.budgettracker.format.DisplayFormatter;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Shows the positions of a {@link TransactionStore} snapshot without turning its
+ * rows into Transaction objects. Snapshots are immutable, so the diff between the
+ * shown and the submitted one runs on a background thread, comparing ids and row
+ * revisions only.
+ */
+public class TransactionHistoryAdapter extends RecyclerView.Adapter<TransactionViewHolder> {
+
+    private static final Executor DIFF_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final StableIds stableIds = new StableIds();
+    private final DisplayFormatter formatter = DisplayFormatter.forCurrentThread();
+    private final OnTransactionClickListener listener;
+
+    private TransactionStore transactions = TransactionStore.empty();
+    private int[] positions; // adapter position -> store position, null when every row is shown
+    private int generation = 0;
+
+    public interface OnTransactionClickListener {
+        void onTransactionClick(TransactionStore transactions, int position);
+    }
+
+    public TransactionHistoryAdapter(OnTransactionClickListener listener) {
+        this.listener = listener;
+        setHasStableIds(true);
+    }
+
+    @NonNull
+    @Override
+    public TransactionViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_transaction, parent, false);
+        TransactionViewHolder holder = new TransactionViewHolder(view);
+        view.setOnClickListener(v -> {
+            int position = holder.getAdapterPosition();
+            if (position != RecyclerView.NO_POSITION && listener != null) {
+                listener.onTransactionClick(transactions, storePosition(position));
+            }
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull TransactionViewHolder holder, int position) {
+        int storePosition = storePosition(position);
+        holder.bind(transactions.getCategory(storePosition), formatter.transactionText(transactions, storePosition));
+    }
+
+    @Override
+    public int getItemCount() {
+        return positions != null ? positions.length : transactions.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableIds.get(transactions.getId(storePosition(position)));
+    }
+
+    /** Shows {@code newPositions} of {@code newTransactions}, or all of it when null. */
+    public void submit(TransactionStore newTransactions, int[] newPositions) {
+        int submitted = ++generation;
+        TransactionStore oldTransactions = transactions;
+        int[] oldPositions = positions;
+
+        if (getItemCount() == 0 || count(newTransactions, newPositions) == 0) {
+            int removed = getItemCount();
+            transactions = newTransactions;
+            positions = newPositions;
+            notifyItemRangeRemoved(0, removed);
+            notifyItemRangeInserted(0, getItemCount());
+            return;
+        }
+
+        DIFF_EXECUTOR.execute(() -> {
+            DiffUtil.DiffResult result = DiffUtil.calculateDiff(
+                    new RowDiff(oldTransactions, oldPositions, newTransactions, newPositions));
+            mainHandler.post(() -> {
+                // A newer submission is already on its way
+                if (submitted != generation) return;
+                transactions = newTransactions;
+                positions = newPositions;
+                result.dispatchUpdatesTo(this);
+            });
+        });
+    }
+
+    /**
+     * Shows all of {@code newTransactions} without diffing against the shown rows, for a
+     * switch to another filter where most rows differ and a diff would cost more than
+     * rebinding the visible ones.
+     */
+    public void replace(TransactionStore newTransactions) {
+        // Drops a diff still in flight for the previous filter
+        generation++;
+        transactions = newTransactions;
+        positions = null;
+        notifyDataSetChanged();
+    }
+
+    private int storePosition(int position) {
+        return positions != null ? positions[position] : position;
+    }
+
+    private static int count(TransactionStore transactions, int[] positions) {
+        return positions != null ? positions.length : transactions.size();
+    }
+
+    /** Same document is the same id, same contents is the same revision of its row. */
+    static final class RowDiff extends DiffUtil.Callback {
+        private final TransactionStore oldTransactions;
+        private final int[] oldPositions;
+        private final TransactionStore newTransactions;
+        private final int[] newPositions;
+
+        RowDiff(TransactionStore oldTransactions, int[] oldPositions,
+                TransactionStore newTransactions, int[] newPositions) {
+            this.oldTransactions = oldTransactions;
+            this.oldPositions = oldPositions;
+            this.newTransactions = newTransactions;
+            this.newPositions = newPositions;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return count(oldTransactions, oldPositions);
+        }
+
+        @Override
+        public int getNewListSize() {
+            return count(newTransactions, newPositions);
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldTransactions.getId(oldStorePosition(oldItemPosition))
+                    .equals(newTransactions.getId(newStorePosition(newItemPosition)));
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldTransactions.getRevision(oldStorePosition(oldItemPosition))
+                    == newTransactions.getRevision(newStorePosition(newItemPosition));
+        }
+
+        private int oldStorePosition(int position) {
+            return oldPositions != null ? oldPositions[position] : position;
+        }
+
+        private int newStorePosition(int position) {
+            return newPositions != null ? newPositions[position] : position;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.budgettracker.adapters;
+
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.budgettracker.R;
+import com.example.budgettracker.format.DisplayFormatter;
+
+/** Row of {@code item_transaction}, shared by the transaction adapters. */
+public class TransactionViewHolder extends RecyclerView.ViewHolder {
+
+    private static final int COLOR_INCOME = 0xFF2E7D32; // Green
+    private static final int COLOR_EXPENSE = 0xFFC62828; // Red
+
+    private final TextView categoryTextView, descriptionTextView, dateTextView, amountTextView;
+
+    public TransactionViewHolder(@NonNull View itemView) {
+        super(itemView);
+        categoryTextView = itemView.findViewById(R.id.categoryTextView);
+        descriptionTextView = itemView.findViewById(R.id.descriptionTextView);
+        dateTextView = itemView.findViewById(R.id.dateTextView);
+        amountTextView = itemView.findViewById(R.id.amountTextView);
+    }
+
+    void bind(String category, DisplayFormatter.TransactionText text) {
+        categoryTextView.setText(category);
+        descriptionTextView.setText(text.getDescription());
+
+        // Text and colors are cached, binding a row again allocates nothing
+        dateTextView.setText(text.getDate());
+        amountTextView.setText(text.getAmount());
+        amountTextView.setTextColor(text.isIncome() ? COLOR_INCOME : COLOR_EXPENSE);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.budgettracker.aggregation;
+
+import com.example.budgettracker.models.Budget;
+import com.example.budgettracker.models.CategoryDictionary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Budgets of one month indexed by id and by category, with the spent cents per category.
+ *
+ * Budget changes and spent changes are applied incrementally: a new budget is looked up
+ * in the category index instead of rescanning expenses, and a new spent figure only
+ * touches the budgets of its category. Categories are {@link CategoryDictionary} ids
+ * indexing plain arrays.
+ */
+public class BudgetSpentIndex {
+
+    private final Map<String, Budget> budgetsById = new LinkedHashMap<>();
+    private final CategoryDictionary categories = CategoryDictionary.getInstance();
+    private final List<List<Budget>> budgetsByCategory = new ArrayList<>(); // by category id, null if none
+    private long[] spentByCategory = new long[0];
+
+    /** Adds or replaces a budget; its spent amount is taken from the index. */
+    public void putBudget(Budget budget) {
+        removeBudget(budget.getId());
+
+        int category = categories.idOf(budget.getCategory());
+        budget.setSpentCents(getSpent(category));
+        budgetsById.put(budget.getId(), budget);
+        while (budgetsByCategory.size() <= category) {
+            budgetsByCategory.add(null);
+        }
+        List<Budget> sameCategory = budgetsByCategory.get(category);
+        if (sameCategory == null) {
+            sameCategory = new ArrayList<>(1);
+            budgetsByCategory.set(category, sameCategory);
+        }
+        sameCategory.add(budget);
+    }
+
+    public void removeBudget(String budgetId) {
+        Budget removed = budgetsById.remove(budgetId);
+        if (removed == null) return;
+
+        int category = categories.idOf(removed.getCategory());
+        List<Budget> sameCategory = budgetsByCategory.get(category);
+        sameCategory.remove(removed);
+        if (sameCategory.isEmpty()) {
+            budgetsByCategory.set(category, null);
+        }
+    }
+
+    /** Sets the spent cents of one category; returns true if any budget changed. */
+    public boolean setSpent(String category, long spent) {
+        return setSpent(categories.idOf(category), spent);
+    }
+
+    /** Same as {@link #setSpent(String, long)} by category id. */
+    public boolean setSpent(int category, long spent) {
+        if (category >= spentByCategory.length) {
+            spentByCategory = Arrays.copyOf(spentByCategory, categories.size());
+        }
+        if (spentByCategory[category] == spent) return false;
+        spentByCategory[category] = spent;
+
+        List<Budget> sameCategory = category < budgetsByCategory.size() ? budgetsByCategory.get(category) : null;
+        if (sameCategory == null) return false;
+
+        for (Budget budget : sameCategory) {
+            budget.setSpentCents(spent);
+        }
+        return true;
+    }
+
+    /**
+     * Replaces all spent amounts, e.g. from a monthly rollup. Only categories whose
+     * amount differs are applied; returns true if any budget changed.
+     */
+    public boolean applySpent(Map<String, Long> spent) {
+        long[] byId = new long[categories.size()];
+        for (Map.Entry<String, Long> entry : spent.entrySet()) {
+            int category = categories.idOf(entry.getKey());
+            if (category >= byId.length) {
+                byId = Arrays.copyOf(byId, categories.size());
+            }
+            byId[category] = entry.getValue();
+        }
+        return applySpent(byId);
+    }
+
+    /** Same as {@link #applySpent(Map)} with totals indexed by category id. */
+    public boolean applySpent(long[] spentById) {
+        boolean changed = false;
+        int ids = Math.max(spentById.length, spentByCategory.length);
+        for (int category = 0; category < ids; category++) {
+            changed |= setSpent(category, category < spentById.length ? spentById[category] : 0);
+        }
+        return changed;
+    }
+
+    public long getSpent(String category) {
+        int id = categories.find(category);
+        return id == CategoryDictionary.NO_ID ? 0 : getSpent(id);
+    }
+
+    private long getSpent(int category) {
+        return category < spentByCategory.length ? spentByCategory[category] : 0;
+    }
+
+    public List<Budget> getBudgets() {
+        return new ArrayList<>(budgetsById.values());
+    }
+
+    public int size() {
+        return budgetsById.size();
+    }
+
+    public boolean isEmpty() {
+        return budgetsById.isEmpty();
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.budgettracker.aggregation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Income and expense of a user's transactions per local calendar day, for summing any
+ * date range without going back to the transactions.
+ *
+ * Each day is a bucket, and a Fenwick tree over the buckets answers the sum of any run
+ * of days with O(log n) additions, n being the number of days covered; adding or taking
+ * back one transaction also touches O(log n) nodes. The covered days grow to fit the
+ * transactions, doubling so that a long history is rebuilt only a few times.
+ *
+ * Totals are per day, so range bounds are taken to the day that contains them. Not
+ * thread-safe.
+ */
+public final class DailyTotals {
+
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+    private static final int INITIAL_DAYS = 512;
+
+    private final TimeZone zone;
+
+    // Epoch day of bucket 0; the trees are 1-based, node i covers the buckets (i - lowbit(i), i]
+    private long firstDay;
+    private long[] dailyIncome = new long[0];
+    private long[] dailyExpense = new long[0];
+    private long[] incomeTree = new long[1];
+    private long[] expenseTree = new long[1];
+
+    public DailyTotals(TimeZone zone) {
+        this.zone = zone;
+    }
+
+    public TimeZone getTimeZone() {
+        return zone;
+    }
+
+    /** Local calendar day of {@code timestamp}, counted from 1 January 1970. */
+    public long dayOf(long timestamp) {
+        return Math.floorDiv(timestamp + zone.getOffset(timestamp), DAY_MS);
+    }
+
+    public void add(long timestamp, byte type, long amountCents) {
+        long day = dayOf(timestamp);
+        cover(day);
+        int bucket = (int) (day - firstDay);
+        if (type == TransactionStore.TYPE_INCOME) {
+            dailyIncome[bucket] += amountCents;
+            update(incomeTree, bucket, amountCents);
+        } else {
+            dailyExpense[bucket] += amountCents;
+            update(expenseTree, bucket, amountCents);
+        }
+    }
+
+    /** Takes back a transaction {@link #add added} with the same values. */
+    public void remove(long timestamp, byte type, long amountCents) {
+        add(timestamp, type, -amountCents);
+    }
+
+    public void clear() {
+        dailyIncome = new long[0];
+        dailyExpense = new long[0];
+        incomeTree = new long[1];
+        expenseTree = new long[1];
+    }
+
+    /** Totals of the days from the one containing {@code from} to the one containing {@code to - 1}. */
+    public Summary summarize(long from, long to) {
+        if (to <= from) return new Summary(0, 0);
+
+        int first = clamp(dayOf(from) - firstDay);
+        int end = clamp(dayOf(to - 1) - firstDay + 1);
+        return new Summary(prefix(incomeTree, end) - prefix(incomeTree, first),
+                prefix(expenseTree, end) - prefix(expenseTree, first));
+    }
+
+    /** Totals of each range between consecutive {@code boundaries}, like the trend buckets of the charts. */
+    public List<Summary> summarize(long[] boundaries) {
+        List<Summary> result = new ArrayList<>();
+        for (int i = 0; i < boundaries.length - 1; i++) {
+            result.add(summarize(boundaries[i], boundaries[i + 1]));
+        }
+        return result;
+    }
+
+    /** Days the buckets currently cover, at least the span from the first to the last transaction. */
+    public int getDayCount() {
+        return dailyIncome.length;
+    }
+
+    /** Rough heap size in bytes: two buckets and two tree nodes of 8 bytes per day. */
+    public long estimateMemoryBytes() {
+        return 4 * 16L + 32L * dailyIncome.length;
+    }
+
+    private int clamp(long bucket) {
+        return (int) Math.max(0, Math.min(dailyIncome.length, bucket));
+    }
+
+    private void cover(long day) {
+        int days = dailyIncome.length;
+        if (days == 0) {
+            // Room for a year or so either side of the first transaction
+            firstDay = day - INITIAL_DAYS / 2;
+            resize(firstDay, INITIAL_DAYS);
+            return;
+        }
+        if (day >= firstDay && day < firstDay + days) return;
+
+        long lastDay = firstDay + days - 1;
+        long span = Math.max(lastDay, day) - Math.min(firstDay, day) + 1;
+        int capacity = Integer.highestOneBit((int) span) * 2;
+        // Headroom goes to the side the history grew on
+        long newFirstDay = day < firstDay ? lastDay - capacity + 1 : firstDay;
+        resize(newFirstDay, capacity);
+    }
+
+    /** Moves the buckets to start at {@code newFirstDay} and rebuilds both trees in O(n). */
+    private void resize(long newFirstDay, int capacity) {
+        long[] income = new long[capacity];
+        long[] expense = new long[capacity];
+        int shift = (int) (firstDay - newFirstDay);
+        System.arraycopy(dailyIncome, 0, income, shift, dailyIncome.length);
+        System.arraycopy(dailyExpense, 0, expense, shift, dailyExpense.length);
+
+        firstDay = newFirstDay;
+        dailyIncome = income;
+        dailyExpense = expense;
+        incomeTree = build(income);
+        expenseTree = build(expense);
+    }
+
+    private static long[] build(long[] buckets) {
+        long[] tree = new long[buckets.length + 1];
+        System.arraycopy(buckets, 0, tree, 1, buckets.length);
+        for (int i = 1; i < tree.length; i++) {
+            int parent = i + (i & -i);
+            if (parent < tree.length) {
+                tree[parent] += tree[i];
+            }
+        }
+        return tree;
+    }
+
+    private static void update(long[] tree, int bucket, long delta) {
+        for (int i = bucket + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /** Sum of buckets {@code [0, end)}. */
+    private static long prefix(long[] tree, int end) {
+        long sum = 0;
+        for (int i = end; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /** Income and expense of a date range. */
+    public static final class Summary {
+        private final long incomeCents;
+        private final long expenseCents;
+
+        public Summary(long incomeCents, long expenseCents) {
+            this.incomeCents = incomeCents;
+            this.expenseCents = expenseCents;
+        }
+
+        public long getIncomeCents() {
+            return incomeCents;
+        }
+
+        public long getExpenseCents() {
+            return expenseCents;
+        }
+
+        public long getBalanceCents() {
+            return incomeCents - expenseCents;
+        }
+    }
+}
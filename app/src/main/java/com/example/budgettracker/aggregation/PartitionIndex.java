@@ -0,0 +1,98 @@
+package com.example.budgettracker.aggregation;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * The position order of a {@link TransactionStore.Builder} split by a key of each row,
+ * e.g. its type or category id, kept up to date as rows are added and removed.
+ *
+ * Each key holds the rows with that key in position order, so the filtered view of a
+ * snapshot is a copy of one array instead of a scan over every row. Finding where a
+ * row goes within its key counts same-key rows from the nearer end of the order, so
+ * inserts at the top (new transactions) and at the bottom (older pages) are cheap.
+ * Not thread-safe, like the builder.
+ */
+final class PartitionIndex {
+
+    private static final int[] NO_ROWS = new int[0];
+
+    private final IntUnaryOperator keyOf; // row -> key, a small non-negative int
+    private int[][] orders = new int[0][];
+    private int[] sizes = new int[0];
+
+    PartitionIndex(IntUnaryOperator keyOf) {
+        this.keyOf = keyOf;
+    }
+
+    /** Call before {@code row} is inserted at {@code position} of {@code order}. */
+    void insert(int[] order, int size, int position, int row) {
+        int key = keyOf.applyAsInt(row);
+        if (key >= orders.length) {
+            int keys = Math.max(key + 1, orders.length * 2);
+            int from = orders.length;
+            orders = Arrays.copyOf(orders, keys);
+            sizes = Arrays.copyOf(sizes, keys);
+            Arrays.fill(orders, from, keys, NO_ROWS);
+        }
+
+        int index = indexOf(order, size, position, key);
+        int[] keyOrder = orders[key];
+        int keySize = sizes[key];
+        if (keySize == keyOrder.length) {
+            keyOrder = Arrays.copyOf(keyOrder, Math.max(16, keySize * 2));
+            orders[key] = keyOrder;
+        }
+        System.arraycopy(keyOrder, index, keyOrder, index + 1, keySize - index);
+        keyOrder[index] = row;
+        sizes[key] = keySize + 1;
+    }
+
+    /** Call before the row at {@code position} of {@code order} is removed. */
+    void remove(int[] order, int size, int position) {
+        int key = keyOf.applyAsInt(order[position]);
+        int index = indexOf(order, size, position, key);
+        int[] keyOrder = orders[key];
+        System.arraycopy(keyOrder, index + 1, keyOrder, index, sizes[key] - index - 1);
+        sizes[key]--;
+    }
+
+    void clear() {
+        Arrays.fill(sizes, 0);
+    }
+
+    /** Renumbers the rows after the builder compacted its columns, {@code newRows[oldRow]} is the new row. */
+    void remap(int[] newRows) {
+        for (int key = 0; key < orders.length; key++) {
+            int[] keyOrder = orders[key];
+            for (int i = 0; i < sizes[key]; i++) {
+                keyOrder[i] = newRows[keyOrder[i]];
+            }
+        }
+    }
+
+    /** Copies of the per-key orders, trimmed to size, for a snapshot. */
+    int[][] snapshot() {
+        int[][] copy = new int[orders.length][];
+        for (int key = 0; key < orders.length; key++) {
+            copy[key] = sizes[key] == 0 ? NO_ROWS : Arrays.copyOf(orders[key], sizes[key]);
+        }
+        return copy;
+    }
+
+    /** Index within {@code key}'s order of the row at, or to be inserted at, {@code position}. */
+    private int indexOf(int[] order, int size, int position, int key) {
+        int count = 0;
+        if (position <= size - position) {
+            for (int p = 0; p < position; p++) {
+                if (keyOf.applyAsInt(order[p]) == key) count++;
+            }
+            return count;
+        }
+        for (int p = position; p < size; p++) {
+            if (keyOf.applyAsInt(order[p]) == key) count++;
+        }
+        // Same-key rows at or after the position are the ones not before it
+        return sizes[key] - count;
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.budgettracker.aggregation;
+
+import com.example.budgettracker.models.Budget;
+import com.example.budgettracker.models.CategoryDictionary;
+import com.example.budgettracker.models.MonthlyRollup;
+import com.example.budgettracker.models.Transaction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Single-pass aggregation over a stream of transactions.
+ *
+ * Produces everything the dashboard, charts and budget screens need from one walk:
+ * income/expense totals and per-category totals for the current period, plus
+ * per-month income/expense buckets for the trend window. Amounts are summed as
+ * cents in primitive longs, per category in arrays indexed by
+ * {@link CategoryDictionary} id, so adding a transaction neither hashes nor boxes.
+ * Plain Java only, so it can be exercised from local unit tests.
+ */
+public class TransactionAggregator {
+
+    public static final String TYPE_INCOME = "income";
+    public static final String TYPE_EXPENSE = "expense";
+
+    private final long periodStart;
+    // monthStarts[i] is the start of trend bucket i; monthStarts[length - 1] is the end of the window
+    private final long[] monthStarts;
+
+    private long totalIncomeCents = 0;
+    private long totalExpenseCents = 0;
+    private int count = 0;
+    private final CategoryDictionary categories = CategoryDictionary.getInstance();
+    private long[] incomeByCategory;
+    private long[] expenseByCategory;
+    private final long[] monthlyIncomeCents;
+    private final long[] monthlyExpenseCents;
+
+    public TransactionAggregator(long periodStart, long[] monthStarts) {
+        this.periodStart = periodStart;
+        this.monthStarts = monthStarts;
+        int buckets = Math.max(0, monthStarts.length - 1);
+        this.monthlyIncomeCents = new long[buckets];
+        this.monthlyExpenseCents = new long[buckets];
+        this.incomeByCategory = new long[categories.size()];
+        this.expenseByCategory = new long[categories.size()];
+    }
+
+    /**
+     * Aggregator whose period is the month containing {@code now} and whose trend
+     * window covers the {@code trendMonths} months ending with that month.
+     */
+    public static TransactionAggregator forMonth(Calendar now, int trendMonths) {
+        return new TransactionAggregator(monthStart(now, 0), monthStarts(now, trendMonths));
+    }
+
+    /** Start of the month {@code offset} months away from the month containing {@code now}. */
+    public static long monthStart(Calendar now, int offset) {
+        Calendar calendar = (Calendar) now.clone();
+        calendar.set(Calendar.DAY_OF_MONTH, 1);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        calendar.add(Calendar.MONTH, offset);
+        return calendar.getTimeInMillis();
+    }
+
+    /** Bucket boundaries for the {@code months} months ending with the month containing {@code now}. */
+    public static long[] monthStarts(Calendar now, int months) {
+        long[] starts = new long[months + 1];
+        for (int i = 0; i <= months; i++) {
+            starts[i] = monthStart(now, i - months + 1);
+        }
+        return starts;
+    }
+
+    /**
+     * Start of the local day with the calendar date of {@code utcDate}, a UTC midnight
+     * such as the dates picked in a MaterialDatePicker.
+     */
+    public static long localDayStart(long utcDate, Calendar local) {
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        utc.setTimeInMillis(utcDate);
+        Calendar calendar = (Calendar) local.clone();
+        calendar.clear();
+        calendar.set(utc.get(Calendar.YEAR), utc.get(Calendar.MONTH), utc.get(Calendar.DAY_OF_MONTH));
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * Calendar field a trend over {@code [from, to)} is bucketed by: days up to a month,
+     * weeks up to half a year, months beyond.
+     */
+    public static int trendField(long from, long to) {
+        long days = (to - from) / (24L * 60 * 60 * 1000);
+        if (days <= 31) return Calendar.DAY_OF_MONTH;
+        if (days <= 26 * 7) return Calendar.WEEK_OF_YEAR;
+        return Calendar.MONTH;
+    }
+
+    /**
+     * Bucket boundaries over {@code [from, to)}, one bucket per {@code field} unit; the
+     * first and last buckets may be partial. {@code from} and {@code to} are day starts.
+     */
+    public static long[] rangeStarts(Calendar from, long to, int field) {
+        Calendar calendar = (Calendar) from.clone();
+        List<Long> starts = new ArrayList<>();
+        starts.add(calendar.getTimeInMillis());
+        if (field == Calendar.WEEK_OF_YEAR) {
+            calendar.set(Calendar.DAY_OF_WEEK, calendar.getFirstDayOfWeek());
+        } else if (field == Calendar.MONTH) {
+            calendar.set(Calendar.DAY_OF_MONTH, 1);
+        }
+        while (true) {
+            calendar.add(field, 1);
+            if (calendar.getTimeInMillis() >= to) break;
+            starts.add(calendar.getTimeInMillis());
+        }
+        starts.add(to);
+
+        long[] result = new long[starts.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = starts.get(i);
+        }
+        return result;
+    }
+
+    public TransactionAggregator add(Transaction transaction) {
+        long timestamp = transaction.getTimestamp();
+        long cents = transaction.getAmountCents();
+        boolean income = TYPE_INCOME.equals(transaction.getType());
+
+        if (timestamp >= periodStart) {
+            count++;
+            int category = categories.idOf(transaction.getCategory());
+            if (income) {
+                totalIncomeCents += cents;
+                if (category >= incomeByCategory.length) {
+                    incomeByCategory = Arrays.copyOf(incomeByCategory, categories.size());
+                }
+                incomeByCategory[category] += cents;
+            } else {
+                totalExpenseCents += cents;
+                if (category >= expenseByCategory.length) {
+                    expenseByCategory = Arrays.copyOf(expenseByCategory, categories.size());
+                }
+                expenseByCategory[category] += cents;
+            }
+        }
+
+        int bucket = bucketOf(timestamp);
+        if (bucket >= 0) {
+            if (income) {
+                monthlyIncomeCents[bucket] += cents;
+            } else {
+                monthlyExpenseCents[bucket] += cents;
+            }
+        }
+        return this;
+    }
+
+    public TransactionAggregator addAll(Iterable<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            add(transaction);
+        }
+        return this;
+    }
+
+    private int bucketOf(long timestamp) {
+        int buckets = monthlyIncomeCents.length;
+        if (buckets == 0 || timestamp < monthStarts[0] || timestamp >= monthStarts[buckets]) {
+            return -1;
+        }
+        // Trend windows are a handful of months, a linear walk beats a binary search here
+        int i = buckets - 1;
+        while (timestamp < monthStarts[i]) {
+            i--;
+        }
+        return i;
+    }
+
+    /** Sets {@link Budget#getSpentCents()} on every budget from the expense totals of the period. */
+    public void applySpent(List<Budget> budgets) {
+        for (Budget budget : budgets) {
+            budget.setSpentCents(getExpenseCentsFor(budget.getCategory()));
+        }
+    }
+
+    /** Rollup document holding the period totals, used to backfill months written before rollups existed. */
+    public MonthlyRollup toRollup(String userId, String month) {
+        MonthlyRollup rollup = new MonthlyRollup(userId, month);
+        rollup.setTotalIncomeCents(totalIncomeCents);
+        rollup.setTotalExpenseCents(totalExpenseCents);
+        rollup.setTransactionCount(count);
+        rollup.setComplete(true);
+        rollup.setVersion(MonthlyRollup.VERSION);
+        rollup.setIncomeCentsByCategory(getIncomeCentsByCategory());
+        rollup.setExpenseCentsByCategory(getExpenseCentsByCategory());
+        return rollup;
+    }
+
+    public long getExpenseCentsFor(String category) {
+        int id = categories.find(category);
+        return id == CategoryDictionary.NO_ID || id >= expenseByCategory.length ? 0 : expenseByCategory[id];
+    }
+
+    /** Expense totals of the period indexed by {@link CategoryDictionary} id. */
+    public long[] getExpenseCentsById() {
+        return Arrays.copyOf(expenseByCategory, categories.size());
+    }
+
+    public long getTotalIncomeCents() {
+        return totalIncomeCents;
+    }
+
+    public long getTotalExpenseCents() {
+        return totalExpenseCents;
+    }
+
+    public long getBalanceCents() {
+        return totalIncomeCents - totalExpenseCents;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public Map<String, Long> getIncomeCentsByCategory() {
+        return toMap(incomeByCategory);
+    }
+
+    public Map<String, Long> getExpenseCentsByCategory() {
+        return toMap(expenseByCategory);
+    }
+
+    private Map<String, Long> toMap(long[] totals) {
+        Map<String, Long> result = new HashMap<>();
+        for (int id = 0; id < totals.length; id++) {
+            if (totals[id] != 0) {
+                result.put(categories.nameOf(id), totals[id]);
+            }
+        }
+        return result;
+    }
+
+    public long[] getMonthStarts() {
+        return monthStarts.clone();
+    }
+
+    public long[] getMonthlyIncomeCents() {
+        return monthlyIncomeCents.clone();
+    }
+
+    public long[] getMonthlyExpenseCents() {
+        return monthlyExpenseCents.clone();
+    }
+}
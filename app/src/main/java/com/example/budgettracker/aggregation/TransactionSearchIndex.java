@@ -0,0 +1,370 @@
+package com.example.budgettracker.aggregation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inverted index over the descriptions and categories of a user's transactions, for
+ * searching the local history by word.
+ *
+ * Text is split into lower-case tokens of letters and digits, and each distinct token
+ * lists the documents that contain it. A much smaller map from the trigrams of every
+ * token to the tokens containing them finds words by any part of them. A query term
+ * matches a document through an equal token, a token it starts, or a token it occurs
+ * in, scored in that order; every term of the query must match. Results are ranked by
+ * score, then newest first.
+ *
+ * Documents are put and removed one at a time as the transactions change. A replaced or
+ * removed document is only marked dead; postings are rewritten without the dead ones
+ * once they outnumber the live ones. Not thread-safe.
+ */
+public final class TransactionSearchIndex {
+
+    static final int EXACT_SCORE = 4;
+    static final int PREFIX_SCORE = 2;
+    static final int INFIX_SCORE = 1;
+
+    private static final int GRAM = 3;
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Document number -> transaction; a null id marks a dead document
+    private String[] ids = new String[INITIAL_CAPACITY];
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private int documents = 0;
+    private final Map<String, Integer> documentById = new HashMap<>();
+
+    // Token number -> text and postings, in document order
+    private final Map<String, Integer> tokenNumbers = new HashMap<>();
+    private final List<String> tokens = new ArrayList<>();
+    private final List<IntList> postings = new ArrayList<>();
+    private final Map<String, IntList> tokensByGram = new HashMap<>();
+
+    // Per-query scratch, indexed by document number
+    private int[] termsMatched = new int[0];
+    private int[] scores = new int[0];
+
+    /** Lower-case tokens of {@code text}, each once, in order of appearance. */
+    public static Set<String> tokenize(String text) {
+        Set<String> result = new LinkedHashSet<>();
+        if (text == null) return result;
+
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                result.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    /** Adds the transaction, or replaces the one with the same id. */
+    public void put(String id, long timestamp, String category, String description) {
+        remove(id);
+
+        if (documents == ids.length) {
+            ids = Arrays.copyOf(ids, documents * 2);
+            timestamps = Arrays.copyOf(timestamps, documents * 2);
+        }
+        int document = documents++;
+        ids[document] = id;
+        timestamps[document] = timestamp;
+        documentById.put(id, document);
+
+        Set<String> words = tokenize(description);
+        words.addAll(tokenize(category));
+        for (String word : words) {
+            postings.get(tokenNumber(word)).add(document);
+        }
+    }
+
+    public void remove(String id) {
+        Integer document = documentById.remove(id);
+        if (document == null) return;
+
+        ids[document] = null;
+        compactIfSparse();
+    }
+
+    public void clear() {
+        Arrays.fill(ids, 0, documents, null);
+        documents = 0;
+        documentById.clear();
+        tokenNumbers.clear();
+        tokens.clear();
+        postings.clear();
+        tokensByGram.clear();
+    }
+
+    /** Live documents. */
+    public int size() {
+        return documentById.size();
+    }
+
+    /** Distinct tokens seen, including ones whose documents are all gone. */
+    public int getTokenCount() {
+        return tokens.size();
+    }
+
+    /**
+     * Ids of the best {@code limit} matches of {@code query}, best first. A query without
+     * any letters or digits matches nothing.
+     */
+    public List<String> search(String query, int limit) {
+        List<String> terms = new ArrayList<>(tokenize(query));
+        if (terms.isEmpty() || limit <= 0) return new ArrayList<>();
+
+        if (termsMatched.length < documents) {
+            termsMatched = new int[ids.length];
+            scores = new int[ids.length];
+        }
+
+        // Documents that matched the first term; only they can match every term
+        IntList touched = new IntList();
+        for (int term = 0; term < terms.size(); term++) {
+            for (int score : new int[]{EXACT_SCORE, PREFIX_SCORE, INFIX_SCORE}) {
+                IntList matching = matchingTokens(terms.get(term), score);
+                for (int t = 0; t < matching.size; t++) {
+                    IntList documentsOfToken = postings.get(matching.values[t]);
+                    for (int i = 0; i < documentsOfToken.size; i++) {
+                        int document = documentsOfToken.values[i];
+                        // Best match first, a document counts once per term
+                        if (termsMatched[document] != term || ids[document] == null) continue;
+                        termsMatched[document] = term + 1;
+                        scores[document] += score;
+                        if (term == 0) touched.add(document);
+                    }
+                }
+            }
+        }
+
+        TopDocuments top = new TopDocuments(limit);
+        for (int i = 0; i < touched.size; i++) {
+            int document = touched.values[i];
+            if (termsMatched[document] == terms.size()) {
+                top.offer(document);
+            }
+            termsMatched[document] = 0;
+        }
+        List<String> result = new ArrayList<>();
+        for (int document : top.sorted()) {
+            result.add(ids[document]);
+        }
+        for (int i = 0; i < touched.size; i++) {
+            scores[touched.values[i]] = 0;
+        }
+        return result;
+    }
+
+    /**
+     * Rough heap size of the index in bytes, assuming compressed references, for
+     * budgeting; the strings are counted at one byte per character.
+     */
+    public long estimateMemoryBytes() {
+        long bytes = 16L + ids.length * 4L + 16 + timestamps.length * 8L + 16;
+        for (int document = 0; document < documents; document++) {
+            if (ids[document] != null) {
+                bytes += 40 + ids[document].length();
+            }
+        }
+        // HashMap entry, table slot and boxed document number
+        bytes += documentById.size() * (32L + 8 + 16);
+
+        for (int token = 0; token < tokens.size(); token++) {
+            bytes += 40 + tokens.get(token).length() + 32 + 8 + 16 + 4;
+            bytes += postings.get(token).memoryBytes();
+        }
+        for (IntList tokensOfGram : tokensByGram.values()) {
+            bytes += 32 + 8 + 40 + GRAM + tokensOfGram.memoryBytes();
+        }
+        return bytes + termsMatched.length * 8L;
+    }
+
+    private int tokenNumber(String word) {
+        Integer existing = tokenNumbers.get(word);
+        if (existing != null) return existing;
+
+        int token = tokens.size();
+        tokenNumbers.put(word, token);
+        tokens.add(word);
+        postings.add(new IntList());
+        for (String gram : grams(word)) {
+            IntList tokensOfGram = tokensByGram.get(gram);
+            if (tokensOfGram == null) {
+                tokensOfGram = new IntList();
+                tokensByGram.put(gram, tokensOfGram);
+            }
+            tokensOfGram.add(token);
+        }
+        return token;
+    }
+
+    /** Tokens that {@code term} matches with exactly {@code score}. */
+    private IntList matchingTokens(String term, int score) {
+        IntList result = new IntList();
+        if (score == EXACT_SCORE) {
+            Integer token = tokenNumbers.get(term);
+            if (token != null) result.add(token);
+            return result;
+        }
+
+        if (score == INFIX_SCORE && term.length() < GRAM) {
+            // One or two characters occur inside most words, only their prefix matches are useful
+            return result;
+        }
+
+        // Tokens holding the term hold each of its grams; the rarest gram has the fewest candidates
+        IntList candidates = null;
+        if (term.length() >= GRAM) {
+            for (String gram : grams(term)) {
+                IntList tokensOfGram = tokensByGram.get(gram);
+                if (tokensOfGram == null) return result;
+                if (candidates == null || tokensOfGram.size < candidates.size) {
+                    candidates = tokensOfGram;
+                }
+            }
+        }
+        int count = candidates != null ? candidates.size : tokens.size();
+        for (int i = 0; i < count; i++) {
+            int token = candidates != null ? candidates.values[i] : i;
+            String text = tokens.get(token);
+            if (text.length() <= term.length()) continue;
+            boolean prefix = text.startsWith(term);
+            if (score == PREFIX_SCORE ? prefix : !prefix && text.contains(term)) {
+                result.add(token);
+            }
+        }
+        return result;
+    }
+
+    private static List<String> grams(String word) {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i + GRAM <= word.length(); i++) {
+            result.add(word.substring(i, i + GRAM));
+        }
+        return result;
+    }
+
+    private void compactIfSparse() {
+        int dead = documents - documentById.size();
+        if (dead <= Math.max(documentById.size(), INITIAL_CAPACITY)) return;
+
+        int[] newNumbers = new int[documents];
+        int live = 0;
+        for (int document = 0; document < documents; document++) {
+            if (ids[document] == null) {
+                newNumbers[document] = -1;
+                continue;
+            }
+            newNumbers[document] = live;
+            ids[live] = ids[document];
+            timestamps[live] = timestamps[document];
+            documentById.put(ids[live], live);
+            live++;
+        }
+        Arrays.fill(ids, live, documents, null);
+        documents = live;
+
+        for (IntList documentsOfToken : postings) {
+            int kept = 0;
+            for (int i = 0; i < documentsOfToken.size; i++) {
+                int document = newNumbers[documentsOfToken.values[i]];
+                if (document >= 0) {
+                    documentsOfToken.values[kept++] = document;
+                }
+            }
+            documentsOfToken.size = kept;
+        }
+    }
+
+    /** Growable int array. */
+    private static final class IntList {
+        int[] values = new int[4];
+        int size = 0;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long memoryBytes() {
+            return 16 + 16 + values.length * 4L;
+        }
+    }
+
+    /** The best {@code limit} documents offered, kept in a min-heap on (score, timestamp). */
+    private final class TopDocuments {
+        private final int[] heap;
+        private int size = 0;
+
+        TopDocuments(int limit) {
+            heap = new int[limit];
+        }
+
+        void offer(int document) {
+            if (size < heap.length) {
+                heap[size] = document;
+                siftUp(size++);
+            } else if (better(document, heap[0])) {
+                heap[0] = document;
+                siftDown(0);
+            }
+        }
+
+        int[] sorted() {
+            int[] result = new int[size];
+            // Taking the worst off the heap each time fills the result from the back
+            for (int i = size - 1; i >= 0; i--) {
+                result[i] = heap[0];
+                heap[0] = heap[--size];
+                siftDown(0);
+            }
+            return result;
+        }
+
+        private boolean better(int a, int b) {
+            if (scores[a] != scores[b]) return scores[a] > scores[b];
+            return timestamps[a] > timestamps[b];
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (!better(heap[parent], heap[index])) break;
+                swap(parent, index);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int worst = index;
+                int left = 2 * index + 1;
+                int right = left + 1;
+                if (left < size && better(heap[worst], heap[left])) worst = left;
+                if (right < size && better(heap[worst], heap[right])) worst = right;
+                if (worst == index) return;
+                swap(worst, index);
+                index = worst;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int swapped = heap[a];
+            heap[a] = heap[b];
+            heap[b] = swapped;
+        }
+    }
+}
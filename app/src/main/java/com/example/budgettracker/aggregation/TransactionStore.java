@@ -0,0 +1,383 @@
+package com.example.budgettracker.aggregation;
+
+import com.example.budgettracker.models.CategoryDictionary;
+import com.example.budgettracker.models.Transaction;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable, columnar snapshot of a user's loaded transactions, newest first.
+ *
+ * Each transaction is a row in primitive columns: timestamp, amount in cents,
+ * {@link CategoryDictionary} id and a type flag, with its description kept as UTF-8 bytes and only
+ * turned into a String when asked for. Positions are ordered by timestamp, so a
+ * date range is two binary searches and totals are tight loops over primitives.
+ *
+ * Snapshots are produced by a {@link Builder}. Rows are append-only and never
+ * written again, so a snapshot shares the builder's column arrays and stays valid
+ * while the builder moves on; only the position index is copied.
+ *
+ * The builder also keeps the position order split by type and by category, so a
+ * snapshot hands out {@link #ofType} and {@link #ofCategory} views in O(1), without
+ * looking at its rows. A view is a store of its own over the same columns.
+ */
+public final class TransactionStore {
+
+    public static final byte TYPE_EXPENSE = 0;
+    public static final byte TYPE_INCOME = 1;
+
+    // Shared by all builders, so a revision identifies one version of a row process-wide
+    private static final AtomicLong REVISIONS = new AtomicLong();
+    private static final CategoryDictionary CATEGORIES = CategoryDictionary.getInstance();
+    private static final TransactionStore EMPTY = new Builder().build();
+
+    private final Columns columns;
+    private final int[] order; // position -> row
+    private final int size;
+    // Rows of each type and category id in position order; null for views, which scan instead
+    private final int[][] typeOrders;
+    private final int[][] categoryOrders;
+
+    private TransactionStore(Columns columns, int[] order, int size, int[][] typeOrders, int[][] categoryOrders) {
+        this.columns = columns;
+        this.order = order;
+        this.size = size;
+        this.typeOrders = typeOrders;
+        this.categoryOrders = categoryOrders;
+    }
+
+    public static TransactionStore empty() {
+        return EMPTY;
+    }
+
+    public static byte typeOf(String type) {
+        return TransactionAggregator.TYPE_INCOME.equals(type) ? TYPE_INCOME : TYPE_EXPENSE;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public String getId(int position) {
+        return columns.ids[order[position]];
+    }
+
+    /** Unique to this version of the row; changes whenever the transaction is replaced. */
+    public long getRevision(int position) {
+        return columns.revisions[order[position]];
+    }
+
+    public long getTimestamp(int position) {
+        return columns.timestamps[order[position]];
+    }
+
+    public long getAmountCents(int position) {
+        return columns.amountCents[order[position]];
+    }
+
+    public int getCategoryId(int position) {
+        return columns.categoryIds[order[position]];
+    }
+
+    public String getCategory(int position) {
+        return CATEGORIES.nameOf(columns.categoryIds[order[position]]);
+    }
+
+    public byte getType(int position) {
+        return columns.types[order[position]];
+    }
+
+    public boolean isIncome(int position) {
+        return columns.types[order[position]] == TYPE_INCOME;
+    }
+
+    /** Materializes the description; callers that show it repeatedly should keep the result. */
+    public String getDescription(int position) {
+        int row = order[position];
+        int start = columns.descriptionStarts[row];
+        return new String(columns.descriptionBytes, start, columns.descriptionStarts[row + 1] - start,
+                StandardCharsets.UTF_8);
+    }
+
+    public Transaction toTransaction(int position, String userId) {
+        String type = isIncome(position) ? TransactionAggregator.TYPE_INCOME : TransactionAggregator.TYPE_EXPENSE;
+        Transaction transaction = new Transaction(userId, type, getAmountCents(position), getCategory(position),
+                getDescription(position), new Date(getTimestamp(position)));
+        transaction.setId(getId(position));
+        return transaction;
+    }
+
+    /** First position whose timestamp is before {@code timestamp}, or {@link #size()}. O(log n). */
+    public int lowerBound(long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (columns.timestamps[order[mid]] >= timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** Positions {@code [result[0], result[1])} hold the transactions with {@code from <= timestamp < to}. */
+    public int[] range(long from, long to) {
+        return new int[]{lowerBound(to), lowerBound(from)};
+    }
+
+    public long sumCents(int fromPosition, int toPosition, byte type) {
+        long total = 0;
+        for (int position = fromPosition; position < toPosition; position++) {
+            int row = order[position];
+            if (columns.types[row] == type) {
+                total += columns.amountCents[row];
+            }
+        }
+        return total;
+    }
+
+    /** Adds the totals of {@code type} per category id into {@code totals}, sized by {@link CategoryDictionary#size()}. */
+    public void addTotalsByCategory(int fromPosition, int toPosition, byte type, long[] totals) {
+        for (int position = fromPosition; position < toPosition; position++) {
+            int row = order[position];
+            if (columns.types[row] == type) {
+                totals[columns.categoryIds[row]] += columns.amountCents[row];
+            }
+        }
+    }
+
+    /** The transactions of {@code type}, in order. O(1) on a store built by a {@link Builder}. */
+    public TransactionStore ofType(byte type) {
+        if (typeOrders == null) {
+            return view(rowsAt(positionsOfType(type)));
+        }
+        return view(type < typeOrders.length ? typeOrders[type] : new int[0]);
+    }
+
+    /** The transactions of {@code categoryId}, in order. O(1) on a store built by a {@link Builder}. */
+    public TransactionStore ofCategory(int categoryId) {
+        if (categoryOrders == null) {
+            int[] rows = new int[size];
+            int count = 0;
+            for (int position = 0; position < size; position++) {
+                if (columns.categoryIds[order[position]] == categoryId) {
+                    rows[count++] = order[position];
+                }
+            }
+            return view(Arrays.copyOf(rows, count));
+        }
+        return view(categoryId < categoryOrders.length ? categoryOrders[categoryId] : new int[0]);
+    }
+
+    private int[] rowsAt(int[] positions) {
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = order[positions[i]];
+        }
+        return positions;
+    }
+
+    private TransactionStore view(int[] rows) {
+        return new TransactionStore(columns, rows, rows.length, null, null);
+    }
+
+    /** Positions of all transactions of {@code type}, in order. */
+    public int[] positionsOfType(byte type) {
+        int[] positions = new int[size];
+        int count = 0;
+        for (int position = 0; position < size; position++) {
+            if (columns.types[order[position]] == type) {
+                positions[count++] = position;
+            }
+        }
+        return Arrays.copyOf(positions, count);
+    }
+
+    /** Column arrays as of one snapshot; rows below {@code rows} are never written again. */
+    private static final class Columns {
+        final String[] ids;
+        final long[] revisions;
+        final long[] timestamps;
+        final long[] amountCents;
+        final int[] categoryIds;
+        final byte[] types;
+        final int[] descriptionStarts; // row + 1 entries, end of row r is the start of r + 1
+        final byte[] descriptionBytes;
+
+        Columns(Builder builder) {
+            ids = builder.ids;
+            revisions = builder.revisions;
+            timestamps = builder.timestamps;
+            amountCents = builder.amountCents;
+            categoryIds = builder.categoryIds;
+            types = builder.types;
+            descriptionStarts = builder.descriptionStarts;
+            descriptionBytes = builder.descriptionBytes;
+        }
+    }
+
+    /**
+     * Mutable side of the store, edited by position like the list it replaces. Replaced
+     * and removed rows stay in the columns until they outnumber the live ones, then the
+     * columns are compacted into new arrays. Not thread-safe; snapshots are.
+     */
+    public static final class Builder {
+        private static final int INITIAL_CAPACITY = 64;
+
+        private String[] ids = new String[INITIAL_CAPACITY];
+        private long[] revisions = new long[INITIAL_CAPACITY];
+        private long[] timestamps = new long[INITIAL_CAPACITY];
+        private long[] amountCents = new long[INITIAL_CAPACITY];
+        private int[] categoryIds = new int[INITIAL_CAPACITY];
+        private byte[] types = new byte[INITIAL_CAPACITY];
+        private int[] descriptionStarts = new int[INITIAL_CAPACITY + 1];
+        private byte[] descriptionBytes = new byte[INITIAL_CAPACITY * 16];
+        private int rows = 0;
+
+        private int[] order = new int[INITIAL_CAPACITY];
+        private int size = 0;
+
+        private final PartitionIndex byType = new PartitionIndex(row -> types[row]);
+        private final PartitionIndex byCategory = new PartitionIndex(row -> categoryIds[row]);
+
+        public int size() {
+            return size;
+        }
+
+        public Builder add(int position, String id, long timestamp, long amountCents, String category,
+                           byte type, String description) {
+            int row = appendRow(id, timestamp, amountCents, category, type, description);
+            if (size == order.length) {
+                order = Arrays.copyOf(order, size * 2);
+            }
+            byType.insert(order, size, position, row);
+            byCategory.insert(order, size, position, row);
+            System.arraycopy(order, position, order, position + 1, size - position);
+            order[position] = row;
+            size++;
+            return this;
+        }
+
+        public Builder append(String id, long timestamp, long amountCents, String category,
+                              byte type, String description) {
+            return add(size, id, timestamp, amountCents, category, type, description);
+        }
+
+        public Builder add(int position, Transaction transaction) {
+            return add(position, transaction.getId(), transaction.getTimestamp(), transaction.getAmountCents(),
+                    transaction.getCategory(), typeOf(transaction.getType()), transaction.getDescription());
+        }
+
+        public Builder append(Transaction transaction) {
+            return add(size, transaction);
+        }
+
+        public Builder remove(int position) {
+            byType.remove(order, size, position);
+            byCategory.remove(order, size, position);
+            System.arraycopy(order, position + 1, order, position, size - position - 1);
+            size--;
+            compactIfSparse();
+            return this;
+        }
+
+        public Builder clear() {
+            size = 0;
+            byType.clear();
+            byCategory.clear();
+            compactIfSparse();
+            return this;
+        }
+
+        public TransactionStore build() {
+            return new TransactionStore(new Columns(this), Arrays.copyOf(order, size), size,
+                    byType.snapshot(), byCategory.snapshot());
+        }
+
+        private int appendRow(String id, long timestamp, long cents, String category, byte type,
+                              String description) {
+            if (rows == ids.length) {
+                grow(rows * 2);
+            }
+            byte[] bytes = description == null ? new byte[0] : description.getBytes(StandardCharsets.UTF_8);
+            int start = descriptionStarts[rows];
+            if (start + bytes.length > descriptionBytes.length) {
+                descriptionBytes = Arrays.copyOf(descriptionBytes,
+                        Math.max(descriptionBytes.length * 2, start + bytes.length));
+            }
+            System.arraycopy(bytes, 0, descriptionBytes, start, bytes.length);
+
+            ids[rows] = id;
+            revisions[rows] = REVISIONS.getAndIncrement();
+            timestamps[rows] = timestamp;
+            amountCents[rows] = cents;
+            categoryIds[rows] = CATEGORIES.idOf(category);
+            types[rows] = type;
+            descriptionStarts[rows + 1] = start + bytes.length;
+            return rows++;
+        }
+
+        // Growing always allocates new arrays, so snapshots keep the ones they were built on
+        private void grow(int capacity) {
+            ids = Arrays.copyOf(ids, capacity);
+            revisions = Arrays.copyOf(revisions, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            amountCents = Arrays.copyOf(amountCents, capacity);
+            categoryIds = Arrays.copyOf(categoryIds, capacity);
+            types = Arrays.copyOf(types, capacity);
+            descriptionStarts = Arrays.copyOf(descriptionStarts, capacity + 1);
+        }
+
+        private void compactIfSparse() {
+            if (rows - size <= Math.max(size, INITIAL_CAPACITY)) return;
+
+            int capacity = Math.max(INITIAL_CAPACITY, size * 2);
+            String[] newIds = new String[capacity];
+            long[] newRevisions = new long[capacity];
+            long[] newTimestamps = new long[capacity];
+            long[] newAmounts = new long[capacity];
+            int[] newCategoryIds = new int[capacity];
+            byte[] newTypes = new byte[capacity];
+            int[] newStarts = new int[capacity + 1];
+            byte[] newBytes = new byte[Math.max(INITIAL_CAPACITY * 16, descriptionStarts[rows])];
+            int[] newRows = new int[rows];
+
+            for (int position = 0; position < size; position++) {
+                int row = order[position];
+                int start = descriptionStarts[row];
+                int length = descriptionStarts[row + 1] - start;
+                System.arraycopy(descriptionBytes, start, newBytes, newStarts[position], length);
+                newStarts[position + 1] = newStarts[position] + length;
+
+                newIds[position] = ids[row];
+                newRevisions[position] = revisions[row];
+                newTimestamps[position] = timestamps[row];
+                newAmounts[position] = amountCents[row];
+                newCategoryIds[position] = categoryIds[row];
+                newTypes[position] = types[row];
+                newRows[row] = position;
+                order[position] = position;
+            }
+            byType.remap(newRows);
+            byCategory.remap(newRows);
+
+            ids = newIds;
+            revisions = newRevisions;
+            timestamps = newTimestamps;
+            amountCents = newAmounts;
+            categoryIds = newCategoryIds;
+            types = newTypes;
+            descriptionStarts = newStarts;
+            descriptionBytes = newBytes;
+            rows = size;
+        }
+    }
+}
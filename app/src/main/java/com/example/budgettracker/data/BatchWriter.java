@@ -0,0 +1,91 @@
+package com.example.budgettracker.data;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the writes of a multi-document save into {@link WriteBatch} chunks of at most
+ * {@link #MAX_OPERATIONS} operations and commits them with one round trip per chunk.
+ *
+ * Writes that belong together, such as a transaction and its rollup delta, are added
+ * through one {@link #batchFor} call and always land in the same chunk, so each of them
+ * commits atomically. A save of up to 500 operations is one chunk and fully atomic.
+ *
+ * <pre>
+ * BatchWriter writer = new BatchWriter(db);
+ * WriteBatch batch = writer.batchFor(2);
+ * batch.set(ref, transaction);
+ * rollupRepository.recordAdd(batch, transaction);
+ * writer.commit().addOnFailureListener(...);
+ * </pre>
+ */
+public class BatchWriter {
+
+    /** Firestore's limit on the writes in one batch. */
+    public static final int MAX_OPERATIONS = 500;
+
+    private final FirebaseFirestore db;
+    private final List<WriteBatch> chunks = new ArrayList<>();
+    private WriteBatch current;
+    private int operationsInCurrent = 0;
+    private int operations = 0;
+
+    public BatchWriter(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    /**
+     * Returns the batch to add the next {@code count} operations to, starting a new chunk
+     * when the current one has no room for all of them.
+     */
+    public WriteBatch batchFor(int count) {
+        if (count < 1 || count > MAX_OPERATIONS) {
+            throw new IllegalArgumentException("Between 1 and " + MAX_OPERATIONS + " operations: " + count);
+        }
+        if (current == null || operationsInCurrent + count > MAX_OPERATIONS) {
+            current = db.batch();
+            chunks.add(current);
+            operationsInCurrent = 0;
+        }
+        operationsInCurrent += count;
+        operations += count;
+        return current;
+    }
+
+    public int getOperationCount() {
+        return operations;
+    }
+
+    public int getChunkCount() {
+        return chunks.size();
+    }
+
+    public boolean isEmpty() {
+        return operations == 0;
+    }
+
+    /**
+     * Commits every chunk. The task fails with the first error if any chunk fails, in
+     * which case chunks that did commit stay committed.
+     */
+    public Task<Void> commit() {
+        List<Task<Void>> commits = new ArrayList<>();
+        for (WriteBatch chunk : chunks) {
+            commits.add(chunk.commit());
+        }
+        chunks.clear();
+        current = null;
+        operationsInCurrent = 0;
+        operations = 0;
+
+        if (commits.size() == 1) {
+            return commits.get(0);
+        }
+        return Tasks.whenAll(commits);
+    }
+}
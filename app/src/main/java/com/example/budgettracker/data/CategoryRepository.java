@@ -0,0 +1,93 @@
+package com.example.budgettracker.data;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.example.budgettracker.models.CategoryDictionary;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * User-defined categories in the "categories" collection, one document per name.
+ *
+ * They are read once per process and signed-in user into the shared
+ * {@link CategoryDictionary}; screens with category spinners call {@link #load}
+ * and refresh them when it completes.
+ */
+public class CategoryRepository {
+
+    public static final String COLLECTION = "categories";
+
+    private static String loadedUserId;
+    private static Task<Void> loading;
+
+    private final FirebaseFirestore db;
+    private final CategoryDictionary categories = CategoryDictionary.getInstance();
+
+    public CategoryRepository(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    /** Completes once the user's categories are in the dictionary; only the first call reads them. */
+    public Task<Void> load(String userId) {
+        if (loading != null && userId.equals(loadedUserId)) {
+            return loading;
+        }
+
+        categories.clearCustom();
+        loadedUserId = userId;
+        loading = db.collection(COLLECTION)
+                .whereEqualTo("userId", userId)
+                .get()
+                .continueWith(task -> {
+                    if (!task.isSuccessful()) {
+                        // Try again the next time a screen asks
+                        loading = null;
+                        throw task.getException();
+                    }
+                    for (QueryDocumentSnapshot document : task.getResult()) {
+                        categories.addCustom(document.getString("name"), document.getString("type"));
+                    }
+                    return null;
+                });
+        return loading;
+    }
+
+    /** Returns null when {@code name} already is a category. */
+    public Task<Void> add(String userId, String name, String type) {
+        if (!categories.addCustom(name, type)) return null;
+
+        Map<String, Object> category = new HashMap<>();
+        category.put("userId", userId);
+        category.put("name", name);
+        category.put("type", type);
+        return db.collection(COLLECTION).add(category)
+                .continueWith(task -> {
+                    if (!task.isSuccessful()) {
+                        categories.removeCustom(name);
+                        throw task.getException();
+                    }
+                    return null;
+                });
+    }
+
+    public Task<Void> delete(String userId, String name) {
+        categories.removeCustom(name);
+        return db.collection(COLLECTION)
+                .whereEqualTo("userId", userId)
+                .whereEqualTo("name", name)
+                .get()
+                .continueWithTask(task -> {
+                    if (!task.isSuccessful()) {
+                        return Tasks.<Void>forException(task.getException());
+                    }
+                    BatchWriter writer = new BatchWriter(db);
+                    for (QueryDocumentSnapshot document : task.getResult()) {
+                        writer.batchFor(1).delete(document.getReference());
+                    }
+                    return writer.commit();
+                });
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.budgettracker.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.example.budgettracker.models.Transaction;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The dashboard as it was last shown, saved so that the next launch can draw it before
+ * Firestore answers. Stored per user in SharedPreferences, which are small enough to
+ * read on the main thread; the dashboard's live listeners save over it on every update.
+ */
+public class DashboardSnapshot {
+
+    private static final String PREFERENCES = "dashboard_snapshot";
+
+    private final SharedPreferences preferences;
+    private final String userId;
+
+    public DashboardSnapshot(Context context, String userId) {
+        this.preferences = context.getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+        this.userId = userId;
+    }
+
+    private String key(String name) {
+        return userId + "." + name;
+    }
+
+    /** Income and expense cents saved for {@code month}, or null if none were. */
+    public long[] loadSummary(String month) {
+        if (!month.equals(preferences.getString(key("month"), null))) return null;
+
+        return new long[]{
+                preferences.getLong(key("incomeCents"), 0),
+                preferences.getLong(key("expenseCents"), 0)};
+    }
+
+    public void saveSummary(String month, long incomeCents, long expenseCents) {
+        preferences.edit()
+                .putString(key("month"), month)
+                .putLong(key("incomeCents"), incomeCents)
+                .putLong(key("expenseCents"), expenseCents)
+                .apply();
+    }
+
+    /** The saved recent transactions, or null if there are none or they cannot be read. */
+    public List<Transaction> loadRecent() {
+        String saved = preferences.getString(key("recent"), null);
+        if (saved == null) return null;
+
+        try {
+            JSONArray array = new JSONArray(saved);
+            List<Transaction> transactions = new ArrayList<>();
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject object = array.getJSONObject(i);
+                Transaction transaction = new Transaction(userId, object.getString("type"),
+                        object.getLong("amountCents"), object.getString("category"),
+                        object.optString("description", ""), new Date(object.getLong("timestamp")));
+                transaction.setId(object.getString("id"));
+                transactions.add(transaction);
+            }
+            return transactions;
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    public void saveRecent(List<Transaction> transactions) {
+        JSONArray array = new JSONArray();
+        try {
+            for (Transaction transaction : transactions) {
+                array.put(new JSONObject()
+                        .put("id", transaction.getId())
+                        .put("type", transaction.getType())
+                        .put("amountCents", transaction.getAmountCents())
+                        .put("category", transaction.getCategory())
+                        .put("description", transaction.getDescription())
+                        .put("timestamp", transaction.getTimestamp()));
+            }
+        } catch (JSONException e) {
+            // Only thrown for non-finite numbers, which are never written
+            return;
+        }
+        preferences.edit().putString(key("recent"), array.toString()).apply();
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.budgettracker.data;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.EventListener;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide registry of Firestore snapshot listeners, keyed by lifecycle owner and
+ * query (or document).
+ *
+ * Registering the same query twice for one owner keeps the listener that is already
+ * live, and every listener of an owner is removed when that owner is destroyed.
+ * Firestore itself shares one watch target between identical queries, so the cost
+ * avoided here is the duplicate callback work, not network traffic. Main thread only.
+ */
+public class ListenerRegistry {
+
+    private static final ListenerRegistry INSTANCE = new ListenerRegistry();
+
+    private final Map<LifecycleOwner, Map<Object, ListenerRegistration>> listenersByOwner = new HashMap<>();
+
+    public static ListenerRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    public ListenerRegistration listen(LifecycleOwner owner, Query query,
+                                       EventListener<QuerySnapshot> listener) {
+        return register(owner, query, () -> query.addSnapshotListener(listener));
+    }
+
+    public ListenerRegistration listen(LifecycleOwner owner, DocumentReference document,
+                                       EventListener<DocumentSnapshot> listener) {
+        return register(owner, document, () -> document.addSnapshotListener(listener));
+    }
+
+    /**
+     * Attaches the listener unless {@code owner} already has one for {@code key}, in which
+     * case the live registration is returned and {@code attach} is not called.
+     */
+    ListenerRegistration register(LifecycleOwner owner, Object key, Supplier<ListenerRegistration> attach) {
+        if (owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) {
+            // Late callback after the owner went away, ON_DESTROY would never remove it
+            return () -> { };
+        }
+
+        Map<Object, ListenerRegistration> owned = listenersByOwner.get(owner);
+        if (owned == null) {
+            owned = new HashMap<>();
+            listenersByOwner.put(owner, owned);
+            owner.getLifecycle().addObserver(new DefaultLifecycleObserver() {
+                @Override
+                public void onDestroy(@NonNull LifecycleOwner source) {
+                    source.getLifecycle().removeObserver(this);
+                    removeAll(source);
+                }
+            });
+        }
+
+        ListenerRegistration existing = owned.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        ListenerRegistration firestoreRegistration = attach.get();
+        ListenerRegistration registration = new ListenerRegistration() {
+            @Override
+            public void remove() {
+                Map<Object, ListenerRegistration> current = listenersByOwner.get(owner);
+                if (current != null && current.get(key) == this) {
+                    current.remove(key);
+                }
+                firestoreRegistration.remove();
+            }
+        };
+        owned.put(key, registration);
+        return registration;
+    }
+
+    public boolean isActive(LifecycleOwner owner, Object key) {
+        Map<Object, ListenerRegistration> owned = listenersByOwner.get(owner);
+        return owned != null && owned.containsKey(key);
+    }
+
+    public void removeAll(LifecycleOwner owner) {
+        Map<Object, ListenerRegistration> owned = listenersByOwner.remove(owner);
+        if (owned == null) return;
+
+        for (ListenerRegistration registration : owned.values()) {
+            registration.remove();
+        }
+    }
+
+    public int getActiveCount() {
+        int count = 0;
+        for (Map<Object, ListenerRegistration> owned : listenersByOwner.values()) {
+            count += owned.size();
+        }
+        return count;
+    }
+
+    public int getActiveCount(LifecycleOwner owner) {
+        Map<Object, ListenerRegistration> owned = listenersByOwner.get(owner);
+        return owned == null ? 0 : owned.size();
+    }
+}
@@ -0,0 +1,736 @@
+package com.example.budgettracker.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.example.budgettracker.aggregation.DailyTotals;
+import com.example.budgettracker.aggregation.TransactionAggregator;
+import com.example.budgettracker.aggregation.TransactionSearchIndex;
+import com.example.budgettracker.aggregation.TransactionStore;
+import com.example.budgettracker.models.Budget;
+import com.example.budgettracker.models.MonthlyRollup;
+import com.example.budgettracker.models.Transaction;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * SQLite copy of each signed-in user's transactions and budgets, kept in sync with
+ * Firestore by {@link ReadModelSync}.
+ *
+ * Screens query it instead of Firestore: date ranges and {@code SUM ... GROUP BY category}
+ * run on the (userId, timestamp) and (userId, category, timestamp) indexes in
+ * milliseconds, also offline. All database work runs on one background thread and
+ * queries return Tasks. Until a user's first full sync has finished their data here is
+ * incomplete, and queries return null so that callers fall back to Firestore.
+ *
+ * Search runs on a {@link TransactionSearchIndex} of one user's transactions, and date
+ * range totals on {@link DailyTotals}. Each is built from SQLite on that user's first
+ * query and then follows every write made here.
+ */
+public class LocalReadModel {
+
+    private static final String TAG = "LocalReadModel";
+
+    private static final String DATABASE_NAME = "read_model.db";
+    private static final int DATABASE_VERSION = 1;
+
+    private static final String INSERT_TRANSACTION = "INSERT OR REPLACE INTO transactions"
+            + " (id, userId, type, amountCents, category, description, timestamp, syncGeneration)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int MAX_IDS_PER_QUERY = 500;
+    private static final String INSERT_BUDGET = "INSERT OR REPLACE INTO budgets"
+            + " (id, userId, category, limitCents, month) VALUES (?, ?, ?, ?, ?)";
+
+    private static LocalReadModel instance;
+
+    private final Helper helper;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<ChangeListener> observers = new ArrayList<>(); // main thread only
+
+    // Executor thread only; null until the first search
+    private TransactionSearchIndex searchIndex;
+    private String searchUserId;
+    // Executor thread only; null until the first range summary
+    private DailyTotals dailyTotals;
+    private String totalsUserId;
+
+    private LocalReadModel(Context context) {
+        helper = new Helper(context);
+    }
+
+    public static synchronized LocalReadModel getInstance(Context context) {
+        if (instance == null) {
+            instance = new LocalReadModel(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /** Told which transactions a write to the read model touched. */
+    public interface ChangeListener {
+        /**
+         * {@code ids} of the transactions written or deleted, empty if only budgets changed,
+         * or null if any of the user's transactions may have changed, e.g. after a full sync.
+         */
+        void onChanged(Set<String> ids);
+    }
+
+    // ------------------- QUERIES -------------------
+
+    /** The user's {@code limit} newest transactions, newest first. */
+    public Task<TransactionStore> recent(String userId, int limit) {
+        return Tasks.call(executor, () -> {
+            if (!isSynced(userId)) return null;
+
+            TransactionStore.Builder transactions = new TransactionStore.Builder();
+            try (Cursor cursor = helper.getReadableDatabase().rawQuery(
+                    "SELECT id, timestamp, amountCents, category, type, description FROM transactions"
+                            + " WHERE userId = ? ORDER BY timestamp DESC LIMIT " + limit,
+                    new String[]{userId})) {
+                while (cursor.moveToNext()) {
+                    transactions.append(cursor.getString(0), cursor.getLong(1), cursor.getLong(2),
+                            cursor.getString(3), (byte) cursor.getInt(4), cursor.getString(5));
+                }
+            }
+            return transactions.build();
+        });
+    }
+
+    /**
+     * The user's {@code limit} newest transactions that are older than the one with
+     * {@code beforeTimestamp} and {@code beforeId}, newest first and ties by id. A null
+     * {@code beforeId} starts before {@code beforeTimestamp}, so {@code Long.MAX_VALUE}
+     * gives the first page. Each page is one range scan on the (userId, timestamp) index
+     * however deep it is.
+     */
+    public Task<TransactionStore> page(String userId, long beforeTimestamp, String beforeId, int limit) {
+        return page(userId, null, beforeTimestamp, beforeId, limit);
+    }
+
+    /**
+     * {@link #page(String, long, String, int)} of the transactions of {@code type} only, or
+     * of all of them if it is null. The scan skips rows of the other type and stops at
+     * {@code limit} matches, and the next page resumes where it stopped, so paging through
+     * a filtered history reads each row at most once.
+     */
+    public Task<TransactionStore> page(String userId, String type, long beforeTimestamp, String beforeId,
+                                       int limit) {
+        return Tasks.call(executor, () -> {
+            if (!isSynced(userId)) return null;
+
+            List<String> args = new ArrayList<>();
+            StringBuilder where = new StringBuilder("userId = ?");
+            args.add(userId);
+            if (type != null) {
+                where.append(" AND type = ?");
+                args.add(String.valueOf(TransactionStore.typeOf(type)));
+            }
+            if (beforeId == null) {
+                where.append(" AND timestamp < ?");
+                args.add(String.valueOf(beforeTimestamp));
+            } else {
+                where.append(" AND (timestamp < ? OR (timestamp = ? AND id < ?))");
+                args.add(String.valueOf(beforeTimestamp));
+                args.add(String.valueOf(beforeTimestamp));
+                args.add(beforeId);
+            }
+
+            TransactionStore.Builder transactions = new TransactionStore.Builder();
+            try (Cursor cursor = helper.getReadableDatabase().rawQuery(
+                    "SELECT id, timestamp, amountCents, category, type, description FROM transactions"
+                            + " WHERE " + where + " ORDER BY timestamp DESC, id DESC LIMIT " + limit,
+                    args.toArray(new String[0]))) {
+                while (cursor.moveToNext()) {
+                    transactions.append(cursor.getString(0), cursor.getLong(1), cursor.getLong(2),
+                            cursor.getString(3), (byte) cursor.getInt(4), cursor.getString(5));
+                }
+            }
+            return transactions.build();
+        });
+    }
+
+    /** The user's transactions among {@code ids} by id; ids without a row are left out. */
+    public Task<Map<String, Transaction>> transactions(String userId, Collection<String> ids) {
+        List<String> copy = new ArrayList<>(ids);
+        return Tasks.call(executor, () -> {
+            if (!isSynced(userId)) return null;
+            return read(userId, copy);
+        });
+    }
+
+    /**
+     * Same result as {@link MonthlyRollupRepository#loadMonths}, computed from the local
+     * transactions with one grouped sum per month.
+     */
+    public Task<List<MonthlyRollup>> loadMonths(String userId, long[] monthStarts) {
+        return Tasks.call(executor, () -> {
+            if (!isSynced(userId)) return null;
+
+            SQLiteDatabase database = helper.getReadableDatabase();
+            List<MonthlyRollup> rollups = new ArrayList<>();
+            for (int i = 0; i < monthStarts.length - 1; i++) {
+                rollups.add(rollup(database, userId, monthStarts[i], monthStarts[i + 1]));
+            }
+            return rollups;
+        });
+    }
+
+    /**
+     * Category totals of {@code [from, to)} in the form of a rollup, for ranges other
+     * than a month; its month key is that of {@code from}.
+     */
+    public Task<MonthlyRollup> loadRange(String userId, long from, long to) {
+        return Tasks.call(executor, () -> {
+            if (!isSynced(userId)) return null;
+            return rollup(helper.getReadableDatabase(), userId, from, to);
+        });
+    }
+
+    /**
+     * Income and expense of each range between consecutive {@code boundaries}, which may
+     * span any days; each range costs two prefix sums over the daily totals.
+     */
+    public Task<List<DailyTotals.Summary>> summarize(String userId, long[] boundaries) {
+        return Tasks.call(executor, () -> {
+            if (!isSynced(userId)) return null;
+            return dailyTotals(userId).summarize(boundaries);
+        });
+    }
+
+    private MonthlyRollup rollup(SQLiteDatabase database, String userId, long from, long to) {
+        MonthlyRollup rollup = new MonthlyRollup(userId, MonthlyRollup.monthKey(from));
+        Map<String, Long> income = new HashMap<>();
+        Map<String, Long> expense = new HashMap<>();
+        long totalIncome = 0;
+        long totalExpense = 0;
+        long count = 0;
+
+        try (Cursor cursor = database.rawQuery(
+                "SELECT type, category, SUM(amountCents), COUNT(*) FROM transactions"
+                        + " WHERE userId = ? AND timestamp >= ? AND timestamp < ?"
+                        + " GROUP BY type, category",
+                new String[]{userId, Long.toString(from), Long.toString(to)})) {
+            while (cursor.moveToNext()) {
+                long cents = cursor.getLong(2);
+                if (cursor.getInt(0) == TransactionStore.TYPE_INCOME) {
+                    income.put(cursor.getString(1), cents);
+                    totalIncome += cents;
+                } else {
+                    expense.put(cursor.getString(1), cents);
+                    totalExpense += cents;
+                }
+                count += cursor.getLong(3);
+            }
+        }
+
+        rollup.setTotalIncomeCents(totalIncome);
+        rollup.setTotalExpenseCents(totalExpense);
+        rollup.setTransactionCount(count);
+        rollup.setIncomeCentsByCategory(income);
+        rollup.setExpenseCentsByCategory(expense);
+        rollup.setComplete(true);
+        rollup.setVersion(MonthlyRollup.VERSION);
+        return rollup;
+    }
+
+    public Task<List<Budget>> budgets(String userId, String month) {
+        return Tasks.call(executor, () -> {
+            if (!isSynced(userId)) return null;
+
+            List<Budget> budgets = new ArrayList<>();
+            try (Cursor cursor = helper.getReadableDatabase().rawQuery(
+                    "SELECT id, category, limitCents FROM budgets WHERE userId = ? AND month = ?",
+                    new String[]{userId, month})) {
+                while (cursor.moveToNext()) {
+                    Budget budget = new Budget(userId, cursor.getString(1), cursor.getLong(2), month);
+                    budget.setId(cursor.getString(0));
+                    budgets.add(budget);
+                }
+            }
+            return budgets;
+        });
+    }
+
+    /**
+     * The user's best {@code limit} matches of {@code query} among descriptions and
+     * categories, best first. The store is in rank order, not newest first, so its date
+     * range methods do not apply to it.
+     */
+    public Task<TransactionStore> search(String userId, String query, int limit) {
+        return Tasks.call(executor, () -> {
+            if (!isSynced(userId)) return null;
+
+            List<String> ids = searchIndex(userId).search(query, limit);
+            if (ids.isEmpty()) return TransactionStore.empty();
+
+            Map<String, Transaction> byId = read(userId, ids);
+            Transaction[] ranked = new Transaction[ids.size()];
+            for (int i = 0; i < ids.size(); i++) {
+                ranked[i] = byId.get(ids.get(i));
+            }
+
+            TransactionStore.Builder transactions = new TransactionStore.Builder();
+            for (Transaction transaction : ranked) {
+                if (transaction != null) {
+                    transactions.append(transaction);
+                }
+            }
+            return transactions.build();
+        });
+    }
+
+    /** Rows of {@code ids}, in chunks that stay below SQLite's limit of bound arguments. */
+    private Map<String, Transaction> read(String userId, List<String> ids) {
+        Map<String, Transaction> byId = new HashMap<>();
+        for (int start = 0; start < ids.size(); start += MAX_IDS_PER_QUERY) {
+            List<String> chunk = ids.subList(start, Math.min(ids.size(), start + MAX_IDS_PER_QUERY));
+            StringBuilder placeholders = new StringBuilder("?");
+            for (int i = 1; i < chunk.size(); i++) {
+                placeholders.append(", ?");
+            }
+            String[] args = new String[chunk.size() + 1];
+            args[0] = userId;
+            for (int i = 0; i < chunk.size(); i++) {
+                args[i + 1] = chunk.get(i);
+            }
+
+            try (Cursor cursor = helper.getReadableDatabase().rawQuery(
+                    "SELECT id, timestamp, amountCents, category, type, description FROM transactions"
+                            + " WHERE userId = ? AND id IN (" + placeholders + ")", args)) {
+                while (cursor.moveToNext()) {
+                    String type = cursor.getInt(4) == TransactionStore.TYPE_INCOME
+                            ? TransactionAggregator.TYPE_INCOME : TransactionAggregator.TYPE_EXPENSE;
+                    Transaction transaction = new Transaction(userId, type, cursor.getLong(2), cursor.getString(3),
+                            cursor.getString(5), new Date(cursor.getLong(1)));
+                    transaction.setId(cursor.getString(0));
+                    byId.put(transaction.getId(), transaction);
+                }
+            }
+        }
+        return byId;
+    }
+
+    /** The search index of {@code userId}, built from the stored rows if it is another user's or missing. */
+    private TransactionSearchIndex searchIndex(String userId) {
+        if (searchIndex != null && userId.equals(searchUserId)) return searchIndex;
+
+        long start = System.nanoTime();
+        TransactionSearchIndex index = new TransactionSearchIndex();
+        try (Cursor cursor = helper.getReadableDatabase().rawQuery(
+                "SELECT id, timestamp, category, description FROM transactions WHERE userId = ?",
+                new String[]{userId})) {
+            while (cursor.moveToNext()) {
+                index.put(cursor.getString(0), cursor.getLong(1), cursor.getString(2), cursor.getString(3));
+            }
+        }
+        Log.i(TAG, "Search index: " + index.size() + " transactions, " + index.getTokenCount() + " tokens, ~"
+                + index.estimateMemoryBytes() / 1024 + " KB, built in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        searchIndex = index;
+        searchUserId = userId;
+        return index;
+    }
+
+    /**
+     * The daily totals of {@code userId}, built from the stored rows if they are another
+     * user's, missing, or bucketed in a time zone the device has since left.
+     */
+    private DailyTotals dailyTotals(String userId) {
+        TimeZone zone = TimeZone.getDefault();
+        if (dailyTotals != null && userId.equals(totalsUserId) && zone.equals(dailyTotals.getTimeZone())) {
+            return dailyTotals;
+        }
+
+        long start = System.nanoTime();
+        DailyTotals totals = new DailyTotals(zone);
+        try (Cursor cursor = helper.getReadableDatabase().rawQuery(
+                "SELECT timestamp, type, amountCents FROM transactions WHERE userId = ?",
+                new String[]{userId})) {
+            while (cursor.moveToNext()) {
+                totals.add(cursor.getLong(0), (byte) cursor.getInt(1), cursor.getLong(2));
+            }
+        }
+        Log.i(TAG, "Daily totals: " + totals.getDayCount() + " days, ~" + totals.estimateMemoryBytes() / 1024
+                + " KB, built in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        dailyTotals = totals;
+        totalsUserId = userId;
+        return totals;
+    }
+
+    /** Keeps the search index and daily totals, where they cover {@code userId}, in step with a written row. */
+    private void index(String userId, String id, long timestamp, byte type, long amountCents, String category,
+                       String description) {
+        if (searchIndex != null && userId.equals(searchUserId)) {
+            searchIndex.put(id, timestamp, category, description);
+        }
+        if (dailyTotals != null && userId.equals(totalsUserId)) {
+            dailyTotals.add(timestamp, type, amountCents);
+        }
+    }
+
+    /**
+     * Takes the stored row {@code id}, if there is one, out of the daily totals; call
+     * before the row is replaced or deleted. Costs a primary key lookup per row, and
+     * nothing until a range has been summarized.
+     */
+    private void untally(String id) {
+        if (dailyTotals == null) return;
+        try (Cursor cursor = helper.getReadableDatabase().rawQuery(
+                "SELECT userId, timestamp, type, amountCents FROM transactions WHERE id = ?", new String[]{id})) {
+            if (cursor.moveToFirst() && cursor.getString(0).equals(totalsUserId)) {
+                dailyTotals.remove(cursor.getLong(1), (byte) cursor.getInt(2), cursor.getLong(3));
+            }
+        }
+    }
+
+    /** Removes the rows a bulk delete is about to drop from the search index and daily totals; call before the delete. */
+    private void unindex(String userId, String where, String[] args) {
+        boolean searchCovers = searchIndex != null && userId.equals(searchUserId);
+        boolean totalsCover = dailyTotals != null && userId.equals(totalsUserId);
+        if (!searchCovers && !totalsCover) return;
+        try (Cursor cursor = helper.getReadableDatabase().rawQuery(
+                "SELECT id, timestamp, type, amountCents FROM transactions WHERE " + where, args)) {
+            while (cursor.moveToNext()) {
+                if (searchCovers) {
+                    searchIndex.remove(cursor.getString(0));
+                }
+                if (totalsCover) {
+                    dailyTotals.remove(cursor.getLong(1), (byte) cursor.getInt(2), cursor.getLong(3));
+                }
+            }
+        }
+    }
+
+    /** Runs {@code onChange} on the main thread after every sync that changed rows, until {@code owner} is destroyed. */
+    public void observe(LifecycleOwner owner, Runnable onChange) {
+        observe(owner, ids -> onChange.run());
+    }
+
+    /** {@link #observe(LifecycleOwner, Runnable)} for callers that follow the changed transactions one by one. */
+    public void observe(LifecycleOwner owner, ChangeListener onChange) {
+        if (owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) return;
+
+        observers.add(onChange);
+        owner.getLifecycle().addObserver(new DefaultLifecycleObserver() {
+            @Override
+            public void onDestroy(@NonNull LifecycleOwner source) {
+                source.getLifecycle().removeObserver(this);
+                observers.remove(onChange);
+            }
+        });
+    }
+
+    // ------------------- WRITE-THROUGH -------------------
+
+    /**
+     * Stores a transaction this app just wrote. The sync only listens to recent months,
+     * so a write dated further back reaches the read model through here.
+     */
+    public void put(String id, Transaction transaction) {
+        executor.execute(() -> {
+            byte type = TransactionStore.typeOf(transaction.getType());
+            untally(id);
+            SQLiteStatement insert = helper.getWritableDatabase().compileStatement(INSERT_TRANSACTION);
+            bindTransaction(insert, id, transaction.getUserId(), type,
+                    transaction.getAmountCents(), transaction.getCategory(), transaction.getDescription(),
+                    transaction.getTimestamp(), generation(transaction.getUserId()));
+            insert.executeInsert();
+            index(transaction.getUserId(), id, transaction.getTimestamp(), type, transaction.getAmountCents(),
+                    transaction.getCategory(), transaction.getDescription());
+            notifyChanged(Collections.singleton(id));
+        });
+    }
+
+    /** {@link #put} for many transactions of one user, e.g. a chunk of an import, in one SQLite transaction. */
+    public void putAll(String userId, Map<String, Transaction> transactions) {
+        if (transactions.isEmpty()) return;
+
+        executor.execute(() -> {
+            long generation = generation(userId);
+            SQLiteDatabase database = helper.getWritableDatabase();
+            database.beginTransaction();
+            try {
+                SQLiteStatement insert = database.compileStatement(INSERT_TRANSACTION);
+                for (Map.Entry<String, Transaction> entry : transactions.entrySet()) {
+                    Transaction transaction = entry.getValue();
+                    byte type = TransactionStore.typeOf(transaction.getType());
+                    untally(entry.getKey());
+                    bindTransaction(insert, entry.getKey(), userId, type, transaction.getAmountCents(),
+                            transaction.getCategory(), transaction.getDescription(), transaction.getTimestamp(),
+                            generation);
+                    insert.executeInsert();
+                    index(userId, entry.getKey(), transaction.getTimestamp(), type, transaction.getAmountCents(),
+                            transaction.getCategory(), transaction.getDescription());
+                }
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+            notifyChanged(transactions.keySet());
+        });
+    }
+
+    public void remove(String id) {
+        executor.execute(() -> {
+            untally(id);
+            helper.getWritableDatabase().delete("transactions", "id = ?", new String[]{id});
+            if (searchIndex != null) {
+                searchIndex.remove(id);
+            }
+            notifyChanged(Collections.singleton(id));
+        });
+    }
+
+    // ------------------- SYNC, executor thread only -------------------
+
+    Executor executor() {
+        return executor;
+    }
+
+    boolean isSynced(String userId) {
+        return syncedAt(userId) > 0;
+    }
+
+    long syncedAt(String userId) {
+        try (Cursor cursor = helper.getReadableDatabase().rawQuery(
+                "SELECT syncedAt FROM syncState WHERE userId = ?", new String[]{userId})) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+
+    long generation(String userId) {
+        try (Cursor cursor = helper.getReadableDatabase().rawQuery(
+                "SELECT generation FROM syncState WHERE userId = ?", new String[]{userId})) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+
+    /** Starts a sync pass; rows it writes carry the returned generation. */
+    long nextGeneration(String userId) {
+        long generation = generation(userId) + 1;
+        helper.getWritableDatabase().execSQL(
+                "INSERT OR REPLACE INTO syncState (userId, generation, syncedAt) VALUES (?, ?, ?)",
+                new Object[]{userId, generation, syncedAt(userId)});
+        return generation;
+    }
+
+    /** Ends a full sync: rows the pass did not see were deleted in Firestore. Observers reload what they show. */
+    void finishFullSync(String userId, long generation, long syncedAt) {
+        unindex(userId, "userId = ? AND syncGeneration < ?", new String[]{userId, String.valueOf(generation)});
+        SQLiteDatabase database = helper.getWritableDatabase();
+        database.beginTransaction();
+        try {
+            database.execSQL("DELETE FROM transactions WHERE userId = ? AND syncGeneration < ?",
+                    new Object[]{userId, generation});
+            database.execSQL("INSERT OR REPLACE INTO syncState (userId, generation, syncedAt) VALUES (?, ?, ?)",
+                    new Object[]{userId, generation, syncedAt});
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+        notifyChanged(null);
+    }
+
+    /** Deletes rows from {@code from} on that a pass over that window did not see. */
+    void deleteUnseen(String userId, long generation, long from) {
+        List<String> deleted = new ArrayList<>();
+        try (Cursor cursor = helper.getReadableDatabase().rawQuery(
+                "SELECT id FROM transactions WHERE userId = ? AND timestamp >= ? AND syncGeneration < ?",
+                new String[]{userId, String.valueOf(from), String.valueOf(generation)})) {
+            while (cursor.moveToNext()) {
+                deleted.add(cursor.getString(0));
+            }
+        }
+        if (deleted.isEmpty()) return;
+
+        unindex(userId, "userId = ? AND timestamp >= ? AND syncGeneration < ?",
+                new String[]{userId, String.valueOf(from), String.valueOf(generation)});
+        helper.getWritableDatabase().execSQL(
+                "DELETE FROM transactions WHERE userId = ? AND timestamp >= ? AND syncGeneration < ?",
+                new Object[]{userId, from, generation});
+        notifyChanged(deleted);
+    }
+
+    /** With {@code notify} false observers are not told, e.g. for pages of a full sync that ends with a notification. */
+    void putTransactions(String userId, Collection<? extends DocumentSnapshot> documents, long generation,
+                         boolean notify) {
+        if (documents.isEmpty()) return;
+
+        SQLiteDatabase database = helper.getWritableDatabase();
+        database.beginTransaction();
+        try {
+            SQLiteStatement insert = database.compileStatement(INSERT_TRANSACTION);
+            for (DocumentSnapshot document : documents) {
+                byte type = TransactionStore.typeOf(document.getString("type"));
+                long amountCents = TransactionChanges.amountCentsOf(document);
+                long timestamp = TransactionChanges.timestampOf(document);
+                untally(document.getId());
+                bindTransaction(insert, document.getId(), userId, type, amountCents, document.getString("category"),
+                        document.getString("description"), timestamp, generation);
+                insert.executeInsert();
+                index(userId, document.getId(), timestamp, type, amountCents,
+                        document.getString("category"), document.getString("description"));
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+        if (notify) {
+            List<String> ids = new ArrayList<>();
+            for (DocumentSnapshot document : documents) {
+                ids.add(document.getId());
+            }
+            notifyChanged(ids);
+        }
+    }
+
+    void deleteTransactions(Collection<String> ids) {
+        if (ids.isEmpty()) return;
+
+        SQLiteDatabase database = helper.getWritableDatabase();
+        database.beginTransaction();
+        try {
+            for (String id : ids) {
+                untally(id);
+                database.delete("transactions", "id = ?", new String[]{id});
+                if (searchIndex != null) {
+                    searchIndex.remove(id);
+                }
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+        notifyChanged(ids);
+    }
+
+    /** Replaces all of the user's budgets with {@code documents}. */
+    void replaceBudgets(String userId, Collection<? extends DocumentSnapshot> documents) {
+        SQLiteDatabase database = helper.getWritableDatabase();
+        database.beginTransaction();
+        try {
+            database.delete("budgets", "userId = ?", new String[]{userId});
+            writeBudgets(database, userId, documents);
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+        notifyChanged(Collections.<String>emptySet());
+    }
+
+    void putBudgets(String userId, Collection<? extends DocumentSnapshot> documents, Collection<String> removedIds) {
+        SQLiteDatabase database = helper.getWritableDatabase();
+        database.beginTransaction();
+        try {
+            for (String id : removedIds) {
+                database.delete("budgets", "id = ?", new String[]{id});
+            }
+            writeBudgets(database, userId, documents);
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+        notifyChanged(Collections.<String>emptySet());
+    }
+
+    private void writeBudgets(SQLiteDatabase database, String userId, Collection<? extends DocumentSnapshot> documents) {
+        SQLiteStatement insert = database.compileStatement(INSERT_BUDGET);
+        for (DocumentSnapshot document : documents) {
+            // Budgets are few, toObject also covers the legacy double limit
+            Budget budget = document.toObject(Budget.class);
+            insert.clearBindings();
+            insert.bindString(1, document.getId());
+            insert.bindString(2, userId);
+            insert.bindString(3, budget.getCategory() != null ? budget.getCategory() : "");
+            insert.bindLong(4, budget.getLimitCents());
+            insert.bindString(5, budget.getMonth() != null ? budget.getMonth() : "");
+            insert.executeInsert();
+        }
+    }
+
+    private static void bindTransaction(SQLiteStatement insert, String id, String userId, byte type,
+                                        long amountCents, String category, String description,
+                                        long timestamp, long generation) {
+        insert.clearBindings();
+        insert.bindString(1, id);
+        insert.bindString(2, userId);
+        insert.bindLong(3, type);
+        insert.bindLong(4, amountCents);
+        insert.bindString(5, category != null ? category : "");
+        if (description != null) {
+            insert.bindString(6, description);
+        } else {
+            insert.bindNull(6);
+        }
+        insert.bindLong(7, timestamp);
+        insert.bindLong(8, generation);
+    }
+
+    /** {@code ids} as for {@link ChangeListener#onChanged}; copied, so callers may reuse the collection. */
+    private void notifyChanged(Collection<String> ids) {
+        Set<String> changed = ids == null ? null : Collections.unmodifiableSet(new HashSet<>(ids));
+        mainHandler.post(() -> {
+            for (ChangeListener observer : new ArrayList<>(observers)) {
+                observer.onChanged(changed);
+            }
+        });
+    }
+
+    private static class Helper extends SQLiteOpenHelper {
+
+        Helper(Context context) {
+            super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        }
+
+        @Override
+        public void onCreate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE transactions ("
+                    + "id TEXT PRIMARY KEY, userId TEXT NOT NULL, type INTEGER NOT NULL,"
+                    + " amountCents INTEGER NOT NULL, category TEXT NOT NULL, description TEXT,"
+                    + " timestamp INTEGER NOT NULL, syncGeneration INTEGER NOT NULL)");
+            db.execSQL("CREATE INDEX transactions_user_time ON transactions (userId, timestamp)");
+            db.execSQL("CREATE INDEX transactions_user_category_time ON transactions (userId, category, timestamp)");
+            db.execSQL("CREATE TABLE budgets ("
+                    + "id TEXT PRIMARY KEY, userId TEXT NOT NULL, category TEXT NOT NULL,"
+                    + " limitCents INTEGER NOT NULL, month TEXT NOT NULL)");
+            db.execSQL("CREATE INDEX budgets_user_month ON budgets (userId, month)");
+            db.execSQL("CREATE TABLE syncState ("
+                    + "userId TEXT PRIMARY KEY, generation INTEGER NOT NULL, syncedAt INTEGER NOT NULL)");
+        }
+
+        @Override
+        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+            // Everything here can be synced again from Firestore
+            db.execSQL("DROP TABLE IF EXISTS transactions");
+            db.execSQL("DROP TABLE IF EXISTS budgets");
+            db.execSQL("DROP TABLE IF EXISTS syncState");
+            onCreate(db);
+        }
+    }
+}
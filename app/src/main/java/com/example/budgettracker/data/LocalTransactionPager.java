@@ -0,0 +1,283 @@
+package com.example.budgettracker.data;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.google.firebase.firestore.Query;
+import com.example.budgettracker.aggregation.TransactionStore;
+import com.example.budgettracker.models.Transaction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Pages the transaction history out of the {@link LocalReadModel}, with the same
+ * surface as {@link TransactionPager}. Until the user's first sync has finished it
+ * hands over to a {@link TransactionPager} on the Firestore query instead.
+ *
+ * Locally, each page starts after the (timestamp, id) of the last loaded row and is
+ * appended, so scrolling reads every row once. Changes the sync makes to the read model
+ * are applied to the loaded rows one by one: only the changed transactions are read
+ * back, and rows older than the loaded window are left to the pages still to come.
+ *
+ * A type filter is part of the query, locally and on Firestore, so every page of a
+ * filtered list is full however rare its type is.
+ */
+public class LocalTransactionPager {
+
+    private final LifecycleOwner owner;
+    private final LocalReadModel readModel;
+    private final String userId;
+    private final Query query;
+    private final TransactionPager.Callback callback;
+
+    private TransactionPager remote;
+    private String type; // null for all types
+    // Bumped when the filter changes, results of the queries before are dropped
+    private int generation = 0;
+    // Newest first, ties by id descending, like LocalReadModel#page
+    private final TransactionStore.Builder transactions = new TransactionStore.Builder();
+    private TransactionStore loaded = TransactionStore.empty();
+    private final Map<String, Long> loadedTimestamps = new HashMap<>();
+    private boolean loading = false;
+    private boolean stale = false;
+    private boolean observing = false;
+    private boolean endReached = false;
+
+    /** {@code query} is the Firestore fallback, as passed to {@link TransactionPager}. */
+    public LocalTransactionPager(LifecycleOwner owner, LocalReadModel readModel, String userId,
+                                 Query query, TransactionPager.Callback callback) {
+        this.owner = owner;
+        this.readModel = readModel;
+        this.userId = userId;
+        this.query = query;
+        this.callback = callback;
+    }
+
+    public void start() {
+        loadPage();
+    }
+
+    /** Lists only the transactions of {@code type}, or all of them if it is null, from the newest on. */
+    public void setType(String type) {
+        if (Objects.equals(type, this.type)) return;
+
+        this.type = type;
+        generation++;
+        transactions.clear();
+        loadedTimestamps.clear();
+        loaded = TransactionStore.empty();
+        loading = false;
+        stale = false;
+        endReached = false;
+        if (remote != null) {
+            remote.stop();
+            remote = new TransactionPager(owner, filtered(query), callback);
+            remote.start();
+        } else {
+            loadPage();
+        }
+    }
+
+    private Query filtered(Query query) {
+        return type == null ? query : query.whereEqualTo("type", type);
+    }
+
+    private void loadPage() {
+        loading = true;
+        int size = loaded.size();
+        long beforeTimestamp = size == 0 ? Long.MAX_VALUE : loaded.getTimestamp(size - 1);
+        String beforeId = size == 0 ? null : loaded.getId(size - 1);
+        int requestedIn = generation;
+        readModel.page(userId, type, beforeTimestamp, beforeId, TransactionPager.PAGE_SIZE)
+                .addOnSuccessListener(page -> {
+                    if (requestedIn != generation) return;
+                    loading = false;
+                    if (owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) return;
+
+                    if (page == null) {
+                        // Not synced yet
+                        remote = new TransactionPager(owner, filtered(query), callback);
+                        remote.start();
+                        return;
+                    }
+                    if (!observing) {
+                        observing = true;
+                        readModel.observe(owner, this::onChanged);
+                    }
+
+                    for (int i = 0; i < page.size(); i++) {
+                        transactions.append(page.getId(i), page.getTimestamp(i), page.getAmountCents(i),
+                                page.getCategory(i), page.getType(i), page.getDescription(i));
+                        loadedTimestamps.put(page.getId(i), page.getTimestamp(i));
+                    }
+                    endReached = page.size() < TransactionPager.PAGE_SIZE;
+                    publish();
+                    if (stale) {
+                        reload();
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    if (requestedIn != generation) return;
+                    loading = false;
+                    callback.onError(e);
+                });
+    }
+
+    private void onChanged(Set<String> ids) {
+        if (ids == null) {
+            reload();
+            return;
+        }
+        if (ids.isEmpty()) return;
+
+        int requestedIn = generation;
+        readModel.transactions(userId, ids)
+                .addOnSuccessListener(rows -> {
+                    if (requestedIn != generation) return;
+                    if (rows == null || owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) return;
+                    if (apply(ids, rows)) {
+                        publish();
+                    }
+                })
+                .addOnFailureListener(callback::onError);
+    }
+
+    /**
+     * Takes the loaded versions of {@code ids} out and puts the current ones, {@code rows},
+     * back in where they fall inside the loaded window. Positions are looked up by binary
+     * search on the (timestamp, id) order, so a change costs O(log n) plus the shift of the
+     * rows behind it. Applying the same change twice leaves the rows as they are.
+     */
+    private boolean apply(Set<String> ids, Map<String, Transaction> rows) {
+        List<Integer> removed = new ArrayList<>();
+        for (String id : ids) {
+            Long timestamp = loadedTimestamps.remove(id);
+            if (timestamp != null) {
+                removed.add(positionOf(loaded, timestamp, id));
+            }
+        }
+        // From the back, so the positions still to remove stay where they were
+        Collections.sort(removed, Collections.reverseOrder());
+        for (int position : removed) {
+            transactions.remove(position);
+        }
+        TransactionStore remaining = removed.isEmpty() ? loaded : transactions.build();
+
+        List<Transaction> added = new ArrayList<>();
+        for (Transaction row : rows.values()) {
+            if ((type == null || type.equals(row.getType()))
+                    && isInWindow(remaining, row.getTimestamp(), row.getId())) {
+                added.add(row);
+            }
+        }
+        Collections.sort(added, (a, b) -> compare(a.getTimestamp(), a.getId(), b.getTimestamp(), b.getId()));
+        // Newest first, so each row lands behind the ones inserted before it
+        for (int i = 0; i < added.size(); i++) {
+            Transaction row = added.get(i);
+            transactions.add(positionOf(remaining, row.getTimestamp(), row.getId()) + i, row);
+            loadedTimestamps.put(row.getId(), row.getTimestamp());
+        }
+
+        if (removed.isEmpty() && added.isEmpty()) return false;
+        loaded = transactions.build();
+        return true;
+    }
+
+    /** Rows older than the last loaded one arrive with their page; newer ones belong to the window. */
+    private boolean isInWindow(TransactionStore window, long timestamp, String id) {
+        if (endReached) return true;
+        int last = window.size() - 1;
+        return last >= 0 && compare(timestamp, id, window.getTimestamp(last), window.getId(last)) < 0;
+    }
+
+    /** Queries the loaded window again in one go, for changes the read model cannot name one by one. */
+    private void reload() {
+        if (loading) {
+            // Run it once the query in flight is published
+            stale = true;
+            return;
+        }
+
+        loading = true;
+        stale = false;
+        int requested = Math.max(loaded.size(), TransactionPager.PAGE_SIZE);
+        int requestedIn = generation;
+        readModel.page(userId, type, Long.MAX_VALUE, null, requested)
+                .addOnSuccessListener(page -> {
+                    if (requestedIn != generation) return;
+                    loading = false;
+                    if (page == null || owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) return;
+
+                    transactions.clear();
+                    loadedTimestamps.clear();
+                    for (int i = 0; i < page.size(); i++) {
+                        transactions.append(page.getId(i), page.getTimestamp(i), page.getAmountCents(i),
+                                page.getCategory(i), page.getType(i), page.getDescription(i));
+                        loadedTimestamps.put(page.getId(i), page.getTimestamp(i));
+                    }
+                    endReached = page.size() < requested;
+                    publish();
+                    if (stale) {
+                        reload();
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    if (requestedIn != generation) return;
+                    loading = false;
+                    callback.onError(e);
+                });
+    }
+
+    /** Requests the next page when {@code lastVisiblePosition} is close to {@code itemCount}. */
+    public void onScrolled(int lastVisiblePosition, int itemCount) {
+        if (lastVisiblePosition >= itemCount - TransactionPager.PREFETCH_DISTANCE) {
+            loadNextPage();
+        }
+    }
+
+    public void loadNextPage() {
+        if (remote != null) {
+            remote.loadNextPage();
+            return;
+        }
+        if (loading || endReached) return;
+
+        loadPage();
+    }
+
+    public boolean isEndReached() {
+        return remote != null ? remote.isEndReached() : endReached;
+    }
+
+    private void publish() {
+        loaded = transactions.build();
+        callback.onTransactionsChanged(loaded);
+    }
+
+    /** First position in {@code store} whose row does not come before (timestamp, id). */
+    static int positionOf(TransactionStore store, long timestamp, String id) {
+        int low = 0;
+        int high = store.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(store.getTimestamp(mid), store.getId(mid), timestamp, id) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** Negative if (timestamp, id) a comes before b in the list: newer first, then larger id. */
+    static int compare(long timestampA, String idA, long timestampB, String idB) {
+        if (timestampA != timestampB) return timestampA > timestampB ? -1 : 1;
+        return idB.compareTo(idA);
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.budgettracker.data;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+import com.example.budgettracker.aggregation.TransactionAggregator;
+import com.example.budgettracker.models.MonthlyRollup;
+import com.example.budgettracker.models.Transaction;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-user, per-month rollup documents in the "monthlyRollups" collection.
+ *
+ * Every transaction write adds its delta to the same {@link WriteBatch} or Firestore
+ * transaction, so the rollup and the transaction commit atomically. A rollup only becomes
+ * {@link MonthlyRollup#isComplete() complete} once it has been rebuilt from raw
+ * transactions, which covers months written before rollups existed; readers
+ * rebuild incomplete months the first time they see them. The same applies to
+ * rollups of an older {@link MonthlyRollup#VERSION}, e.g. ones that still hold
+ * double amounts instead of cents.
+ *
+ * Every write also increments the rollup's revision, so that a rebuild can tell
+ * whether a delta landed while it was summing the month's transactions.
+ */
+public class MonthlyRollupRepository {
+
+    public static final String COLLECTION = "monthlyRollups";
+
+    private static final int REBUILD_ATTEMPTS = 5;
+
+    private final FirebaseFirestore db;
+
+    public MonthlyRollupRepository(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    public DocumentReference document(String userId, String month) {
+        return db.collection(COLLECTION).document(MonthlyRollup.documentId(userId, month));
+    }
+
+    public void recordAdd(WriteBatch batch, Transaction transaction) {
+        applyDelta(batch, transaction, 1);
+    }
+
+    public void recordRemove(WriteBatch batch, Transaction transaction) {
+        applyDelta(batch, transaction, -1);
+    }
+
+    /** {@link #recordAdd(WriteBatch, Transaction)} inside a Firestore transaction. */
+    public void recordAdd(com.google.firebase.firestore.Transaction transaction, Transaction added) {
+        transaction.set(document(added.getUserId(), MonthlyRollup.monthKey(added.getTimestamp())),
+                delta(added, 1), SetOptions.merge());
+    }
+
+    /** {@link #recordRemove(WriteBatch, Transaction)} inside a Firestore transaction. */
+    public void recordRemove(com.google.firebase.firestore.Transaction transaction, Transaction removed) {
+        transaction.set(document(removed.getUserId(), MonthlyRollup.monthKey(removed.getTimestamp())),
+                delta(removed, -1), SetOptions.merge());
+    }
+
+    /**
+     * {@link #recordAdd} for many transactions of one user with one write per month, so
+     * e.g. an import chunk of 400 rows costs as many rollup writes as it spans months.
+     */
+    public void recordAdds(WriteBatch batch, String userId, List<Transaction> transactions) {
+        for (Map.Entry<String, Map<String, Object>> entry : monthDeltas(userId, transactions).entrySet()) {
+            batch.set(document(userId, entry.getKey()), entry.getValue(), SetOptions.merge());
+        }
+    }
+
+    /** {@link #recordAdds(WriteBatch, String, List)} inside a Firestore transaction. */
+    public void recordAdds(com.google.firebase.firestore.Transaction transaction, String userId,
+                           List<Transaction> transactions) {
+        for (Map.Entry<String, Map<String, Object>> entry : monthDeltas(userId, transactions).entrySet()) {
+            transaction.set(document(userId, entry.getKey()), entry.getValue(), SetOptions.merge());
+        }
+    }
+
+    /** Merge fields per month key that add up {@code transactions}. */
+    private static Map<String, Map<String, Object>> monthDeltas(String userId, List<Transaction> transactions) {
+        Map<String, TransactionAggregator> byMonth = new HashMap<>();
+        for (Transaction transaction : transactions) {
+            String month = MonthlyRollup.monthKey(transaction.getTimestamp());
+            TransactionAggregator aggregator = byMonth.get(month);
+            if (aggregator == null) {
+                aggregator = new TransactionAggregator(Long.MIN_VALUE, new long[0]);
+                byMonth.put(month, aggregator);
+            }
+            aggregator.add(transaction);
+        }
+
+        Map<String, Map<String, Object>> deltas = new HashMap<>();
+        for (Map.Entry<String, TransactionAggregator> entry : byMonth.entrySet()) {
+            MonthlyRollup delta = entry.getValue().toRollup(userId, entry.getKey());
+
+            Map<String, Object> fields = new HashMap<>();
+            fields.put("userId", userId);
+            fields.put("month", entry.getKey());
+            fields.put("revision", FieldValue.increment(1));
+            fields.put("transactionCount", FieldValue.increment(delta.getTransactionCount()));
+            fields.put("totalIncomeCents", FieldValue.increment(delta.getTotalIncomeCents()));
+            fields.put("totalExpenseCents", FieldValue.increment(delta.getTotalExpenseCents()));
+            fields.put("incomeCentsByCategory", increments(delta.getIncomeCentsByCategory()));
+            fields.put("expenseCentsByCategory", increments(delta.getExpenseCentsByCategory()));
+            deltas.put(entry.getKey(), fields);
+        }
+        return deltas;
+    }
+
+    private static Map<String, Object> increments(Map<String, Long> centsByCategory) {
+        Map<String, Object> increments = new HashMap<>();
+        for (Map.Entry<String, Long> entry : centsByCategory.entrySet()) {
+            increments.put(entry.getKey(), FieldValue.increment(entry.getValue()));
+        }
+        return increments;
+    }
+
+    private void applyDelta(WriteBatch batch, Transaction transaction, int sign) {
+        batch.set(document(transaction.getUserId(), MonthlyRollup.monthKey(transaction.getTimestamp())),
+                delta(transaction, sign), SetOptions.merge());
+    }
+
+    /** Merge fields that add ({@code sign} 1) or take back ({@code sign} -1) one transaction. */
+    private static Map<String, Object> delta(Transaction transaction, int sign) {
+        String month = MonthlyRollup.monthKey(transaction.getTimestamp());
+        boolean income = TransactionAggregator.TYPE_INCOME.equals(transaction.getType());
+        FieldValue amount = FieldValue.increment(sign * transaction.getAmountCents());
+
+        Map<String, Object> byCategory = new HashMap<>();
+        byCategory.put(transaction.getCategory(), amount);
+
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("userId", transaction.getUserId());
+        fields.put("month", month);
+        fields.put("revision", FieldValue.increment(1));
+        fields.put("transactionCount", FieldValue.increment(sign));
+        fields.put(income ? "totalIncomeCents" : "totalExpenseCents", amount);
+        fields.put(income ? "incomeCentsByCategory" : "expenseCentsByCategory", byCategory);
+        return fields;
+    }
+
+    /**
+     * Rebuilds the rollup of the month starting at {@code monthStart} from raw transactions.
+     * A rollup that another reader already completed is kept as is; anything else is
+     * overwritten as a whole, which also drops fields of older versions.
+     *
+     * Firestore transactions cannot run queries, so the month is summed before the
+     * transaction and the rollup's revision is read before the query. The transaction only
+     * writes if the revision is still the same, i.e. no add, edit or delete incremented the
+     * rollup since; otherwise the sums may miss that write and the whole rebuild starts
+     * over. The rebuilt rollup bumps the revision itself, so it never repeats.
+     */
+    public Task<MonthlyRollup> rebuild(String userId, long monthStart) {
+        return rebuild(userId, monthStart, REBUILD_ATTEMPTS);
+    }
+
+    private Task<MonthlyRollup> rebuild(String userId, long monthStart, int attempts) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(monthStart);
+        long monthEnd = TransactionAggregator.monthStart(calendar, 1);
+        String month = MonthlyRollup.monthKey(monthStart);
+        DocumentReference ref = document(userId, month);
+
+        return ref.get().continueWithTask(before -> {
+            if (!before.isSuccessful()) {
+                return Tasks.<MonthlyRollup>forException(before.getException());
+            }
+            long revision = revisionOf(before.getResult());
+
+            return db.collection("transactions")
+                    .whereEqualTo("userId", userId)
+                    .whereGreaterThanOrEqualTo("timestamp", monthStart)
+                    .whereLessThan("timestamp", monthEnd)
+                    .get()
+                    .continueWithTask(task -> {
+                        if (!task.isSuccessful()) {
+                            return Tasks.<MonthlyRollup>forException(task.getException());
+                        }
+
+                        TransactionAggregator aggregator = new TransactionAggregator(monthStart, new long[0]);
+                        for (QueryDocumentSnapshot document : task.getResult()) {
+                            aggregator.add(document.toObject(Transaction.class));
+                        }
+                        MonthlyRollup rebuilt = aggregator.toRollup(userId, month);
+                        rebuilt.setRevision(revision + 1);
+
+                        return db.runTransaction(transaction -> {
+                            DocumentSnapshot existing = transaction.get(ref);
+                            MonthlyRollup current = existing.exists()
+                                    ? existing.toObject(MonthlyRollup.class) : null;
+                            if (MonthlyRollup.isUsable(current)) {
+                                return current;
+                            }
+                            if (revisionOf(existing) != revision) {
+                                // A delta landed after the revision was read, the sums may miss it
+                                return null;
+                            }
+                            transaction.set(ref, rebuilt);
+                            return rebuilt;
+                        });
+                    });
+        }).continueWithTask(result -> {
+            if (!result.isSuccessful() || result.getResult() != null) return result;
+            if (attempts > 1) return rebuild(userId, monthStart, attempts - 1);
+            return Tasks.forException(new FirebaseFirestoreException(
+                    "Rollup " + month + " kept changing during its rebuild", FirebaseFirestoreException.Code.ABORTED));
+        });
+    }
+
+    private static long revisionOf(DocumentSnapshot snapshot) {
+        Long revision = snapshot.exists() ? snapshot.getLong("revision") : null;
+        return revision != null ? revision : 0;
+    }
+
+    /**
+     * Rollups for each month in {@code monthStarts} (the last entry is the end of the
+     * window), oldest first. One range query covers the window; only months without a
+     * usable rollup fall back to a rebuild.
+     */
+    public Task<List<MonthlyRollup>> loadMonths(String userId, long[] monthStarts) {
+        int months = monthStarts.length - 1;
+
+        return db.collection(COLLECTION)
+                .whereEqualTo("userId", userId)
+                .whereGreaterThanOrEqualTo("month", MonthlyRollup.monthKey(monthStarts[0]))
+                .whereLessThanOrEqualTo("month", MonthlyRollup.monthKey(monthStarts[months - 1]))
+                .get()
+                .continueWithTask(task -> {
+                    if (!task.isSuccessful()) {
+                        return Tasks.<List<MonthlyRollup>>forException(task.getException());
+                    }
+
+                    Map<String, MonthlyRollup> byMonth = new HashMap<>();
+                    for (QueryDocumentSnapshot document : task.getResult()) {
+                        MonthlyRollup rollup = document.toObject(MonthlyRollup.class);
+                        byMonth.put(rollup.getMonth(), rollup);
+                    }
+
+                    List<Task<MonthlyRollup>> results = new ArrayList<>();
+                    for (int i = 0; i < months; i++) {
+                        MonthlyRollup rollup = byMonth.get(MonthlyRollup.monthKey(monthStarts[i]));
+                        results.add(MonthlyRollup.isUsable(rollup)
+                                ? Tasks.forResult(rollup)
+                                : rebuild(userId, monthStarts[i]));
+                    }
+                    return Tasks.<MonthlyRollup>whenAllSuccess(results);
+                });
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.budgettracker.data;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.MetadataChanges;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+import com.example.budgettracker.aggregation.TransactionAggregator;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the {@link LocalReadModel} in step with the signed-in user's Firestore data.
+ *
+ * The full history is paged into the read model once, and again after
+ * {@link #FULL_SYNC_INTERVAL}, so no listener ever holds all of a user's transactions.
+ * Between full passes only the current and previous month are listened to, which is
+ * where other devices add and edit; budgets are few and listened to in full. Writes
+ * this app makes outside that window go through {@link LocalReadModel#put} directly.
+ *
+ * Every Firestore callback runs on the read model's thread, so documents are read and
+ * written to SQLite off the main thread.
+ */
+public class ReadModelSync {
+
+    private static final String TAG = "ReadModelSync";
+
+    static final int PAGE_SIZE = 500;
+    static final long FULL_SYNC_INTERVAL = TimeUnit.DAYS.toMillis(1);
+
+    private static final ReadModelSync INSTANCE = new ReadModelSync();
+
+    private Session session; // main thread only
+
+    public static ReadModelSync getInstance() {
+        return INSTANCE;
+    }
+
+    /** Starts syncing {@code userId}; does nothing if that user is already being synced. Main thread. */
+    public void start(Context context, FirebaseFirestore db, String userId) {
+        if (session != null && session.userId.equals(userId)) return;
+
+        stop();
+        session = new Session(LocalReadModel.getInstance(context), db, userId);
+        session.start();
+    }
+
+    /** Removes the listeners, e.g. on sign-out. The synced rows stay for the next sign-in. */
+    public void stop() {
+        if (session != null) {
+            session.stop();
+            session = null;
+        }
+    }
+
+    private static class Session {
+        final LocalReadModel readModel;
+        final Executor executor;
+        final FirebaseFirestore db;
+        final String userId;
+        final List<ListenerRegistration> registrations = new ArrayList<>();
+
+        // Read and written on the read model's thread only
+        long generation;
+        boolean windowReconciled = false;
+        boolean budgetsLoaded = false;
+        volatile boolean stopped = false;
+
+        Session(LocalReadModel readModel, FirebaseFirestore db, String userId) {
+            this.readModel = readModel;
+            this.executor = readModel.executor();
+            this.db = db;
+            this.userId = userId;
+        }
+
+        void start() {
+            Tasks.call(executor, () -> {
+                generation = readModel.nextGeneration(userId);
+                return System.currentTimeMillis() - readModel.syncedAt(userId) > FULL_SYNC_INTERVAL;
+            }).addOnSuccessListener(fullSyncDue -> {
+                // Main thread, stop() may have been called meanwhile
+                if (stopped) return;
+
+                listenToRecentTransactions();
+                listenToBudgets();
+                if (fullSyncDue) {
+                    executor.execute(() -> loadPage(null));
+                }
+            }).addOnFailureListener(e -> Log.e(TAG, "Error opening read model", e));
+        }
+
+        void stop() {
+            stopped = true;
+            for (ListenerRegistration registration : registrations) {
+                registration.remove();
+            }
+            registrations.clear();
+        }
+
+        private Query transactions() {
+            return db.collection("transactions").whereEqualTo("userId", userId);
+        }
+
+        // ------------------- FULL PASS -------------------
+
+        private void loadPage(DocumentSnapshot after) {
+            Query query = transactions().orderBy("timestamp", Query.Direction.DESCENDING);
+            if (after != null) {
+                query = query.startAfter(after);
+            }
+
+            // From the server only, a pass over a partial cache must not count as synced
+            query.limit(PAGE_SIZE).get(Source.SERVER)
+                    .addOnSuccessListener(executor, page -> {
+                        if (stopped) return;
+
+                        List<DocumentSnapshot> documents = page.getDocuments();
+                        readModel.putTransactions(userId, documents, generation, false);
+                        if (documents.size() < PAGE_SIZE) {
+                            readModel.finishFullSync(userId, generation, System.currentTimeMillis());
+                        } else {
+                            loadPage(documents.get(documents.size() - 1));
+                        }
+                    })
+                    .addOnFailureListener(executor, e -> {
+                        // Offline or interrupted, the next start tries again
+                        Log.e(TAG, "Error syncing transactions", e);
+                    });
+        }
+
+        // ------------------- LIVE WINDOW -------------------
+
+        private void listenToRecentTransactions() {
+            long windowStart = TransactionAggregator.monthStart(Calendar.getInstance(), -1);
+            Query window = transactions().whereGreaterThanOrEqualTo("timestamp", windowStart);
+
+            // Metadata changes are included to learn when the first server view arrived
+            registrations.add(window.addSnapshotListener(executor, MetadataChanges.INCLUDE, (value, error) -> {
+                if (error != null) {
+                    Log.e(TAG, "Error listening to transactions", error);
+                    return;
+                }
+                if (value == null || stopped) return;
+
+                List<DocumentSnapshot> changed = new ArrayList<>();
+                for (DocumentChange change : value.getDocumentChanges()) {
+                    if (change.getType() == DocumentChange.Type.REMOVED) {
+                        resolveRemoved(change.getDocument());
+                    } else {
+                        changed.add(change.getDocument());
+                    }
+                }
+                readModel.putTransactions(userId, changed, generation, true);
+
+                if (!windowReconciled && !value.getMetadata().isFromCache()) {
+                    // Every window document has now been written in this generation
+                    windowReconciled = true;
+                    readModel.deleteUnseen(userId, generation, windowStart);
+                }
+            }));
+        }
+
+        /** A document that left the window was either deleted or re-dated before it. */
+        private void resolveRemoved(DocumentSnapshot document) {
+            document.getReference().get()
+                    .addOnSuccessListener(executor, current -> {
+                        if (stopped) return;
+                        if (current.exists()) {
+                            readModel.putTransactions(userId, Collections.singletonList(current), generation, true);
+                        } else {
+                            readModel.deleteTransactions(Collections.singletonList(current.getId()));
+                        }
+                    })
+                    .addOnFailureListener(executor, e -> Log.e(TAG, "Error reading removed transaction", e));
+        }
+
+        // ------------------- BUDGETS -------------------
+
+        private void listenToBudgets() {
+            Query budgets = db.collection("budgets").whereEqualTo("userId", userId);
+
+            registrations.add(budgets.addSnapshotListener(executor, (value, error) -> {
+                if (error != null) {
+                    Log.e(TAG, "Error listening to budgets", error);
+                    return;
+                }
+                if (value == null || stopped) return;
+
+                if (!budgetsLoaded) {
+                    budgetsLoaded = true;
+                    readModel.replaceBudgets(userId, value.getDocuments());
+                    return;
+                }
+                applyBudgetChanges(value);
+            }));
+        }
+
+        private void applyBudgetChanges(QuerySnapshot value) {
+            List<DocumentSnapshot> changed = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+            for (DocumentChange change : value.getDocumentChanges()) {
+                if (change.getType() == DocumentChange.Type.REMOVED) {
+                    removed.add(change.getDocument().getId());
+                } else {
+                    changed.add(change.getDocument());
+                }
+            }
+            if (!changed.isEmpty() || !removed.isEmpty()) {
+                readModel.putBudgets(userId, changed, removed);
+            }
+        }
+    }
+}
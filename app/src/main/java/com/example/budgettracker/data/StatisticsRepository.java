@@ -0,0 +1,46 @@
+package com.example.budgettracker.data;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+
+/**
+ * Document counts for the profile screen.
+ *
+ * Counts are COUNT aggregations run on the server, billed at one read per 1000
+ * matching index entries instead of one per document, and nothing is downloaded.
+ * They need a connection and an emulator recent enough to support aggregations; when
+ * the aggregation fails the query is fetched and its documents counted, which also
+ * works offline from the cache.
+ */
+public class StatisticsRepository {
+
+    private final FirebaseFirestore db;
+
+    public StatisticsRepository(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    public Task<Long> countTransactions(String userId) {
+        return count(db.collection("transactions").whereEqualTo("userId", userId));
+    }
+
+    /** Budgets set for {@code month} ("yyyy-MM"). */
+    public Task<Long> countBudgets(String userId, String month) {
+        return count(db.collection("budgets")
+                .whereEqualTo("userId", userId)
+                .whereEqualTo("month", month));
+    }
+
+    Task<Long> count(Query query) {
+        return query.count().get(AggregateSource.SERVER)
+                .continueWithTask(task -> {
+                    if (task.isSuccessful()) {
+                        return Tasks.forResult(task.getResult().getCount());
+                    }
+                    return query.get().continueWith(fallback -> (long) fallback.getResult().size());
+                });
+    }
+}
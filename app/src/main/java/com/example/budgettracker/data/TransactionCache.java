@@ -0,0 +1,75 @@
+package com.example.budgettracker.data;
+
+import com.example.budgettracker.models.Transaction;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide, size-bounded cache of the transactions the app has already read, keyed
+ * by document id, so that a screen opening one transaction can show it from memory
+ * while it revalidates against Firestore.
+ *
+ * Snapshot listeners fill it through {@link TransactionChanges#toTransaction}; edits and
+ * deletes update it. Beyond {@link #DEFAULT_CAPACITY} entries the least recently used
+ * one is evicted. Cached transactions are shared, callers must not modify them.
+ * Thread-safe.
+ */
+public class TransactionCache {
+
+    static final int DEFAULT_CAPACITY = 1000;
+
+    private static final TransactionCache INSTANCE = new TransactionCache(DEFAULT_CAPACITY);
+
+    private final Map<String, Transaction> entries;
+    private long hits = 0;
+    private long misses = 0;
+
+    TransactionCache(int capacity) {
+        // Access order, so the eldest entry is the least recently used one
+        this.entries = new LinkedHashMap<String, Transaction>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Transaction> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public static TransactionCache getInstance() {
+        return INSTANCE;
+    }
+
+    /** Caches {@code transaction} under its id; transactions without an id are ignored. */
+    public synchronized void put(Transaction transaction) {
+        if (transaction.getId() != null) {
+            entries.put(transaction.getId(), transaction);
+        }
+    }
+
+    /** The cached transaction, or null. Counts as a hit or a miss. */
+    public synchronized Transaction get(String id) {
+        Transaction transaction = entries.get(id);
+        if (transaction != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return transaction;
+    }
+
+    public synchronized void remove(String id) {
+        entries.remove(id);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.budgettracker.data;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.example.budgettracker.aggregation.TransactionStore;
+import com.example.budgettracker.models.Money;
+import com.example.budgettracker.models.Transaction;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Applies snapshot {@link DocumentChange}s to a list or store that mirrors an ordered
+ * query, so a listener only deserializes and moves the documents that changed.
+ */
+public final class TransactionChanges {
+
+    private TransactionChanges() {
+    }
+
+    /** Also puts the transaction in the {@link TransactionCache}. */
+    public static Transaction toTransaction(QueryDocumentSnapshot document) {
+        Transaction transaction = document.toObject(Transaction.class);
+        transaction.setId(document.getId());
+        // Lets an edit screen open this transaction without reading it again
+        TransactionCache.getInstance().put(transaction);
+        return transaction;
+    }
+
+    /** Returns false when there was nothing to apply, e.g. a metadata-only event. */
+    public static boolean applyTo(List<Transaction> transactions, List<DocumentChange> changes) {
+        for (DocumentChange change : changes) {
+            switch (change.getType()) {
+                case ADDED:
+                    transactions.add(change.getNewIndex(), toTransaction(change.getDocument()));
+                    break;
+                case MODIFIED:
+                    if (change.getOldIndex() == change.getNewIndex()) {
+                        transactions.set(change.getNewIndex(), toTransaction(change.getDocument()));
+                    } else {
+                        transactions.remove(change.getOldIndex());
+                        transactions.add(change.getNewIndex(), toTransaction(change.getDocument()));
+                    }
+                    break;
+                case REMOVED:
+                    transactions.remove(change.getOldIndex());
+                    break;
+            }
+        }
+        return !changes.isEmpty();
+    }
+
+    /** Inserts the document at {@code position}, reading its fields without building a Transaction. */
+    public static void addTo(TransactionStore.Builder transactions, int position, DocumentSnapshot document) {
+        transactions.add(position, document.getId(), timestampOf(document), amountCentsOf(document),
+                document.getString("category"), TransactionStore.typeOf(document.getString("type")),
+                document.getString("description"));
+    }
+
+    static long amountCentsOf(DocumentSnapshot document) {
+        Long amountCents = document.getLong("amountCents");
+        if (amountCents != null) return amountCents;
+        // Written before amounts were stored in cents
+        Double amount = document.getDouble("amount");
+        return amount != null ? Money.toCents(amount) : 0L;
+    }
+
+    static long timestampOf(DocumentSnapshot document) {
+        Long timestamp = document.getLong("timestamp");
+        if (timestamp != null) return timestamp;
+        Date date = document.getDate("date");
+        return date != null ? date.getTime() : 0L;
+    }
+
+    /** Same as {@link #applyTo(List, List)} for a columnar store. */
+    public static boolean applyTo(TransactionStore.Builder transactions, List<DocumentChange> changes) {
+        for (DocumentChange change : changes) {
+            switch (change.getType()) {
+                case ADDED:
+                    addTo(transactions, change.getNewIndex(), change.getDocument());
+                    break;
+                case MODIFIED:
+                    // Rows are never rewritten, a modified document replaces its row
+                    transactions.remove(change.getOldIndex());
+                    addTo(transactions, change.getNewIndex(), change.getDocument());
+                    break;
+                case REMOVED:
+                    transactions.remove(change.getOldIndex());
+                    break;
+            }
+        }
+        return !changes.isEmpty();
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.budgettracker.data;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+import com.example.budgettracker.transfer.TransactionWriter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Writes all of a user's transactions, oldest first, to a {@link TransactionWriter}.
+ *
+ * The history is read in pages of {@link #PAGE_SIZE} ordered by timestamp, each starting
+ * after the last document of the previous one, and every page is written out before the
+ * next is requested. At most one page is held in memory, whatever the size of the
+ * history. Pages come from the server so that an export is never silently cut short by
+ * a partial cache.
+ *
+ * {@link #run} blocks, call it off the main thread.
+ */
+public class TransactionExporter {
+
+    static final int PAGE_SIZE = 500;
+
+    public interface ProgressListener {
+        /** Called on the exporting thread after each page, with the transactions written so far. */
+        void onProgress(int written);
+    }
+
+    private final FirebaseFirestore db;
+
+    public TransactionExporter(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    /**
+     * Returns the number of transactions written. Does not close {@code writer}; if this
+     * throws, what was written is a truncated history and the caller discards it.
+     */
+    public int run(String userId, TransactionWriter writer, ProgressListener listener)
+            throws IOException, ExecutionException, InterruptedException {
+        Query query = db.collection("transactions")
+                .whereEqualTo("userId", userId)
+                .orderBy("timestamp", Query.Direction.ASCENDING)
+                .limit(PAGE_SIZE);
+
+        DocumentSnapshot last = null;
+        while (true) {
+            // The cursor is the (timestamp, id) of the last document, so equal timestamps are not lost
+            QuerySnapshot page = Tasks.await((last == null ? query : query.startAfter(last)).get(Source.SERVER));
+            List<DocumentSnapshot> documents = page.getDocuments();
+
+            for (DocumentSnapshot document : documents) {
+                writer.write(document.getId(), TransactionChanges.timestampOf(document), document.getString("type"),
+                        TransactionChanges.amountCentsOf(document), document.getString("category"),
+                        document.getString("description"));
+            }
+            if (listener != null) {
+                listener.onProgress(writer.getWrittenCount());
+            }
+
+            if (documents.size() < PAGE_SIZE) break;
+            last = documents.get(documents.size() - 1);
+        }
+        return writer.getWrittenCount();
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.budgettracker.data;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
+import com.example.budgettracker.models.MonthlyRollup;
+import com.example.budgettracker.models.Transaction;
+import com.example.budgettracker.transfer.TransactionReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Writes the transactions of a {@link TransactionReader} to Firestore in chunks.
+ *
+ * Each chunk is one atomic {@link WriteBatch} holding its transactions, one rollup delta
+ * per month it spans and a marker document under "imports/{importId}/chunks". Document
+ * ids are derived from the import id and the row number, so an interrupted import that
+ * is started again with the same file skips the chunks whose marker exists and rewrites
+ * nothing twice. Up to {@link #MAX_IN_FLIGHT} chunks commit at a time; memory use is
+ * bounded by those chunks, whatever the size of the file.
+ *
+ * {@link #run} blocks, call it off the main thread.
+ */
+public class TransactionImporter {
+
+    public static final String COLLECTION = "imports";
+
+    static final int CHUNK_ROWS = 400;
+    // Rows + months + marker stay within BatchWriter.MAX_OPERATIONS
+    static final int MAX_MONTHS_PER_CHUNK = BatchWriter.MAX_OPERATIONS - CHUNK_ROWS - 1;
+    static final int MAX_IN_FLIGHT = 4;
+
+    public interface ProgressListener {
+        /** Called on the importing thread after each chunk, with the rows read so far. */
+        void onProgress(int rows);
+    }
+
+    public static class Result {
+        private final int imported;
+        private final int alreadyImported;
+        private final int skipped;
+
+        Result(int imported, int alreadyImported, int skipped) {
+            this.imported = imported;
+            this.alreadyImported = alreadyImported;
+            this.skipped = skipped;
+        }
+
+        /** Rows written by this run. */
+        public int getImported() {
+            return imported;
+        }
+
+        /** Rows an earlier, interrupted run of the same import had written. */
+        public int getAlreadyImported() {
+            return alreadyImported;
+        }
+
+        /** Rows the reader could not read. */
+        public int getSkipped() {
+            return skipped;
+        }
+    }
+
+    private final FirebaseFirestore db;
+    private final MonthlyRollupRepository rollupRepository;
+    private final LocalReadModel readModel;
+
+    /** {@code readModel} may be null, e.g. in tests. */
+    public TransactionImporter(FirebaseFirestore db, LocalReadModel readModel) {
+        this.db = db;
+        this.rollupRepository = new MonthlyRollupRepository(db);
+        this.readModel = readModel;
+    }
+
+    /**
+     * Id of importing {@code content} for {@code userId}: the same file imported again by
+     * the same user resumes instead of creating duplicates. Reads the stream to the end
+     * but does not close it.
+     */
+    public static String importId(String userId, InputStream content) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(userId.getBytes("UTF-8"));
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = content.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+
+        StringBuilder id = new StringBuilder();
+        byte[] hash = digest.digest();
+        // 128 bits are plenty for an id
+        for (int i = 0; i < 16; i++) {
+            id.append(String.format("%02x", hash[i]));
+        }
+        return id.toString();
+    }
+
+    public Result run(String userId, String importId, TransactionReader reader, ProgressListener listener)
+            throws IOException, ExecutionException, InterruptedException {
+        // Chunks of an earlier run may still be queued locally, e.g. after the app was killed;
+        // their markers must be on the server before deciding what to skip
+        Tasks.await(db.waitForPendingWrites());
+
+        CollectionReference markers = db.collection(COLLECTION).document(importId).collection("chunks");
+        Set<Integer> committed = new HashSet<>();
+        for (QueryDocumentSnapshot marker : Tasks.await(markers.get(Source.SERVER))) {
+            Long index = marker.getLong("index");
+            if (index != null) committed.add(index.intValue());
+        }
+
+        ArrayDeque<Task<Void>> inFlight = new ArrayDeque<>();
+        List<Transaction> chunk = new ArrayList<>(CHUNK_ROWS);
+        Set<String> months = new HashSet<>();
+        int chunkIndex = 0;
+        int row = 0;
+        int chunkFirstRow = 0;
+        int imported = 0;
+        int alreadyImported = 0;
+
+        try {
+            Transaction transaction;
+            while (true) {
+                transaction = reader.next();
+                boolean chunkFull = chunk.size() == CHUNK_ROWS
+                        || (transaction != null && months.size() == MAX_MONTHS_PER_CHUNK
+                        && !months.contains(MonthlyRollup.monthKey(transaction.getTimestamp())));
+
+                if (!chunk.isEmpty() && (transaction == null || chunkFull)) {
+                    if (committed.contains(chunkIndex)) {
+                        alreadyImported += chunk.size();
+                    } else {
+                        // Bounded memory: wait for the oldest chunk before queueing another
+                        if (inFlight.size() == MAX_IN_FLIGHT) {
+                            Tasks.await(inFlight.poll());
+                        }
+                        inFlight.add(commit(userId, importId, markers.document(String.valueOf(chunkIndex)),
+                                chunkIndex, chunkFirstRow, chunk));
+                        imported += chunk.size();
+                    }
+                    chunkIndex++;
+                    chunkFirstRow = row;
+                    chunk = new ArrayList<>(CHUNK_ROWS);
+                    months.clear();
+                    if (listener != null) {
+                        listener.onProgress(row);
+                    }
+                }
+                if (transaction == null) break;
+
+                transaction.setUserId(userId);
+                chunk.add(transaction);
+                months.add(MonthlyRollup.monthKey(transaction.getTimestamp()));
+                row++;
+            }
+
+            while (!inFlight.isEmpty()) {
+                Tasks.await(inFlight.poll());
+            }
+        } catch (IOException | ExecutionException | InterruptedException e) {
+            // Let the chunks already sent finish, so that a resumed run sees their markers
+            for (Task<Void> commit : inFlight) {
+                try {
+                    Tasks.await(commit);
+                } catch (ExecutionException | InterruptedException ignored) {
+                    // Their chunk is imported again on resume
+                }
+            }
+            throw e;
+        }
+        return new Result(imported, alreadyImported, reader.getSkippedCount());
+    }
+
+    private Task<Void> commit(String userId, String importId, DocumentReference marker, int chunkIndex,
+                              int firstRow, List<Transaction> transactions) {
+        CollectionReference collection = db.collection("transactions");
+        WriteBatch batch = db.batch();
+        Map<String, Transaction> byId = new LinkedHashMap<>();
+        for (int i = 0; i < transactions.size(); i++) {
+            String id = importId + "_" + (firstRow + i);
+            batch.set(collection.document(id), transactions.get(i));
+            byId.put(id, transactions.get(i));
+        }
+        rollupRepository.recordAdds(batch, userId, transactions);
+
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("userId", userId);
+        fields.put("index", chunkIndex);
+        fields.put("rows", transactions.size());
+        fields.put("committedAt", System.currentTimeMillis());
+        batch.set(marker, fields);
+
+        return batch.commit().addOnSuccessListener(unused -> {
+            if (readModel != null) {
+                readModel.putAll(userId, byId);
+            }
+        });
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.budgettracker.data;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.example.budgettracker.aggregation.TransactionStore;
+
+/**
+ * Loads a newest-first transaction query page by page with document cursors.
+ *
+ * Only the first page is live: it is listened to down to (and including) its last
+ * document, so new entries grow it instead of pushing rows off into the older pages.
+ * Older pages are fetched once with {@code startAfter} as the list nears its end, so
+ * opening the screen costs one page regardless of how long the history is.
+ *
+ * Rows are kept in a {@link TransactionStore}, the live page at its front and older
+ * pages appended behind it, and every change is published as a new snapshot.
+ */
+public class TransactionPager {
+
+    public static final int PAGE_SIZE = 25;
+    /** Rows left below the last visible one when the next page is requested. */
+    public static final int PREFETCH_DISTANCE = 10;
+
+    public interface Callback {
+        void onTransactionsChanged(TransactionStore transactions);
+
+        void onError(Exception e);
+    }
+
+    private final LifecycleOwner owner;
+    private final Query query;
+    private final Callback callback;
+    private final ListenerRegistry listeners = ListenerRegistry.getInstance();
+
+    // Snapshot listener indices of the live first page are positions at the front of the store
+    private final TransactionStore.Builder transactions = new TransactionStore.Builder();
+    private DocumentSnapshot cursor;
+    private ListenerRegistration registration;
+    private boolean loading = false;
+    private boolean endReached = false;
+    private boolean stopped = false;
+
+    /** {@code query} must be ordered by timestamp, newest first, without a limit. */
+    public TransactionPager(LifecycleOwner owner, Query query, Callback callback) {
+        this.owner = owner;
+        this.query = query;
+        this.callback = callback;
+    }
+
+    public void start() {
+        loading = true;
+        query.limit(PAGE_SIZE).get()
+                .addOnSuccessListener(page -> {
+                    loading = false;
+                    if (stopped || owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) return;
+
+                    Query liveQuery;
+                    if (page.size() < PAGE_SIZE) {
+                        // The whole history fits in the first page
+                        endReached = true;
+                        liveQuery = query;
+                    } else {
+                        cursor = page.getDocuments().get(page.size() - 1);
+                        liveQuery = query.endAt(cursor);
+                    }
+                    registration = listeners.listen(owner, liveQuery, this::onFirstPageChanged);
+                })
+                .addOnFailureListener(e -> {
+                    loading = false;
+                    callback.onError(e);
+                });
+    }
+
+    private void onFirstPageChanged(QuerySnapshot value, FirebaseFirestoreException error) {
+        if (stopped) return;
+        if (error != null) {
+            callback.onError(error);
+            return;
+        }
+
+        if (value == null) return;
+
+        if (TransactionChanges.applyTo(transactions, value.getDocumentChanges()) || value.isEmpty()) {
+            publish();
+        }
+    }
+
+    /** Requests the next page when {@code lastVisiblePosition} is close to {@code itemCount}. */
+    public void onScrolled(int lastVisiblePosition, int itemCount) {
+        if (lastVisiblePosition >= itemCount - PREFETCH_DISTANCE) {
+            loadNextPage();
+        }
+    }
+
+    public void loadNextPage() {
+        if (loading || endReached || cursor == null) return;
+
+        loading = true;
+        query.startAfter(cursor).limit(PAGE_SIZE).get()
+                .addOnSuccessListener(page -> {
+                    loading = false;
+                    if (stopped) return;
+                    for (QueryDocumentSnapshot document : page) {
+                        TransactionChanges.addTo(transactions, transactions.size(), document);
+                    }
+                    if (page.size() < PAGE_SIZE) {
+                        endReached = true;
+                    }
+                    if (!page.isEmpty()) {
+                        cursor = page.getDocuments().get(page.size() - 1);
+                        publish();
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    loading = false;
+                    callback.onError(e);
+                });
+    }
+
+    public boolean isEndReached() {
+        return endReached;
+    }
+
+    /** Removes the live listener; results still in flight are dropped. */
+    public void stop() {
+        stopped = true;
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+    }
+
+    private void publish() {
+        callback.onTransactionsChanged(transactions.build());
+    }
+}
@@ -0,0 +1,356 @@
+package com.example.budgettracker.data;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.Intent;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.WriteBatch;
+import com.example.budgettracker.models.Transaction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Durable queue of new transactions on their way to Firestore, so that saving one never
+ * waits for the network.
+ *
+ * {@link #add} gives the transaction a client-generated document id, stores it in the
+ * {@link LocalReadModel} and commits it with its rollup delta in one {@link WriteBatch}
+ * right away. Firestore applies the batch to its cache before the server sees it, so the
+ * dashboard's rollup and recent-transactions listeners show it at once, also offline,
+ * and Firestore's own persisted queue sends it. The row stays queued in SQLite until the
+ * server acknowledges the batch.
+ *
+ * Rows still queued later, e.g. from an earlier process or after a timeout, are checked
+ * by their document id, which is fixed before the first commit: a document that exists
+ * was written together with its rollup delta, so only rows without a document are
+ * committed again, and a commit whose acknowledgement was lost never duplicates
+ * transactions or rollup amounts. Checks back off exponentially while the server is out
+ * of reach; a notification tells the user when writes have been waiting for a while or
+ * were rejected.
+ */
+public class WriteBehindQueue {
+
+    private static final String TAG = "WriteBehindQueue";
+
+    static final int MAX_BATCH = 100;
+    static final long FIRST_BACKOFF_MS = TimeUnit.SECONDS.toMillis(2);
+    static final long MAX_BACKOFF_MS = TimeUnit.MINUTES.toMillis(5);
+    static final long ACKNOWLEDGE_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(30);
+    static final int NOTIFY_AFTER_FAILURES = 5;
+
+    private static final String DATABASE_NAME = "write_queue.db";
+    private static final int DATABASE_VERSION = 1;
+    private static final String CHANNEL_ID = "pending_writes";
+    private static final int NOTIFICATION_WAITING = 1;
+    private static final int NOTIFICATION_REJECTED = 2;
+
+    private static WriteBehindQueue instance;
+
+    private final Context context;
+    private final FirebaseFirestore db;
+    private final MonthlyRollupRepository rollupRepository;
+    private final LocalReadModel readModel;
+    private final Helper helper;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    // Executor thread only
+    private ScheduledFuture<?> scheduledFlush;
+    private long scheduledAt;
+    private int failures = 0;
+
+    WriteBehindQueue(Context context, FirebaseFirestore db, LocalReadModel readModel) {
+        this.context = context;
+        this.db = db;
+        this.rollupRepository = new MonthlyRollupRepository(db);
+        this.readModel = readModel;
+        this.helper = new Helper(context);
+        // Writes left over from an earlier process
+        executor.execute(() -> schedule(0));
+    }
+
+    public static synchronized WriteBehindQueue getInstance(Context context) {
+        if (instance == null) {
+            Context application = context.getApplicationContext();
+            instance = new WriteBehindQueue(application, FirebaseFirestore.getInstance(),
+                    LocalReadModel.getInstance(application));
+        }
+        return instance;
+    }
+
+    /** Queues {@code transaction} for writing and returns its document id. */
+    public String add(Transaction transaction) {
+        String id = db.collection("transactions").document().getId();
+        readModel.put(id, transaction);
+
+        // Checks run on the executor too, so none sees the row before the commit below is with Firestore
+        executor.execute(() -> {
+            enqueue(id, transaction);
+            // Nothing to do if the server acknowledges in time, otherwise this starts the backoff
+            schedule(FIRST_BACKOFF_MS);
+        });
+        commit(Collections.singletonList(id), Collections.singletonList(transaction))
+                .addOnCompleteListener(executor, task -> onCommitted(Collections.singletonList(id), task));
+        return id;
+    }
+
+    /** Resolves once everything queued so far is acknowledged, or with the error of a failed check. */
+    public Task<Void> flush() {
+        return Tasks.call(executor, () -> {
+            while (pendingCount() > 0) {
+                flushBatch();
+            }
+            return null;
+        });
+    }
+
+    /** Queues the row of {@code transaction} without committing it, {@link #add} commits it too. */
+    void enqueue(String id, Transaction transaction) {
+        ContentValues values = new ContentValues();
+        values.put("id", id);
+        values.put("userId", transaction.getUserId());
+        values.put("type", transaction.getType());
+        values.put("amountCents", transaction.getAmountCents());
+        values.put("category", transaction.getCategory());
+        values.put("description", transaction.getDescription());
+        values.put("timestamp", transaction.getTimestamp());
+        helper.getWritableDatabase().insert("pendingWrites", null, values);
+    }
+
+    /** Writes the transactions and their rollup deltas in one batch, which Firestore applies to its cache at once. */
+    private Task<Void> commit(List<String> ids, List<Transaction> transactions) {
+        CollectionReference collection = db.collection("transactions");
+        WriteBatch batch = db.batch();
+        for (int i = 0; i < ids.size(); i++) {
+            batch.set(collection.document(ids.get(i)), transactions.get(i));
+        }
+        rollupRepository.recordAdds(batch, transactions.get(0).getUserId(), transactions);
+        return batch.commit();
+    }
+
+    // ------------------- WORKER, executor thread only -------------------
+
+    private void onCommitted(List<String> ids, Task<Void> task) {
+        if (task.isSuccessful()) {
+            dequeue(ids);
+            return;
+        }
+        Exception e = task.getException();
+        if (e instanceof FirebaseFirestoreException && isPermanent(((FirebaseFirestoreException) e).getCode())) {
+            Log.e(TAG, "Queued transactions rejected", e);
+            drop(ids);
+            return;
+        }
+        // Firestore retries on its own, the next check finds out where the batch got to
+        Log.w(TAG, "Commit failed", e);
+    }
+
+    /** Checks in {@code delay} ms unless a check is due sooner or the queue is backing off. */
+    private void schedule(long delay) {
+        long at = System.currentTimeMillis() + delay;
+        if (scheduledFlush != null && !scheduledFlush.isDone() && (failures > 0 || scheduledAt <= at)) {
+            return;
+        }
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+        }
+        scheduledAt = at;
+        scheduledFlush = executor.schedule(this::flushScheduled, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void flushScheduled() {
+        scheduledFlush = null;
+        if (pendingCount() == 0) return;
+
+        try {
+            flushBatch();
+            if (failures > 0) {
+                NotificationManagerCompat.from(context).cancel(NOTIFICATION_WAITING);
+            }
+            failures = 0;
+            if (pendingCount() > 0) {
+                schedule(0);
+            }
+        } catch (ExecutionException | TimeoutException e) {
+            failures++;
+            Log.w(TAG, "Check failed, attempt " + failures, e.getCause() != null ? e.getCause() : e);
+            if (failures == NOTIFY_AFTER_FAILURES) {
+                notifyUser(NOTIFICATION_WAITING, "Transactions not synced yet",
+                        pendingCount() + " saved transactions are waiting for a connection");
+            }
+            long backoff = Math.min(MAX_BACKOFF_MS, FIRST_BACKOFF_MS << Math.min(failures - 1, 16));
+            scheduledAt = System.currentTimeMillis() + backoff;
+            scheduledFlush = executor.schedule(this::flushScheduled, backoff, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean isPermanent(FirebaseFirestoreException.Code code) {
+        return code == FirebaseFirestoreException.Code.INVALID_ARGUMENT
+                || code == FirebaseFirestoreException.Code.PERMISSION_DENIED
+                || code == FirebaseFirestoreException.Code.OUT_OF_RANGE;
+    }
+
+    /**
+     * Settles up to {@link #MAX_BATCH} of the oldest rows of one user by their documents:
+     * acknowledged ones leave the queue, ones Firestore still has to send are waited for,
+     * and ones without a document are committed again. Times out rather than waiting
+     * offline for good, the caller then backs off.
+     */
+    private void flushBatch() throws ExecutionException, InterruptedException, TimeoutException {
+        List<String> ids = new ArrayList<>();
+        List<Transaction> transactions = new ArrayList<>();
+        try (Cursor cursor = helper.getReadableDatabase().rawQuery(
+                "SELECT id, userId, type, amountCents, category, description, timestamp FROM pendingWrites"
+                        + " WHERE userId = (SELECT userId FROM pendingWrites ORDER BY rowid LIMIT 1)"
+                        + " ORDER BY rowid LIMIT " + MAX_BATCH, null)) {
+            while (cursor.moveToNext()) {
+                // The date is written too, reading a document back maps it through setDate
+                Transaction transaction = new Transaction(cursor.getString(1), cursor.getString(2), cursor.getLong(3),
+                        cursor.getString(4), cursor.getString(5), new Date(cursor.getLong(6)));
+                ids.add(cursor.getString(0));
+                transactions.add(transaction);
+            }
+        }
+        if (ids.isEmpty()) return;
+
+        CollectionReference collection = db.collection("transactions");
+        List<Task<DocumentSnapshot>> reads = new ArrayList<>();
+        for (String id : ids) {
+            reads.add(collection.document(id).get());
+        }
+        List<DocumentSnapshot> documents = Tasks.await(Tasks.<DocumentSnapshot>whenAllSuccess(reads),
+                ACKNOWLEDGE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+        List<String> acknowledged = new ArrayList<>();
+        List<String> missingIds = new ArrayList<>();
+        List<Transaction> missing = new ArrayList<>();
+        boolean sending = false;
+        for (int i = 0; i < ids.size(); i++) {
+            DocumentSnapshot document = documents.get(i);
+            if (!document.exists()) {
+                // Never reached Firestore, or rejected and rolled back since
+                missingIds.add(ids.get(i));
+                missing.add(transactions.get(i));
+            } else if (document.getMetadata().hasPendingWrites()) {
+                sending = true;
+            } else {
+                acknowledged.add(ids.get(i));
+            }
+        }
+        dequeue(acknowledged);
+
+        if (!missing.isEmpty()) {
+            try {
+                Tasks.await(commit(missingIds, missing), ACKNOWLEDGE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                dequeue(missingIds);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (!(cause instanceof FirebaseFirestoreException)
+                        || !isPermanent(((FirebaseFirestoreException) cause).getCode())) {
+                    throw e;
+                }
+                Log.e(TAG, "Queued transactions rejected", cause);
+                drop(missingIds);
+            }
+        }
+        if (sending) {
+            // In Firestore's queue already, e.g. committed by add() or an earlier process
+            Tasks.await(db.waitForPendingWrites(), ACKNOWLEDGE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void dequeue(List<String> ids) {
+        SQLiteDatabase database = helper.getWritableDatabase();
+        for (String id : ids) {
+            database.delete("pendingWrites", "id = ?", new String[]{id});
+        }
+    }
+
+    /** Takes rejected transactions out of the queue and the read model and tells the user. */
+    private void drop(List<String> ids) {
+        dequeue(ids);
+        for (String id : ids) {
+            readModel.remove(id);
+        }
+        notifyUser(NOTIFICATION_REJECTED, "Transactions not saved",
+                ids.size() + " transactions were rejected by the server and removed");
+    }
+
+    private long pendingCount() {
+        try (Cursor cursor = helper.getReadableDatabase().rawQuery("SELECT COUNT(*) FROM pendingWrites", null)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+
+    private void notifyUser(int notificationId, String title, String text) {
+        NotificationManagerCompat notifications = NotificationManagerCompat.from(context);
+        if (!notifications.areNotificationsEnabled()) {
+            Log.w(TAG, title + ": " + text);
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            notifications.createNotificationChannel(new NotificationChannel(CHANNEL_ID, "Pending transactions",
+                    NotificationManager.IMPORTANCE_DEFAULT));
+        }
+
+        // The launcher screen forwards a signed-in user to the dashboard
+        Intent intent = context.getPackageManager().getLaunchIntentForPackage(context.getPackageName());
+        intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        PendingIntent open = PendingIntent.getActivity(context, 0, intent, PendingIntent.FLAG_IMMUTABLE);
+
+        notifications.notify(notificationId, new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.stat_notify_error)
+                .setContentTitle(title)
+                .setContentText(text)
+                .setContentIntent(open)
+                .setAutoCancel(true)
+                .build());
+    }
+
+    private static class Helper extends SQLiteOpenHelper {
+
+        Helper(Context context) {
+            super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        }
+
+        @Override
+        public void onCreate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE pendingWrites ("
+                    + "id TEXT PRIMARY KEY, userId TEXT NOT NULL, type TEXT NOT NULL,"
+                    + " amountCents INTEGER NOT NULL, category TEXT NOT NULL, description TEXT,"
+                    + " timestamp INTEGER NOT NULL)");
+        }
+
+        @Override
+        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+            // Unlike the read model, queued writes exist nowhere else; migrate, never drop
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.budgettracker.format;
+
+import com.example.budgettracker.aggregation.TransactionStore;
+import com.example.budgettracker.models.Budget;
+import com.example.budgettracker.models.Money;
+import com.example.budgettracker.models.Transaction;
+
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Display strings for list rows, with one set of formatters per thread.
+ *
+ * Row text is cached: per transaction object, which is never modified once it is
+ * shown, per store row id, rebuilt when the row's revision changes, and per budget
+ * id, rebuilt only when the spent amount or limit changes. Binding a row that was
+ * shown before allocates nothing.
+ */
+public final class DisplayFormatter {
+
+    private static final ThreadLocal<DisplayFormatter> CURRENT =
+            ThreadLocal.withInitial(DisplayFormatter::new);
+
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
+    private final NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(Locale.US);
+
+    // Weak keys so rows dropped from every list are released with their text
+    private final Map<Transaction, TransactionText> transactionTexts = new WeakHashMap<>();
+    private final Map<String, TransactionText> storeTexts = new WeakHashMap<>();
+    private final Map<String, BudgetText> budgetTexts = new HashMap<>();
+
+    DisplayFormatter() {
+    }
+
+    /** SimpleDateFormat and NumberFormat are not thread-safe, each thread gets its own. */
+    public static DisplayFormatter forCurrentThread() {
+        return CURRENT.get();
+    }
+
+    public String formatCents(long cents) {
+        return currencyFormat.format(Money.toDecimal(cents));
+    }
+
+    public String formatDate(Date date) {
+        return dateFormat.format(date);
+    }
+
+    /** The days of {@code [from, to)}, e.g. "Mar 03, 2025 &ndash; Apr 10, 2025"; {@code to} is the start of the day after the last. */
+    public String formatRange(long from, long to) {
+        return dateFormat.format(new Date(from)) + " \u2013 " + dateFormat.format(new Date(to - 1));
+    }
+
+    public TransactionText transactionText(Transaction transaction) {
+        TransactionText text = transactionTexts.get(transaction);
+        if (text == null) {
+            boolean income = "income".equals(transaction.getType());
+            String amount = (income ? "+" : "-") + formatCents(transaction.getAmountCents());
+            String date = transaction.getDate() != null ? formatDate(transaction.getDate()) : "";
+            text = new TransactionText(-1, transaction.getDescription(), date, amount, income);
+            transactionTexts.put(transaction, text);
+        }
+        return text;
+    }
+
+    /** Also materializes the row's description, once per revision. */
+    public TransactionText transactionText(TransactionStore transactions, int position) {
+        String id = transactions.getId(position);
+        long revision = transactions.getRevision(position);
+        TransactionText text = storeTexts.get(id);
+        if (text == null || text.revision != revision) {
+            boolean income = transactions.isIncome(position);
+            String amount = (income ? "+" : "-") + formatCents(transactions.getAmountCents(position));
+            String date = formatDate(new Date(transactions.getTimestamp(position)));
+            text = new TransactionText(revision, transactions.getDescription(position), date, amount, income);
+            // Keyed by the store's own id instance, released once no snapshot holds the row
+            storeTexts.put(id, text);
+        }
+        return text;
+    }
+
+    public BudgetText budgetText(Budget budget) {
+        BudgetText text = budgetTexts.get(budget.getId());
+        if (text == null || text.spentCents != budget.getSpentCents()
+                || text.limitCents != budget.getLimitCents()) {
+            String info = "Spent " + formatCents(budget.getSpentCents()) +
+                    " of " + formatCents(budget.getLimitCents());
+            int percentage = budget.getPercentageUsed();
+            text = new BudgetText(budget.getSpentCents(), budget.getLimitCents(), info, percentage,
+                    percentage + "% used");
+            budgetTexts.put(budget.getId(), text);
+        }
+        return text;
+    }
+
+    public static final class TransactionText {
+        private final long revision;
+        private final String description;
+        private final String date;
+        private final String amount;
+        private final boolean income;
+
+        TransactionText(long revision, String description, String date, String amount, boolean income) {
+            this.revision = revision;
+            this.description = description;
+            this.date = date;
+            this.amount = amount;
+            this.income = income;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public String getDate() {
+            return date;
+        }
+
+        /** Currency amount with a leading + for income and - for expenses. */
+        public String getAmount() {
+            return amount;
+        }
+
+        public boolean isIncome() {
+            return income;
+        }
+    }
+
+    public static final class BudgetText {
+        private final long spentCents;
+        private final long limitCents;
+        private final String info;
+        private final int percentage;
+        private final String percentageText;
+
+        BudgetText(long spentCents, long limitCents, String info, int percentage, String percentageText) {
+            this.spentCents = spentCents;
+            this.limitCents = limitCents;
+            this.info = info;
+            this.percentage = percentage;
+            this.percentageText = percentageText;
+        }
+
+        public String getInfo() {
+            return info;
+        }
+
+        public int getPercentage() {
+            return percentage;
+        }
+
+        public String getPercentageText() {
+            return percentageText;
+        }
+    }
+}
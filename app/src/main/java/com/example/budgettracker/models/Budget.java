@@ -4,21 +4,32 @@ public class Budget {
     private String id;
     private String userId;
     private String category;
-    private double limit;
-    private double spent;
+    private long limitCents;
+    private boolean hasLimitCents; // set once limitCents was read, legacy "limit" is ignored then
+    private long spentCents;
     private String month; // Format: "YYYY-MM"
 
     public Budget() {
     }
 
-    public Budget(String userId, String category, double limit, String month) {
+    public Budget(String userId, String category, long limitCents, String month) {
         this.userId = userId;
         this.category = category;
-        this.limit = limit;
-        this.spent = 0.0;
+        setLimitCents(limitCents);
+        this.spentCents = 0;
         this.month = month;
     }
 
+    public Budget(Budget other) {
+        this.id = other.id;
+        this.userId = other.userId;
+        this.category = other.category;
+        this.limitCents = other.limitCents;
+        this.hasLimitCents = other.hasLimitCents;
+        this.spentCents = other.spentCents;
+        this.month = other.month;
+    }
+
     public String getId() {
         return id;
     }
@@ -43,20 +54,32 @@ public class Budget {
         this.category = category;
     }
 
+    public long getLimitCents() {
+        return limitCents;
+    }
+
+    public void setLimitCents(long limitCents) {
+        this.limitCents = limitCents;
+        this.hasLimitCents = true;
+    }
+
+    /** Legacy double limit, written next to limitCents and read from older documents. */
     public double getLimit() {
-        return limit;
+        return Money.toAmount(limitCents);
     }
 
     public void setLimit(double limit) {
-        this.limit = limit;
+        if (!hasLimitCents) {
+            this.limitCents = Money.toCents(limit);
+        }
     }
 
-    public double getSpent() {
-        return spent;
+    public long getSpentCents() {
+        return spentCents;
     }
 
-    public void setSpent(double spent) {
-        this.spent = spent;
+    public void setSpentCents(long spentCents) {
+        this.spentCents = spentCents;
     }
 
     public String getMonth() {
@@ -67,12 +90,12 @@ public class Budget {
         this.month = month;
     }
 
-    public double getRemaining() {
-        return limit - spent;
+    public long getRemainingCents() {
+        return limitCents - spentCents;
     }
 
     public int getPercentageUsed() {
-        if (limit == 0) return 0;
-        return (int) ((spent / limit) * 100);
+        if (limitCents == 0) return 0;
+        return (int) (spentCents * 100 / limitCents);
     }
 }
\ No newline at end of file
@@ -0,0 +1,217 @@
+package com.example.budgettracker.models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Process-wide table of category names, each interned to a small int id.
+ *
+ * The default income and expense categories take the first ids. Categories the user
+ * defines, and unknown names read from documents, are appended after them. Ids are
+ * never reused within a process, so arrays indexed by id stay valid as the table
+ * grows; size them with {@link #size()}.
+ */
+public final class CategoryDictionary {
+
+    public static final int NO_ID = -1;
+
+    private static final String[] DEFAULT_INCOME = {"Salary", "Business", "Investments", "Gifts", "Other Income"};
+    private static final String[] DEFAULT_EXPENSE = {"Food", "Transportation", "Shopping", "Entertainment",
+            "Bills", "Healthcare", "Education", "Travel", "Other Expense"};
+
+    private static final byte KIND_NONE = 0;
+    private static final byte KIND_INCOME = 1;
+    private static final byte KIND_EXPENSE = 2;
+
+    private static final CategoryDictionary INSTANCE = new CategoryDictionary();
+
+    // Written under the lock, replaced rather than modified so lookups never lock
+    private volatile IdTable ids = new IdTable(new String[0]);
+    private volatile String[] names = new String[0];
+    private byte[] kinds = new byte[0];
+    private boolean[] custom = new boolean[0];
+    private volatile Listing incomeListing;
+    private volatile Listing expenseListing;
+
+    CategoryDictionary() {
+        for (String name : DEFAULT_INCOME) {
+            define(name, KIND_INCOME, false);
+        }
+        for (String name : DEFAULT_EXPENSE) {
+            define(name, KIND_EXPENSE, false);
+        }
+        relist();
+    }
+
+    public static CategoryDictionary getInstance() {
+        return INSTANCE;
+    }
+
+    /** Id of {@code name}, interning it if it was never seen. A null name is treated as empty. */
+    public int idOf(String name) {
+        if (name == null) name = "";
+        int id = ids.get(name);
+        return id != NO_ID ? id : intern(name);
+    }
+
+    /** Id of {@code name}, or {@link #NO_ID} without interning it. */
+    public int find(String name) {
+        return name == null ? NO_ID : ids.get(name);
+    }
+
+    public String nameOf(int id) {
+        return names[id];
+    }
+
+    /** Number of ids handed out so far, the length for arrays indexed by id. */
+    public int size() {
+        return names.length;
+    }
+
+    /** Names offered for transactions of {@code type}: the defaults, then the user's own. */
+    public String[] namesFor(String type) {
+        return listing(type).names.clone();
+    }
+
+    /** Index of {@code name} in {@link #namesFor(String)}, or -1. O(1). */
+    public int positionIn(String type, String name) {
+        int id = find(name);
+        int[] positions = listing(type).positionById;
+        return id == NO_ID || id >= positions.length ? -1 : positions[id];
+    }
+
+    public boolean isCustom(String name) {
+        int id = find(name);
+        synchronized (this) {
+            return id != NO_ID && custom[id];
+        }
+    }
+
+    /** Offers {@code name} for transactions of {@code type}; false if it already is a category. */
+    public synchronized boolean addCustom(String name, String type) {
+        int id = find(name);
+        if (id != NO_ID && kinds[id] != KIND_NONE) return false;
+
+        define(name, kindOf(type), true);
+        relist();
+        return true;
+    }
+
+    /** Stops offering a user-defined category; its id stays, for documents that still use it. */
+    public synchronized boolean removeCustom(String name) {
+        int id = find(name);
+        if (id == NO_ID || !custom[id]) return false;
+
+        kinds[id] = KIND_NONE;
+        custom[id] = false;
+        relist();
+        return true;
+    }
+
+    /** Forgets every user-defined category, e.g. when another user signs in. */
+    public synchronized void clearCustom() {
+        for (int id = 0; id < custom.length; id++) {
+            if (custom[id]) {
+                kinds[id] = KIND_NONE;
+                custom[id] = false;
+            }
+        }
+        relist();
+    }
+
+    private synchronized int intern(String name) {
+        int id = ids.get(name);
+        return id != NO_ID ? id : define(name, KIND_NONE, false);
+    }
+
+    private int define(String name, byte kind, boolean isCustom) {
+        int id = ids.get(name);
+        if (id == NO_ID) {
+            id = names.length;
+            String[] grown = Arrays.copyOf(names, id + 1);
+            grown[id] = name;
+            kinds = Arrays.copyOf(kinds, id + 1);
+            custom = Arrays.copyOf(custom, id + 1);
+            names = grown;
+            ids = new IdTable(grown);
+        }
+        kinds[id] = kind;
+        custom[id] = isCustom;
+        return id;
+    }
+
+    private void relist() {
+        incomeListing = new Listing(KIND_INCOME);
+        expenseListing = new Listing(KIND_EXPENSE);
+    }
+
+    private Listing listing(String type) {
+        return kindOf(type) == KIND_INCOME ? incomeListing : expenseListing;
+    }
+
+    private static byte kindOf(String type) {
+        return "income".equals(type) ? KIND_INCOME : KIND_EXPENSE;
+    }
+
+    /**
+     * Open-addressed name to id table. Aggregations look up one name per transaction,
+     * and this avoids the entry objects and boxed ids of a HashMap. Names are usually
+     * the same String instances, so most probes end at the identity check.
+     */
+    private static final class IdTable {
+        final String[] keys;
+        final int[] values;
+        final int mask;
+
+        IdTable(String[] names) {
+            int capacity = Integer.highestOneBit(Math.max(16, names.length * 4) - 1) << 1;
+            keys = new String[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+            for (int id = 0; id < names.length; id++) {
+                int slot = slot(names[id]);
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = names[id];
+                values[slot] = id;
+            }
+        }
+
+        int get(String name) {
+            int slot = slot(name);
+            String key;
+            while ((key = keys[slot]) != null) {
+                if (key == name || key.equals(name)) return values[slot];
+                slot = (slot + 1) & mask;
+            }
+            return NO_ID;
+        }
+
+        private int slot(String name) {
+            int hash = name.hashCode();
+            return (hash ^ (hash >>> 16)) & mask;
+        }
+    }
+
+    /** Spinner entries of one type and the position of each id among them. */
+    private final class Listing {
+        final String[] names;
+        final int[] positionById;
+
+        Listing(byte kind) {
+            String[] all = CategoryDictionary.this.names;
+            List<String> listed = new ArrayList<>();
+            positionById = new int[all.length];
+            Arrays.fill(positionById, -1);
+            for (int id = 0; id < all.length; id++) {
+                if (kinds[id] == kind) {
+                    positionById[id] = listed.size();
+                    listed.add(all[id]);
+                }
+            }
+            names = listed.toArray(new String[0]);
+        }
+    }
+}
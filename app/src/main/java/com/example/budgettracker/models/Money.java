@@ -0,0 +1,49 @@
+package com.example.budgettracker.models;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Amounts are stored as whole cents in a {@code long}, so sums are exact and never box.
+ * These helpers convert at the edges: user input, display and legacy double fields.
+ */
+public final class Money {
+
+    private Money() {
+    }
+
+    /** Cents of a legacy double amount, rounded to the nearest cent. */
+    public static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    public static double toAmount(long cents) {
+        return cents / 100.0;
+    }
+
+    /**
+     * Parses user input such as "12", "12.5" or "12.345" into cents, rounding half up.
+     *
+     * @throws NumberFormatException if {@code text} is not a number or does not fit in cents
+     */
+    public static long parseCents(String text) {
+        try {
+            return new BigDecimal(text.trim())
+                    .setScale(2, RoundingMode.HALF_UP)
+                    .movePointRight(2)
+                    .longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount out of range: " + text);
+        }
+    }
+
+    /** Exact decimal value of {@code cents}, e.g. for currency formatting. */
+    public static BigDecimal toDecimal(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    /** "12.50" for 1250 cents, suitable for prefilling an amount field. */
+    public static String toPlainString(long cents) {
+        return toDecimal(cents).toPlainString();
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.budgettracker.models;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+
+public class MonthlyRollup {
+    /** Version 2 holds amounts in cents; older rollups are rebuilt when read. */
+    public static final long VERSION = 2;
+
+    private String userId;
+    private String month; // Format: "YYYY-MM"
+    private long totalIncomeCents;
+    private long totalExpenseCents;
+    private long transactionCount;
+    private boolean complete; // true once rebuilt from raw transactions
+    private long version;
+    private long revision; // bumped by every write, see MonthlyRollupRepository#rebuild
+    private Map<String, Long> incomeCentsByCategory = new HashMap<>();
+    private Map<String, Long> expenseCentsByCategory = new HashMap<>();
+
+    public MonthlyRollup() {
+    }
+
+    public MonthlyRollup(String userId, String month) {
+        this.userId = userId;
+        this.month = month;
+    }
+
+    public static String documentId(String userId, String month) {
+        return userId + "_" + month;
+    }
+
+    public static String monthKey(long timestamp) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(timestamp);
+        int month = calendar.get(Calendar.MONTH) + 1;
+        return calendar.get(Calendar.YEAR) + (month < 10 ? "-0" : "-") + month;
+    }
+
+    /** True if {@code rollup} was rebuilt from raw transactions in the current format. */
+    public static boolean isUsable(MonthlyRollup rollup) {
+        return rollup != null && rollup.complete && rollup.version >= VERSION;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getMonth() {
+        return month;
+    }
+
+    public void setMonth(String month) {
+        this.month = month;
+    }
+
+    public long getTotalIncomeCents() {
+        return totalIncomeCents;
+    }
+
+    public void setTotalIncomeCents(long totalIncomeCents) {
+        this.totalIncomeCents = totalIncomeCents;
+    }
+
+    public long getTotalExpenseCents() {
+        return totalExpenseCents;
+    }
+
+    public void setTotalExpenseCents(long totalExpenseCents) {
+        this.totalExpenseCents = totalExpenseCents;
+    }
+
+    public long getTransactionCount() {
+        return transactionCount;
+    }
+
+    public void setTransactionCount(long transactionCount) {
+        this.transactionCount = transactionCount;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(long revision) {
+        this.revision = revision;
+    }
+
+    public Map<String, Long> getIncomeCentsByCategory() {
+        return incomeCentsByCategory;
+    }
+
+    public void setIncomeCentsByCategory(Map<String, Long> incomeCentsByCategory) {
+        this.incomeCentsByCategory = incomeCentsByCategory;
+    }
+
+    public Map<String, Long> getExpenseCentsByCategory() {
+        return expenseCentsByCategory;
+    }
+
+    public void setExpenseCentsByCategory(Map<String, Long> expenseCentsByCategory) {
+        this.expenseCentsByCategory = expenseCentsByCategory;
+    }
+
+    public long getExpenseCentsFor(String category) {
+        Long spent = expenseCentsByCategory == null ? null : expenseCentsByCategory.get(category);
+        return spent == null ? 0 : spent;
+    }
+}
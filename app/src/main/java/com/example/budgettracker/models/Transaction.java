@@ -6,7 +6,8 @@ public class Transaction {
     private String id;
     private String userId;
     private String type; // "income" or "expense"
-    private double amount;
+    private long amountCents;
+    private boolean hasAmountCents; // set once amountCents was read, legacy "amount" is ignored then
     private String category;
     private String description;
     private Date date;
@@ -15,10 +16,10 @@ public class Transaction {
     public Transaction() {
     }
 
-    public Transaction(String userId, String type, double amount, String category, String description, Date date) {
+    public Transaction(String userId, String type, long amountCents, String category, String description, Date date) {
         this.userId = userId;
         this.type = type;
-        this.amount = amount;
+        setAmountCents(amountCents);
         this.category = category;
         this.description = description;
         this.date = date;
@@ -49,12 +50,27 @@ public class Transaction {
         this.type = type;
     }
 
+    public long getAmountCents() {
+        return amountCents;
+    }
+
+    public void setAmountCents(long amountCents) {
+        this.amountCents = amountCents;
+        this.hasAmountCents = true;
+    }
+
+    /**
+     * Legacy double amount. Still written next to amountCents so older app versions can read
+     * new documents; documents written before amountCents existed are read through it.
+     */
     public double getAmount() {
-        return amount;
+        return Money.toAmount(amountCents);
     }
 
     public void setAmount(double amount) {
-        this.amount = amount;
+        if (!hasAmountCents) {
+            this.amountCents = Money.toCents(amount);
+        }
     }
 
     public String getCategory() {
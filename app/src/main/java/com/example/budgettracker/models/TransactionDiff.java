@@ -0,0 +1,100 @@
+package com.example.budgettracker.models;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The document fields that differ between a stored transaction and its edited version,
+ * ready for a Firestore {@code update()}. Fields that did not change are left out, so an
+ * edit of the description writes only the description and an unchanged save writes
+ * nothing.
+ */
+public final class TransactionDiff {
+
+    private final Map<String, Object> changes;
+    private final boolean affectsRollups;
+
+    private TransactionDiff(Map<String, Object> changes, boolean affectsRollups) {
+        this.changes = changes;
+        this.affectsRollups = affectsRollups;
+    }
+
+    public static TransactionDiff between(Transaction before, Transaction after) {
+        Map<String, Object> changes = new HashMap<>();
+        boolean affectsRollups = false;
+
+        if (!equal(before.getType(), after.getType())) {
+            changes.put("type", after.getType());
+            affectsRollups = true;
+        }
+        if (before.getAmountCents() != after.getAmountCents()) {
+            changes.put("amountCents", after.getAmountCents());
+            // Kept in step for older app versions, see Transaction#getAmount
+            changes.put("amount", after.getAmount());
+            affectsRollups = true;
+        }
+        if (!equal(before.getCategory(), after.getCategory())) {
+            changes.put("category", after.getCategory());
+            affectsRollups = true;
+        }
+        if (!equal(before.getDescription(), after.getDescription())) {
+            changes.put("description", after.getDescription());
+        }
+        if (before.getTimestamp() != after.getTimestamp()) {
+            changes.put("date", after.getDate());
+            changes.put("timestamp", after.getTimestamp());
+            // Rollups are per month, moving a transaction within its month leaves them as they are
+            affectsRollups |= !MonthlyRollup.monthKey(before.getTimestamp())
+                    .equals(MonthlyRollup.monthKey(after.getTimestamp()));
+        }
+        return new TransactionDiff(changes, affectsRollups);
+    }
+
+    /**
+     * Copy of {@code stored} with this diff's fields taken over, e.g. to apply the fields a
+     * user edited on a stale copy to the current version of the document and keep the
+     * changes made elsewhere to the other fields.
+     */
+    public Transaction applyTo(Transaction stored) {
+        Transaction result = new Transaction(stored.getUserId(), stored.getType(), stored.getAmountCents(),
+                stored.getCategory(), stored.getDescription(), stored.getDate());
+        result.setId(stored.getId());
+        result.setTimestamp(stored.getTimestamp());
+        if (changes.containsKey("type")) {
+            result.setType((String) changes.get("type"));
+        }
+        if (changes.containsKey("amountCents")) {
+            result.setAmountCents((Long) changes.get("amountCents"));
+        }
+        if (changes.containsKey("category")) {
+            result.setCategory((String) changes.get("category"));
+        }
+        if (changes.containsKey("description")) {
+            result.setDescription((String) changes.get("description"));
+        }
+        if (changes.containsKey("date")) {
+            result.setDate((Date) changes.get("date"));
+        }
+        return result;
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    /** True if the amount, type, category or month changed, i.e. the monthly rollups must move. */
+    public boolean affectsRollups() {
+        return affectsRollups;
+    }
+
+    /** Field name to new value, for {@code DocumentReference.update(Map)}. */
+    public Map<String, Object> getChanges() {
+        return Collections.unmodifiableMap(changes);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.budgettracker.transfer;
+
+import com.example.budgettracker.models.CategoryDictionary;
+
+import java.util.Locale;
+
+/**
+ * Maps the category and description of an imported row to one of the app's categories.
+ *
+ * A category that already exists for the row's type is kept, ignoring case. Otherwise
+ * the first keyword found in the category or description decides, and rows that match
+ * nothing go to "Other Income" or "Other Expense".
+ */
+public class CategoryMapper {
+
+    private static final String OTHER_INCOME = "Other Income";
+    private static final String OTHER_EXPENSE = "Other Expense";
+
+    // Keyword, category; checked in order
+    private static final String[][] INCOME_KEYWORDS = {
+            {"salary", "Salary"}, {"payroll", "Salary"}, {"wage", "Salary"},
+            {"dividend", "Investments"}, {"interest", "Investments"}, {"invest", "Investments"},
+            {"gift", "Gifts"},
+            {"invoice", "Business"}, {"client", "Business"}, {"freelance", "Business"},
+    };
+    private static final String[][] EXPENSE_KEYWORDS = {
+            {"grocer", "Food"}, {"restaurant", "Food"}, {"cafe", "Food"}, {"coffee", "Food"},
+            {"food", "Food"}, {"supermarket", "Food"}, {"dining", "Food"},
+            {"uber", "Transportation"}, {"taxi", "Transportation"}, {"fuel", "Transportation"},
+            {"gas station", "Transportation"}, {"parking", "Transportation"}, {"transit", "Transportation"},
+            {"airline", "Travel"}, {"hotel", "Travel"}, {"travel", "Travel"},
+            {"rent", "Bills"}, {"electric", "Bills"}, {"utilit", "Bills"}, {"phone", "Bills"},
+            {"internet", "Bills"}, {"insurance", "Bills"}, {"bill", "Bills"},
+            {"pharmacy", "Healthcare"}, {"doctor", "Healthcare"}, {"clinic", "Healthcare"},
+            {"dental", "Healthcare"}, {"health", "Healthcare"},
+            {"tuition", "Education"}, {"school", "Education"}, {"course", "Education"}, {"book", "Education"},
+            {"cinema", "Entertainment"}, {"movie", "Entertainment"}, {"netflix", "Entertainment"},
+            {"spotify", "Entertainment"}, {"game", "Entertainment"},
+            {"amazon", "Shopping"}, {"store", "Shopping"}, {"shop", "Shopping"}, {"clothing", "Shopping"},
+    };
+
+    private final CategoryDictionary categories;
+
+    public CategoryMapper(CategoryDictionary categories) {
+        this.categories = categories;
+    }
+
+    /** {@code type} is "income" or "expense"; category and description may be null. */
+    public String map(String category, String description, String type) {
+        boolean income = "income".equals(type);
+
+        if (category != null && !category.isEmpty()) {
+            // Files exported by this app use the exact names
+            if (categories.positionIn(type, category) >= 0) return category;
+            for (String name : categories.namesFor(type)) {
+                if (name.equalsIgnoreCase(category.trim())) return name;
+            }
+        }
+
+        String text = ((category != null ? category : "") + " " + (description != null ? description : ""))
+                .toLowerCase(Locale.ROOT);
+        for (String[] rule : income ? INCOME_KEYWORDS : EXPENSE_KEYWORDS) {
+            if (text.contains(rule[0])) return rule[1];
+        }
+        return income ? OTHER_INCOME : OTHER_EXPENSE;
+    }
+}
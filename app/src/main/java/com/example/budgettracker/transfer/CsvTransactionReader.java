@@ -0,0 +1,273 @@
+package com.example.budgettracker.transfer;
+
+import com.example.budgettracker.models.Money;
+import com.example.budgettracker.models.Transaction;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Streams transactions out of a CSV file with a header row. Only the current row is
+ * held in memory.
+ *
+ * Columns are found by their header, in any order: a timestamp or date, a signed amount
+ * or separate debit and credit columns, and optionally a description, category and
+ * type. Without a type column negative amounts are expenses. Quoted fields may contain
+ * commas, doubled quotes and line breaks (RFC 4180).
+ */
+public class CsvTransactionReader implements TransactionReader {
+
+    private static final String[] TIMESTAMP_HEADERS = {"timestamp"};
+    private static final String[] DATE_HEADERS = {"date", "transaction date", "posted date", "posting date",
+            "booking date", "value date"};
+    private static final String[] AMOUNT_HEADERS = {"amount", "value", "sum"};
+    private static final String[] DEBIT_HEADERS = {"debit", "withdrawal", "withdrawals", "money out", "paid out"};
+    private static final String[] CREDIT_HEADERS = {"credit", "deposit", "deposits", "money in", "paid in"};
+    private static final String[] DESCRIPTION_HEADERS = {"description", "memo", "payee", "name", "details",
+            "narrative", "reference"};
+    private static final String[] CATEGORY_HEADERS = {"category"};
+    private static final String[] TYPE_HEADERS = {"type", "transaction type"};
+
+    private static final String[] DATE_PATTERNS = {"yyyy-MM-dd", "yyyy-MM-dd'T'HH:mm:ss", "yyyy-MM-dd HH:mm:ss",
+            "MM/dd/yyyy", "dd.MM.yyyy", "yyyy/MM/dd"};
+
+    private final BufferedReader in;
+    private final CategoryMapper categoryMapper;
+    private final SimpleDateFormat[] dateFormats = new SimpleDateFormat[DATE_PATTERNS.length];
+    private int lastDateFormat = 0;
+
+    private final List<String> fields = new ArrayList<>();
+    private final StringBuilder field = new StringBuilder();
+    private int skipped = 0;
+
+    private final int timestampColumn;
+    private final int dateColumn;
+    private final int amountColumn;
+    private final int debitColumn;
+    private final int creditColumn;
+    private final int descriptionColumn;
+    private final int categoryColumn;
+    private final int typeColumn;
+
+    /** @throws IOException if the file has no header with a date and an amount column */
+    public CsvTransactionReader(Reader in, CategoryMapper categoryMapper) throws IOException {
+        this.in = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+        this.categoryMapper = categoryMapper;
+        for (int i = 0; i < DATE_PATTERNS.length; i++) {
+            dateFormats[i] = new SimpleDateFormat(DATE_PATTERNS[i], Locale.US);
+            dateFormats[i].setLenient(false);
+        }
+
+        if (!readRecord()) {
+            throw new IOException("The file is empty");
+        }
+        List<String> header = new ArrayList<>();
+        for (String name : fields) {
+            // A byte order mark survives decoding
+            header.add(name.replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT));
+        }
+
+        timestampColumn = find(header, TIMESTAMP_HEADERS);
+        dateColumn = find(header, DATE_HEADERS);
+        amountColumn = find(header, AMOUNT_HEADERS);
+        debitColumn = find(header, DEBIT_HEADERS);
+        creditColumn = find(header, CREDIT_HEADERS);
+        descriptionColumn = find(header, DESCRIPTION_HEADERS);
+        categoryColumn = find(header, CATEGORY_HEADERS);
+        typeColumn = find(header, TYPE_HEADERS);
+
+        if (timestampColumn < 0 && dateColumn < 0) {
+            throw new IOException("No date column in the header");
+        }
+        if (amountColumn < 0 && debitColumn < 0 && creditColumn < 0) {
+            throw new IOException("No amount column in the header");
+        }
+    }
+
+    private static int find(List<String> header, String[] names) {
+        for (String name : names) {
+            int column = header.indexOf(name);
+            if (column >= 0) return column;
+        }
+        return -1;
+    }
+
+    @Override
+    public Transaction next() throws IOException {
+        while (readRecord()) {
+            if (fields.size() == 1 && fields.get(0).trim().isEmpty()) continue;
+
+            Transaction transaction = toTransaction();
+            if (transaction != null) return transaction;
+            skipped++;
+        }
+        return null;
+    }
+
+    @Override
+    public int getSkippedCount() {
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private Transaction toTransaction() {
+        Date date = timestampColumn >= 0 ? parseDate(field(timestampColumn)) : null;
+        if (date == null && dateColumn >= 0) {
+            date = parseDate(field(dateColumn));
+        }
+        if (date == null) return null;
+
+        long cents;
+        try {
+            if (amountColumn >= 0) {
+                cents = parseAmount(field(amountColumn));
+            } else {
+                // Separate columns, one of them is empty on every row
+                String credit = field(creditColumn);
+                String debit = field(debitColumn);
+                cents = (credit.isEmpty() ? 0 : Math.abs(parseAmount(credit)))
+                        - (debit.isEmpty() ? 0 : Math.abs(parseAmount(debit)));
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        String type = typeOf(field(typeColumn), cents);
+        String description = field(descriptionColumn);
+        String category = categoryMapper.map(field(categoryColumn), description, type);
+        if (description.isEmpty()) {
+            description = category;
+        }
+        return new Transaction(null, type, Math.abs(cents), category, description, date);
+    }
+
+    private String field(int column) {
+        return column >= 0 && column < fields.size() ? fields.get(column).trim() : "";
+    }
+
+    private static String typeOf(String type, long cents) {
+        String lower = type.toLowerCase(Locale.ROOT);
+        if (lower.contains("income") || lower.contains("credit") || lower.contains("deposit")) return "income";
+        if (lower.contains("expense") || lower.contains("debit") || lower.contains("withdrawal")
+                || lower.contains("payment")) {
+            return "expense";
+        }
+        return cents < 0 ? "expense" : "income";
+    }
+
+    /** Signed cents of amounts like "-1,234.56", "(12.00)", "$ 5" or "12,50". */
+    static long parseAmount(String text) {
+        String value = text.trim();
+        boolean negative = false;
+        if (value.startsWith("(") && value.endsWith(")")) {
+            negative = true;
+            value = value.substring(1, value.length() - 1);
+        }
+
+        StringBuilder number = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c >= '0' && c <= '9') || c == '.' || c == ',' || c == '-' || c == '+') {
+                number.append(c);
+            }
+        }
+        String digits = number.toString();
+        int comma = digits.lastIndexOf(',');
+        if (comma >= 0 && digits.indexOf('.') < 0 && digits.length() - comma == 3) {
+            // Decimal comma
+            digits = digits.substring(0, comma) + "." + digits.substring(comma + 1);
+        }
+        digits = digits.replace(",", "");
+        if (digits.isEmpty()) {
+            throw new NumberFormatException("No amount: " + text);
+        }
+
+        long cents = Money.parseCents(digits);
+        return negative ? -Math.abs(cents) : cents;
+    }
+
+    private Date parseDate(String text) {
+        if (text.isEmpty()) return null;
+
+        if (isDigits(text) && text.length() >= 10) {
+            // Epoch seconds, as most exports write them, or epoch millis; other lengths are ambiguous
+            if (text.length() == 10) return new Date(Long.parseLong(text) * 1000);
+            if (text.length() == 13) return new Date(Long.parseLong(text));
+            return null;
+        }
+        // Files use one format throughout, try the one that matched last first
+        for (int i = 0; i < dateFormats.length; i++) {
+            int index = (lastDateFormat + i) % dateFormats.length;
+            ParsePosition position = new ParsePosition(0);
+            Date date = dateFormats[index].parse(text, position);
+            if (date != null && position.getIndex() == text.length()) {
+                lastDateFormat = index;
+                return date;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isDigits(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    /** Reads the next record into {@link #fields}; false at the end of the input. */
+    private boolean readRecord() throws IOException {
+        String line = in.readLine();
+        if (line == null) return false;
+
+        fields.clear();
+        field.setLength(0);
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if (i == line.length()) {
+                if (!quoted) break;
+                // A quoted field continues on the next line
+                String next = in.readLine();
+                if (next == null) break;
+                field.append('\n');
+                line = next;
+                i = 0;
+                continue;
+            }
+
+            char c = line.charAt(i++);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i < line.length() && line.charAt(i) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return true;
+    }
+}
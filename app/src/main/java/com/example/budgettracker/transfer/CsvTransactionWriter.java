@@ -0,0 +1,109 @@
+package com.example.budgettracker.transfer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Locale;
+
+/**
+ * Writes transactions as CSV with the columns id, date, timestamp, type, amount,
+ * category and description. {@link CsvTransactionReader} reads the file back with the
+ * exact timestamps; the date column is for spreadsheets.
+ */
+public class CsvTransactionWriter implements TransactionWriter {
+
+    static final String HEADER = "id,date,timestamp,type,amount,category,description";
+
+    private final Writer out;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+    private final Calendar calendar = Calendar.getInstance();
+    // Exports run in timestamp order, so consecutive rows mostly share the day
+    private long dayStart = Long.MAX_VALUE;
+    private long dayEnd = Long.MIN_VALUE;
+    private String day;
+    private int written = 0;
+
+    public CsvTransactionWriter(Writer out) throws IOException {
+        this.out = out;
+        out.write(HEADER);
+        out.write('\n');
+    }
+
+    @Override
+    public void write(String id, long timestamp, String type, long amountCents, String category,
+                      String description) throws IOException {
+        writeField(id);
+        out.write(',');
+        out.write(dayOf(timestamp));
+        out.write(',');
+        out.write(Long.toString(timestamp));
+        out.write(',');
+        writeField(type);
+        out.write(',');
+        writeAmount(out, amountCents);
+        out.write(',');
+        writeField(category);
+        out.write(',');
+        writeField(description);
+        out.write('\n');
+        written++;
+    }
+
+    @Override
+    public int getWrittenCount() {
+        return written;
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private String dayOf(long timestamp) {
+        if (timestamp < dayStart || timestamp >= dayEnd) {
+            calendar.setTimeInMillis(timestamp);
+            calendar.set(Calendar.HOUR_OF_DAY, 0);
+            calendar.set(Calendar.MINUTE, 0);
+            calendar.set(Calendar.SECOND, 0);
+            calendar.set(Calendar.MILLISECOND, 0);
+            dayStart = calendar.getTimeInMillis();
+            day = dateFormat.format(calendar.getTime());
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+            dayEnd = calendar.getTimeInMillis();
+        }
+        return day;
+    }
+
+    private void writeField(String value) throws IOException {
+        if (value == null) return;
+
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    /** "12.50" for 1250 cents, without going through BigDecimal. */
+    static void writeAmount(Writer out, long cents) throws IOException {
+        if (cents < 0) {
+            out.write('-');
+            cents = -cents;
+        }
+        out.write(Long.toString(cents / 100));
+        out.write('.');
+        long fraction = cents % 100;
+        if (fraction < 10) {
+            out.write('0');
+        }
+        out.write(Long.toString(fraction));
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.budgettracker.transfer;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes transactions as a JSON array of objects with the fields id, timestamp, type,
+ * amountCents, category and description, one object per line.
+ */
+public class JsonTransactionWriter implements TransactionWriter {
+
+    private final Writer out;
+    private int written = 0;
+
+    public JsonTransactionWriter(Writer out) throws IOException {
+        this.out = out;
+        out.write('[');
+    }
+
+    @Override
+    public void write(String id, long timestamp, String type, long amountCents, String category,
+                      String description) throws IOException {
+        out.write(written == 0 ? "\n" : ",\n");
+        out.write("{\"id\":");
+        writeString(id);
+        out.write(",\"timestamp\":");
+        out.write(Long.toString(timestamp));
+        out.write(",\"type\":");
+        writeString(type);
+        out.write(",\"amountCents\":");
+        out.write(Long.toString(amountCents));
+        out.write(",\"category\":");
+        writeString(category);
+        out.write(",\"description\":");
+        writeString(description);
+        out.write('}');
+        written++;
+    }
+
+    @Override
+    public int getWrittenCount() {
+        return written;
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.write("\n]\n");
+        out.close();
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            out.write("null");
+            return;
+        }
+
+        out.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') continue;
+
+            // Copy the run of plain characters, then the escape
+            out.write(value, start, i - start);
+            start = i + 1;
+            switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    out.write(String.format("\\u%04x", (int) c));
+                    break;
+            }
+        }
+        out.write(value, start, value.length() - start);
+        out.write('"');
+    }
+}
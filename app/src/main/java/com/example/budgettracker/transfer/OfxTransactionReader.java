@@ -0,0 +1,198 @@
+package com.example.budgettracker.transfer;
+
+import com.example.budgettracker.models.Money;
+import com.example.budgettracker.models.Transaction;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.SimpleTimeZone;
+import java.util.TimeZone;
+
+/**
+ * Streams the statement transactions ({@code <STMTTRN>} blocks) out of an OFX file, both
+ * the SGML form of OFX 1.x, where leaf elements are not closed, and the XML form of
+ * OFX 2.x. Only the block being read is held in memory.
+ *
+ * TRNAMT is signed, so negative amounts are expenses. NAME becomes the description
+ * (MEMO if there is no NAME) and both are used to pick the category.
+ */
+public class OfxTransactionReader implements TransactionReader {
+
+    private final BufferedReader in;
+    private final CategoryMapper categoryMapper;
+    private final StringBuilder buffer = new StringBuilder();
+    private String text = "";
+    private int skipped = 0;
+
+    public OfxTransactionReader(Reader in, CategoryMapper categoryMapper) {
+        this.in = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+        this.categoryMapper = categoryMapper;
+    }
+
+    @Override
+    public Transaction next() throws IOException {
+        String tag;
+        while ((tag = nextTag()) != null) {
+            if (!tag.equals("STMTTRN")) continue;
+
+            Transaction transaction = readTransaction();
+            if (transaction != null) return transaction;
+            skipped++;
+        }
+        return null;
+    }
+
+    @Override
+    public int getSkippedCount() {
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private Transaction readTransaction() throws IOException {
+        String posted = null;
+        String amount = null;
+        String name = null;
+        String memo = null;
+
+        String tag;
+        while ((tag = nextTag()) != null && !tag.equals("/STMTTRN")) {
+            switch (tag) {
+                case "DTPOSTED":
+                    posted = text;
+                    break;
+                case "TRNAMT":
+                    amount = text;
+                    break;
+                case "NAME":
+                    name = text;
+                    break;
+                case "MEMO":
+                    memo = text;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        Date date = posted != null ? parseDate(posted) : null;
+        if (date == null || amount == null || amount.isEmpty()) return null;
+
+        long cents;
+        try {
+            cents = Money.parseCents(amount.replace(',', '.'));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        String type = cents < 0 ? "expense" : "income";
+        String description = name != null && !name.isEmpty() ? name : (memo != null ? memo : "");
+        String category = categoryMapper.map(null, description + " " + (memo != null ? memo : ""), type);
+        if (description.isEmpty()) {
+            description = category;
+        }
+        return new Transaction(null, type, Math.abs(cents), category, description, date);
+    }
+
+    /**
+     * Reads up to and including the next tag and returns its upper-case name, with a
+     * leading '/' for closing tags, or null at the end of the input. The text after the
+     * tag, up to the next one, is left in {@link #text}.
+     */
+    private String nextTag() throws IOException {
+        int c;
+        while (true) {
+            // Skip to the next '<', the text before it belongs to the previous tag
+            while ((c = in.read()) != -1 && c != '<') { }
+            if (c == -1) return null;
+
+            buffer.setLength(0);
+            while ((c = in.read()) != -1 && c != '>') {
+                buffer.append((char) c);
+            }
+            if (c == -1) return null;
+
+            String tag = buffer.toString().trim();
+            // Processing instructions, comments and the OFX 2 header
+            if (tag.startsWith("?") || tag.startsWith("!")) continue;
+            int space = tag.indexOf(' ');
+            if (space >= 0) tag = tag.substring(0, space);
+            tag = tag.toUpperCase(Locale.ROOT);
+
+            readText();
+            return tag;
+        }
+    }
+
+    private void readText() throws IOException {
+        buffer.setLength(0);
+        in.mark(1);
+        int c;
+        while ((c = in.read()) != -1 && c != '<') {
+            buffer.append((char) c);
+            in.mark(1);
+        }
+        if (c == '<') {
+            in.reset();
+        }
+        text = unescape(buffer.toString().trim());
+    }
+
+    private static String unescape(String value) {
+        if (value.indexOf('&') < 0) return value;
+        return value.replace("&lt;", "<")
+                .replace("&gt;", ">")
+                .replace("&quot;", "\"")
+                .replace("&apos;", "'")
+                .replace("&amp;", "&");
+    }
+
+    /** Dates like 20240131, 20240131120000 or 20240131120000.000[-5:EST]. */
+    static Date parseDate(String value) {
+        if (value.length() < 8) return null;
+        for (int i = 0; i < 8; i++) {
+            if (!Character.isDigit(value.charAt(i))) return null;
+        }
+
+        TimeZone zone = TimeZone.getDefault();
+        int bracket = value.indexOf('[');
+        if (bracket >= 0) {
+            int end = value.indexOf(':', bracket);
+            if (end < 0) end = value.indexOf(']', bracket);
+            if (end < 0) return null;
+            String offset = value.substring(bracket + 1, end);
+            try {
+                float hours = Float.parseFloat(offset);
+                zone = new SimpleTimeZone(Math.round(hours * 3600_000f), "OFX");
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            value = value.substring(0, bracket);
+        }
+
+        Calendar calendar = Calendar.getInstance(zone);
+        calendar.clear();
+        calendar.setLenient(false);
+        try {
+            calendar.set(Integer.parseInt(value.substring(0, 4)),
+                    Integer.parseInt(value.substring(4, 6)) - 1,
+                    Integer.parseInt(value.substring(6, 8)));
+            if (value.length() >= 14) {
+                calendar.set(Calendar.HOUR_OF_DAY, Integer.parseInt(value.substring(8, 10)));
+                calendar.set(Calendar.MINUTE, Integer.parseInt(value.substring(10, 12)));
+                calendar.set(Calendar.SECOND, Integer.parseInt(value.substring(12, 14)));
+            }
+            return calendar.getTime();
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            // Not a number, or out of range for the non-lenient calendar
+            return null;
+        }
+    }
+}
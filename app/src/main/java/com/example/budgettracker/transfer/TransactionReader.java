@@ -0,0 +1,40 @@
+package com.example.budgettracker.transfer;
+
+import com.example.budgettracker.models.Transaction;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Locale;
+
+/**
+ * Reads transactions from an import file one at a time, so that a file of any size is
+ * read with constant memory.
+ */
+public interface TransactionReader extends Closeable {
+
+    /** A reader for {@code in}, OFX if the file starts like one and CSV otherwise. */
+    static TransactionReader open(Reader in, CategoryMapper categoryMapper) throws IOException {
+        BufferedReader buffered = new BufferedReader(in);
+        char[] start = new char[256];
+        buffered.mark(start.length);
+        int length = buffered.read(start, 0, start.length);
+        buffered.reset();
+
+        String head = length > 0 ? new String(start, 0, length) : "";
+        head = head.replace("\uFEFF", "").trim().toUpperCase(Locale.ROOT);
+        if (head.startsWith("OFXHEADER") || head.startsWith("<OFX") || head.contains("<?OFX")) {
+            return new OfxTransactionReader(buffered, categoryMapper);
+        }
+        return new CsvTransactionReader(buffered, categoryMapper);
+    }
+
+    /**
+     * The next transaction, without id or user, or null at the end of the input. Rows
+     * that cannot be read, e.g. a bank's summary lines, are skipped and counted.
+     */
+    Transaction next() throws IOException;
+
+    int getSkippedCount();
+}
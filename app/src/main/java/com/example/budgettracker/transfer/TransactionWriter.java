@@ -0,0 +1,51 @@
+package com.example.budgettracker.transfer;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes exported transactions one at a time, so that a history of any size is written
+ * with constant memory. {@link #close()} finishes the file.
+ */
+public interface TransactionWriter extends Closeable {
+
+    enum Format {
+        CSV("csv", "text/csv"),
+        JSON("json", "application/json");
+
+        private final String extension;
+        private final String mimeType;
+
+        Format(String extension, String mimeType) {
+            this.extension = extension;
+            this.mimeType = mimeType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public String getMimeType() {
+            return mimeType;
+        }
+    }
+
+    /** A buffered writer of {@code format} to {@code out}, gzip-compressed if {@code gzip}. */
+    static TransactionWriter open(OutputStream out, Format format, boolean gzip) throws IOException {
+        OutputStream stream = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), 64 * 1024);
+        return format == Format.JSON ? new JsonTransactionWriter(writer) : new CsvTransactionWriter(writer);
+    }
+
+    /** {@code type} is "income" or "expense"; category and description may be null. */
+    void write(String id, long timestamp, String type, long amountCents, String category, String description)
+            throws IOException;
+
+    int getWrittenCount();
+}
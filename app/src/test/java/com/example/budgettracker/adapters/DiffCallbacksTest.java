@@ -0,0 +1,72 @@
+package com.example.budgettracker.adapters;
+
+import com.example.budgettracker.aggregation.TransactionStore;
+import com.example.budgettracker.models.Budget;
+import com.example.budgettracker.models.Transaction;
+
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+public class DiffCallbacksTest {
+
+    private static Transaction transaction(String id, long amountCents, String description) {
+        Transaction transaction = new Transaction("user", "expense", amountCents, "Food", description, new Date(1000L));
+        transaction.setId(id);
+        return transaction;
+    }
+
+    @Test
+    public void transaction_sameIdDifferentAmount_isSameItemWithChangedContents() {
+        Transaction before = transaction("t1", 1000, "Lunch");
+        Transaction after = transaction("t1", 1200, "Lunch");
+
+        assertTrue(TransactionAdapter.DIFF_CALLBACK.areItemsTheSame(before, after));
+        assertFalse(TransactionAdapter.DIFF_CALLBACK.areContentsTheSame(before, after));
+        assertTrue(TransactionAdapter.DIFF_CALLBACK.areContentsTheSame(before, transaction("t1", 1000, "Lunch")));
+        assertFalse(TransactionAdapter.DIFF_CALLBACK.areItemsTheSame(before, transaction("t2", 1000, "Lunch")));
+    }
+
+    @Test
+    public void budget_copyTakenBeforeSpentChange_detectsTheChange() {
+        Budget budget = new Budget("user", "Food", 10000, "2024-03");
+        budget.setId("b1");
+        Budget shown = new Budget(budget);
+
+        budget.setSpentCents(4000);
+
+        assertTrue(BudgetAdapter.DIFF_CALLBACK.areItemsTheSame(shown, budget));
+        assertFalse(BudgetAdapter.DIFF_CALLBACK.areContentsTheSame(shown, budget));
+    }
+
+    @Test
+    public void rowDiff_replacedRowIsSameItemWithChangedContents() {
+        TransactionStore.Builder builder = new TransactionStore.Builder()
+                .append("t1", 2000, 1000, "Food", TransactionStore.TYPE_EXPENSE, "Lunch")
+                .append("t2", 1000, 500, "Food", TransactionStore.TYPE_EXPENSE, "Coffee");
+        TransactionStore before = builder.build();
+        builder.remove(1).append("t2", 1000, 700, "Food", TransactionStore.TYPE_EXPENSE, "Coffee");
+        TransactionStore after = builder.build();
+
+        TransactionHistoryAdapter.RowDiff diff = new TransactionHistoryAdapter.RowDiff(before, null, after, new int[]{1});
+
+        assertEquals(2, diff.getOldListSize());
+        assertEquals(1, diff.getNewListSize());
+        assertTrue(diff.areItemsTheSame(1, 0));
+        assertFalse(diff.areContentsTheSame(1, 0));
+        assertFalse(diff.areItemsTheSame(0, 0));
+    }
+
+    @Test
+    public void stableIds_areDistinctPerDocumentAndRepeatable() {
+        StableIds ids = new StableIds();
+
+        long first = ids.get("a");
+        long second = ids.get("b");
+
+        assertNotEquals(first, second);
+        assertEquals(first, ids.get("a"));
+    }
+}
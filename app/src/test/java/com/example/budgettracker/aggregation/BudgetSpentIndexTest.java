@@ -0,0 +1,77 @@
+package com.example.budgettracker.aggregation;
+
+import com.example.budgettracker.models.Budget;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class BudgetSpentIndexTest {
+
+    private static Budget budget(String id, String category, long limitCents) {
+        Budget budget = new Budget("user", category, limitCents, "2024-03");
+        budget.setId(id);
+        return budget;
+    }
+
+    @Test
+    public void putBudget_takesSpentFromIndex() {
+        BudgetSpentIndex index = new BudgetSpentIndex();
+        index.setSpent("Food", 4200);
+
+        Budget food = budget("b1", "Food", 10000);
+        index.putBudget(food);
+
+        assertEquals(4200, food.getSpentCents());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void setSpent_onlyTouchesBudgetsOfThatCategory() {
+        BudgetSpentIndex index = new BudgetSpentIndex();
+        Budget food = budget("b1", "Food", 10000);
+        Budget bills = budget("b2", "Bills", 10000);
+        index.putBudget(food);
+        index.putBudget(bills);
+
+        assertTrue(index.setSpent("Food", 3000));
+        assertFalse(index.setSpent("Food", 3000));
+        assertFalse(index.setSpent("Travel", 1000));
+
+        assertEquals(3000, food.getSpentCents());
+        assertEquals(0, bills.getSpentCents());
+    }
+
+    @Test
+    public void applySpent_resetsCategoriesMissingFromNewTotals() {
+        BudgetSpentIndex index = new BudgetSpentIndex();
+        Budget food = budget("b1", "Food", 10000);
+        index.putBudget(food);
+
+        Map<String, Long> spent = new HashMap<>();
+        spent.put("Food", 2500L);
+        assertTrue(index.applySpent(spent));
+        assertEquals(2500, food.getSpentCents());
+
+        assertTrue(index.applySpent(new HashMap<>()));
+        assertEquals(0, food.getSpentCents());
+    }
+
+    @Test
+    public void putBudget_replacesAndRemoveBudgetDropsById() {
+        BudgetSpentIndex index = new BudgetSpentIndex();
+        index.putBudget(budget("b1", "Food", 10000));
+        index.putBudget(budget("b1", "Travel", 30000));
+
+        assertEquals(1, index.size());
+        assertEquals("Travel", index.getBudgets().get(0).getCategory());
+        assertTrue(index.setSpent("Travel", 500));
+        assertFalse(index.setSpent("Food", 500));
+
+        index.removeBudget("b1");
+        assertTrue(index.isEmpty());
+    }
+}
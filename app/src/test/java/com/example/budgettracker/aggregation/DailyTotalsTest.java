@@ -0,0 +1,126 @@
+package com.example.budgettracker.aggregation;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class DailyTotalsTest {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private static final TimeZone ZONE = TimeZone.getTimeZone("America/New_York");
+
+    private static long at(int year, int month, int day, int hour) {
+        Calendar calendar = Calendar.getInstance(ZONE);
+        calendar.clear();
+        calendar.set(year, month, day, hour, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    @Test
+    public void summarize_sumsWholeLocalDays() {
+        DailyTotals totals = new DailyTotals(ZONE);
+        totals.add(at(2024, Calendar.MARCH, 1, 0), TransactionStore.TYPE_INCOME, 100000);
+        totals.add(at(2024, Calendar.MARCH, 1, 23), TransactionStore.TYPE_EXPENSE, 1200);
+        totals.add(at(2024, Calendar.MARCH, 2, 9), TransactionStore.TYPE_EXPENSE, 800);
+        totals.add(at(2024, Calendar.MARCH, 31, 22), TransactionStore.TYPE_EXPENSE, 5000);
+
+        DailyTotals.Summary firstDay = totals.summarize(at(2024, Calendar.MARCH, 1, 0), at(2024, Calendar.MARCH, 2, 0));
+        assertEquals(100000, firstDay.getIncomeCents());
+        assertEquals(1200, firstDay.getExpenseCents());
+        assertEquals(98800, firstDay.getBalanceCents());
+
+        // Bounds inside a day take the whole day; 10 March is 23 hours long here
+        DailyTotals.Summary march = totals.summarize(at(2024, Calendar.MARCH, 1, 12), at(2024, Calendar.MARCH, 31, 1));
+        assertEquals(7000, march.getExpenseCents());
+        assertEquals(0, totals.summarize(at(2024, Calendar.MARCH, 3, 0), at(2024, Calendar.MARCH, 31, 0))
+                .getExpenseCents());
+        assertEquals(0, totals.summarize(at(2024, Calendar.MARCH, 2, 0), at(2024, Calendar.MARCH, 2, 0))
+                .getExpenseCents());
+    }
+
+    @Test
+    public void addAndRemove_updateRangesIncrementally() {
+        DailyTotals totals = new DailyTotals(ZONE);
+        long day = at(2024, Calendar.JUNE, 15, 12);
+        totals.add(day, TransactionStore.TYPE_EXPENSE, 4000);
+        totals.add(day, TransactionStore.TYPE_EXPENSE, 1000);
+
+        totals.remove(day, TransactionStore.TYPE_EXPENSE, 4000);
+
+        assertEquals(1000, totals.summarize(day - 30 * DAY, day + 30 * DAY).getExpenseCents());
+    }
+
+    @Test
+    public void coveredDays_growInBothDirections() {
+        DailyTotals totals = new DailyTotals(ZONE);
+        long start = at(2024, Calendar.JANUARY, 1, 12);
+        totals.add(start, TransactionStore.TYPE_EXPENSE, 1);
+        totals.add(start + 5000 * DAY, TransactionStore.TYPE_EXPENSE, 10);
+        totals.add(start - 3000 * DAY, TransactionStore.TYPE_EXPENSE, 100);
+
+        assertTrue(totals.getDayCount() >= 8001);
+        assertEquals(111, totals.summarize(start - 4000 * DAY, start + 6000 * DAY).getExpenseCents());
+        assertEquals(11, totals.summarize(start, start + 6000 * DAY).getExpenseCents());
+        assertEquals(100, totals.summarize(start - 3000 * DAY, start - 2999 * DAY).getExpenseCents());
+    }
+
+    @Test
+    public void summarize_matchesAScanOverRandomRanges() {
+        Random random = new Random(7);
+        long now = at(2024, Calendar.JULY, 1, 0);
+        long[] timestamps = new long[2000];
+        long[] amounts = new long[2000];
+        byte[] types = new byte[2000];
+        DailyTotals totals = new DailyTotals(ZONE);
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamps[i] = now - (long) (random.nextDouble() * 900 * DAY);
+            amounts[i] = 1 + random.nextInt(100000);
+            types[i] = random.nextInt(4) == 0 ? TransactionStore.TYPE_INCOME : TransactionStore.TYPE_EXPENSE;
+            totals.add(timestamps[i], types[i], amounts[i]);
+        }
+
+        for (int query = 0; query < 200; query++) {
+            Calendar calendar = Calendar.getInstance(ZONE);
+            calendar.setTimeInMillis(now);
+            calendar.add(Calendar.DAY_OF_MONTH, -random.nextInt(1000));
+            long from = calendar.getTimeInMillis();
+            calendar.add(Calendar.DAY_OF_MONTH, random.nextInt(400));
+            long to = calendar.getTimeInMillis();
+            long income = 0;
+            long expense = 0;
+            for (int i = 0; i < timestamps.length; i++) {
+                if (timestamps[i] < from || timestamps[i] >= to) continue;
+                if (types[i] == TransactionStore.TYPE_INCOME) {
+                    income += amounts[i];
+                } else {
+                    expense += amounts[i];
+                }
+            }
+
+            // Local midnights bound whole days, so the totals equal the scan
+            DailyTotals.Summary summary = totals.summarize(from, to);
+            assertEquals(income, summary.getIncomeCents());
+            assertEquals(expense, summary.getExpenseCents());
+        }
+    }
+
+    @Test
+    public void summarize_splitsAtEveryBoundary() {
+        DailyTotals totals = new DailyTotals(ZONE);
+        long start = at(2024, Calendar.MAY, 1, 0);
+        for (int i = 0; i < 10; i++) {
+            totals.add(start + i * DAY + 1, TransactionStore.TYPE_EXPENSE, i);
+        }
+
+        List<DailyTotals.Summary> summaries = totals.summarize(new long[]{start, start + 3 * DAY, start + 10 * DAY});
+
+        assertEquals(2, summaries.size());
+        assertEquals(0 + 1 + 2, summaries.get(0).getExpenseCents());
+        assertEquals(45 - 3, summaries.get(1).getExpenseCents());
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.budgettracker.aggregation;
+
+import com.example.budgettracker.models.Budget;
+import com.example.budgettracker.models.MonthlyRollup;
+import com.example.budgettracker.models.Transaction;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class TransactionAggregatorTest {
+
+    private static Calendar at(int year, int month, int day) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month, day, 12, 0);
+        return calendar;
+    }
+
+    private static Calendar dayStart(int year, int month, int day) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month, day);
+        return calendar;
+    }
+
+    private static Transaction transaction(String type, long amountCents, String category, Calendar when) {
+        return new Transaction("user", type, amountCents, category, category, new Date(when.getTimeInMillis()));
+    }
+
+    @Test
+    public void periodTotals_onlyCountCurrentMonth() {
+        Calendar now = at(2024, Calendar.MARCH, 15);
+        TransactionAggregator aggregator = TransactionAggregator.forMonth(now, 6);
+
+        aggregator.add(transaction("income", 100000, "Salary", at(2024, Calendar.MARCH, 1)));
+        aggregator.add(transaction("expense", 4000, "Food", at(2024, Calendar.MARCH, 2)));
+        aggregator.add(transaction("expense", 1000, "Food", at(2024, Calendar.MARCH, 3)));
+        aggregator.add(transaction("expense", 2500, "Bills", at(2024, Calendar.FEBRUARY, 28)));
+
+        assertEquals(100000, aggregator.getTotalIncomeCents());
+        assertEquals(5000, aggregator.getTotalExpenseCents());
+        assertEquals(95000, aggregator.getBalanceCents());
+        assertEquals(3, aggregator.getCount());
+        assertEquals(5000, aggregator.getExpenseCentsFor("Food"));
+        assertEquals(0, aggregator.getExpenseCentsFor("Bills"));
+        assertEquals(Long.valueOf(100000), aggregator.getIncomeCentsByCategory().get("Salary"));
+    }
+
+    @Test
+    public void trendBuckets_coverWindowEndingWithCurrentMonth() {
+        Calendar now = at(2024, Calendar.FEBRUARY, 10);
+        TransactionAggregator aggregator = TransactionAggregator.forMonth(now, 3);
+
+        aggregator.add(transaction("expense", 500, "Food", at(2023, Calendar.DECEMBER, 1)));
+        aggregator.add(transaction("expense", 700, "Food", at(2024, Calendar.JANUARY, 31)));
+        aggregator.add(transaction("income", 10000, "Salary", at(2024, Calendar.FEBRUARY, 1)));
+        aggregator.add(transaction("expense", 9900, "Food", at(2023, Calendar.NOVEMBER, 30)));
+        aggregator.add(transaction("expense", 9900, "Food", at(2024, Calendar.MARCH, 1)));
+
+        assertArrayEquals(new long[]{500, 700, 0}, aggregator.getMonthlyExpenseCents());
+        assertArrayEquals(new long[]{0, 0, 10000}, aggregator.getMonthlyIncomeCents());
+        assertEquals(4, aggregator.getMonthStarts().length);
+    }
+
+    @Test
+    public void applySpent_setsEveryBudgetFromCategoryTotals() {
+        Calendar now = at(2024, Calendar.MARCH, 15);
+        TransactionAggregator aggregator = TransactionAggregator.forMonth(now, 0);
+        aggregator.add(transaction("expense", 3000, "Food", now));
+        aggregator.add(transaction("expense", 2000, "Food", now));
+        aggregator.add(transaction("expense", 1500, "Travel", now));
+
+        List<Budget> budgets = Arrays.asList(
+                new Budget("user", "Food", 10000, "2024-03"),
+                new Budget("user", "Bills", 10000, "2024-03"));
+        aggregator.applySpent(budgets);
+
+        assertEquals(5000, budgets.get(0).getSpentCents());
+        assertEquals(0, budgets.get(1).getSpentCents());
+    }
+
+    @Test
+    public void toRollup_carriesPeriodTotalsAndIsComplete() {
+        Calendar now = at(2024, Calendar.MARCH, 15);
+        TransactionAggregator aggregator = TransactionAggregator.forMonth(now, 0);
+        aggregator.add(transaction("income", 20000, "Gifts", now));
+        aggregator.add(transaction("expense", 3000, "Food", now));
+
+        MonthlyRollup rollup = aggregator.toRollup("user", MonthlyRollup.monthKey(now.getTimeInMillis()));
+
+        assertEquals("2024-03", rollup.getMonth());
+        assertEquals("user_2024-03", MonthlyRollup.documentId("user", rollup.getMonth()));
+        assertTrue(rollup.isComplete());
+        assertTrue(MonthlyRollup.isUsable(rollup));
+        assertEquals(2, rollup.getTransactionCount());
+        assertEquals(20000, rollup.getTotalIncomeCents());
+        assertEquals(3000, rollup.getExpenseCentsFor("Food"));
+    }
+
+    @Test
+    public void categoriesFirstSeenAfterCreation_areStillTotalled() {
+        Calendar now = at(2024, Calendar.MARCH, 15);
+        TransactionAggregator aggregator = TransactionAggregator.forMonth(now, 0);
+
+        aggregator.add(transaction("expense", 1200, "Aggregator Test Pets", now));
+        aggregator.add(transaction("expense", 800, "Aggregator Test Pets", now));
+
+        assertEquals(2000, aggregator.getExpenseCentsFor("Aggregator Test Pets"));
+        assertEquals(Long.valueOf(2000), aggregator.getExpenseCentsByCategory().get("Aggregator Test Pets"));
+        assertEquals(0, aggregator.getExpenseCentsFor("Never Seen"));
+    }
+
+    @Test
+    public void centTotals_areExactWhereDoublesDrift() {
+        TransactionAggregator aggregator = new TransactionAggregator(Long.MIN_VALUE, new long[0]);
+        Calendar now = at(2024, Calendar.MARCH, 15);
+        double doubleTotal = 0;
+        for (int i = 0; i < 1000; i++) {
+            aggregator.add(transaction("expense", 10, "Food", now));
+            doubleTotal += 0.10;
+        }
+
+        assertEquals(10000, aggregator.getTotalExpenseCents());
+        assertNotEquals(100.0, doubleTotal, 0.0);
+    }
+
+    @Test
+    public void localDayStart_keepsTheCalendarDateOfAUtcMidnight() {
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        utc.clear();
+        utc.set(2024, Calendar.MARCH, 10);
+        Calendar local = Calendar.getInstance(TimeZone.getTimeZone("America/Los_Angeles"));
+
+        local.setTimeInMillis(TransactionAggregator.localDayStart(utc.getTimeInMillis(), local));
+
+        assertEquals(10, local.get(Calendar.DAY_OF_MONTH));
+        assertEquals(0, local.get(Calendar.HOUR_OF_DAY));
+    }
+
+    @Test
+    public void rangeStarts_bucketByDayWeekOrMonthWithPartialEnds() {
+        Calendar from = dayStart(2024, Calendar.JANUARY, 10);
+        long to = dayStart(2024, Calendar.APRIL, 5).getTimeInMillis();
+
+        assertEquals(Calendar.MONTH, TransactionAggregator.trendField(from.getTimeInMillis(), to + 120L * 86400000));
+        assertEquals(Calendar.WEEK_OF_YEAR, TransactionAggregator.trendField(from.getTimeInMillis(), to));
+        long[] starts = TransactionAggregator.rangeStarts(from, to, Calendar.MONTH);
+
+        assertEquals(5, starts.length);
+        assertEquals(from.getTimeInMillis(), starts[0]);
+        assertEquals(dayStart(2024, Calendar.FEBRUARY, 1).getTimeInMillis(), starts[1]);
+        assertEquals(to, starts[4]);
+
+        Calendar day = (Calendar) from.clone();
+        day.add(Calendar.DAY_OF_MONTH, 3);
+        assertEquals(Calendar.DAY_OF_MONTH, TransactionAggregator.trendField(from.getTimeInMillis(), day.getTimeInMillis()));
+        assertEquals(4, TransactionAggregator.rangeStarts(from, day.getTimeInMillis(), Calendar.DAY_OF_MONTH).length);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.budgettracker.aggregation;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TransactionSearchIndexTest {
+
+    private static TransactionSearchIndex index() {
+        TransactionSearchIndex index = new TransactionSearchIndex();
+        index.put("coffee", 1000, "Food", "Coffee at the station");
+        index.put("coffeeshop", 2000, "Food", "Coffeeshop lunch");
+        index.put("irish", 3000, "Entertainment", "Irish coffee");
+        index.put("walmart", 4000, "Shopping", "Walmart groceries");
+        index.put("train", 5000, "Transportation", "Train ticket");
+        return index;
+    }
+
+    @Test
+    public void tokenize_splitsOnNonWordCharactersAndLowerCases() {
+        assertEquals(Arrays.asList("café", "2024", "uber", "eats"),
+                Arrays.asList(TransactionSearchIndex.tokenize("Café, 2024 - Uber-Eats!").toArray()));
+        assertTrue(TransactionSearchIndex.tokenize(null).isEmpty());
+    }
+
+    @Test
+    public void search_ranksExactThenPrefixThenInfixThenNewest() {
+        TransactionSearchIndex index = index();
+
+        // Exact "coffee" in two documents, newest first, then the prefix match
+        assertEquals(Arrays.asList("irish", "coffee", "coffeeshop"), index.search("coffee", 10));
+        // All prefix matches, so newest first
+        assertEquals(Arrays.asList("irish", "coffeeshop", "coffee"), index.search("coff", 10));
+        assertEquals(Collections.singletonList("walmart"), index.search("mart", 10));
+    }
+
+    @Test
+    public void search_requiresEveryTermAndMatchesCategories() {
+        TransactionSearchIndex index = index();
+
+        assertEquals(Collections.singletonList("coffee"), index.search("coffee station", 10));
+        assertEquals(Arrays.asList("coffeeshop", "coffee"), index.search("food", 10));
+        assertEquals(Collections.singletonList("train"), index.search("transp tick", 10));
+        assertTrue(index.search("coffee walmart", 10).isEmpty());
+        assertTrue(index.search(" - ", 10).isEmpty());
+        // Short terms only match as prefixes, "ee" occurs inside but starts nothing
+        assertTrue(index.search("ee", 10).isEmpty());
+    }
+
+    @Test
+    public void search_keepsTheBestWithinTheLimit() {
+        TransactionSearchIndex index = new TransactionSearchIndex();
+        for (int i = 0; i < 1000; i++) {
+            index.put("t" + i, i, "Food", "Lunch " + i);
+        }
+
+        List<String> top = index.search("lunch", 3);
+
+        assertEquals(Arrays.asList("t999", "t998", "t997"), top);
+    }
+
+    @Test
+    public void putAndRemove_updateTheIndexIncrementally() {
+        TransactionSearchIndex index = index();
+
+        index.put("coffee", 1000, "Food", "Tea at the station");
+        index.remove("walmart");
+
+        assertEquals(Arrays.asList("irish", "coffeeshop"), index.search("coffee", 10));
+        assertEquals(Collections.singletonList("coffee"), index.search("tea", 10));
+        assertTrue(index.search("walmart", 10).isEmpty());
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    public void compaction_keepsLiveDocuments() {
+        TransactionSearchIndex index = new TransactionSearchIndex();
+        index.put("keep", 1, "Bills", "Electricity");
+        for (int i = 0; i < 500; i++) {
+            index.put("temp" + i, i, "Bills", "Electricity " + i);
+            index.remove("temp" + i);
+        }
+
+        assertEquals(Collections.singletonList("keep"), index.search("electricity", 10));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void estimateMemoryBytes_growsWithTheIndex() {
+        TransactionSearchIndex index = new TransactionSearchIndex();
+        long empty = index.estimateMemoryBytes();
+        for (int i = 0; i < 1000; i++) {
+            index.put("t" + i, i, "Food", "Lunch number " + i);
+        }
+
+        long full = index.estimateMemoryBytes();
+        assertTrue(full > empty + 1000 * 50);
+        // "lunch", "number", "food" and the numbers
+        assertEquals(1000 + 3, index.getTokenCount());
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.budgettracker.aggregation;
+
+import com.example.budgettracker.models.CategoryDictionary;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TransactionStoreTest {
+
+    private static TransactionStore.Builder newestFirst(int days) {
+        TransactionStore.Builder builder = new TransactionStore.Builder();
+        for (int day = days; day > 0; day--) {
+            byte type = day % 2 == 0 ? TransactionStore.TYPE_INCOME : TransactionStore.TYPE_EXPENSE;
+            builder.append("t" + day, day * 1000L, day * 100L, day % 3 == 0 ? "Food" : "Bills", type, "Day " + day);
+        }
+        return builder;
+    }
+
+    @Test
+    public void range_findsTimestampsFromInclusiveToExclusive() {
+        TransactionStore store = newestFirst(10).build();
+
+        int[] range = store.range(3000, 7000);
+
+        assertEquals(4, range[1] - range[0]);
+        assertEquals(6000, store.getTimestamp(range[0]));
+        assertEquals(3000, store.getTimestamp(range[1] - 1));
+        assertEquals(0, store.lowerBound(Long.MAX_VALUE));
+        assertEquals(10, store.lowerBound(0));
+    }
+
+    @Test
+    public void scans_sumByTypeAndCategoryId() {
+        TransactionStore store = newestFirst(6).build();
+
+        assertEquals(200 + 400 + 600, store.sumCents(0, store.size(), TransactionStore.TYPE_INCOME));
+        assertEquals(100 + 300 + 500, store.sumCents(0, store.size(), TransactionStore.TYPE_EXPENSE));
+
+        CategoryDictionary categories = CategoryDictionary.getInstance();
+        long[] totals = new long[categories.size()];
+        store.addTotalsByCategory(0, store.size(), TransactionStore.TYPE_EXPENSE, totals);
+        assertEquals(categories.idOf("Food"), store.getCategoryId(store.size() - 3)); // day 3
+        assertEquals(300, totals[categories.idOf("Food")]);
+        assertEquals(100 + 500, totals[categories.idOf("Bills")]);
+        assertArrayEquals(new int[]{0, 2, 4}, store.positionsOfType(TransactionStore.TYPE_INCOME));
+    }
+
+    @Test
+    public void snapshot_isUnchangedByLaterEdits() {
+        TransactionStore.Builder builder = newestFirst(3);
+        TransactionStore before = builder.build();
+
+        builder.remove(0);
+        builder.add(0, "t9", 9000, 999, "Travel", TransactionStore.TYPE_EXPENSE, "Caf\u00e9");
+        for (int i = 0; i < 200; i++) {
+            builder.append("x" + i, 0, 1, "Bills", TransactionStore.TYPE_EXPENSE, "");
+        }
+        TransactionStore after = builder.build();
+
+        assertEquals(3, before.size());
+        assertEquals("t3", before.getId(0));
+        assertEquals("Day 3", before.getDescription(0));
+        assertEquals("t9", after.getId(0));
+        assertEquals("Caf\u00e9", after.getDescription(0));
+        assertEquals(203, after.size());
+    }
+
+    @Test
+    public void compaction_keepsRowsAndRevisions() {
+        TransactionStore.Builder builder = newestFirst(2);
+        long revision = builder.build().getRevision(1);
+        for (int i = 0; i < 500; i++) {
+            builder.add(0, "x" + i, 5000, 1, "Bills", TransactionStore.TYPE_EXPENSE, "temp");
+            builder.remove(0);
+        }
+
+        TransactionStore store = builder.build();
+        assertEquals(2, store.size());
+        assertEquals("t1", store.getId(1));
+        assertEquals("Day 1", store.getDescription(1));
+        assertEquals(revision, store.getRevision(1));
+    }
+
+    /** Ids of {@code view}, which must be the rows of {@code store} of that type, in order. */
+    private static void assertTypeView(TransactionStore store, byte type) {
+        TransactionStore view = store.ofType(type);
+        int[] positions = store.positionsOfType(type);
+        assertEquals(positions.length, view.size());
+        for (int i = 0; i < positions.length; i++) {
+            assertEquals(store.getId(positions[i]), view.getId(i));
+            assertEquals(store.getRevision(positions[i]), view.getRevision(i));
+        }
+    }
+
+    @Test
+    public void views_followAddsAndRemovesAnywhere() {
+        TransactionStore.Builder builder = new TransactionStore.Builder();
+        Random random = new Random(7);
+        String[] categories = {"Food", "Bills", "Travel", "Salary"};
+        for (int i = 0; i < 2000; i++) {
+            int size = builder.size();
+            if (size > 0 && random.nextInt(3) == 0) {
+                builder.remove(random.nextInt(size));
+            } else {
+                byte type = random.nextBoolean() ? TransactionStore.TYPE_INCOME : TransactionStore.TYPE_EXPENSE;
+                builder.add(random.nextInt(size + 1), "t" + i, i, i, categories[random.nextInt(categories.length)],
+                        type, "");
+            }
+        }
+        TransactionStore store = builder.build();
+
+        assertTypeView(store, TransactionStore.TYPE_INCOME);
+        assertTypeView(store, TransactionStore.TYPE_EXPENSE);
+
+        int food = CategoryDictionary.getInstance().idOf("Food");
+        TransactionStore foodView = store.ofCategory(food);
+        int position = 0;
+        for (int i = 0; i < foodView.size(); i++) {
+            while (store.getCategoryId(position) != food) position++;
+            assertEquals(store.getId(position++), foodView.getId(i));
+        }
+        for (; position < store.size(); position++) {
+            assertNotEquals(food, store.getCategoryId(position));
+        }
+    }
+
+    @Test
+    public void views_surviveCompactionAndLaterEdits() {
+        TransactionStore.Builder builder = newestFirst(6);
+        TransactionStore before = builder.build();
+        for (int i = 0; i < 500; i++) {
+            builder.add(0, "x" + i, 9000, 1, "Bills", TransactionStore.TYPE_INCOME, "temp");
+            builder.remove(0);
+        }
+        builder.remove(0);
+        TransactionStore after = builder.build();
+
+        assertEquals(3, before.ofType(TransactionStore.TYPE_INCOME).size());
+        assertEquals("t6", before.ofType(TransactionStore.TYPE_INCOME).getId(0));
+        assertTypeView(after, TransactionStore.TYPE_INCOME);
+        assertTypeView(after, TransactionStore.TYPE_EXPENSE);
+        assertEquals("t4", after.ofType(TransactionStore.TYPE_INCOME).getId(0));
+
+        // A view scans for views of its own
+        TransactionStore income = after.ofType(TransactionStore.TYPE_INCOME);
+        assertEquals(income.size(), income.ofType(TransactionStore.TYPE_INCOME).size());
+        assertEquals(0, income.ofType(TransactionStore.TYPE_EXPENSE).size());
+        assertEquals(0, builder.clear().build().ofType(TransactionStore.TYPE_INCOME).size());
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.budgettracker.data;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.google.firebase.firestore.ListenerRegistration;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ListenerRegistryTest {
+
+    /** Lifecycle that only records observers and replays ON_DESTROY on demand. */
+    private static class FakeOwner extends Lifecycle implements LifecycleOwner {
+        private final List<LifecycleObserver> observers = new ArrayList<>();
+        private State state = State.RESUMED;
+
+        @NonNull
+        @Override
+        public Lifecycle getLifecycle() {
+            return this;
+        }
+
+        @Override
+        public void addObserver(@NonNull LifecycleObserver observer) {
+            observers.add(observer);
+        }
+
+        @Override
+        public void removeObserver(@NonNull LifecycleObserver observer) {
+            observers.remove(observer);
+        }
+
+        @NonNull
+        @Override
+        public State getCurrentState() {
+            return state;
+        }
+
+        void destroy() {
+            state = State.DESTROYED;
+            for (LifecycleObserver observer : new ArrayList<>(observers)) {
+                ((DefaultLifecycleObserver) observer).onDestroy(this);
+            }
+        }
+    }
+
+    private static class CountingRegistration implements ListenerRegistration {
+        int removed;
+
+        @Override
+        public void remove() {
+            removed++;
+        }
+    }
+
+    @Test
+    public void register_sameKeyForSameOwner_attachesOnce() {
+        ListenerRegistry registry = new ListenerRegistry();
+        FakeOwner owner = new FakeOwner();
+        int[] attached = {0};
+
+        for (int i = 0; i < 3; i++) {
+            registry.register(owner, "transactions/user", () -> {
+                attached[0]++;
+                return new CountingRegistration();
+            });
+        }
+
+        assertEquals(1, attached[0]);
+        assertEquals(1, registry.getActiveCount(owner));
+        assertTrue(registry.isActive(owner, "transactions/user"));
+    }
+
+    @Test
+    public void register_sameKeyForDifferentOwners_attachesEach() {
+        ListenerRegistry registry = new ListenerRegistry();
+        FakeOwner first = new FakeOwner();
+        FakeOwner second = new FakeOwner();
+
+        registry.register(first, "rollup", CountingRegistration::new);
+        registry.register(second, "rollup", CountingRegistration::new);
+
+        assertEquals(2, registry.getActiveCount());
+    }
+
+    @Test
+    public void ownerDestroyed_removesAllOfItsListeners() {
+        ListenerRegistry registry = new ListenerRegistry();
+        FakeOwner owner = new FakeOwner();
+        FakeOwner other = new FakeOwner();
+        CountingRegistration budgets = new CountingRegistration();
+        CountingRegistration rollup = new CountingRegistration();
+
+        registry.register(owner, "budgets", () -> budgets);
+        registry.register(owner, "rollup", () -> rollup);
+        registry.register(other, "rollup", CountingRegistration::new);
+
+        owner.destroy();
+
+        assertEquals(1, budgets.removed);
+        assertEquals(1, rollup.removed);
+        assertEquals(0, registry.getActiveCount(owner));
+        assertEquals(1, registry.getActiveCount());
+        assertTrue(owner.observers.isEmpty());
+    }
+
+    @Test
+    public void remove_dropsEntrySoNextRegisterAttachesAgain() {
+        ListenerRegistry registry = new ListenerRegistry();
+        FakeOwner owner = new FakeOwner();
+        CountingRegistration firestore = new CountingRegistration();
+
+        ListenerRegistration registration = registry.register(owner, "recent", () -> firestore);
+        registration.remove();
+
+        assertEquals(1, firestore.removed);
+        assertFalse(registry.isActive(owner, "recent"));
+
+        registry.register(owner, "recent", CountingRegistration::new);
+        assertEquals(1, registry.getActiveCount());
+    }
+
+    @Test
+    public void register_afterOwnerDestroyed_doesNotAttach() {
+        ListenerRegistry registry = new ListenerRegistry();
+        FakeOwner owner = new FakeOwner();
+        owner.destroy();
+        int[] attached = {0};
+
+        registry.register(owner, "transactions/user", () -> {
+            attached[0]++;
+            return new CountingRegistration();
+        });
+
+        assertEquals(0, attached[0]);
+        assertEquals(0, registry.getActiveCount());
+        assertTrue(owner.observers.isEmpty());
+    }
+}
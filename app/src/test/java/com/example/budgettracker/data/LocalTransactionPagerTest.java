@@ -0,0 +1,48 @@
+package com.example.budgettracker.data;
+
+import com.example.budgettracker.aggregation.TransactionStore;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LocalTransactionPagerTest {
+
+    private static TransactionStore store() {
+        // Newest first, ties by id descending, as LocalReadModel#page returns them
+        return new TransactionStore.Builder()
+                .append("e", 300, 100, "Food", TransactionStore.TYPE_EXPENSE, null)
+                .append("c", 200, 100, "Food", TransactionStore.TYPE_EXPENSE, null)
+                .append("b", 200, 100, "Food", TransactionStore.TYPE_EXPENSE, null)
+                .append("a", 100, 100, "Food", TransactionStore.TYPE_EXPENSE, null)
+                .build();
+    }
+
+    @Test
+    public void compare_ordersNewestFirstThenByIdDescending() {
+        assertTrue(LocalTransactionPager.compare(300, "a", 200, "z") < 0);
+        assertTrue(LocalTransactionPager.compare(200, "c", 200, "b") < 0);
+        assertTrue(LocalTransactionPager.compare(200, "b", 200, "c") > 0);
+        assertEquals(0, LocalTransactionPager.compare(200, "b", 200, "b"));
+    }
+
+    @Test
+    public void positionOf_findsLoadedRows() {
+        TransactionStore store = store();
+
+        assertEquals(0, LocalTransactionPager.positionOf(store, 300, "e"));
+        assertEquals(1, LocalTransactionPager.positionOf(store, 200, "c"));
+        assertEquals(2, LocalTransactionPager.positionOf(store, 200, "b"));
+        assertEquals(3, LocalTransactionPager.positionOf(store, 100, "a"));
+    }
+
+    @Test
+    public void positionOf_placesNewRowsBetweenTies() {
+        TransactionStore store = store();
+
+        assertEquals(0, LocalTransactionPager.positionOf(store, 400, "x"));
+        assertEquals(1, LocalTransactionPager.positionOf(store, 200, "d"));
+        assertEquals(3, LocalTransactionPager.positionOf(store, 200, "a"));
+        assertEquals(4, LocalTransactionPager.positionOf(store, 50, "z"));
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.budgettracker.data;
+
+import com.example.budgettracker.models.Transaction;
+
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+public class TransactionCacheTest {
+
+    private static Transaction transaction(String id) {
+        Transaction transaction = new Transaction("user", "expense", 100, "Food", id, new Date(0));
+        transaction.setId(id);
+        return transaction;
+    }
+
+    @Test
+    public void get_countsHitsAndMisses() {
+        TransactionCache cache = new TransactionCache(10);
+        Transaction a = transaction("a");
+        cache.put(a);
+
+        assertSame(a, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertSame(a, cache.get("a"));
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void put_evictsTheLeastRecentlyUsedEntry() {
+        TransactionCache cache = new TransactionCache(2);
+        cache.put(transaction("a"));
+        cache.put(transaction("b"));
+        // "a" is now more recently used than "b"
+        cache.get("a");
+        cache.put(transaction("c"));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+    }
+
+    @Test
+    public void put_replacesAndRemoveDrops() {
+        TransactionCache cache = new TransactionCache(10);
+        cache.put(transaction("a"));
+        Transaction edited = transaction("a");
+        cache.put(edited);
+        cache.put(new Transaction());
+
+        assertEquals(1, cache.size());
+        assertSame(edited, cache.get("a"));
+
+        cache.remove("a");
+        assertNull(cache.get("a"));
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.budgettracker.format;
+
+import com.example.budgettracker.aggregation.TransactionStore;
+import com.example.budgettracker.models.Budget;
+import com.example.budgettracker.models.Transaction;
+
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+public class DisplayFormatterTest {
+
+    @Test
+    public void transactionText_signsAmountByTypeAndIsCached() {
+        DisplayFormatter formatter = new DisplayFormatter();
+        Transaction income = new Transaction("user", "income", 123450, "Salary", "", new Date());
+        Transaction expense = new Transaction("user", "expense", 1200, "Food", "", new Date());
+
+        DisplayFormatter.TransactionText text = formatter.transactionText(income);
+        assertEquals("+$1,234.50", text.getAmount());
+        assertTrue(text.isIncome());
+        assertEquals("-$12.00", formatter.transactionText(expense).getAmount());
+
+        assertSame(text, formatter.transactionText(income));
+    }
+
+    @Test
+    public void storeText_cachedPerRevision() {
+        DisplayFormatter formatter = new DisplayFormatter();
+        TransactionStore.Builder builder = new TransactionStore.Builder()
+                .append("t1", 1000, 250, "Food", TransactionStore.TYPE_EXPENSE, "Coffee");
+        TransactionStore store = builder.build();
+
+        DisplayFormatter.TransactionText text = formatter.transactionText(store, 0);
+        assertEquals("-$2.50", text.getAmount());
+        assertEquals("Coffee", text.getDescription());
+        assertSame(text, formatter.transactionText(builder.build(), 0));
+
+        builder.remove(0).append("t1", 1000, 300, "Food", TransactionStore.TYPE_EXPENSE, "Coffee");
+        assertEquals("-$3.00", formatter.transactionText(builder.build(), 0).getAmount());
+    }
+
+    @Test
+    public void budgetText_rebuiltOnlyWhenSpentChanges() {
+        DisplayFormatter formatter = new DisplayFormatter();
+        Budget budget = new Budget("user", "Food", 20000, "2024-03");
+        budget.setId("b1");
+        budget.setSpentCents(5000);
+
+        DisplayFormatter.BudgetText text = formatter.budgetText(budget);
+        assertEquals("Spent $50.00 of $200.00", text.getInfo());
+        assertEquals("25% used", text.getPercentageText());
+        assertSame(text, formatter.budgetText(new Budget(budget)));
+
+        budget.setSpentCents(18000);
+        DisplayFormatter.BudgetText updated = formatter.budgetText(budget);
+        assertNotSame(text, updated);
+        assertEquals(90, updated.getPercentage());
+    }
+
+    @Test
+    public void forCurrentThread_isConfinedToTheCallingThread() throws InterruptedException {
+        DisplayFormatter mine = DisplayFormatter.forCurrentThread();
+        DisplayFormatter[] other = new DisplayFormatter[1];
+        Thread thread = new Thread(() -> other[0] = DisplayFormatter.forCurrentThread());
+        thread.start();
+        thread.join();
+
+        assertSame(mine, DisplayFormatter.forCurrentThread());
+        assertNotSame(mine, other[0]);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.budgettracker.models;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CategoryDictionaryTest {
+
+    @Test
+    public void defaults_haveStableIdsAndSpinnerPositions() {
+        CategoryDictionary categories = new CategoryDictionary();
+
+        assertEquals(0, categories.idOf("Salary"));
+        assertEquals("Food", categories.nameOf(categories.idOf("Food")));
+        assertEquals("Food", categories.namesFor("expense")[0]);
+        assertEquals(4, categories.positionIn("expense", "Bills"));
+        assertEquals(-1, categories.positionIn("income", "Bills"));
+        assertEquals(14, categories.size());
+    }
+
+    @Test
+    public void unknownNames_areInternedButNotOffered() {
+        CategoryDictionary categories = new CategoryDictionary();
+
+        assertEquals(CategoryDictionary.NO_ID, categories.find("Groceries"));
+        int id = categories.idOf("Groceries");
+
+        assertEquals(id, categories.idOf("Groceries"));
+        assertEquals(15, categories.size());
+        assertEquals(-1, categories.positionIn("expense", "Groceries"));
+    }
+
+    @Test
+    public void customCategories_areAddedAfterDefaultsAndRemovedKeepingTheirId() {
+        CategoryDictionary categories = new CategoryDictionary();
+
+        assertTrue(categories.addCustom("Pets", "expense"));
+        assertFalse(categories.addCustom("Pets", "expense"));
+        assertFalse(categories.addCustom("Food", "expense"));
+        int id = categories.find("Pets");
+
+        assertEquals(9, categories.positionIn("expense", "Pets"));
+        assertTrue(categories.isCustom("Pets"));
+        assertFalse(categories.isCustom("Food"));
+
+        assertTrue(categories.removeCustom("Pets"));
+        assertFalse(categories.removeCustom("Food"));
+        assertEquals(-1, categories.positionIn("expense", "Pets"));
+        assertEquals(id, categories.idOf("Pets"));
+
+        categories.addCustom("Freelance", "income");
+        categories.clearCustom();
+        assertEquals(5, categories.namesFor("income").length);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.budgettracker.models;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MoneyTest {
+
+    @Test
+    public void parseCents_roundsUserInputHalfUp() {
+        assertEquals(1200, Money.parseCents("12"));
+        assertEquals(1250, Money.parseCents("12.5"));
+        assertEquals(1235, Money.parseCents(" 12.345 "));
+        assertEquals(29, Money.parseCents("0.29"));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void parseCents_rejectsNonNumbers() {
+        Money.parseCents("12,50");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void parseCents_rejectsAmountsBeyondLongCents() {
+        Money.parseCents("1e30");
+    }
+
+    @Test
+    public void toCents_roundsLegacyDoubles() {
+        assertEquals(29, Money.toCents(0.29));
+        assertEquals(1999, Money.toCents(19.99));
+        assertEquals("12.50", Money.toPlainString(1250));
+    }
+
+    @Test
+    public void transaction_readsLegacyAmountOnlyWithoutCents() {
+        Transaction legacy = new Transaction();
+        legacy.setAmount(19.99);
+        assertEquals(1999, legacy.getAmountCents());
+
+        // Field order of a mapped document is not defined, cents win either way
+        Transaction migrated = new Transaction();
+        migrated.setAmountCents(1999);
+        migrated.setAmount(20.0);
+        assertEquals(1999, migrated.getAmountCents());
+        assertEquals(19.99, migrated.getAmount(), 0.0);
+    }
+
+    @Test
+    public void budget_readsLegacyLimitOnlyWithoutCents() {
+        Budget legacy = new Budget();
+        legacy.setLimit(250.5);
+        assertEquals(25050, legacy.getLimitCents());
+
+        Budget migrated = new Budget();
+        migrated.setLimitCents(30000);
+        migrated.setLimit(1.0);
+        assertEquals(30000, migrated.getLimitCents());
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.budgettracker.models;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TransactionDiffTest {
+
+    private static Date date(int month, int day) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(2024, month, day, 12, 0, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTime();
+    }
+
+    private static Transaction lunch() {
+        return new Transaction("user", "expense", 1250, "Food", "Lunch", date(Calendar.MARCH, 10));
+    }
+
+    @Test
+    public void between_unchangedTransactionIsEmpty() {
+        TransactionDiff diff = TransactionDiff.between(lunch(), lunch());
+
+        assertTrue(diff.isEmpty());
+        assertFalse(diff.affectsRollups());
+    }
+
+    @Test
+    public void between_descriptionOnlyLeavesRollupsAlone() {
+        Transaction edited = lunch();
+        edited.setDescription("Team lunch");
+
+        TransactionDiff diff = TransactionDiff.between(lunch(), edited);
+
+        assertEquals(1, diff.getChanges().size());
+        assertEquals("Team lunch", diff.getChanges().get("description"));
+        assertFalse(diff.affectsRollups());
+    }
+
+    @Test
+    public void between_amountWritesCentsAndLegacyAmount() {
+        Transaction edited = lunch();
+        edited.setAmountCents(1999);
+
+        Map<String, Object> changes = TransactionDiff.between(lunch(), edited).getChanges();
+
+        assertEquals(2, changes.size());
+        assertEquals(1999L, changes.get("amountCents"));
+        assertEquals(19.99, (Double) changes.get("amount"), 0);
+        assertTrue(TransactionDiff.between(lunch(), edited).affectsRollups());
+    }
+
+    @Test
+    public void between_typeAndCategoryAffectRollups() {
+        Transaction income = lunch();
+        income.setType("income");
+        Transaction transport = lunch();
+        transport.setCategory("Transport");
+
+        assertTrue(TransactionDiff.between(lunch(), income).affectsRollups());
+        assertEquals(1, TransactionDiff.between(lunch(), income).getChanges().size());
+        assertTrue(TransactionDiff.between(lunch(), transport).affectsRollups());
+    }
+
+    @Test
+    public void between_dateMovesRollupsOnlyAcrossMonths() {
+        Transaction sameMonth = lunch();
+        sameMonth.setDate(date(Calendar.MARCH, 20));
+        Transaction nextMonth = lunch();
+        nextMonth.setDate(date(Calendar.APRIL, 1));
+
+        TransactionDiff withinMonth = TransactionDiff.between(lunch(), sameMonth);
+        assertEquals(sameMonth.getDate(), withinMonth.getChanges().get("date"));
+        assertEquals(sameMonth.getTimestamp(), withinMonth.getChanges().get("timestamp"));
+        assertFalse(withinMonth.affectsRollups());
+
+        assertTrue(TransactionDiff.between(lunch(), nextMonth).affectsRollups());
+    }
+
+    @Test
+    public void applyTo_keepsFieldsChangedElsewhere() {
+        // Edited on a stale copy: the amount and date changed here
+        Transaction edited = lunch();
+        edited.setAmountCents(1500);
+        edited.setDate(date(Calendar.APRIL, 2));
+        TransactionDiff edits = TransactionDiff.between(lunch(), edited);
+
+        // Meanwhile the stored document got another category and description
+        Transaction stored = lunch();
+        stored.setId("t1");
+        stored.setCategory("Transport");
+        stored.setDescription("Taxi");
+
+        Transaction merged = edits.applyTo(stored);
+
+        assertEquals("t1", merged.getId());
+        assertEquals(1500, merged.getAmountCents());
+        assertEquals(date(Calendar.APRIL, 2).getTime(), merged.getTimestamp());
+        assertEquals("Transport", merged.getCategory());
+        assertEquals("Taxi", merged.getDescription());
+        assertEquals("expense", merged.getType());
+        assertEquals(1250, stored.getAmountCents());
+        assertTrue(TransactionDiff.between(stored, merged).affectsRollups());
+    }
+}
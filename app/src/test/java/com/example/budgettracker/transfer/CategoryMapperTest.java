@@ -0,0 +1,36 @@
+package com.example.budgettracker.transfer;
+
+import com.example.budgettracker.models.CategoryDictionary;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CategoryMapperTest {
+
+    private final CategoryMapper mapper = new CategoryMapper(CategoryDictionary.getInstance());
+
+    @Test
+    public void knownCategory_isKept_ignoringCase() {
+        assertEquals("Food", mapper.map("Food", "anything", "expense"));
+        assertEquals("Food", mapper.map(" food ", null, "expense"));
+    }
+
+    @Test
+    public void categoryOfTheOtherType_isMappedByKeywords() {
+        // "Salary" is an income category, an expense row falls through to the keywords
+        assertEquals("Other Expense", mapper.map("Salary", "adjustment", "expense"));
+    }
+
+    @Test
+    public void keywords_searchCategoryAndDescription() {
+        assertEquals("Transportation", mapper.map("Auto & Transport", "UBER *TRIP", "expense"));
+        assertEquals("Investments", mapper.map(null, "Dividend ACME", "income"));
+    }
+
+    @Test
+    public void nothingMatches_otherOfThatType() {
+        assertEquals("Other Income", mapper.map("", "misc", "income"));
+        assertEquals("Other Expense", mapper.map(null, null, "expense"));
+    }
+}
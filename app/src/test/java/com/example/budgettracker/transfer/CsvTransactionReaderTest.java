@@ -0,0 +1,137 @@
+package com.example.budgettracker.transfer;
+
+import com.example.budgettracker.models.CategoryDictionary;
+import com.example.budgettracker.models.Transaction;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Calendar;
+
+import static org.junit.Assert.*;
+
+public class CsvTransactionReaderTest {
+
+    private static CsvTransactionReader reader(String csv) throws IOException {
+        return new CsvTransactionReader(new StringReader(csv),
+                new CategoryMapper(CategoryDictionary.getInstance()));
+    }
+
+    private static long date(int year, int month, int day) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month - 1, day);
+        return calendar.getTimeInMillis();
+    }
+
+    @Test
+    public void signedAmount_decidesType() throws IOException {
+        CsvTransactionReader reader = reader("Date,Description,Amount\n"
+                + "2024-03-01,ACME PAYROLL,\"2,500.00\"\n"
+                + "03/02/2024,Corner Grocery,-12.34\n");
+
+        Transaction salary = reader.next();
+        assertEquals("income", salary.getType());
+        assertEquals(250000, salary.getAmountCents());
+        assertEquals("Salary", salary.getCategory());
+        assertEquals("ACME PAYROLL", salary.getDescription());
+        assertEquals(date(2024, 3, 1), salary.getTimestamp());
+        assertNull(salary.getUserId());
+
+        Transaction groceries = reader.next();
+        assertEquals("expense", groceries.getType());
+        assertEquals(1234, groceries.getAmountCents());
+        assertEquals("Food", groceries.getCategory());
+        assertEquals(date(2024, 3, 2), groceries.getTimestamp());
+
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void debitAndCreditColumns() throws IOException {
+        CsvTransactionReader reader = reader("Posted Date,Payee,Debit,Credit\n"
+                + "2024-03-01,Rent,1200.00,\n"
+                + "2024-03-02,Client invoice,,300\n");
+
+        Transaction rent = reader.next();
+        assertEquals("expense", rent.getType());
+        assertEquals(120000, rent.getAmountCents());
+        assertEquals("Bills", rent.getCategory());
+
+        Transaction invoice = reader.next();
+        assertEquals("income", invoice.getType());
+        assertEquals(30000, invoice.getAmountCents());
+        assertEquals("Business", invoice.getCategory());
+    }
+
+    @Test
+    public void exportedColumns_roundTrip() throws IOException {
+        long timestamp = date(2024, 3, 5) + 3_600_000;
+        CsvTransactionReader reader = reader("id,date,timestamp,type,amount,category,description\n"
+                + "a1,2024-03-05," + timestamp + ",expense,4.50,Travel,\"Train, \"\"return\"\"\"\n");
+
+        Transaction transaction = reader.next();
+        assertEquals(timestamp, transaction.getTimestamp());
+        assertEquals("expense", transaction.getType());
+        assertEquals(450, transaction.getAmountCents());
+        assertEquals("Travel", transaction.getCategory());
+        assertEquals("Train, \"return\"", transaction.getDescription());
+    }
+
+    @Test
+    public void quotedField_spansLines() throws IOException {
+        CsvTransactionReader reader = reader("date,amount,memo\n"
+                + "2024-03-01,-5,\"first\nsecond\"\n"
+                + "2024-03-02,-6,x\n");
+
+        assertEquals("first\nsecond", reader.next().getDescription());
+        assertEquals(600, reader.next().getAmountCents());
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void unreadableRows_areSkippedAndCounted() throws IOException {
+        CsvTransactionReader reader = reader("date,amount\n"
+                + "2024-03-01,-5\n"
+                + "\n"
+                + "Opening balance,\n"
+                + "2024-02-30,-1\n"
+                + "2024-03-02,abc\n"
+                + "2024-03-03,(7.25)\n");
+
+        assertEquals(500, reader.next().getAmountCents());
+        Transaction last = reader.next();
+        assertEquals("expense", last.getType());
+        assertEquals(725, last.getAmountCents());
+        assertNull(reader.next());
+        assertEquals(3, reader.getSkippedCount());
+    }
+
+    @Test
+    public void epochDates_areSecondsOrMillisByLength() throws IOException {
+        CsvTransactionReader reader = reader("date,amount\n"
+                + "1710000000,-1\n"
+                + "1710000000000,-2\n"
+                + "17100000000,-3\n");
+
+        assertEquals(1_710_000_000_000L, reader.next().getTimestamp());
+        assertEquals(1_710_000_000_000L, reader.next().getTimestamp());
+        assertNull(reader.next());
+        assertEquals(1, reader.getSkippedCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void headerWithoutAmount_isRejected() throws IOException {
+        reader("date,description\n2024-03-01,x\n");
+    }
+
+    @Test
+    public void parseAmount_handlesCommonFormats() {
+        assertEquals(-123456, CsvTransactionReader.parseAmount("-1,234.56"));
+        assertEquals(-1200, CsvTransactionReader.parseAmount("(12.00)"));
+        assertEquals(500, CsvTransactionReader.parseAmount("$ 5"));
+        assertEquals(1250, CsvTransactionReader.parseAmount("12,50"));
+        assertEquals(100000, CsvTransactionReader.parseAmount("1,000"));
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.budgettracker.transfer;
+
+import com.example.budgettracker.models.CategoryDictionary;
+import com.example.budgettracker.models.Transaction;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class OfxTransactionReaderTest {
+
+    private static final String SGML = "OFXHEADER:100\n"
+            + "DATA:OFXSGML\n"
+            + "VERSION:102\n"
+            + "\n"
+            + "<OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS><BANKTRANLIST>\n"
+            + "<STMTTRN><TRNTYPE>DEBIT<DTPOSTED>20240305120000[-5:EST]<TRNAMT>-42.10"
+            + "<FITID>1<NAME>CITY PHARMACY<MEMO>Card 1234</STMTTRN>\n"
+            + "<STMTTRN><TRNTYPE>CREDIT<DTPOSTED>20240301<TRNAMT>1500.00"
+            + "<FITID>2<NAME>PAYROLL ACME</STMTTRN>\n"
+            + "<STMTTRN><TRNTYPE>DEBIT<DTPOSTED>garbage<TRNAMT>-1.00<FITID>3</STMTTRN>\n"
+            + "</BANKTRANLIST></STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>\n";
+
+    private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<?OFX OFXHEADER=\"200\" VERSION=\"211\"?>\n"
+            + "<OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS><BANKTRANLIST>\n"
+            + "  <STMTTRN>\n"
+            + "    <TRNTYPE>DEBIT</TRNTYPE>\n"
+            + "    <DTPOSTED>20240310</DTPOSTED>\n"
+            + "    <TRNAMT>-9.99</TRNAMT>\n"
+            + "    <NAME>Netflix &amp; Co</NAME>\n"
+            + "  </STMTTRN>\n"
+            + "</BANKTRANLIST></STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>\n";
+
+    private static CategoryMapper mapper() {
+        return new CategoryMapper(CategoryDictionary.getInstance());
+    }
+
+    @Test
+    public void sgml_readsStatementTransactions() throws IOException {
+        TransactionReader reader = TransactionReader.open(new StringReader(SGML), mapper());
+        assertTrue(reader instanceof OfxTransactionReader);
+
+        Transaction pharmacy = reader.next();
+        assertEquals("expense", pharmacy.getType());
+        assertEquals(4210, pharmacy.getAmountCents());
+        assertEquals("CITY PHARMACY", pharmacy.getDescription());
+        assertEquals("Healthcare", pharmacy.getCategory());
+
+        Calendar noonEst = Calendar.getInstance(TimeZone.getTimeZone("GMT-5"));
+        noonEst.clear();
+        noonEst.set(2024, Calendar.MARCH, 5, 12, 0, 0);
+        assertEquals(noonEst.getTimeInMillis(), pharmacy.getTimestamp());
+
+        Transaction salary = reader.next();
+        assertEquals("income", salary.getType());
+        assertEquals(150000, salary.getAmountCents());
+        assertEquals("Salary", salary.getCategory());
+
+        assertNull(reader.next());
+        assertEquals(1, reader.getSkippedCount());
+    }
+
+    @Test
+    public void xml_readsClosedElementsAndEntities() throws IOException {
+        TransactionReader reader = TransactionReader.open(new StringReader(XML), mapper());
+        assertTrue(reader instanceof OfxTransactionReader);
+
+        Transaction netflix = reader.next();
+        assertEquals("Netflix & Co", netflix.getDescription());
+        assertEquals(999, netflix.getAmountCents());
+        assertEquals("Entertainment", netflix.getCategory());
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void open_fallsBackToCsv() throws IOException {
+        TransactionReader reader = TransactionReader.open(new StringReader("date,amount\n2024-03-01,-1\n"), mapper());
+        assertTrue(reader instanceof CsvTransactionReader);
+        assertEquals(100, reader.next().getAmountCents());
+    }
+
+    @Test
+    public void parseDate_rejectsInvalidDates() {
+        assertNull(OfxTransactionReader.parseDate("2024"));
+        assertNull(OfxTransactionReader.parseDate("20240230"));
+        assertNotNull(OfxTransactionReader.parseDate("20240229"));
+    }
+}
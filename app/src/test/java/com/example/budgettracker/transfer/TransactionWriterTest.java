@@ -0,0 +1,124 @@
+package com.example.budgettracker.transfer;
+
+import com.example.budgettracker.models.CategoryDictionary;
+import com.example.budgettracker.models.Transaction;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class TransactionWriterTest {
+
+    private static final long TIMESTAMP;
+
+    static {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(2024, Calendar.MARCH, 5, 9, 30);
+        TIMESTAMP = calendar.getTimeInMillis();
+    }
+
+    private static void writeSample(TransactionWriter writer) throws IOException {
+        writer.write("a1", TIMESTAMP, "expense", 1205, "Food", "Lunch, \"deluxe\"\nwith tip");
+        writer.write("a2", TIMESTAMP + 1, "income", 300000, "Salary", null);
+    }
+
+    @Test
+    public void csv_quotesFieldsAndFormatsAmounts() throws IOException {
+        StringWriter out = new StringWriter();
+        try (TransactionWriter writer = new CsvTransactionWriter(out)) {
+            writeSample(writer);
+            assertEquals(2, writer.getWrittenCount());
+        }
+
+        assertEquals(CsvTransactionWriter.HEADER + "\n"
+                + "a1,2024-03-05," + TIMESTAMP + ",expense,12.05,Food,\"Lunch, \"\"deluxe\"\"\nwith tip\"\n"
+                + "a2,2024-03-05," + (TIMESTAMP + 1) + ",income,3000.00,Salary,\n", out.toString());
+    }
+
+    @Test
+    public void csv_readsBackExactly() throws IOException {
+        StringWriter out = new StringWriter();
+        try (TransactionWriter writer = new CsvTransactionWriter(out)) {
+            writeSample(writer);
+        }
+
+        CsvTransactionReader reader = new CsvTransactionReader(new StringReader(out.toString()),
+                new CategoryMapper(CategoryDictionary.getInstance()));
+        Transaction lunch = reader.next();
+        assertEquals(TIMESTAMP, lunch.getTimestamp());
+        assertEquals("expense", lunch.getType());
+        assertEquals(1205, lunch.getAmountCents());
+        assertEquals("Food", lunch.getCategory());
+        assertEquals("Lunch, \"deluxe\"\nwith tip", lunch.getDescription());
+
+        Transaction salary = reader.next();
+        assertEquals(TIMESTAMP + 1, salary.getTimestamp());
+        assertEquals("income", salary.getType());
+        assertEquals(300000, salary.getAmountCents());
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void json_escapesStrings() throws IOException {
+        StringWriter out = new StringWriter();
+        try (TransactionWriter writer = new JsonTransactionWriter(out)) {
+            writeSample(writer);
+        }
+
+        assertEquals("[\n"
+                + "{\"id\":\"a1\",\"timestamp\":" + TIMESTAMP + ",\"type\":\"expense\",\"amountCents\":1205,"
+                + "\"category\":\"Food\",\"description\":\"Lunch, \\\"deluxe\\\"\\nwith tip\"},\n"
+                + "{\"id\":\"a2\",\"timestamp\":" + (TIMESTAMP + 1) + ",\"type\":\"income\",\"amountCents\":300000,"
+                + "\"category\":\"Salary\",\"description\":null}\n"
+                + "]\n", out.toString());
+    }
+
+    @Test
+    public void json_emptyHistoryIsAnEmptyArray() throws IOException {
+        StringWriter out = new StringWriter();
+        new JsonTransactionWriter(out).close();
+        assertEquals("[\n]\n", out.toString());
+    }
+
+    @Test
+    public void open_gzipCompresses() throws IOException {
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        try (TransactionWriter writer = TransactionWriter.open(plain, TransactionWriter.Format.CSV, false)) {
+            writeSample(writer);
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (TransactionWriter writer = TransactionWriter.open(compressed, TransactionWriter.Format.CSV, true)) {
+            writeSample(writer);
+        }
+
+        StringBuilder decompressed = new StringBuilder();
+        try (InputStreamReader in = new InputStreamReader(new GZIPInputStream(
+                new ByteArrayInputStream(compressed.toByteArray())), StandardCharsets.UTF_8)) {
+            int c;
+            while ((c = in.read()) != -1) {
+                decompressed.append((char) c);
+            }
+        }
+        assertEquals(plain.toString("UTF-8"), decompressed.toString());
+    }
+
+    @Test
+    public void writeAmount_handlesSmallAndNegativeValues() throws IOException {
+        StringWriter out = new StringWriter();
+        CsvTransactionWriter.writeAmount(out, 5);
+        out.write(' ');
+        CsvTransactionWriter.writeAmount(out, -1234);
+        assertEquals("0.05 -12.34", out.toString());
+    }
+}
@@ -0,0 +1,34 @@
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+sourceSets {
+    main {
+        java {
+            // Benchmark the app's plain-Java code directly; Android-dependent classes are left out
+            srcDir("../app/src/main/java")
+            include("com/example/budgettracker/models/**")
+            include("com/example/budgettracker/aggregation/**")
+            include("com/example/budgettracker/format/**")
+            include("com/example/budgettracker/transfer/**")
+        }
+    }
+}
+
+tasks.withType<JavaCompile> {
+    options.encoding = "UTF-8"
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    resultFormat.set("JSON")
+}
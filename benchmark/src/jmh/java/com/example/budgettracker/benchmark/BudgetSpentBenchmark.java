@@ -0,0 +1,78 @@
+package com.example.budgettracker.benchmark;
+
+import com.example.budgettracker.aggregation.BudgetSpentIndex;
+import com.example.budgettracker.aggregation.TransactionAggregator;
+import com.example.budgettracker.models.Budget;
+import com.example.budgettracker.models.Money;
+import com.example.budgettracker.models.Transaction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spent-per-budget calculation from BudgetSettingsActivity.
+ *
+ * {@link #legacyNestedLoop} is the original budgets x transactions loop; the
+ * Firestore query only returns expenses, so both variants see expenses only.
+ * {@link #indexedSingleUpdate} is the steady-state cost once the screen is open:
+ * one new expense updating the budget of its category.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BudgetSpentBenchmark {
+
+    @Benchmark
+    public void legacyNestedLoop(SyntheticHistory history, Blackhole blackhole) {
+        for (Budget budget : history.budgets) {
+            double spent = 0.0;
+            for (Transaction transaction : history.transactions) {
+                if (!"expense".equals(transaction.getType())) continue;
+                if (transaction.getCategory().equals(budget.getCategory())) {
+                    spent += transaction.getAmount();
+                }
+            }
+            budget.setSpentCents(Money.toCents(spent));
+        }
+        blackhole.consume(history.budgets);
+    }
+
+    @Benchmark
+    public void aggregatorSinglePass(SyntheticHistory history, Blackhole blackhole) {
+        TransactionAggregator aggregator = new TransactionAggregator(Long.MIN_VALUE, new long[0]);
+        for (Transaction transaction : history.transactions) {
+            if (!"expense".equals(transaction.getType())) continue;
+            aggregator.add(transaction);
+        }
+        aggregator.applySpent(history.budgets);
+        blackhole.consume(history.budgets);
+    }
+
+    @State(Scope.Thread)
+    public static class IndexState {
+        BudgetSpentIndex index;
+        long spent;
+
+        @Setup
+        public void setUp(SyntheticHistory history) {
+            index = new BudgetSpentIndex();
+            for (int i = 0; i < history.budgets.size(); i++) {
+                history.budgets.get(i).setId("budget" + i);
+                index.putBudget(history.budgets.get(i));
+            }
+        }
+    }
+
+    @Benchmark
+    public void indexedSingleUpdate(IndexState state, Blackhole blackhole) {
+        state.spent += 100;
+        blackhole.consume(state.index.setSpent("Food", state.spent));
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.budgettracker.benchmark;
+
+import com.example.budgettracker.aggregation.TransactionAggregator;
+import com.example.budgettracker.models.Transaction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Category and trend totals as the charts screen computes them.
+ *
+ * The {@code legacy*} methods are the loops ChartsActivity used before the
+ * aggregator, kept verbatim so the two can be compared between releases.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CategoryTotalsBenchmark {
+
+    @Benchmark
+    public void legacyThreePasses(SyntheticHistory history, Blackhole blackhole) {
+        blackhole.consume(legacyCategoryTotals(history, "expense"));
+        blackhole.consume(legacyCategoryTotals(history, "income"));
+        legacyMonthlyTrend(history, blackhole);
+    }
+
+    @Benchmark
+    public void legacyExpenseTotals(SyntheticHistory history, Blackhole blackhole) {
+        blackhole.consume(legacyCategoryTotals(history, "expense"));
+    }
+
+    @Benchmark
+    public void aggregatorSinglePass(SyntheticHistory history, Blackhole blackhole) {
+        TransactionAggregator aggregator = TransactionAggregator.forMonth(Calendar.getInstance(), 6);
+        aggregator.addAll(history.transactions);
+        blackhole.consume(aggregator.getExpenseCentsByCategory());
+        blackhole.consume(aggregator.getIncomeCentsByCategory());
+        blackhole.consume(aggregator.getMonthlyIncomeCents());
+        blackhole.consume(aggregator.getMonthlyExpenseCents());
+    }
+
+    private static Map<String, Float> legacyCategoryTotals(SyntheticHistory history, String type) {
+        Map<String, Float> totals = new HashMap<>();
+        for (Transaction t : history.transactions) {
+            if (!type.equals(t.getType())) continue;
+            if (t.getTimestamp() < history.monthStart) continue;
+
+            totals.put(t.getCategory(),
+                    totals.getOrDefault(t.getCategory(), 0f) + (float) t.getAmount());
+        }
+        return totals;
+    }
+
+    /** Both series go to the blackhole, as the chart drew both. */
+    private static void legacyMonthlyTrend(SyntheticHistory history, Blackhole blackhole) {
+        Map<String, Float> income = new HashMap<>();
+        Map<String, Float> expenses = new HashMap<>();
+        SimpleDateFormat fmt = new SimpleDateFormat("MMM", Locale.getDefault());
+
+        for (Transaction t : history.transactions) {
+            if (t.getTimestamp() < history.sixMonthsAgo) continue;
+
+            String month = fmt.format(t.getDate());
+            float amount = (float) t.getAmount();
+
+            if ("income".equals(t.getType())) {
+                income.put(month, income.getOrDefault(month, 0f) + amount);
+            } else {
+                expenses.put(month, expenses.getOrDefault(month, 0f) + amount);
+            }
+        }
+        blackhole.consume(income);
+        blackhole.consume(expenses);
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.budgettracker.benchmark;
+
+import com.example.budgettracker.aggregation.DailyTotals;
+import com.example.budgettracker.aggregation.TransactionAggregator;
+import com.example.budgettracker.aggregation.TransactionStore;
+import com.example.budgettracker.models.Transaction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Date range totals through {@link DailyTotals} against summing the transactions in
+ * the range, plus keeping the totals up to date and building them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DailyTotalsBenchmark {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    @State(Scope.Benchmark)
+    public static class History {
+        @Param({"1000", "100000"})
+        public int size;
+
+        List<Transaction> transactions;
+        DailyTotals totals;
+        long from;
+        long to;
+        int next = 0;
+
+        @Setup(Level.Trial)
+        public void build() {
+            long now = System.currentTimeMillis();
+            transactions = SyntheticHistory.generate(size, now, 42L);
+            totals = totals(transactions);
+            // About a quarter of the history, ending a week ago
+            to = now - 7 * DAY;
+            from = to - (now - transactions.get(0).getTimestamp()) / 4;
+        }
+    }
+
+    static DailyTotals totals(List<Transaction> transactions) {
+        DailyTotals totals = new DailyTotals(TimeZone.getDefault());
+        for (Transaction transaction : transactions) {
+            totals.add(transaction.getTimestamp(), TransactionStore.typeOf(transaction.getType()),
+                    transaction.getAmountCents());
+        }
+        return totals;
+    }
+
+    @Benchmark
+    public DailyTotals.Summary range(History history) {
+        return history.totals.summarize(history.from, history.to);
+    }
+
+    @Benchmark
+    public long scan(History history) {
+        long income = 0;
+        long expense = 0;
+        for (Transaction transaction : history.transactions) {
+            long timestamp = transaction.getTimestamp();
+            if (timestamp < history.from || timestamp >= history.to) continue;
+            if (TransactionAggregator.TYPE_INCOME.equals(transaction.getType())) {
+                income += transaction.getAmountCents();
+            } else {
+                expense += transaction.getAmountCents();
+            }
+        }
+        return income - expense;
+    }
+
+    /** An edit arriving through the listener: the old amount is taken back and the new one added. */
+    @Benchmark
+    public void update(History history) {
+        Transaction transaction = history.transactions.get(history.next++ % history.transactions.size());
+        byte type = TransactionStore.typeOf(transaction.getType());
+        history.totals.remove(transaction.getTimestamp(), type, transaction.getAmountCents());
+        history.totals.add(transaction.getTimestamp(), type, transaction.getAmountCents());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public DailyTotals buildTotals(History history) {
+        return totals(history.transactions);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.budgettracker.benchmark;
+
+import com.example.budgettracker.models.Budget;
+import com.example.budgettracker.models.Transaction;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic transaction history shared by the benchmarks.
+ *
+ * Transactions are spread evenly over the last three years, roughly one in six
+ * is income, and categories follow the app's default category lists.
+ */
+@State(Scope.Benchmark)
+public class SyntheticHistory {
+
+    static final String USER_ID = "benchmark-user";
+    static final String[] INCOME_CATEGORIES = {"Salary", "Business", "Investments", "Gifts", "Other Income"};
+    static final String[] EXPENSE_CATEGORIES = {"Food", "Transportation", "Shopping", "Entertainment",
+            "Bills", "Healthcare", "Education", "Travel", "Other Expense"};
+
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    private static final int HISTORY_DAYS = 3 * 365;
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    public List<Transaction> transactions;
+    public List<Map<String, Object>> documents;
+    public List<Budget> budgets;
+    public long monthStart;
+    public long sixMonthsAgo;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        Calendar calendar = Calendar.getInstance();
+        long now = calendar.getTimeInMillis();
+        transactions = generate(size, now, 42L);
+
+        documents = new ArrayList<>(size);
+        for (Transaction transaction : transactions) {
+            documents.add(toDocument(transaction));
+        }
+
+        budgets = new ArrayList<>();
+        for (String category : EXPENSE_CATEGORIES) {
+            budgets.add(new Budget(USER_ID, category, 50000, "2024-01"));
+        }
+
+        calendar.set(Calendar.DAY_OF_MONTH, 1);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        monthStart = calendar.getTimeInMillis();
+        calendar.add(Calendar.MONTH, -5);
+        sixMonthsAgo = calendar.getTimeInMillis();
+    }
+
+    static List<Transaction> generate(int size, long now, long seed) {
+        Random random = new Random(seed);
+        long span = HISTORY_DAYS * DAY_MILLIS;
+        List<Transaction> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            long timestamp = now - span + (span / size) * i;
+            boolean income = random.nextInt(6) == 0;
+            String category = income
+                    ? INCOME_CATEGORIES[random.nextInt(INCOME_CATEGORIES.length)]
+                    : EXPENSE_CATEGORIES[random.nextInt(EXPENSE_CATEGORIES.length)];
+            long amountCents = (income ? 500 + random.nextInt(4000) : 1 + random.nextInt(200)) * 100L
+                    + random.nextInt(100);
+            Transaction transaction = new Transaction(USER_ID, income ? "income" : "expense",
+                    amountCents, category, category + " #" + i, new Date(timestamp));
+            transaction.setId("tx" + i);
+            result.add(transaction);
+        }
+        return result;
+    }
+
+    /** Field map shaped like the Firestore document the app writes for a transaction. */
+    static Map<String, Object> toDocument(Transaction transaction) {
+        Map<String, Object> document = new HashMap<>();
+        document.put("userId", transaction.getUserId());
+        document.put("type", transaction.getType());
+        document.put("amountCents", transaction.getAmountCents());
+        document.put("amount", transaction.getAmount());
+        document.put("category", transaction.getCategory());
+        document.put("description", transaction.getDescription());
+        document.put("date", transaction.getDate());
+        document.put("timestamp", transaction.getTimestamp());
+        return document;
+    }
+}
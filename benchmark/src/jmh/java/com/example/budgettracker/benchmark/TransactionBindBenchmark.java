@@ -0,0 +1,72 @@
+package com.example.budgettracker.benchmark;
+
+import com.example.budgettracker.format.DisplayFormatter;
+import com.example.budgettracker.models.Transaction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formatting work done by TransactionViewHolder.bind for every row.
+ *
+ * TextView updates are replaced by handing the produced values to the blackhole,
+ * and Color.parseColor by an equivalent hex parse, so this runs on a plain JVM.
+ * {@link #cachedBind} is the current bind, scrolling over rows shown before; run with
+ * {@code -prof gc} to compare allocations per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TransactionBindBenchmark {
+
+    private static final int COLOR_INCOME = 0xFF2E7D32;
+    private static final int COLOR_EXPENSE = 0xFFC62828;
+
+    @Benchmark
+    public void legacyBind(SyntheticHistory history, Blackhole blackhole) {
+        for (Transaction transaction : history.transactions) {
+            blackhole.consume(transaction.getCategory());
+            blackhole.consume(transaction.getDescription());
+
+            SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
+            blackhole.consume(dateFormat.format(transaction.getDate()));
+
+            NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(Locale.US);
+            String formattedAmount = currencyFormat.format(transaction.getAmount());
+
+            if (transaction.getType().equals("income")) {
+                blackhole.consume("+" + formattedAmount);
+                blackhole.consume(parseColor("#2E7D32"));
+            } else {
+                blackhole.consume("-" + formattedAmount);
+                blackhole.consume(parseColor("#C62828"));
+            }
+        }
+    }
+
+    @Benchmark
+    public void cachedBind(SyntheticHistory history, Blackhole blackhole) {
+        DisplayFormatter formatter = DisplayFormatter.forCurrentThread();
+        for (Transaction transaction : history.transactions) {
+            blackhole.consume(transaction.getCategory());
+            blackhole.consume(transaction.getDescription());
+
+            DisplayFormatter.TransactionText text = formatter.transactionText(transaction);
+            blackhole.consume(text.getDate());
+            blackhole.consume(text.getAmount());
+            blackhole.consume(text.isIncome() ? COLOR_INCOME : COLOR_EXPENSE);
+        }
+    }
+
+    // Same contract as android.graphics.Color.parseColor for #RRGGBB
+    static int parseColor(String color) {
+        return (int) (Long.parseLong(color.substring(1), 16) | 0xFF000000L);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.budgettracker.benchmark;
+
+import com.example.budgettracker.models.Transaction;
+import com.example.budgettracker.transfer.TransactionWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding side of TransactionExporter: every transaction of the history through a
+ * {@link TransactionWriter} into a stream that only counts bytes. Firestore paging is
+ * measured on the emulator by TransactionExporterTest.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class TransactionExportBenchmark {
+
+    @Param({"CSV", "JSON"})
+    public TransactionWriter.Format format;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    static class CountingOutputStream extends OutputStream {
+        long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+
+    @Benchmark
+    public long export(SyntheticHistory history) throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        try (TransactionWriter writer = TransactionWriter.open(out, format, gzip)) {
+            int id = 0;
+            for (Transaction transaction : history.transactions) {
+                writer.write(Integer.toString(id++), transaction.getTimestamp(), transaction.getType(),
+                        transaction.getAmountCents(), transaction.getCategory(), transaction.getDescription());
+            }
+        }
+        return out.bytes;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.budgettracker.benchmark;
+
+import com.example.budgettracker.models.Transaction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Method;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of creating transactions and of mapping document fields back into them.
+ *
+ * {@link #mapReflective} approximates {@code DocumentSnapshot.toObject(Transaction.class)},
+ * which resolves bean setters once per class and then invokes them reflectively per field.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TransactionMappingBenchmark {
+
+    private static final Map<String, Method> SETTERS = new HashMap<>();
+
+    static {
+        for (Method method : Transaction.class.getMethods()) {
+            String name = method.getName();
+            if (name.startsWith("set") && method.getParameterCount() == 1) {
+                SETTERS.put(Character.toLowerCase(name.charAt(3)) + name.substring(4), method);
+            }
+        }
+    }
+
+    @Benchmark
+    public void construct(SyntheticHistory history, Blackhole blackhole) {
+        for (Transaction source : history.transactions) {
+            blackhole.consume(new Transaction(source.getUserId(), source.getType(), source.getAmountCents(),
+                    source.getCategory(), source.getDescription(), source.getDate()));
+        }
+    }
+
+    @Benchmark
+    public void mapDirect(SyntheticHistory history, Blackhole blackhole) {
+        for (Map<String, Object> document : history.documents) {
+            Transaction transaction = new Transaction();
+            transaction.setUserId((String) document.get("userId"));
+            transaction.setType((String) document.get("type"));
+            transaction.setAmountCents((Long) document.get("amountCents"));
+            transaction.setAmount((Double) document.get("amount"));
+            transaction.setCategory((String) document.get("category"));
+            transaction.setDescription((String) document.get("description"));
+            transaction.setDate((Date) document.get("date"));
+            transaction.setTimestamp((Long) document.get("timestamp"));
+            blackhole.consume(transaction);
+        }
+    }
+
+    @Benchmark
+    public void mapReflective(SyntheticHistory history, Blackhole blackhole) throws Exception {
+        for (Map<String, Object> document : history.documents) {
+            Transaction transaction = Transaction.class.getDeclaredConstructor().newInstance();
+            for (Map.Entry<String, Object> field : document.entrySet()) {
+                Method setter = SETTERS.get(field.getKey());
+                if (setter != null) {
+                    setter.invoke(transaction, field.getValue());
+                }
+            }
+            blackhole.consume(transaction);
+        }
+    }
+}
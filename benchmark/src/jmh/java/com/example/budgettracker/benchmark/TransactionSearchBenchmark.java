@@ -0,0 +1,92 @@
+package com.example.budgettracker.benchmark;
+
+import com.example.budgettracker.aggregation.TransactionSearchIndex;
+import com.example.budgettracker.models.Transaction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Searching the local history through {@link TransactionSearchIndex}: one common word,
+ * a prefix, a part of a word and two terms, plus building the index and keeping it up
+ * to date. Synthetic descriptions are a category and a row number, so every row brings
+ * a token of its own, which is the worst case for the token dictionary.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TransactionSearchBenchmark {
+
+    private static final int LIMIT = 200;
+
+    @State(Scope.Benchmark)
+    public static class Indexed {
+        @Param({"100000"})
+        public int size;
+
+        List<Transaction> transactions;
+        TransactionSearchIndex index;
+        int next = 0;
+
+        @Setup(Level.Trial)
+        public void build() {
+            transactions = SyntheticHistory.generate(size, System.currentTimeMillis(), 42L);
+            index = index(transactions);
+            System.out.println("Index of " + size + " transactions: " + index.getTokenCount() + " tokens, ~"
+                    + index.estimateMemoryBytes() / 1024 + " KB");
+        }
+    }
+
+    static TransactionSearchIndex index(List<Transaction> transactions) {
+        TransactionSearchIndex index = new TransactionSearchIndex();
+        for (Transaction transaction : transactions) {
+            index.put(transaction.getId(), transaction.getTimestamp(), transaction.getCategory(),
+                    transaction.getDescription());
+        }
+        return index;
+    }
+
+    @Benchmark
+    public List<String> word(Indexed indexed) {
+        return indexed.index.search("food", LIMIT);
+    }
+
+    @Benchmark
+    public List<String> prefix(Indexed indexed) {
+        return indexed.index.search("entert", LIMIT);
+    }
+
+    @Benchmark
+    public List<String> infix(Indexed indexed) {
+        return indexed.index.search("portat", LIMIT);
+    }
+
+    @Benchmark
+    public List<String> twoTerms(Indexed indexed) {
+        return indexed.index.search("travel 99", LIMIT);
+    }
+
+    /** An edit arriving through the listener: the document is replaced in the index. */
+    @Benchmark
+    public void update(Indexed indexed) {
+        Transaction transaction = indexed.transactions.get(indexed.next++ % indexed.transactions.size());
+        indexed.index.put(transaction.getId(), transaction.getTimestamp(), transaction.getCategory(),
+                transaction.getDescription());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public TransactionSearchIndex buildIndex(Indexed indexed) {
+        return index(indexed.transactions);
+    }
+}
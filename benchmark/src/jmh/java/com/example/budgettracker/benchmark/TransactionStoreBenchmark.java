@@ -0,0 +1,84 @@
+package com.example.budgettracker.benchmark;
+
+import com.example.budgettracker.aggregation.TransactionStore;
+import com.example.budgettracker.models.CategoryDictionary;
+import com.example.budgettracker.models.Transaction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Date-range and per-category totals over the loaded history, as a list of
+ * Transaction objects versus the columnar {@link TransactionStore}.
+ *
+ * The range is the last six months, so the list pays for a full scan while the
+ * store binary-searches its ends and loops over that slice only.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TransactionStoreBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Store {
+        TransactionStore transactions;
+
+        @Setup(Level.Trial)
+        public void build(SyntheticHistory history) {
+            // The pager fills the store newest first
+            TransactionStore.Builder builder = new TransactionStore.Builder();
+            List<Transaction> oldestFirst = history.transactions;
+            for (int i = oldestFirst.size() - 1; i >= 0; i--) {
+                builder.append(oldestFirst.get(i));
+            }
+            transactions = builder.build();
+        }
+    }
+
+    @Benchmark
+    public long listRangeExpense(SyntheticHistory history) {
+        long total = 0;
+        for (Transaction transaction : history.transactions) {
+            long timestamp = transaction.getTimestamp();
+            if (timestamp >= history.sixMonthsAgo && timestamp < history.monthStart
+                    && "expense".equals(transaction.getType())) {
+                total += transaction.getAmountCents();
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long storeRangeExpense(SyntheticHistory history, Store store) {
+        int[] range = store.transactions.range(history.sixMonthsAgo, history.monthStart);
+        return store.transactions.sumCents(range[0], range[1], TransactionStore.TYPE_EXPENSE);
+    }
+
+    @Benchmark
+    public Map<String, Long> listCategoryTotals(SyntheticHistory history) {
+        Map<String, Long> totals = new HashMap<>();
+        for (Transaction transaction : history.transactions) {
+            if ("expense".equals(transaction.getType())) {
+                totals.merge(transaction.getCategory(), transaction.getAmountCents(), Long::sum);
+            }
+        }
+        return totals;
+    }
+
+    @Benchmark
+    public long[] storeCategoryTotals(Store store) {
+        long[] totals = new long[CategoryDictionary.getInstance().size()];
+        store.transactions.addTotalsByCategory(0, store.transactions.size(), TransactionStore.TYPE_EXPENSE, totals);
+        return totals;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.budgettracker.benchmark;
+
+import com.example.budgettracker.aggregation.TransactionStore;
+import com.example.budgettracker.models.Transaction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Switching the transaction list between all, income and expense rows: scanning the
+ * type column for matching positions versus the per-type views the store keeps, plus
+ * what keeping those views costs per snapshot change.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TransactionViewBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Loaded {
+        @Param({"50000"})
+        public int size;
+
+        TransactionStore.Builder builder;
+        TransactionStore transactions;
+        Transaction newest;
+
+        @Setup(Level.Trial)
+        public void build() {
+            List<Transaction> oldestFirst = SyntheticHistory.generate(size, System.currentTimeMillis(), 42L);
+            builder = new TransactionStore.Builder();
+            for (int i = oldestFirst.size() - 1; i >= 0; i--) {
+                builder.append(oldestFirst.get(i));
+            }
+            transactions = builder.build();
+            newest = oldestFirst.get(oldestFirst.size() - 1);
+        }
+    }
+
+    @Benchmark
+    public int[] scanIncomePositions(Loaded loaded) {
+        return loaded.transactions.positionsOfType(TransactionStore.TYPE_INCOME);
+    }
+
+    @Benchmark
+    public TransactionStore incomeView(Loaded loaded) {
+        return loaded.transactions.ofType(TransactionStore.TYPE_INCOME);
+    }
+
+    @Benchmark
+    public TransactionStore categoryView(Loaded loaded) {
+        return loaded.transactions.ofCategory(loaded.transactions.getCategoryId(0));
+    }
+
+    /** A transaction added at the top and removed again, as a snapshot listener would. */
+    @Benchmark
+    public TransactionStore.Builder addAndRemoveNewest(Loaded loaded) {
+        return loaded.builder.add(0, loaded.newest).remove(0);
+    }
+
+    /** The snapshot published after every change, copying the position order and the views. */
+    @Benchmark
+    public TransactionStore buildSnapshot(Loaded loaded) {
+        return loaded.builder.build();
+    }
+}